@@ -507,7 +507,16 @@ public class AlfrescoCmisServiceImpl extends AbstractCmisService implements Alfr
 
         if (max > 0)
         {
-            for (FileInfo child : pageOfNodeInfos.getPage())
+            // pre-load the node data and ACLs of the whole page rather than loading them child by child
+            List<FileInfo> page = pageOfNodeInfos.getPage();
+            List<NodeRef> pageNodeRefs = new ArrayList<NodeRef>(page.size());
+            for (FileInfo child : page)
+            {
+                pageNodeRefs.add(child.getNodeRef());
+            }
+            connector.preloadNodes(pageNodeRefs);
+
+            for (FileInfo child : page)
             {
                 try
                 {
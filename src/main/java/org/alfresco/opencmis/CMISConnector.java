@@ -83,6 +83,8 @@ import org.alfresco.sync.repo.Client.ClientType;
 import org.alfresco.repo.action.executer.ContentMetadataExtracter;
 import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.coci.CheckOutCheckInServiceImpl;
+import org.alfresco.repo.domain.node.NodeDAO;
+import org.alfresco.repo.domain.permissions.AclDAO;
 import org.alfresco.sync.repo.events.EventPreparator;
 import org.alfresco.sync.repo.events.EventPublisher;
 import org.alfresco.repo.model.filefolder.GetChildrenCannedQuery;
@@ -367,6 +369,11 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
     private int bulkBatchSize = 20;
     private int bulkWorkerThreads = 2;
 
+    // Bulk hydration of result pages
+    private NodeDAO nodeDAO;
+    private AclDAO aclDAO;
+    private boolean preloadNodes = true;
+
     // --------------------------------------------------------------
     // Configuration
     // --------------------------------------------------------------
@@ -837,6 +844,36 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
         return bulkWorkerThreads;
     }
 
+    /**
+     * Sets the DAO used to bulk load node data for pages of results.
+     */
+    public void setNodeDAO(NodeDAO nodeDAO)
+    {
+        this.nodeDAO = nodeDAO;
+    }
+
+    /**
+     * Sets the DAO used to bulk load the ACLs of pages of results.
+     */
+    public void setAclDAO(AclDAO aclDAO)
+    {
+        this.aclDAO = aclDAO;
+    }
+
+    /**
+     * Enables or disables the pre-loading of node data for pages of results
+     * (getChildren, query etc.).  Defaults to <tt>true</tt>.
+     */
+    public void setPreloadNodes(boolean preloadNodes)
+    {
+        this.preloadNodes = preloadNodes;
+    }
+
+    public boolean isPreloadNodes()
+    {
+        return preloadNodes;
+    }
+
     // --------------------------------------------------------------
     // Lifecycle methods
     // --------------------------------------------------------------
@@ -1222,6 +1259,56 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
         return new CMISNodeInfoImpl(this, assocRef);
     }
 
+    /**
+     * Pre-loads the data needed to build the CMIS objects for a page of nodes: the nodes, their
+     * properties and aspects (which also carry the version label and checked out state) and
+     * their access control lists.  The node infos and object data built afterwards for the
+     * same nodes are then served from the caches rather than loaded one node at a time.
+     * <p/>
+     * The bulk loader takes care of batching, so the whole page can be passed in.
+     * 
+     * @param nodeRefs          the nodes that are about to be converted into CMIS objects
+     */
+    public void preloadNodes(List<NodeRef> nodeRefs)
+    {
+        if (!preloadNodes || nodeDAO == null || nodeRefs.isEmpty())
+        {
+            return;
+        }
+        long start = System.currentTimeMillis();
+
+        // Nodes, properties and aspects
+        nodeDAO.cacheNodes(nodeRefs);
+
+        // The ACLs; nodes inheriting from the same parent share them, so only load each one once
+        int aclCount = 0;
+        if (aclDAO != null)
+        {
+            Set<Long> aclIds = new HashSet<Long>();
+            for (NodeRef nodeRef : nodeRefs)
+            {
+                Pair<Long, NodeRef> nodePair = nodeDAO.getNodePair(nodeRef);
+                if (nodePair == null)
+                {
+                    // Ignore nodes that have gone
+                    continue;
+                }
+                Long aclId = nodeDAO.getNodeAclId(nodePair.getFirst());
+                if (aclId != null && aclIds.add(aclId))
+                {
+                    aclDAO.getAccessControlList(aclId);
+                }
+            }
+            aclCount = aclIds.size();
+        }
+
+        if (logger.isDebugEnabled())
+        {
+            logger.debug("Pre-loaded " + nodeRefs.size() + " nodes and " + aclCount + " ACLs in "
+                    + (System.currentTimeMillis() - start) + " ms");
+        }
+    }
+
     /*
      * Strip store ref from the id, if there is one.
      */
@@ -2988,6 +3075,14 @@ public class CMISConnector implements ApplicationContextAware, ApplicationListen
         {
             CMISResultSetColumn[] columns = rs.getMetaData().getColumns();
 
+            // pre-load the page of results before the rows are checked and converted one by one
+            List<NodeRef> pageNodeRefs = new ArrayList<NodeRef>(rs.getLength());
+            for (CMISResultSetRow row : rs)
+            {
+                pageNodeRefs.add(row.getNodeRef());
+            }
+            preloadNodes(pageNodeRefs);
+
             for (CMISResultSetRow row : rs)
             {
                 NodeRef nodeRef = row.getNodeRef();
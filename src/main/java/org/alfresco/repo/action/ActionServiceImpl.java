@@ -655,7 +655,7 @@ public class ActionServiceImpl implements ActionService, RuntimeActionService, A
      * @param action        the action, which may or may not have any say about the status tracking
      * @return              <tt>true</tt> if the status must be tracked, otherwise <tt>false</tt>
      */
-    private boolean getTrackStatus(Action action)
+    boolean getTrackStatus(Action action)
     {
         Boolean trackStatusManual = action.getTrackStatus();
         if (trackStatusManual != null)
@@ -42,6 +42,7 @@ public class ActionServiceMonitor
 {
     private ConcurrentHashMap<UUID, RunningAction> runningActions = new ConcurrentHashMap<UUID, RunningAction>();
     private ConcurrentHashMap<String, ActionStatistics> actionStatistics = new ConcurrentHashMap<String, ActionStatistics>();
+    private ConcurrentHashMap<String, AsynchronousActionQueueStatistics> queueStatistics = new ConcurrentHashMap<String, AsynchronousActionQueueStatistics>();
     
     /**
      * Called by the {@link ActionServiceImpl} when an action is started.
@@ -86,6 +87,50 @@ public class ActionServiceMonitor
         actionStats.addAction(action);        
     }
 
+    /**
+     * Called by an {@link AsynchronousActionExecutionQueueImpl} when an action is placed on the queue.
+     * 
+     * @param queueId The id of the queue
+     */
+    public void asyncActionQueued(String queueId)
+    {
+        getQueueStatistics(queueId).addQueued();
+    }
+    
+    /**
+     * Called by an {@link AsynchronousActionExecutionQueueImpl} when an action is merged into an
+     * equivalent action that is still waiting on the queue.
+     * 
+     * @param queueId The id of the queue
+     */
+    public void asyncActionCoalesced(String queueId)
+    {
+        getQueueStatistics(queueId).addCoalesced();
+    }
+    
+    /**
+     * Called by an {@link AsynchronousActionExecutionQueueImpl} when an action taken from the queue has been executed.
+     * 
+     * @param queueId The id of the queue
+     * @param waitTime The time in milliseconds the action spent on the queue
+     * @param executionTime The time in milliseconds taken to execute the action
+     */
+    public void asyncActionExecuted(String queueId, long waitTime, long executionTime)
+    {
+        getQueueStatistics(queueId).addExecuted(waitTime, executionTime);
+    }
+    
+    private AsynchronousActionQueueStatistics getQueueStatistics(String queueId)
+    {
+        AsynchronousActionQueueStatistics queueStats = queueStatistics.get(queueId);
+        if (queueStats == null)
+        {
+            queueStatistics.putIfAbsent(queueId, new AsynchronousActionQueueStatistics(queueId));
+            queueStats = queueStatistics.get(queueId);
+        }
+        return queueStats;
+    }
+
     /**
      * @return The list of currently running actions.
      */
@@ -109,4 +154,12 @@ public class ActionServiceMonitor
     {
         return Collections.unmodifiableList(new ArrayList<ActionStatistics>(actionStatistics.values()));
     }
+
+    /**
+     * @return a list of the accumulated statistics for each asynchronous action execution queue.
+     */
+    public List<AsynchronousActionQueueStatistics> getAsyncQueueStatistics()
+    {
+        return Collections.unmodifiableList(new ArrayList<AsynchronousActionQueueStatistics>(queueStatistics.values()));
+    }
 }
@@ -25,12 +25,17 @@
  */
 package org.alfresco.repo.action;
 
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.Set;
 import java.util.Vector;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 
 import org.alfresco.error.AlfrescoRuntimeException;
@@ -48,9 +53,11 @@ import org.alfresco.service.cmr.action.Action;
 import org.alfresco.service.cmr.action.ActionServiceException;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.EqualsHelper;
 import org.alfresco.util.transaction.TransactionListenerAdapter;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.springframework.util.StringUtils;
 
 /**
  * The asynchronous action execution queue implementation
@@ -61,6 +68,11 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
 {
     private static Log logger = LogFactory.getLog(AsynchronousActionExecutionQueueImpl.class);
     
+    /** Priority lanes, in the order in which they are drained */
+    private static final int LANE_HIGH = 0;
+    private static final int LANE_NORMAL = 1;
+    private static final int LANE_LOW = 2;
+    
     /** Services */
     private ActionServiceImpl  actionServiceImpl;
     private ThreadPoolExecutor threadPoolExecutor;
@@ -69,6 +81,10 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
     private Map<String, AbstractAsynchronousActionFilter>
             actionFilters = new ConcurrentHashMap<String, AbstractAsynchronousActionFilter>();
     private String id;
+    private ActionServiceMonitor monitor;
+    private boolean coalesceActions = false;
+    private Set<String> highPriorityActions = Collections.emptySet();
+    private Set<String> lowPriorityActions = Collections.emptySet();
 
     /**
      * We keep a record of ongoing asynchronous actions (this includes those being executed and
@@ -77,6 +93,23 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
      */
     List<OngoingAsyncAction> ongoingActions = new Vector<OngoingAsyncAction>();
     
+    /**
+     * Actions waiting for a thread, by priority lane.  Each action placed on a lane is matched by
+     * a dispatcher on the thread pool, which runs the most urgent action waiting at the time.
+     */
+    @SuppressWarnings("unchecked")
+    private final Queue<ActionExecutionWrapper>[] lanes = new Queue[] {
+            new ConcurrentLinkedQueue<ActionExecutionWrapper>(),
+            new ConcurrentLinkedQueue<ActionExecutionWrapper>(),
+            new ConcurrentLinkedQueue<ActionExecutionWrapper>() };
+    
+    /**
+     * The actions waiting on the lanes, keyed by what makes them equivalent, when coalescing
+     */
+    private final Map<PendingActionKey, ActionExecutionWrapper> pendingActions = new ConcurrentHashMap<PendingActionKey, ActionExecutionWrapper>();
+    
+    private final Runnable laneDispatcher = new LaneDispatcher();
+    
     // Policy delegates
     private ClassPolicyDelegate<OnAsyncActionExecute> onAsyncActionExecuteDelegate; 
 
@@ -115,6 +148,45 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
         this.id = id;
     }
     
+    /**
+     * Set the monitor used to gather queue throughput and latency statistics
+     * 
+     * @param monitor                       the action service monitor (optional)
+     */
+    public void setMonitor(ActionServiceMonitor monitor)
+    {
+        this.monitor = monitor;
+    }
+    
+    /**
+     * Set whether an action should be dropped when an equivalent action - the same action, with the same
+     * parameters, run as the same user against the same node - is still waiting on the queue.  The waiting
+     * action has not started, so it will see all changes made before the new request.  Actions whose status
+     * is tracked are never dropped, as each request has already been recorded as pending.
+     * 
+     * @param coalesceActions               <tt>true</tt> to coalesce equivalent waiting actions
+     */
+    public void setCoalesceActions(boolean coalesceActions)
+    {
+        this.coalesceActions = coalesceActions;
+    }
+    
+    /**
+     * @param highPriorityActions           comma-separated names of action definitions that jump the queue
+     */
+    public void setHighPriorityActions(String highPriorityActions)
+    {
+        this.highPriorityActions = StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(highPriorityActions));
+    }
+    
+    /**
+     * @param lowPriorityActions            comma-separated names of action definitions that only run when no other actions are waiting
+     */
+    public void setLowPriorityActions(String lowPriorityActions)
+    {
+        this.lowPriorityActions = StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(lowPriorityActions));
+    }
+    
     /**
      * Set the thread pool, which may be shared with other components, that will be used
      * to run the actions.
@@ -224,7 +296,7 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
 
         Set<RuleServiceImpl.ExecutedRuleData> executedRules =
             (Set<RuleServiceImpl.ExecutedRuleData>) AlfrescoTransactionSupport.getResource("RuleServiceImpl.ExecutedRules");
-        Runnable runnable = new ActionExecutionWrapper(
+        ActionExecutionWrapper wrapper = new ActionExecutionWrapper(
                 actionService,
                 action,
                 actionedUponNodeRef,
@@ -285,9 +357,35 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
                 logger.debug(msg.toString());
             }
             
+            // Drop it if an equivalent action has yet to start
+            if (coalesceActions && !actionServiceImpl.getTrackStatus(action))
+            {
+                wrapper.pendingActionKey = new PendingActionKey(action, actionedUponNodeRef, checkConditions);
+                if (pendingActions.putIfAbsent(wrapper.pendingActionKey, wrapper) != null)
+                {
+                    if (logger.isDebugEnabled())
+                    {
+                        StringBuilder msg = new StringBuilder();
+                        msg.append("Dropping action ").append(action).append(" as equivalent is queued.");
+                        logger.debug(msg.toString());
+                    }
+                    if (monitor != null)
+                    {
+                        monitor.asyncActionCoalesced(getQueueName());
+                    }
+                    return;
+                }
+            }
+            
             // Queue it and do it.
             ongoingActions.add(nodeBeingNewlyActioned);
-            threadPoolExecutor.execute(runnable);
+            wrapper.queuedTime = System.currentTimeMillis();
+            lanes[getLane(action)].add(wrapper);
+            if (monitor != null)
+            {
+                monitor.asyncActionQueued(getQueueName());
+            }
+            threadPoolExecutor.execute(laneDispatcher);
         }
 
         // Done
@@ -308,6 +406,26 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
         }
     }
     
+    private int getLane(Action action)
+    {
+        String actionDefinitionName = action.getActionDefinitionName();
+        if (highPriorityActions.contains(actionDefinitionName))
+        {
+            return LANE_HIGH;
+        }
+        else if (lowPriorityActions.contains(actionDefinitionName))
+        {
+            return LANE_LOW;
+        }
+        return LANE_NORMAL;
+    }
+    
+    private String getQueueName()
+    {
+        // The default queue has an empty id
+        return (id == null || id.length() == 0) ? "default" : id;
+    }
+    
     private void handleAsyncActionIsCompleted(NodeRef n, Action action) {
         if (logger.isDebugEnabled())
         {
@@ -350,6 +468,94 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
         }        
     }
 
+    /**
+     * Runs the most urgent action waiting on the lanes.
+     */
+    private class LaneDispatcher implements Runnable
+    {
+        public void run()
+        {
+            ActionExecutionWrapper wrapper = null;
+            for (Queue<ActionExecutionWrapper> lane : lanes)
+            {
+                wrapper = lane.poll();
+                if (wrapper != null)
+                {
+                    break;
+                }
+            }
+            if (wrapper == null)
+            {
+                // Already picked up by another dispatcher
+                return;
+            }
+            if (wrapper.pendingActionKey != null)
+            {
+                // From now on, new requests must be queued as this one may miss their changes
+                pendingActions.remove(wrapper.pendingActionKey, wrapper);
+            }
+            long startTime = System.currentTimeMillis();
+            wrapper.run();
+            if (monitor != null)
+            {
+                monitor.asyncActionExecuted(getQueueName(), startTime - wrapper.queuedTime, System.currentTimeMillis() - startTime);
+            }
+        }
+    }
+    
+    /**
+     * Identifies equivalent actions waiting on the queue
+     */
+    private static class PendingActionKey
+    {
+        private final NodeRef actionedUponNodeRef;
+        private final String actionDefinitionName;
+        private final String actionId;
+        private final Map<String, Serializable> parameterValues;
+        private final String runAsUser;
+        private final String tenantId;
+        private final boolean checkConditions;
+        
+        private PendingActionKey(Action action, NodeRef actionedUponNodeRef, boolean checkConditions)
+        {
+            this.actionedUponNodeRef = actionedUponNodeRef;
+            this.actionDefinitionName = action.getActionDefinitionName();
+            // Only repeated requests for the same action are equivalent, e.g. a rule firing again on the same node
+            this.actionId = action.getId();
+            this.parameterValues = new HashMap<String, Serializable>(action.getParameterValues());
+            this.runAsUser = (action instanceof ActionImpl) ? ((ActionImpl) action).getRunAsUser() : null;
+            this.tenantId = (action instanceof ActionImpl) ? ((ActionImpl) action).getTenantId() : null;
+            this.checkConditions = checkConditions;
+        }
+        
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+            {
+                return true;
+            }
+            if (!(obj instanceof PendingActionKey))
+            {
+                return false;
+            }
+            PendingActionKey that = (PendingActionKey) obj;
+            return this.checkConditions == that.checkConditions &&
+                    EqualsHelper.nullSafeEquals(this.actionedUponNodeRef, that.actionedUponNodeRef) &&
+                    EqualsHelper.nullSafeEquals(this.actionDefinitionName, that.actionDefinitionName) &&
+                    EqualsHelper.nullSafeEquals(this.actionId, that.actionId) &&
+                    EqualsHelper.nullSafeEquals(this.parameterValues, that.parameterValues) &&
+                    EqualsHelper.nullSafeEquals(this.runAsUser, that.runAsUser) &&
+                    EqualsHelper.nullSafeEquals(this.tenantId, that.tenantId);
+        }
+        
+        @Override
+        public int hashCode()
+        {
+            return (actionedUponNodeRef == null ? 0 : actionedUponNodeRef.hashCode()) + 7 * actionDefinitionName.hashCode();
+        }
+    }
+
     /**
      * Runnable class to wrap the execution of the action.
      */
@@ -362,6 +568,9 @@ public class AsynchronousActionExecutionQueueImpl implements AsynchronousActionE
         private boolean checkConditions;
         private Set<String> actionChain;
         private Set<RuleServiceImpl.ExecutedRuleData> executedRules;
+        
+        private PendingActionKey pendingActionKey;
+        private long queuedTime;
 
         /**
          * @param actionService                     the action service
@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.action;
+
+/**
+ * Responsible for accumulating and providing statistics on the actions passing through an asynchronous action
+ * execution queue.
+ *
+ * @since 7.6
+ */
+public class AsynchronousActionQueueStatistics
+{
+    private String queueId;
+    
+    long queuedCount = 0;
+    long coalescedCount = 0;
+    long executedCount = 0;
+    long totalWaitTime = 0;
+    long totalExecutionTime = 0;
+    
+    /**
+     * @param queueId The id of the queue this object will provide statistics for.
+     */
+    public AsynchronousActionQueueStatistics(String queueId)
+    {
+        this.queueId = queueId;
+    }
+    
+    /**
+     * Record an action placed on the queue.
+     */
+    public synchronized void addQueued()
+    {
+        queuedCount = queuedCount + 1;
+    }
+    
+    /**
+     * Record an action dropped because an equivalent action was already waiting on the queue.
+     */
+    public synchronized void addCoalesced()
+    {
+        coalescedCount = coalescedCount + 1;
+    }
+    
+    /**
+     * Accumulate the timings of an action taken from the queue and executed.
+     * 
+     * @param waitTime          the time the action spent on the queue
+     * @param executionTime     the time taken to execute the action
+     */
+    public synchronized void addExecuted(long waitTime, long executionTime)
+    {
+        executedCount = executedCount + 1;
+        totalWaitTime = totalWaitTime + waitTime;
+        totalExecutionTime = totalExecutionTime + executionTime;
+    }
+    
+    /**
+     * @return The id of the queue this object has statistics for
+     */
+    public String getQueueId()
+    {
+        return queueId;
+    }
+    
+    /**
+     * @return The number of actions placed on the queue
+     */
+    public long getQueuedCount()
+    {
+        return queuedCount;
+    }
+    
+    /**
+     * @return The number of actions merged into an equivalent action already waiting on the queue
+     */
+    public long getCoalescedCount()
+    {
+        return coalescedCount;
+    }
+    
+    /**
+     * @return The number of actions taken from the queue and executed
+     */
+    public long getExecutedCount()
+    {
+        return executedCount;
+    }
+    
+    /**
+     * @return The number of actions waiting on the queue
+     */
+    public synchronized long getPendingCount()
+    {
+        return queuedCount - executedCount;
+    }
+    
+    /**
+     * @return The average time an action waited on the queue before execution
+     */
+    public synchronized long getAverageWaitTime()
+    {
+        return executedCount == 0 ? 0 : totalWaitTime / executedCount;
+    }
+    
+    /**
+     * @return The average time taken to execute an action from the queue
+     */
+    public synchronized long getAverageExecutionTime()
+    {
+        return executedCount == 0 ? 0 : totalExecutionTime / executedCount;
+    }
+}
@@ -26,6 +26,7 @@
 package org.alfresco.repo.cache;
 
 import java.util.Map;
+import java.util.Set;
 
 import org.alfresco.repo.cache.TransactionStats.OpType;
 
@@ -93,4 +94,53 @@ public interface CacheStatistics
      * @return Map of OpType to OperationStats
      */
     Map<OpType, OperationStats> allStats(String cacheName);
+    
+    /**
+     * Add new details to the system wide cache statistics, for a transaction that ran
+     * in the context of the given tenant. The details are added to the statistics of the
+     * cache as a whole and to the statistics of the tenant.
+     * 
+     * @param cacheName     Name of the cache.
+     * @param tenantDomain  The tenant domain.
+     * @param stats         The transaction's statistics.
+     * @since 7.6
+     */
+    void add(String cacheName, String tenantDomain, TransactionStats stats);
+    
+    /**
+     * The hit ratio for the given cache, for the given tenant only.
+     * 
+     * @param cacheName     The cache name.
+     * @param tenantDomain  The tenant domain.
+     * @return ratio (double)
+     * @since 7.6
+     */
+    double hitMissRatio(String cacheName, String tenantDomain);
+    
+    /**
+     * Retrieve the number of get operations invoked on the cache by the given tenant.
+     * 
+     * @param cacheName     The cache name.
+     * @param tenantDomain  The tenant domain.
+     * @return Count of get operations.
+     * @since 7.6
+     */
+    long numGets(String cacheName, String tenantDomain);
+    
+    /**
+     * Retrieve a snapshot of all of the raw stats of the given tenant for the cache.
+     * 
+     * @param cacheName     The cache name.
+     * @param tenantDomain  The tenant domain.
+     * @return Map of OpType to OperationStats
+     * @since 7.6
+     */
+    Map<OpType, OperationStats> allStats(String cacheName, String tenantDomain);
+    
+    /**
+     * @param cacheName     The cache name.
+     * @return the domains of the tenants that have statistics for the cache (may be empty)
+     * @since 7.6
+     */
+    Set<String> tenantDomains(String cacheName);
 }
@@ -26,6 +26,8 @@
 package org.alfresco.repo.cache;
 
 import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -35,6 +37,11 @@ import org.apache.commons.logging.LogFactory;
  * The caches are created with a capacity specified by the property {name}.maxItems.
  * For example, a cache named <tt>cache.ticketsCache</tt> would have a capacity specified
  * by the property <tt>cache.ticketsCache.maxItems</tt>
+ * <p/>
+ * If the property {name}.tenant.maxItems is set then a {@link TenantPartitionedSimpleCache} is created,
+ * which holds the entries of each tenant in a partition of that capacity. The capacity of the partition
+ * of a given tenant may be overridden by the property {name}.tenant.{tenantDomain}.maxItems. The partitions
+ * of a deleted tenant are discarded by {@link #removeTenantPartitions(String)}.
  * 
  * @author Matt Ward
  */
@@ -43,6 +50,7 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
     private static final Log log = LogFactory.getLog(DefaultCacheFactory.class);
     private static final String EVICT_NONE = "NONE";
     
+    private final List<TenantPartitionedSimpleCache<K, V>> tenantPartitionedCaches = new CopyOnWriteArrayList<TenantPartitionedSimpleCache<K, V>>();
     
     @Override
     public SimpleCache<K, V> createCache(String cacheName)
@@ -61,9 +69,53 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
         {
             log.debug("Creating cache: " + cache);
         }
+        if (tenantMaxItems(cacheName, null) > 0)
+        {
+            return createTenantPartitionedCache(cacheName, cache);
+        }
+        return cache;
+    }
+    
+    private SimpleCache<K, V> createTenantPartitionedCache(final String cacheName, SimpleCache<K, V> defaultPartition)
+    {
+        final int ttlSecs = ttlSeconds(cacheName);
+        final int maxIdleSeconds = maxIdleSeconds(cacheName);
+        TenantPartitionedSimpleCache.PartitionFactory<K, V> partitionFactory = new TenantPartitionedSimpleCache.PartitionFactory<K, V>()
+        {
+            @Override
+            public SimpleCache<K, V> createPartition(String tenantDomain)
+            {
+                int tenantMaxItems = tenantMaxItems(cacheName, tenantDomain);
+                DefaultSimpleCache<K, V> partition = new DefaultSimpleCache<K, V>(tenantMaxItems, true, ttlSecs, maxIdleSeconds, cacheName + "." + tenantDomain);
+                if (log.isDebugEnabled())
+                {
+                    log.debug("Creating tenant cache partition: " + partition);
+                }
+                return partition;
+            }
+        };
+        TenantPartitionedSimpleCache<K, V> cache = new TenantPartitionedSimpleCache<K, V>(cacheName, defaultPartition, partitionFactory);
+        tenantPartitionedCaches.add(cache);
+        if (log.isDebugEnabled())
+        {
+            log.debug("Creating cache: " + cache);
+        }
         return cache;
     }
 
+    /**
+     * Discard the partitions of a tenant from all the tenant partitioned caches created by this factory.
+     * 
+     * @param tenantDomain      the domain of the deleted tenant
+     */
+    public void removeTenantPartitions(String tenantDomain)
+    {
+        for (TenantPartitionedSimpleCache<K, V> cache : tenantPartitionedCaches)
+        {
+            cache.removePartition(tenantDomain);
+        }
+    }
+
     private int maxItems(String cacheName)
     {
         String maxItemsStr = getProperty(cacheName, "maxItems", "0");
@@ -71,6 +123,20 @@ public class DefaultCacheFactory<K extends Serializable, V> extends AbstractCach
         return maxItems.intValue();
     }
     
+    /**
+     * @param tenantDomain      the tenant domain or <tt>null</tt> for the default capacity of tenant partitions
+     */
+    private int tenantMaxItems(String cacheName, String tenantDomain)
+    {
+        String maxItemsStr = getProperty(cacheName, "tenant.maxItems", "0");
+        if (tenantDomain != null)
+        {
+            maxItemsStr = getProperty(cacheName, "tenant." + tenantDomain + ".maxItems", maxItemsStr);
+        }
+        Integer maxItems = Integer.parseInt(maxItemsStr);
+        return maxItems.intValue();
+    }
+    
     private boolean useMaxItems(String cacheName)
     {
         String evictionPolicy = getProperty(cacheName, "eviction-policy", EVICT_NONE);
@@ -25,8 +25,11 @@
  */
 package org.alfresco.repo.cache;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -51,6 +54,8 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
     /** Read/Write locks by cache name */
     private final ConcurrentMap<String, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
     private Map<String, Map<OpType, OperationStats>> cacheToStatsMap = new HashMap<>();
+    /** Per-tenant stats by cache name, then tenant domain - guarded by the cache's lock */
+    private Map<String, Map<String, Map<OpType, OperationStats>>> cacheToTenantStatsMap = new HashMap<>();
     private ApplicationContext applicationContext;
     
     
@@ -112,25 +117,7 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
                 cacheToStatsMap.put(cacheName, new HashMap<OpType, OperationStats>());
             }
             Map<OpType, OperationStats> cacheStats = cacheToStatsMap.get(cacheName);
-            
-            for (OpType opType : OpType.values())
-            {                
-                SummaryStatistics txOpSummary = txStats.getTimings(opType);
-                long count = txOpSummary.getN();
-                double totalTime = txOpSummary.getSum();
-                    
-                OperationStats oldStats = cacheStats.get(opType);
-                OperationStats newStats;
-                if (oldStats == null)
-                {
-                    newStats = new OperationStats(totalTime, count);
-                }
-                else
-                {
-                    newStats = new OperationStats(oldStats, totalTime, count);
-                }
-                cacheStats.put(opType, newStats);
-            }
+            accumulate(cacheStats, txStats);
         }
         finally
         {
@@ -145,6 +132,142 @@ public class InMemoryCacheStatistics implements CacheStatistics, ApplicationCont
         }
     }
     
+    @Override
+    public void add(String cacheName, String tenantDomain, TransactionStats txStats)
+    {
+        add(cacheName, txStats);
+        
+        WriteLock writeLock = getWriteLock(cacheName);
+        writeLock.lock();
+        try
+        {
+            Map<String, Map<OpType, OperationStats>> tenantStats = cacheToTenantStatsMap.get(cacheName);
+            if (tenantStats == null)
+            {
+                tenantStats = new HashMap<>();
+                cacheToTenantStatsMap.put(cacheName, tenantStats);
+            }
+            Map<OpType, OperationStats> cacheStats = tenantStats.get(tenantDomain);
+            if (cacheStats == null)
+            {
+                cacheStats = new HashMap<>();
+                tenantStats.put(tenantDomain, cacheStats);
+            }
+            accumulate(cacheStats, txStats);
+        }
+        finally
+        {
+            writeLock.unlock();
+        }
+    }
+    
+    private void accumulate(Map<OpType, OperationStats> cacheStats, TransactionStats txStats)
+    {
+        for (OpType opType : OpType.values())
+        {                
+            SummaryStatistics txOpSummary = txStats.getTimings(opType);
+            long count = txOpSummary.getN();
+            double totalTime = txOpSummary.getSum();
+                
+            OperationStats oldStats = cacheStats.get(opType);
+            OperationStats newStats;
+            if (oldStats == null)
+            {
+                newStats = new OperationStats(totalTime, count);
+            }
+            else
+            {
+                newStats = new OperationStats(oldStats, totalTime, count);
+            }
+            cacheStats.put(opType, newStats);
+        }
+    }
+    
+    /**
+     * Must be called with the cache's read (or write) lock held.
+     */
+    private Map<OpType, OperationStats> getTenantStats(String cacheName, String tenantDomain)
+    {
+        Map<String, Map<OpType, OperationStats>> tenantStats = cacheToTenantStatsMap.get(cacheName);
+        Map<OpType, OperationStats> cacheStats = (tenantStats == null ? null : tenantStats.get(tenantDomain));
+        if (cacheStats == null)
+        {
+            throw new NoStatsForCache(cacheName + " (tenant: " + tenantDomain + ")");
+        }
+        return cacheStats;
+    }
+    
+    @Override
+    public double hitMissRatio(String cacheName, String tenantDomain)
+    {
+        ReadLock readLock = getReadLock(cacheName);
+        readLock.lock();
+        try
+        {
+            Map<OpType, OperationStats> cacheStats = getTenantStats(cacheName, tenantDomain);
+            long hits = cacheStats.get(OpType.GET_HIT).getCount();
+            long misses = cacheStats.get(OpType.GET_MISS).getCount();
+            return (double)hits / (hits+misses);
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+    }
+    
+    @Override
+    public long numGets(String cacheName, String tenantDomain)
+    {
+        ReadLock readLock = getReadLock(cacheName);
+        readLock.lock();
+        try
+        {
+            Map<OpType, OperationStats> cacheStats = getTenantStats(cacheName, tenantDomain);
+            long hits = cacheStats.get(OpType.GET_HIT).getCount();
+            long misses = cacheStats.get(OpType.GET_MISS).getCount();
+            return hits+misses;
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+    }
+    
+    @Override
+    public Map<OpType, OperationStats> allStats(String cacheName, String tenantDomain)
+    {
+        ReadLock readLock = getReadLock(cacheName);
+        readLock.lock();
+        try
+        {
+            return new HashMap<>(getTenantStats(cacheName, tenantDomain));
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+    }
+    
+    @Override
+    public Set<String> tenantDomains(String cacheName)
+    {
+        ReadLock readLock = getReadLock(cacheName);
+        readLock.lock();
+        try
+        {
+            Map<String, Map<OpType, OperationStats>> tenantStats = cacheToTenantStatsMap.get(cacheName);
+            if (tenantStats == null)
+            {
+                return Collections.emptySet();
+            }
+            return new HashSet<>(tenantStats.keySet());
+        }
+        finally
+        {
+            readLock.unlock();
+        }
+    }
+    
     @Override
     public double hitMissRatio(String cacheName)
     {
@@ -0,0 +1,189 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.cache;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.alfresco.repo.cache.TransactionalCache.CacheRegionKey;
+import org.alfresco.repo.tenant.TenantService;
+
+/**
+ * {@link SimpleCache} implementation that keeps the entries of each tenant in a separate,
+ * separately bounded, partition so that a busy tenant cannot evict the entries of other tenants.
+ * <p/>
+ * Tenant-aware {@link TransactionalCache transactional caches} qualify the keys of tenants
+ * using a {@link CacheRegionKey}: the region of these keys selects the partition. All other keys
+ * (including those of the default domain) are held in the default partition.
+ * 
+ * @since 7.6
+ */
+public final class TenantPartitionedSimpleCache<K extends Serializable, V extends Object> implements SimpleCache<K, V>
+{
+    /**
+     * Creates the partition of a tenant when the tenant first uses the cache.
+     */
+    public interface PartitionFactory<K extends Serializable, V extends Object>
+    {
+        SimpleCache<K, V> createPartition(String tenantDomain);
+    }
+    
+    private final String cacheName;
+    private final SimpleCache<K, V> defaultPartition;
+    private final PartitionFactory<K, V> partitionFactory;
+    private final ConcurrentMap<String, SimpleCache<K, V>> tenantPartitions = new ConcurrentHashMap<>();
+    
+    /**
+     * @param cacheName         the cache name
+     * @param defaultPartition  the partition holding the entries of the default domain
+     * @param partitionFactory  creates the partitions of tenants
+     */
+    public TenantPartitionedSimpleCache(String cacheName, SimpleCache<K, V> defaultPartition, PartitionFactory<K, V> partitionFactory)
+    {
+        this.cacheName = cacheName;
+        this.defaultPartition = defaultPartition;
+        this.partitionFactory = partitionFactory;
+    }
+    
+    private SimpleCache<K, V> getPartition(K key, boolean create)
+    {
+        if (key instanceof CacheRegionKey)
+        {
+            String tenantDomain = ((CacheRegionKey) key).getCacheRegion();
+            if (!tenantDomain.equals(TenantService.DEFAULT_DOMAIN))
+            {
+                SimpleCache<K, V> partition = tenantPartitions.get(tenantDomain);
+                if (partition == null && create)
+                {
+                    SimpleCache<K, V> newPartition = partitionFactory.createPartition(tenantDomain);
+                    partition = tenantPartitions.putIfAbsent(tenantDomain, newPartition);
+                    if (partition == null)
+                    {
+                        partition = newPartition;
+                    }
+                }
+                return partition;
+            }
+        }
+        return defaultPartition;
+    }
+    
+    @Override
+    public boolean contains(K key)
+    {
+        SimpleCache<K, V> partition = getPartition(key, false);
+        return (partition != null && partition.contains(key));
+    }
+
+    @Override
+    public Collection<K> getKeys()
+    {
+        if (tenantPartitions.isEmpty())
+        {
+            return defaultPartition.getKeys();
+        }
+        Collection<K> keys = new ArrayList<K>(defaultPartition.getKeys());
+        for (SimpleCache<K, V> partition : tenantPartitions.values())
+        {
+            keys.addAll(partition.getKeys());
+        }
+        return keys;
+    }
+
+    @Override
+    public V get(K key)
+    {
+        SimpleCache<K, V> partition = getPartition(key, false);
+        return (partition == null ? null : partition.get(key));
+    }
+
+    @Override
+    public void put(K key, V value)
+    {
+        getPartition(key, true).put(key, value);
+    }
+
+    @Override
+    public void remove(K key)
+    {
+        SimpleCache<K, V> partition = getPartition(key, false);
+        if (partition != null)
+        {
+            partition.remove(key);
+        }
+    }
+
+    @Override
+    public void clear()
+    {
+        defaultPartition.clear();
+        for (SimpleCache<K, V> partition : tenantPartitions.values())
+        {
+            partition.clear();
+        }
+    }
+    
+    /**
+     * Discard the partition of a tenant, eg. when the tenant has been deleted.
+     */
+    public void removePartition(String tenantDomain)
+    {
+        SimpleCache<K, V> partition = tenantPartitions.remove(tenantDomain);
+        if (partition != null)
+        {
+            partition.clear();
+        }
+    }
+    
+    /**
+     * @return the partitions of the tenants that have used the cache, by tenant domain
+     */
+    public Map<String, SimpleCache<K, V>> getTenantPartitions()
+    {
+        return Collections.unmodifiableMap(tenantPartitions);
+    }
+    
+    public SimpleCache<K, V> getDefaultPartition()
+    {
+        return defaultPartition;
+    }
+    
+    public String getCacheName()
+    {
+        return cacheName;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "TenantPartitionedSimpleCache[cacheName=" + cacheName + ", tenants=" + tenantPartitions.size() + "]";
+    }
+}
@@ -271,6 +271,10 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             data.lockedItemsCache = new HashSet<Serializable>(13);
             data.isReadOnly = AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_READ_ONLY;
             data.stats = new TransactionStats();
+            if (isTenantAware)
+            {
+                data.tenantDomain = TenantUtil.getCurrentDomain();
+            }
 
             // ensure that we get the transaction callbacks as we have bound the unique
             // transactional caches to a common manager
@@ -1109,7 +1113,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             // Aggregate this transaction's stats with centralised cache stats.
             if (cacheStatsEnabled)
             {
-                cacheStats.add(name, txnData.stats);
+                addCacheStats(txnData);
             }
         }
     }
@@ -1167,7 +1171,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
             // Aggregate this transaction's stats with centralised cache stats.
             if (cacheStatsEnabled)
             {
-                cacheStats.add(name, txnData.stats);
+                addCacheStats(txnData);
             }
         }
     }
@@ -1385,6 +1389,7 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         private boolean isReadOnly;
         private boolean noSharedCacheRead;
         private TransactionStats stats;
+        private String tenantDomain; // tenant in which the transaction first used the cache - for statistics
     }
     
     /**
@@ -1415,6 +1420,22 @@ public class TransactionalCache<K extends Serializable, V extends Object>
         }
     }
     
+    /**
+     * Aggregate the transaction's stats with the centralised cache stats, for the tenant as well
+     * if the transaction used the cache in the context of a tenant.
+     */
+    private void addCacheStats(TransactionData txnData)
+    {
+        if (txnData.tenantDomain != null && !txnData.tenantDomain.equals(TenantService.DEFAULT_DOMAIN))
+        {
+            cacheStats.add(name, txnData.tenantDomain, txnData.stats);
+        }
+        else
+        {
+            cacheStats.add(name, txnData.stats);
+        }
+    }
+    
     /**
      * Convert the key to a tenant-specific key if the cache is tenant-aware and
      * the current thread is running in the context of a tenant.
@@ -50,6 +50,7 @@ import org.alfresco.repo.copy.CopyBehaviourCallback.ChildAssocRecurseAction;
 import org.alfresco.repo.copy.CopyBehaviourCallback.CopyAssociationDetails;
 import org.alfresco.repo.copy.CopyBehaviourCallback.CopyChildAssociationDetails;
 import org.alfresco.repo.copy.query.AbstractCopyCannedQueryFactory;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.node.NodeServicePolicies;
 import org.alfresco.repo.policy.BehaviourFilter;
 import org.alfresco.repo.policy.ClassPolicyDelegate;
@@ -112,6 +113,9 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
     private RuleService ruleService;
     private PermissionService permissionService;
     private PublicServiceAccessService publicServiceAccessService;
+    private NodeBulkLoader bulkLoader;
+    private boolean bulkCopy;
+    private int bulkCopyBatchSize = 256;
 
     /* Policy delegates */
     private ClassPolicyDelegate<CopyServicePolicies.OnCopyNodePolicy> onCopyNodeDelegate;
@@ -192,6 +196,35 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
         this.publicServiceAccessService = publicServiceAccessService;
     }
 
+    /**
+     * @param bulkLoader        used to pre-load the source nodes of recursive copies
+     */
+    public void setBulkLoader(NodeBulkLoader bulkLoader)
+    {
+        this.bulkLoader = bulkLoader;
+    }
+
+    /**
+     * Set whether recursive copies work through the source hierarchy in bulk.  The children of
+     * each source node are pre-loaded in batches and the associations of each source node are
+     * read once rather than once per association type.  Copy behaviour callbacks and policies
+     * are invoked exactly as for a node-by-node copy.
+     * 
+     * @param bulkCopy          <tt>true</tt> to copy hierarchies in bulk
+     */
+    public void setBulkCopy(boolean bulkCopy)
+    {
+        this.bulkCopy = bulkCopy;
+    }
+
+    /**
+     * @param bulkCopyBatchSize the number of source nodes pre-loaded together during a bulk copy
+     */
+    public void setBulkCopyBatchSize(int bulkCopyBatchSize)
+    {
+        this.bulkCopyBatchSize = bulkCopyBatchSize;
+    }
+
     /**
      * Initialise method
      */
@@ -682,8 +715,20 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
         return copyTarget;
     }
     
+    private static final String KEY_DEFAULT_ASPECTS = "CopyServiceImpl.defaultAspects";
     private Set<QName> getDefaultAspects(QName sourceNodeTypeQName)
     {
+        // Bulk copies see the same few types over and over, so keep them for the transaction
+        Map<QName, Set<QName>> defaultAspectQNamesByType = null;
+        if (bulkCopy)
+        {
+            defaultAspectQNamesByType = TransactionalResourceHelper.getMap(KEY_DEFAULT_ASPECTS);
+            Set<QName> defaultAspectQNames = defaultAspectQNamesByType.get(sourceNodeTypeQName);
+            if (defaultAspectQNames != null)
+            {
+                return defaultAspectQNames;
+            }
+        }
         TypeDefinition sourceNodeTypeDef = dictionaryService.getType(sourceNodeTypeQName);
         if (sourceNodeTypeDef == null)
         {
@@ -694,6 +739,11 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
         {
             defaultAspectQNames.add(aspectDef.getName());
         }
+        if (defaultAspectQNamesByType != null)
+        {
+            defaultAspectQNames = Collections.unmodifiableSet(defaultAspectQNames);
+            defaultAspectQNamesByType.put(sourceNodeTypeQName, defaultAspectQNames);
+        }
         // Done
         return defaultAspectQNames;
     }
@@ -1157,6 +1207,42 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
     {
         QName sourceNodeTypeQName = copyDetails.getSourceNodeTypeQName();
         Set<QName> sourceNodeAspectQNames = copyDetails.getSourceNodeAspectQNames();
+        Map<QName, List<AssociationRef>> targetAssocsByType = null;
+        Map<QName, List<ChildAssociationRef>> childAssocsByType = null;
+        if (bulkCopy)
+        {
+            // Read the associations once rather than once per association type
+            NodeRef sourceNodeRef = copyDetails.getSourceNodeRef();
+            targetAssocsByType = new HashMap<QName, List<AssociationRef>>(7);
+            for (AssociationRef assocRef : nodeService.getTargetAssocs(sourceNodeRef, RegexQNamePattern.MATCH_ALL))
+            {
+                getAssocsByType(targetAssocsByType, assocRef.getTypeQName()).add(assocRef);
+            }
+            childAssocsByType = new HashMap<QName, List<ChildAssociationRef>>(7);
+            List<ChildAssociationRef> childAssocRefs = nodeService.getChildAssocs(sourceNodeRef);
+            for (ChildAssociationRef childAssocRef : childAssocRefs)
+            {
+                getAssocsByType(childAssocsByType, childAssocRef.getTypeQName()).add(childAssocRef);
+            }
+            // Load the children that may be copied in batches, rather than one at a time as they are copied
+            if (copyChildren && bulkLoader != null)
+            {
+                List<NodeRef> childNodeRefs = new ArrayList<NodeRef>(Math.min(childAssocRefs.size(), bulkCopyBatchSize));
+                for (ChildAssociationRef childAssocRef : childAssocRefs)
+                {
+                    childNodeRefs.add(childAssocRef.getChildRef());
+                    if (childNodeRefs.size() >= bulkCopyBatchSize)
+                    {
+                        bulkLoader.cacheNodes(childNodeRefs);
+                        childNodeRefs.clear();
+                    }
+                }
+                if (!childNodeRefs.isEmpty())
+                {
+                    bulkLoader.cacheNodes(childNodeRefs);
+                }
+            }
+        }
         // First check associations on the type
         copyChildren(
                 copyDetails,
@@ -1166,7 +1252,9 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
                 copyChildren,
                 copiesByOriginals,
                 copies,
-                callbacks);
+                callbacks,
+                targetAssocsByType,
+                childAssocsByType);
         // Check associations for the aspects
         for (QName aspectQName : sourceNodeAspectQNames)
         {
@@ -1183,13 +1271,31 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
                     copyChildren,
                     copiesByOriginals,
                     copies,
-                    callbacks);
+                    callbacks,
+                    targetAssocsByType,
+                    childAssocsByType);
+        }
+    }
+
+    /**
+     * @return              the modifiable list of associations of the given type
+     */
+    private static <A> List<A> getAssocsByType(Map<QName, List<A>> assocsByType, QName assocTypeQName)
+    {
+        List<A> assocs = assocsByType.get(assocTypeQName);
+        if (assocs == null)
+        {
+            assocs = new ArrayList<A>(11);
+            assocsByType.put(assocTypeQName, assocs);
         }
+        return assocs;
     }
 
     private static final String KEY_POST_COPY_ASSOCS = "CopyServiceImpl.postCopyAssocs";
     /**
      * @param copyChildren              <tt>false</tt> if the client selected not to recurse
+     * @param targetAssocsByType        the source node's peer associations by type or <tt>null</tt> to query them
+     * @param childAssocsByType         the source node's child associations by type or <tt>null</tt> to query them
      */
     private void copyChildren(
             CopyDetails copyDetails,
@@ -1199,7 +1305,9 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
             boolean copyChildren,
             Map<NodeRef, NodeRef> copiesByOriginals,
             Set<NodeRef> copies,
-            Map<QName, CopyBehaviourCallback> callbacks)
+            Map<QName, CopyBehaviourCallback> callbacks,
+            Map<QName, List<AssociationRef>> targetAssocsByType,
+            Map<QName, List<ChildAssociationRef>> childAssocsByType)
     {
         NodeRef sourceNodeRef = copyDetails.getSourceNodeRef();
         
@@ -1231,7 +1339,15 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
             }
             boolean haveRemovedFromCopyTarget = false;
             // Get the associations
-            List<AssociationRef> assocRefs = nodeService.getTargetAssocs(sourceNodeRef, assocTypeQName);
+            List<AssociationRef> assocRefs;
+            if (targetAssocsByType == null)
+            {
+                assocRefs = nodeService.getTargetAssocs(sourceNodeRef, assocTypeQName);
+            }
+            else
+            {
+                assocRefs = getAssocsByType(targetAssocsByType, assocTypeQName);
+            }
             for (AssociationRef assocRef : assocRefs)
             {
                 // Get the copy action for the association instance
@@ -1291,8 +1407,16 @@ public class CopyServiceImpl extends AbstractBaseCopyService implements CopyServ
                 continue;                   // Ignore non-child assocs
             }
             // Get the child associations
-            List<ChildAssociationRef> childAssocRefs = nodeService.getChildAssocs(
-                    sourceNodeRef, childAssocTypeQName, RegexQNamePattern.MATCH_ALL);
+            List<ChildAssociationRef> childAssocRefs;
+            if (childAssocsByType == null)
+            {
+                childAssocRefs = nodeService.getChildAssocs(
+                        sourceNodeRef, childAssocTypeQName, RegexQNamePattern.MATCH_ALL);
+            }
+            else
+            {
+                childAssocRefs = getAssocsByType(childAssocsByType, childAssocTypeQName);
+            }
             for (ChildAssociationRef childAssocRef : childAssocRefs)
             {
                 NodeRef childNodeRef = childAssocRef.getChildRef();
@@ -25,18 +25,25 @@
  */
 package org.alfresco.repo.dictionary;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.content.EmptyContentReader;
 import org.alfresco.repo.dictionary.DynamicModelPolicies.OnLoadDynamicModel;
 import org.alfresco.repo.i18n.MessageDeployer;
@@ -66,6 +73,7 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationEvent;
 import org.springframework.extensions.surf.util.AbstractLifecycleBean;
+import org.springframework.util.FileCopyUtils;
 
 /**
  * Bootstrap the dictionary from specified locations within the repository
@@ -108,6 +116,12 @@ implements TenantDeployer, DictionaryListener, /*TenantDictionaryListener, */Mes
     /** The policy component */
     private PolicyComponent policyComponent;
     
+    /** Thread pool used to parse models in parallel, or null to parse them on the calling thread */
+    private ThreadPoolExecutor threadPoolExecutor;
+    
+    /** Model content keyed by content URL and modified date, or null if disabled */
+    private SimpleCache<String, byte[]> modelContentCache = new DefaultSimpleCache<String, byte[]>(256, "modelContentCache");
+    
       
     /**
      * Sets the Dictionary DAO
@@ -189,6 +203,30 @@ implements TenantDeployer, DictionaryListener, /*TenantDictionaryListener, */Mes
         this.transactionService = transactionService;
     }
     
+    /**
+     * Set the thread pool used to parse the models of a tenant in parallel. The models are still
+     * registered with the dictionary on the calling thread, in dependency order.
+     * 
+     * @param threadPoolExecutor    the thread pool, or null to parse the models on the calling thread
+     */
+    public void setThreadPoolExecutor(ThreadPoolExecutor threadPoolExecutor)
+    {
+        this.threadPoolExecutor = threadPoolExecutor;
+    }
+    
+    /**
+     * Set the number of model contents to keep, so that unchanged models are not read again from the
+     * content store. Each model is still parsed into a new M2Model every time it is loaded.
+     * 
+     * @param modelContentCacheSize the number of model contents to keep, or 0 to read every model
+     */
+    public void setModelContentCacheSize(int modelContentCacheSize)
+    {
+        this.modelContentCache = (modelContentCacheSize > 0)
+                ? new DefaultSimpleCache<String, byte[]>(modelContentCacheSize, "modelContentCache")
+                : null;
+    }
+    
     /**
      * Set the repository models locations
      * 
@@ -282,7 +320,9 @@ implements TenantDeployer, DictionaryListener, /*TenantDictionaryListener, */Mes
                 logger.trace("onDictionaryInit: locations="+this.repositoryModelsLocations);
             }
             
-            // Register the models found in the repository
+            // Read the models found in the repository
+            List<DynamicModelInfo> modelInfos = new ArrayList<DynamicModelInfo>();
+            List<byte[]> modelContents = new ArrayList<byte[]>();
             
             for (RepositoryLocation repositoryLocation : this.repositoryModelsLocations)
             {
@@ -314,18 +354,11 @@ implements TenantDeployer, DictionaryListener, /*TenantDictionaryListener, */Mes
                                     
                                     if ((isActive != null) && (isActive.booleanValue() == true))
                                     {
-                                        M2Model model = createM2Model(dictionaryModel);
-                                        if (model != null)
+                                        byte[] content = getModelContent(dictionaryModel);
+                                        if (content != null)
                                         {
-                                            if (logger.isTraceEnabled())
-                                            {
-                                                logger.trace("onDictionaryInit: "+model.getName()+" ("+dictionaryModel+")");
-                                            }
-                                            
-                                            for (M2Namespace namespace : model.getNamespaces())
-                                            {
-                                                modelMap.put(namespace.getUri(), new DynamicModelInfo(repositoryLocation, model, dictionaryModel));
-                                            }
+                                            modelInfos.add(new DynamicModelInfo(repositoryLocation, null, dictionaryModel));
+                                            modelContents.add(content);
                                         }
                                     }
                                 }
@@ -349,6 +382,24 @@ implements TenantDeployer, DictionaryListener, /*TenantDictionaryListener, */Mes
                 }
             }
             
+            // Parse the models, in parallel if a thread pool is available, and register them by namespace
+            List<M2Model> models = parseModels(modelContents);
+            for (int i = 0; i < models.size(); i++)
+            {
+                DynamicModelInfo modelInfo = modelInfos.get(i);
+                modelInfo.model = models.get(i);
+                
+                if (logger.isTraceEnabled())
+                {
+                    logger.trace("onDictionaryInit: "+modelInfo.model.getName()+" ("+modelInfo.nodeRef+")");
+                }
+                
+                for (M2Namespace namespace : modelInfo.model.getNamespaces())
+                {
+                    modelMap.put(namespace.getUri(), modelInfo);
+                }
+            }
+            
             // Load the models ensuring that they are loaded in the correct order
             for (Map.Entry<String, DynamicModelInfo> entry : modelMap.entrySet())
             {
@@ -602,41 +653,138 @@ implements TenantDeployer, DictionaryListener, /*TenantDictionaryListener, */Mes
      */
     public M2Model createM2Model(NodeRef nodeRef)
     {
-        M2Model model = null;
+        byte[] content = getModelContent(nodeRef);
+        // TODO should we inactivate the model node and put the error somewhere??
+        return (content != null) ? parseModel(content) : null;
+    }
+    
+    /**
+     * Read the content of a dictionary model node. The content is cached against its content URL and the
+     * modified date of the node, so a model is read again from the content store once its node changes.
+     * 
+     * @param nodeRef   the dictionary model node reference
+     * @return          the model content, or null if the node has no content
+     */
+    private byte[] getModelContent(NodeRef nodeRef)
+    {
         ContentReader contentReader = this.contentService.getReader(nodeRef, ContentModel.PROP_CONTENT);
-        if (contentReader != null)
+        if (contentReader == null)
+        {
+            return null;
+        }
+        if (contentReader instanceof EmptyContentReader)
+        {
+            // belts-and-braces
+            logger.error("Failed to create model (due to EmptyContentReader): "+nodeRef);
+            return null;
+        }
+        
+        SimpleCache<String, byte[]> cache = this.modelContentCache;
+        String key = null;
+        if (cache != null)
         {
-            if (contentReader instanceof EmptyContentReader)
+            Date modified = (Date) nodeService.getProperty(nodeRef, ContentModel.PROP_MODIFIED);
+            key = contentReader.getContentUrl() + "|" + (modified != null ? modified.getTime() : "");
+            byte[] content = cache.get(key);
+            if (content != null)
             {
-                // belts-and-braces
-                logger.error("Failed to create model (due to EmptyContentReader): "+nodeRef);
+                return content;
             }
-            else
+        }
+        
+        byte[] content;
+        try
+        {
+            content = FileCopyUtils.copyToByteArray(contentReader.getContentInputStream());
+        }
+        catch (IOException e)
+        {
+            throw new AlfrescoRuntimeException("Failed to read model content: " + nodeRef, e);
+        }
+        
+        if (cache != null)
+        {
+            cache.put(key, content);
+        }
+        return content;
+    }
+    
+    /**
+     * Parse the content of a model. A new M2Model is created on every call, as the dictionary and its
+     * callers may change the model they are given.
+     * 
+     * @param content   the model content
+     * @return          the M2Model
+     */
+    private M2Model parseModel(byte[] content)
+    {
+        return M2Model.createModel(new ByteArrayInputStream(content));
+    }
+    
+    /**
+     * Parse the content of a list of models, using the thread pool if one is available. Parsing does not
+     * access the repository, so it can be done outside of the current transaction and tenant context.
+     * 
+     * @param contents  the model contents
+     * @return          the models, in the same order as their contents
+     */
+    private List<M2Model> parseModels(List<byte[]> contents)
+    {
+        List<M2Model> models = new ArrayList<M2Model>(contents.size());
+        if (threadPoolExecutor == null || contents.size() < 2)
+        {
+            for (byte[] content : contents)
             {
-                InputStream is = null;
-                try
-                {
-                    is = contentReader.getContentInputStream();
-                    model = M2Model.createModel(is);
-                }
-                finally
+                models.add(parseModel(content));
+            }
+            return models;
+        }
+        
+        List<Future<M2Model>> futures = new ArrayList<Future<M2Model>>(contents.size());
+        try
+        {
+            for (final byte[] content : contents)
+            {
+                futures.add(threadPoolExecutor.submit(new Callable<M2Model>()
                 {
-                    if (is != null)
+                    @Override
+                    public M2Model call() throws Exception
                     {
-                        try
-                        {
-                            is.close();
-                        }
-                        catch (IOException e)
-                        {
-                            logger.error("Failed to close input stream for " + nodeRef);
-                        }
+                        return parseModel(content);
                     }
-                }
+                }));
+            }
+            for (Future<M2Model> future : futures)
+            {
+                models.add(future.get());
+            }
+            return models;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new AlfrescoRuntimeException("Interrupted while parsing models", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new AlfrescoRuntimeException("Failed to parse models", cause);
+        }
+        finally
+        {
+            for (Future<M2Model> future : futures)
+            {
+                future.cancel(false);
             }
         }
-        // TODO should we inactivate the model node and put the error somewhere??
-        return model;
     }
     
     @Override
@@ -195,6 +195,25 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     private ParentAssocsCache parentAssocsCache;
     private int parentAssocsCacheSize;
     private int parentAssocsCacheLimitFactor = 8;
+    /**
+     * Non-clustered cache for primary paths:<br/>
+     * KEY: nodeId <br/>
+     * VALUE: the path and the versions of the nodes it was built from
+     */
+    private PrimaryPathCache primaryPathCache;
+    private int primaryPathCacheSize;
+    /**
+     * Checks cached primary paths against the nodes cache, which is kept up to date across the cluster
+     */
+    private final PrimaryPathCache.NodeVersions primaryPathNodeVersions = new PrimaryPathCache.NodeVersions()
+    {
+        @Override
+        public String getChangeTxnId(Long nodeId)
+        {
+            Pair<Long, Node> pair = nodesCache.getByKey(nodeId);
+            return pair == null ? null : pair.getSecond().getTransaction().getChangeTxnId();
+        }
+    };
         
     /**
      * Cache for fast lookups of child nodes by <b>cm:name</b>. 
@@ -393,6 +412,16 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         this.parentAssocsCacheLimitFactor = parentAssocsCacheLimitFactor;
     }
 
+    /**
+     * Sets the maximum capacity of the primary path cache
+     * 
+     * @param primaryPathCacheSize      the cache size or <tt>0</tt> to disable primary path caching
+     */
+    public void setPrimaryPathCacheSize(int primaryPathCacheSize)
+    {
+        this.primaryPathCacheSize = primaryPathCacheSize;
+    }
+
     /**
      * Set the cache that maintains lookups by child <b>cm:name</b>
      * 
@@ -420,6 +449,10 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
 
         this.nodePropertyHelper = new NodePropertyHelper(dictionaryService, qnameDAO, localeDAO, contentDataDAO);
         this.parentAssocsCache = new ParentAssocsCache(this.parentAssocsCacheSize, this.parentAssocsCacheLimitFactor);
+        if (this.primaryPathCacheSize > 0)
+        {
+            this.primaryPathCache = new PrimaryPathCache(this.primaryPathCacheSize);
+        }
     }
     
     /*
@@ -497,6 +530,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         aspectsCache.clear();
         propertiesCache.clear();
         parentAssocsCache.clear();
+        clearPrimaryPathsCached();
     }
     
     /**
@@ -853,6 +887,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         rootNodesCache.removeByKey(oldStoreRef);
         allRootNodesCache.remove(oldStoreRef);
         nodesCache.clear();
+        clearPrimaryPathsCached();
         
         if (isDebugEnabled)
         {
@@ -1958,6 +1993,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
                 propertiesCache.clear();
                 aspectsCache.clear();
                 parentAssocsCache.clear();
+                clearPrimaryPathsCached();
             }
             // Update the caches
             nodeUpdate.lock();
@@ -3860,13 +3896,29 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
     {
         // create storage for the paths - only need 1 bucket if we are looking for the primary path
         List<Path> paths = new ArrayList<Path>(primaryOnly ? 1 : 10);
+        
+        // the primary path may still be valid in the cache
+        boolean cachePrimaryPath = primaryOnly && primaryPathCache != null;
+        Path cachedPath = cachePrimaryPath ? primaryPathCache.get(nodePair.getFirst(), primaryPathNodeVersions) : null;
+        if (cachedPath != null)
+        {
+            paths.add(cachedPath);
+            if (loggerPaths.isDebugEnabled())
+            {
+                loggerPaths.debug("Cached primary path for node " + nodePair + "\n   " + cachedPath);
+            }
+            return paths;
+        }
+        
         // create an empty current path to start from
         Path currentPath = new Path();
         // create storage for touched associations
         Stack<Long> assocIdStack = new Stack<Long>();
+        // create storage for the chain of nodes visited, if the primary path is to be cached
+        PrimaryPathCache.Chain primaryChain = cachePrimaryPath ? primaryPathCache.newChain() : null;
         
         // call recursive method to sort it out
-        prependPaths(nodePair, null, currentPath, paths, assocIdStack, primaryOnly);
+        prependPaths(nodePair, null, currentPath, paths, assocIdStack, primaryOnly, primaryChain);
         
         // check that for the primary only case we have exactly one path
         if (primaryOnly && paths.size() != 1)
@@ -3874,6 +3926,12 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             throw new RuntimeException("Node has " + paths.size() + " primary paths: " + nodePair);
         }
         
+        // paths built from this transaction's own changes are not visible to others yet
+        if (cachePrimaryPath)
+        {
+            primaryPathCache.put(nodePair.getFirst(), primaryChain, paths.get(0), AlfrescoTransactionSupport.getTransactionId());
+        }
+        
         // done
         if (loggerPaths.isDebugEnabled())
         {
@@ -4073,6 +4131,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
      * @param completedPaths        completed paths i.e. the result
      * @param assocIdStack          a stack to detected cyclic relationships
      * @param primaryOnly           <tt>true</tt> to follow only primary parent associations
+     * @param primaryChain          collects the nodes visited when following primary associations (may be <tt>null</tt>)
      * @throws CyclicChildRelationshipException
      */
     private void prependPaths(
@@ -4081,7 +4140,8 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             Path currentPath,
             Collection<Path> completedPaths,
             Stack<Long> assocIdStack,
-            boolean primaryOnly) throws CyclicChildRelationshipException
+            boolean primaryOnly,
+            PrimaryPathCache.Chain primaryChain) throws CyclicChildRelationshipException
     {
         if (isDebugEnabled)
         {
@@ -4104,6 +4164,11 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }
         
         // get the parent associations of the given node
+        if (primaryChain != null)
+        {
+            // record the version first, so that a concurrent change can only make the cached path invalid
+            primaryChain.add(currentNodeId, getNodeNotNull(currentNodeId, false).getTransaction().getChangeTxnId());
+        }
         ParentAssocsInfo parentAssocInfo = getParentAssocsCached(currentNodeId); // note: currently may throw NotLiveNodeException
         // bulk load parents as we are certain to hit them in the next call
         ArrayList<Long> toLoad = new ArrayList<Long>(parentAssocInfo.getParentAssocs().size());
@@ -4208,7 +4273,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
             // push the assoc stack, recurse and pop
             assocIdStack.push(assocId);
             
-            prependPaths(parentNodePair, currentRootNodePair, path, completedPaths, assocIdStack, primaryOnly);
+            prependPaths(parentNodePair, currentRootNodePair, path, completedPaths, assocIdStack, primaryOnly, primaryChain);
             
             assocIdStack.pop();
         }
@@ -4405,6 +4470,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         Node node = getNodeNotNull(nodeId, false);
         Pair<Long, String> cacheKey = new Pair<Long, String>(nodeId, node.getTransaction().getChangeTxnId());
         parentAssocsCache.put(cacheKey, parentAssocs);
+        invalidatePrimaryPathsCached(nodeId);
     }
     
     /**
@@ -4436,6 +4502,7 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         Long nodeId = node.getId();
         String nodeTransactionId = node.getTransaction().getChangeTxnId();
         parentAssocsCache.remove(new Pair<Long, String>(nodeId, nodeTransactionId));
+        invalidatePrimaryPathsCached(nodeId);
         if (AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_READ_WRITE)
         {
             String currentTransactionId = getCurrentTransaction().getChangeTxnId();
@@ -4446,6 +4513,41 @@ public abstract class AbstractNodeDAOImpl implements NodeDAO, BatchingDAO
         }                        
     }
     
+    /**
+     * Invalidate the cached primary path of a node.  The paths below it no longer match the node's version.
+     */
+    private void invalidatePrimaryPathsCached(Long nodeId)
+    {
+        if (primaryPathCache != null)
+        {
+            primaryPathCache.invalidate(nodeId);
+        }
+    }
+    
+    /**
+     * @return                      the primary path cache or <tt>null</tt> if primary paths are not cached
+     */
+    PrimaryPathCache getPrimaryPathCache()
+    {
+        return primaryPathCache;
+    }
+    
+    /**
+     * @return                      the valid cached primary path of the node or <tt>null</tt> if there is none
+     */
+    Path getPrimaryPathCached(Long nodeId)
+    {
+        return primaryPathCache == null ? null : primaryPathCache.get(nodeId, primaryPathNodeVersions);
+    }
+    
+    private void clearPrimaryPathsCached()
+    {
+        if (primaryPathCache != null)
+        {
+            primaryPathCache.clear();
+        }
+    }
+    
     private ParentAssocsInfo loadParentAssocs(NodeVersionKey nodeVersionKey)
     {
         Long nodeId = nodeVersionKey.getNodeId();
@@ -0,0 +1,200 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import java.util.Arrays;
+
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.service.cmr.repository.Path;
+
+/**
+ * Non-clustered cache of primary paths, keyed by node ID.
+ * <p/>
+ * Each entry keeps the nodes it was built from, from the node up to its root, along with the change
+ * transaction ID each of them had at the time.  A change to a node's parent associations (move, rename,
+ * secondary parents, root aspect) touches the node, giving it a new change transaction ID.  An entry is
+ * only used while all of its nodes still have the IDs it recorded, in the same way as the parent
+ * association cache is keyed.  The current node versions come from the clustered node cache, so moves
+ * and renames made on other servers invalidate the paths below them too, and only those paths.
+ * <p/>
+ * Paths that include changes made by the building transaction itself are not cached, as the change
+ * transaction ID of a node stays the same for further changes in the same transaction.
+ * 
+ * @since 7.6
+ */
+public class PrimaryPathCache
+{
+    private final DefaultSimpleCache<Long, PrimaryPath> cache;
+
+    /**
+     * @param maxSize               the maximum number of primary paths to cache
+     */
+    public PrimaryPathCache(int maxSize)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.cache = new DefaultSimpleCache<Long, PrimaryPath>(maxSize, "primaryPathCache");
+    }
+
+    /**
+     * Gives the current versions of the nodes in a cached path
+     */
+    public interface NodeVersions
+    {
+        /**
+         * @return                  the current change transaction ID of the node or <tt>null</tt> if it no longer exists
+         */
+        String getChangeTxnId(Long nodeId);
+    }
+
+    /**
+     * Start collecting the nodes of a primary path that is about to be built
+     */
+    public Chain newChain()
+    {
+        return new Chain();
+    }
+
+    /**
+     * Get a cached primary path, provided that none of the nodes it was built from have changed since
+     * 
+     * @param nodeVersions          gives the current version of each node in the path
+     * @return                      a copy of the cached path or <tt>null</tt> if there is no valid cached path
+     */
+    public Path get(Long nodeId, NodeVersions nodeVersions)
+    {
+        PrimaryPath primaryPath = cache.get(nodeId);
+        if (primaryPath == null)
+        {
+            return null;
+        }
+        for (int i = 0; i < primaryPath.nodeIds.length; i++)
+        {
+            if (!primaryPath.changeTxnIds[i].equals(nodeVersions.getChangeTxnId(primaryPath.nodeIds[i])))
+            {
+                cache.remove(nodeId);
+                return null;
+            }
+        }
+        Path copy = new Path();
+        copy.append(primaryPath.path);
+        return copy;
+    }
+
+    /**
+     * Cache a primary path, unless it was built from changes made by the current transaction
+     * 
+     * @param chain                 the nodes visited while building the path, starting with the node itself
+     * @param path                  the primary path built
+     * @param currentChangeTxnId    the change transaction ID of the current transaction
+     * @return                      <tt>true</tt> if the path was cached
+     */
+    public boolean put(Long nodeId, Chain chain, Path path, String currentChangeTxnId)
+    {
+        for (int i = 0; i < chain.size; i++)
+        {
+            if (chain.changeTxnIds[i].equals(currentChangeTxnId))
+            {
+                return false;
+            }
+        }
+        Path cachedPath = new Path();
+        cachedPath.append(path);
+        cache.put(nodeId, new PrimaryPath(
+                Arrays.copyOf(chain.nodeIds, chain.size),
+                Arrays.copyOf(chain.changeTxnIds, chain.size),
+                cachedPath));
+        return true;
+    }
+
+    /**
+     * Drops the cached primary path of a node.  The paths below it are dropped when they are next read.
+     * 
+     * @param nodeId                the node whose parent associations have changed
+     */
+    public void invalidate(Long nodeId)
+    {
+        cache.remove(nodeId);
+    }
+
+    /**
+     * Drops all cached paths
+     */
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    /**
+     * The nodes visited, from the node up to its root, while a primary path is built
+     */
+    public static class Chain
+    {
+        private long[] nodeIds = new long[16];
+        private String[] changeTxnIds = new String[16];
+        private int size = 0;
+
+        private Chain()
+        {
+        }
+
+        /**
+         * Record a node before its parent associations are read
+         * 
+         * @param changeTxnId       the change transaction ID of the node as its parent associations are read
+         */
+        public void add(Long nodeId, String changeTxnId)
+        {
+            if (size == nodeIds.length)
+            {
+                nodeIds = Arrays.copyOf(nodeIds, size * 2);
+                changeTxnIds = Arrays.copyOf(changeTxnIds, size * 2);
+            }
+            nodeIds[size] = nodeId;
+            changeTxnIds[size] = changeTxnId;
+            size++;
+        }
+    }
+
+    /**
+     * A primary path along with the nodes and versions it was built from
+     */
+    private static class PrimaryPath
+    {
+        private final long[] nodeIds;
+        private final String[] changeTxnIds;
+        private final Path path;
+
+        private PrimaryPath(long[] nodeIds, String[] changeTxnIds, Path path)
+        {
+            this.nodeIds = nodeIds;
+            this.changeTxnIds = changeTxnIds;
+            this.path = path;
+        }
+    }
+}
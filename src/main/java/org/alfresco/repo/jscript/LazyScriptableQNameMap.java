@@ -0,0 +1,240 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.jscript;
+
+import java.io.Serializable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.alfresco.service.ServiceRegistry;
+import org.alfresco.service.namespace.QName;
+
+/**
+ * Specialised map class for the properties of a {@link ScriptNode}. Repository property values are held
+ * unconverted and are only converted to script safe values by the node value converter when a property
+ * is first read, so a script reading a few properties of a node does not pay for the conversion of all of
+ * them. The keys of all properties are present from the start, so <code>size()</code>, <code>keySet()</code>
+ * and iteration of the properties from JavaScript behave as if the map had been fully populated.
+ * 
+ * @since 7.6
+ */
+public class LazyScriptableQNameMap<K,V> extends ContentAwareScriptableQNameMap<K,V>
+{
+    private ScriptNode factory;
+    
+    /** Repository values, keyed by the full QName string, of the properties that have not been read yet */
+    private Map<String, Serializable> unconverted;
+    
+    
+    /**
+     * Constructor
+     * 
+     * @param factory       ScriptNode providing the value converter
+     * @param services      ServiceRegistry
+     */
+    public LazyScriptableQNameMap(final ScriptNode factory, final ServiceRegistry services)
+    {
+        super(factory, services);
+        this.factory = factory;
+    }
+    
+    /**
+     * Add a repository property value that will be converted for script usage when it is first read.
+     * 
+     * @param qname         QName of the property
+     * @param value         Repository property value
+     */
+    public void putUnconverted(QName qname, Serializable value)
+    {
+        if (this.unconverted == null)
+        {
+            this.unconverted = new HashMap<String, Serializable>(32);
+        }
+        String key = qname.toString();
+        super.put(key, null);
+        this.unconverted.put(key, value);
+    }
+    
+    /**
+     * @param key           Property name
+     * @return true if the property has not been read since it was added with {@link #putUnconverted}
+     */
+    public boolean isUnconverted(Object key)
+    {
+        return this.unconverted != null && !this.unconverted.isEmpty() &&
+               this.unconverted.containsKey(resolveKey(key));
+    }
+    
+    /**
+     * @param key           Property name
+     * @return the repository value of a property that has not been read, or null if there is none
+     */
+    public Serializable getUnconverted(Object key)
+    {
+        return (this.unconverted != null) ? this.unconverted.get(resolveKey(key)) : null;
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.repo.jscript.ContentAwareScriptableQNameMap#get(java.lang.Object)
+     */
+    @Override
+    public Object get(Object name)
+    {
+        if (this.unconverted != null && !this.unconverted.isEmpty())
+        {
+            convert(resolveKey(name));
+        }
+        return super.get(name);
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#put(java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public Object put(Object key, Object value)
+    {
+        if (this.unconverted != null)
+        {
+            this.unconverted.remove(resolveKey(key));
+        }
+        return super.put(key, value);
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#putAll(java.util.Map)
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public void putAll(Map t)
+    {
+        for (Object entry : t.entrySet())
+        {
+            put(((Map.Entry) entry).getKey(), ((Map.Entry) entry).getValue());
+        }
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#remove(java.lang.Object)
+     */
+    @Override
+    public Object remove(Object key)
+    {
+        if (this.unconverted != null)
+        {
+            this.unconverted.remove(resolveKey(key));
+        }
+        return super.remove(key);
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#clear()
+     */
+    @Override
+    public void clear()
+    {
+        this.unconverted = null;
+        super.clear();
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#containsValue(java.lang.Object)
+     */
+    @Override
+    public boolean containsValue(Object value)
+    {
+        convertAll();
+        return super.containsValue(value);
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#values()
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Collection values()
+    {
+        convertAll();
+        return super.values();
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#entrySet()
+     */
+    @SuppressWarnings("rawtypes")
+    @Override
+    public Set entrySet()
+    {
+        convertAll();
+        return super.entrySet();
+    }
+    
+    /* (non-Javadoc)
+     * @see org.alfresco.service.namespace.QNameMap#toString()
+     */
+    @Override
+    public String toString()
+    {
+        convertAll();
+        return super.toString();
+    }
+    
+    /**
+     * Convert the value of a single property if it has not been read yet
+     */
+    private void convert(String key)
+    {
+        if (this.unconverted.containsKey(key))
+        {
+            Serializable value = this.unconverted.remove(key);
+            super.put(key, this.factory.getValueConverter().convertValueForScript(QName.createQName(key), value));
+        }
+    }
+    
+    /**
+     * Convert the values of all properties that have not been read yet
+     */
+    private void convertAll()
+    {
+        if (this.unconverted != null)
+        {
+            for (Iterator<String> i = this.unconverted.keySet().iterator(); i.hasNext(); /**/)
+            {
+                String key = i.next();
+                Serializable value = this.unconverted.get(key);
+                i.remove();
+                super.put(key, this.factory.getValueConverter().convertValueForScript(QName.createQName(key), value));
+            }
+        }
+    }
+    
+    private String resolveKey(Object key)
+    {
+        return QName.resolveToQNameString(getResolver(), key.toString());
+    }
+}
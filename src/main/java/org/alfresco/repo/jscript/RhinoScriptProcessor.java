@@ -35,12 +35,16 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import net.sf.acegisecurity.AuthenticationException;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.processor.ProcessorExtension;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.processor.BaseProcessor;
 import org.alfresco.scripts.ScriptException;
 import org.alfresco.scripts.ScriptResourceHelper;
@@ -48,12 +52,16 @@ import org.alfresco.scripts.ScriptResourceLoader;
 import org.alfresco.service.cmr.model.FileInfo;
 import org.alfresco.service.cmr.model.FileNotFoundException;
 import org.alfresco.service.cmr.repository.ContentIOException;
+import org.alfresco.service.cmr.repository.ContentData;
 import org.alfresco.service.cmr.repository.ContentReader;
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
 import org.alfresco.service.cmr.repository.ScriptLocation;
 import org.alfresco.service.cmr.repository.ScriptProcessor;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.namespace.QName;
+import org.alfresco.util.EqualsHelper;
+import org.alfresco.util.Pair;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.mozilla.javascript.Context;
@@ -71,7 +79,7 @@ import org.springframework.util.FileCopyUtils;
  * 
  * @author Kevin Roast
  */
-public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcessor, ScriptResourceLoader, InitializingBean
+public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcessor, ScriptResourceLoader, InitializingBean, RhinoScriptProcessorMBean
 {
     private static final Log logger = LogFactory.getLog(RhinoScriptProcessor.class);
     private static final Log callLogger = LogFactory.getLog(RhinoScriptProcessor.class.getName()+".calls");
@@ -105,6 +113,16 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
     /** Cache of runtime compiled script instances */
     private final Map<String, Script> scriptCache = new ConcurrentHashMap<String, Script>(256);
     
+    /** Cache of runtime compiled scripts stored in repository nodes, null if disabled */
+    private SimpleCache<Pair<NodeRef, QName>, CompiledNodeScript> nodeScriptCache =
+            new DefaultSimpleCache<Pair<NodeRef, QName>, CompiledNodeScript>(256, "nodeScriptCache");
+    
+    /** Statistics of the node script cache */
+    private final AtomicLong nodeScriptCacheHits = new AtomicLong();
+    private final AtomicLong nodeScriptCacheMisses = new AtomicLong();
+    private final AtomicLong nodeScriptCompileNanos = new AtomicLong();
+    private final AtomicLong nodeScriptCompileNanosSaved = new AtomicLong();
+    
     
     /**
      * Set the default store reference
@@ -141,12 +159,28 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
         this.shareSealedScopes = shareSealedScopes;
     }
 
+    /**
+     * @param nodeScriptCacheSize the number of compiled scripts from repository nodes to keep, or 0 to
+     * compile those scripts on every execution. Scripts are recompiled when their content, or the content
+     * of a node they import, changes.
+     */
+    public void setNodeScriptCacheSize(int nodeScriptCacheSize)
+    {
+        this.nodeScriptCache = (nodeScriptCacheSize > 0)
+                ? new DefaultSimpleCache<Pair<NodeRef, QName>, CompiledNodeScript>(nodeScriptCacheSize, "nodeScriptCache")
+                : null;
+    }
+
     /**
      * @see org.alfresco.service.cmr.repository.ScriptProcessor#reset()
      */
     public void reset()
     {
         this.scriptCache.clear();
+        if (this.nodeScriptCache != null)
+        {
+            this.nodeScriptCache.clear();
+        }
     }
     
     /**
@@ -242,17 +276,8 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
                 throw new AlfrescoRuntimeException("Script Node content not found: " + nodeRef);
             }
             
-            // compile the script based on the node content
-            Script script;
-            Context cx = Context.enter();
-            try
-            {
-                script = cx.compileString(resolveScriptImports(cr.getContentString()), nodeRef.toString(), 1, null);
-            }
-            finally
-            {
-                Context.exit();
-            }
+            // compile the script based on the node content, or reuse the compiled script if the content is unchanged
+            Script script = getNodeScript(nodeRef, contentProp, cr);
             
             return executeScriptImpl(script, model, false, nodeRef.toString());
         }
@@ -262,6 +287,90 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
         }
     }
 
+    /**
+     * Get the compiled script for the content of a node from the cache, or compile and cache it.
+     * <p>
+     * A cached script is only used while the content URL of the node and the content URLs of the nodes
+     * it imports are unchanged, so an edit to the script or to any of its repository imports causes it to
+     * be recompiled. Scripts that import other scripts by cm:name path are not cached, as a different node
+     * could be found at the path without any of the known nodes changing.
+     */
+    private Script getNodeScript(NodeRef nodeRef, QName contentProp, ContentReader cr)
+    {
+        Pair<NodeRef, QName> key = null;
+        SimpleCache<Pair<NodeRef, QName>, CompiledNodeScript> cache = this.nodeScriptCache;
+        if (this.compile && cache != null)
+        {
+            key = new Pair<NodeRef, QName>(nodeRef, contentProp);
+            CompiledNodeScript compiled = cache.get(key);
+            if (compiled != null && compiled.isCurrent(cr.getContentUrl(), this.services.getNodeService()))
+            {
+                this.nodeScriptCacheHits.incrementAndGet();
+                this.nodeScriptCompileNanosSaved.addAndGet(compiled.compileNanos);
+                return compiled.script;
+            }
+            this.nodeScriptCacheMisses.incrementAndGet();
+        }
+        
+        if (logger.isDebugEnabled())
+            logger.debug("Resolving and compiling script node: " + nodeRef);
+        
+        long startTime = System.nanoTime();
+        ImportTrackingResourceLoader loader = new ImportTrackingResourceLoader();
+        String source = ScriptResourceHelper.resolveScriptImports(cr.getContentString(), loader, logger);
+        Script script;
+        Context cx = Context.enter();
+        try
+        {
+            script = cx.compileString(source, nodeRef.toString(), 1, null);
+        }
+        finally
+        {
+            Context.exit();
+        }
+        long compileNanos = System.nanoTime() - startTime;
+        this.nodeScriptCompileNanos.addAndGet(compileNanos);
+        
+        if (key != null && loader.importedByPath == false)
+        {
+            cache.put(key, new CompiledNodeScript(script, cr.getContentUrl(), loader.importedContentUrls, compileNanos));
+        }
+        return script;
+    }
+    
+    @Override
+    public long getNodeScriptCacheHits()
+    {
+        return this.nodeScriptCacheHits.get();
+    }
+    
+    @Override
+    public long getNodeScriptCacheMisses()
+    {
+        return this.nodeScriptCacheMisses.get();
+    }
+    
+    @Override
+    public long getNodeScriptCompileTimeMs()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.nodeScriptCompileNanos.get());
+    }
+    
+    @Override
+    public long getNodeScriptCompileTimeSavedMs()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(this.nodeScriptCompileNanosSaved.get());
+    }
+    
+    @Override
+    public void resetNodeScriptCacheStatistics()
+    {
+        this.nodeScriptCacheHits.set(0);
+        this.nodeScriptCacheMisses.set(0);
+        this.nodeScriptCompileNanos.set(0);
+        this.nodeScriptCompileNanosSaved.set(0);
+    }
+    
     /**
      * @see org.alfresco.service.cmr.repository.ScriptProcessor#executeString(java.lang.String, java.util.Map)
      */
@@ -329,6 +438,17 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
      * @throws AlfrescoRuntimeException on any IO or ContentIO error
      */
     public String loadScriptResource(String resource)
+    {
+        return loadScriptResource(resource, null);
+    }
+    
+    /**
+     * Load a script content from the specific resource path, recording the repository nodes that are loaded.
+     * 
+     * @param resource      the resource, see {@link #loadScriptResource(String)}
+     * @param loader        the loader to record the nodes with, may be null
+     */
+    private String loadScriptResource(String resource, ImportTrackingResourceLoader loader)
     {
         String result = null;
         
@@ -392,6 +512,10 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
                 {
                     FileInfo fileInfo = this.services.getFileFolderService().resolveNamePath(nodes.get(0), elements);
                     scriptRef = fileInfo.getNodeRef();
+                    if (loader != null)
+                    {
+                        loader.importedByPath = true;
+                    }
                 }
                 catch (FileNotFoundException err)
                 {
@@ -412,6 +536,10 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
                     throw new AlfrescoRuntimeException("Included Script Node content not found: " + resource);
                 }
                 result = cr.getContentString();
+                if (loader != null)
+                {
+                    loader.importedContentUrls.put(scriptRef, cr.getContentUrl());
+                }
             }
             catch (ContentIOException err)
             {
@@ -577,6 +705,65 @@ public class RhinoScriptProcessor extends BaseProcessor implements ScriptProcess
     }
 
     
+    /**
+     * Resource loader used to compile a node script. It records the repository nodes that are
+     * imported so that the compiled script can be checked against them before it is reused.
+     */
+    private class ImportTrackingResourceLoader implements ScriptResourceLoader
+    {
+        private final Map<NodeRef, String> importedContentUrls = new HashMap<NodeRef, String>();
+        private boolean importedByPath = false;
+        
+        public String loadScriptResource(String resource)
+        {
+            return RhinoScriptProcessor.this.loadScriptResource(resource, this);
+        }
+    }
+    
+    /**
+     * A script compiled from the content of a node, with the content URLs it was compiled from
+     */
+    private static class CompiledNodeScript
+    {
+        private final Script script;
+        private final String contentUrl;
+        private final Map<NodeRef, String> importedContentUrls;
+        private final long compileNanos;
+        
+        CompiledNodeScript(Script script, String contentUrl, Map<NodeRef, String> importedContentUrls, long compileNanos)
+        {
+            this.script = script;
+            this.contentUrl = contentUrl;
+            this.importedContentUrls = importedContentUrls;
+            this.compileNanos = compileNanos;
+        }
+        
+        /**
+         * @return true if neither the script nor any node it imports has changed since it was compiled
+         */
+        boolean isCurrent(String currentContentUrl, NodeService nodeService)
+        {
+            if (!EqualsHelper.nullSafeEquals(this.contentUrl, currentContentUrl))
+            {
+                return false;
+            }
+            for (Map.Entry<NodeRef, String> entry : this.importedContentUrls.entrySet())
+            {
+                NodeRef importRef = entry.getKey();
+                if (nodeService.exists(importRef) == false)
+                {
+                    return false;
+                }
+                ContentData contentData = (ContentData) nodeService.getProperty(importRef, ContentModel.PROP_CONTENT);
+                if (contentData == null || !EqualsHelper.nullSafeEquals(entry.getValue(), contentData.getContentUrl()))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+    
     /**
      * Rhino script value wraper
      */
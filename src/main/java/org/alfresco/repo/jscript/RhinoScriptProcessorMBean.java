@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.jscript;
+
+/**
+ * Management interface for the cache of scripts compiled from repository nodes by the {@link RhinoScriptProcessor}.
+ * 
+ * @since 7.6
+ */
+public interface RhinoScriptProcessorMBean
+{
+    /**
+     * @return the number of node script executions that reused a compiled script
+     */
+    public long getNodeScriptCacheHits();
+
+    /**
+     * @return the number of node script executions that had to compile the script
+     */
+    public long getNodeScriptCacheMisses();
+
+    /**
+     * @return the total time spent compiling node scripts, in milliseconds
+     */
+    public long getNodeScriptCompileTimeMs();
+
+    /**
+     * @return the compile time saved by reusing compiled node scripts, in milliseconds
+     */
+    public long getNodeScriptCompileTimeSavedMs();
+
+    /**
+     * Reset the node script cache statistics
+     */
+    public void resetNodeScriptCacheStatistics();
+}
@@ -62,6 +62,7 @@ import org.alfresco.repo.content.transform.UnimportantTransformException;
 import org.alfresco.repo.content.transform.UnsupportedTransformationException;
 import org.alfresco.repo.content.transform.magick.ImageTransformationOptions;
 import org.alfresco.repo.model.filefolder.FileFolderServiceImpl.InvalidTypeException;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.node.getchildren.GetChildrenCannedQuery;
 import org.alfresco.repo.search.QueryParameterDefImpl;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
@@ -158,6 +159,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
     private final static String CONTENT_PROP_URL = "/d/d/{0}/{1}/{2}/{3}?property={4}";
     private final static String CONTENT_DOWNLOAD_PROP_URL = "/d/a/{0}/{1}/{2}/{3}?property={4}";
     private final static String FOLDER_BROWSE_URL = "/n/browse/{0}/{1}/{2}";
+    
 
     /** Root scope for this object */
     protected Scriptable scope;
@@ -192,7 +194,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
     private Scriptable children = null;
     
     /** The properties of this node */
-    private ScriptableQNameMap<String, Serializable> properties = null;
+    private LazyScriptableQNameMap<String, Serializable> properties = null;
 
     /** The versions of this node */
     private Scriptable versions = null;
@@ -306,6 +308,54 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
         return new ScriptNode(nodeInfo, services, scope);
     }
     
+    /**
+     * Pre-cache the data of nodes that are about to be wrapped, so that the properties and aspects of each
+     * node are not then loaded from the database one node at a time.
+     * 
+     * @param services  The ServiceRegistry
+     * @param nodeRefs  The nodes that will be wrapped
+     */
+    static void cacheNodes(ServiceRegistry services, List<NodeRef> nodeRefs)
+    {
+        if (nodeRefs.size() < 2)
+        {
+            return;
+        }
+        NodeBulkLoader bulkLoader = services.getNodeBulkLoader();
+        if (bulkLoader == null)
+        {
+            // the nodes will be loaded one at a time
+            return;
+        }
+        bulkLoader.cacheNodes(nodeRefs);
+    }
+    
+    /**
+     * Pre-cache the data of the child or parent nodes of a list of child associations.
+     */
+    private void cacheNodes(List<ChildAssociationRef> refs, boolean children)
+    {
+        List<NodeRef> nodeRefs = new ArrayList<NodeRef>(refs.size());
+        for (ChildAssociationRef ref : refs)
+        {
+            nodeRefs.add(children ? ref.getChildRef() : ref.getParentRef());
+        }
+        cacheNodes(this.services, nodeRefs);
+    }
+    
+    /**
+     * Pre-cache the data of the target or source nodes of a list of peer associations.
+     */
+    private void cacheAssocNodes(List<AssociationRef> refs, boolean targets)
+    {
+        List<NodeRef> nodeRefs = new ArrayList<NodeRef>(refs.size());
+        for (AssociationRef ref : refs)
+        {
+            nodeRefs.add(targets ? ref.getTargetRef() : ref.getSourceRef());
+        }
+        cacheNodes(this.services, nodeRefs);
+    }
+    
     /**
      * @see org.alfresco.repo.jscript.Scopeable#setScope(org.mozilla.javascript.Scriptable)
      */
@@ -442,6 +492,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
         if (this.children == null)
         {
             List<ChildAssociationRef> childRefs = this.nodeService.getChildAssocs(this.nodeRef);
+            cacheNodes(childRefs, true);
             Object[] children = new Object[childRefs.size()];
             for (int i = 0; i < childRefs.size(); i++)
             {
@@ -759,6 +810,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
 
             // get the list of target nodes for each association type
             List<AssociationRef> refs = this.nodeService.getTargetAssocs(this.nodeRef, RegexQNamePattern.MATCH_ALL);
+            cacheAssocNodes(refs, true);
             for (AssociationRef ref : refs)
             {
                 String qname = ref.getTypeQName().toString();
@@ -807,6 +859,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
 
             // get the list of source nodes for each association type
             List<AssociationRef> refs = this.nodeService.getSourceAssocs(this.nodeRef, RegexQNamePattern.MATCH_ALL);
+            cacheAssocNodes(refs, false);
             for (AssociationRef ref : refs)
             {
                 String qname = ref.getTypeQName().toString();
@@ -855,6 +908,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
             
             // get the list of child assoc nodes for each association type
             List<ChildAssociationRef> refs = this.nodeService.getChildAssocs(nodeRef);
+            cacheNodes(refs, true);
             for (ChildAssociationRef ref : refs)
             {
                 String qname = ref.getTypeQName().toString();
@@ -897,6 +951,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
         Set<QName> types = new HashSet<QName>(1, 1.0f);
         types.add(createQName(type));
         List<ChildAssociationRef> refs = this.nodeService.getChildAssocs(this.nodeRef, types);
+        cacheNodes(refs, true);
         Object[] nodes = new Object[refs.size()];
         for (int i=0; i<nodes.length; i++)
         {
@@ -924,6 +979,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
             
             // get the list of child assoc nodes for each association type
             List<ChildAssociationRef> refs = this.nodeService.getParentAssocs(nodeRef);
+            cacheNodes(refs, false);
             for (ChildAssociationRef ref : refs)
             {
                 String qname = ref.getTypeQName().toString();
@@ -978,7 +1034,8 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
             // this Map implements the Scriptable interface for native JS syntax property access
             // this impl of the QNameMap is capable of creating ScriptContentData on demand for 'cm:content'
             // properties that have not been initialised - see AR-1673.
-            this.properties = new ContentAwareScriptableQNameMap<String, Serializable>(this, this.services);
+            // values are converted for script usage only when each property is first read
+            this.properties = new LazyScriptableQNameMap<String, Serializable>(this, this.services);
             
             Map<QName, Serializable> props = null;
             if (this.nodeInfo != null)
@@ -990,12 +1047,10 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
                 props = this.nodeService.getProperties(this.nodeRef);
             }
             
-            for (QName qname : props.keySet())
+            for (Map.Entry<QName, Serializable> prop : props.entrySet())
             {
-                Serializable propValue = props.get(qname);
-                
-                // perform the conversion to a script safe value and store
-                this.properties.put(qname.toString(), getValueConverter().convertValueForScript(qname, propValue));
+                // store the value for conversion to a script safe value on first access
+                this.properties.putUnconverted(prop.getKey(), prop.getValue());
             }
         }
         
@@ -1303,6 +1358,7 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
     public Scriptable getParents()
     {
         List<ChildAssociationRef> parentRefs = this.nodeService.getParentAssocs(this.nodeRef);
+        cacheNodes(parentRefs, false);
         Object[] parents = new Object[parentRefs.size()];
         for (int i = 0; i < parentRefs.size(); i++)
         {
@@ -1743,10 +1799,22 @@ public class ScriptNode implements Scopeable, NamespacePrefixResolverProvider
         Map<QName, Serializable> props = new HashMap<QName, Serializable>(getProperties().size());
         for (String key : this.properties.keySet())
         {
-            Serializable value = (Serializable) this.properties.get(key);
-            
             QName qname = createQName(key);
             
+            // properties not read by the script are written back with their original repository values
+            Serializable unconverted = this.properties.getUnconverted(key);
+            if (unconverted != null)
+            {
+                // MNT-15798 - an unread content property has not been touched
+                if (!ContentModel.PROP_CONTENT.equals(qname))
+                {
+                    props.put(qname, unconverted);
+                }
+                continue;
+            }
+            
+            Serializable value = (Serializable) this.properties.get(key);
+            
             // MNT-15798
             if (ContentModel.PROP_CONTENT.equals(qname) && isScriptContent(value))
             {
@@ -285,6 +285,7 @@ public class Search extends BaseScopableProcessorExtension implements Initializi
                         nodeService.getRootNode(new StoreRef(store)), search, null, this.services.getNamespaceService(), false);
                 if (nodes.size() != 0)
                 {
+                    ScriptNode.cacheNodes(this.services, nodes);
                     int index = 0;
                     nodeArray = new Object[nodes.size()];
                     for (NodeRef node: nodes)
@@ -498,6 +499,7 @@ public class Search extends BaseScopableProcessorExtension implements Initializi
         }
         
         List<NodeRef> nodeRefs = this.services.getTaggingService().findTaggedNodes(searchStoreRef, tag);
+        ScriptNode.cacheNodes(this.services, nodeRefs);
         ScriptNode[] nodes = new ScriptNode[nodeRefs.size()];
         int index = 0;
         for (NodeRef node : nodeRefs)
@@ -31,6 +31,7 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.alfresco.repo.domain.locks.LockDAO;
+import org.alfresco.repo.domain.locks.LockEntity;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
@@ -59,6 +60,7 @@ public class JobLockServiceImpl implements JobLockService
     private RetryingTransactionHelper retryingTransactionHelper;
     private int defaultRetryCount;
     private long defaultRetryWait;
+    private JobLockWaitQueue waitQueue;
     
     private ScheduledExecutorService scheduler;
     private VmShutdownListener shutdownListener;
@@ -73,6 +75,7 @@ public class JobLockServiceImpl implements JobLockService
         defaultRetryWait = 20;
         defaultRetryCount = 10;
         txnListener = new LockTransactionListener();
+        waitQueue = new JobLockWaitQueue();
         
         TraceableThreadFactory threadFactory = new TraceableThreadFactory();
         threadFactory.setThreadDaemon(false);
@@ -139,6 +142,15 @@ public class JobLockServiceImpl implements JobLockService
         this.defaultRetryWait = defaultRetryWait;
     }
 
+    /**
+     * Set the queue used to wait for locks to be released and to gather the lock wait statistics.
+     * A private queue is used by default.
+     */
+    public void setWaitQueue(JobLockWaitQueue waitQueue)
+    {
+        this.waitQueue = waitQueue;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -460,6 +472,7 @@ public class JobLockServiceImpl implements JobLockService
             }
         };
         retryingTransactionHelper.doInTransaction(releaseCallback, false, true);
+        waitQueue.lockReleased(lockQName);
     }
 
     /**
@@ -474,7 +487,12 @@ public class JobLockServiceImpl implements JobLockService
                 return lockDAO.releaseLock(lockQName, lockToken, true);
             }
         };
-        return retryingTransactionHelper.doInTransaction(releaseCallback, false, true);
+        boolean released = retryingTransactionHelper.doInTransaction(releaseCallback, false, true);
+        if (released)
+        {
+            waitQueue.lockReleased(lockQName);
+        }
+        return released;
     }
 
     /**
@@ -497,7 +515,7 @@ public class JobLockServiceImpl implements JobLockService
         };
         try
         {
-            int iterations = doWithRetry(getLockCallback, retryWait, retryCount);
+            int iterations = doWithRetry(lockQName, getLockCallback, retryWait, retryCount);
             // Bind in a listener, if we are in a transaction
             if (AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE)
             {
@@ -533,14 +551,21 @@ public class JobLockServiceImpl implements JobLockService
     /**
      * Does the high-level retrying around the callback.  At least one attempt is made to call the
      * provided callback.
+     * <p/>
+     * Between attempts, the thread waits for the lock to be released in this VM, for the lock that
+     * is in the way to expire or for the retry wait, whichever comes first.  If the thread is
+     * interrupted, the remaining attempts are abandoned and the last failure is thrown.
      */
-    private int doWithRetry(RetryingTransactionCallback<? extends Object> callback, long retryWait, int retryCount)
+    private int doWithRetry(QName lockQName, RetryingTransactionCallback<? extends Object> callback, long retryWait, int retryCount)
     {
         int maxAttempts = retryCount > 0 ? retryCount : 1;
         int lockAttempt = 0;
         LockAcquisitionException lastException = null;
+        long start = System.currentTimeMillis();
         while (++lockAttempt <= maxAttempts)     // lockAttempt incremented before check i.e. 1 for first check
         {
+            // Any release from now on will cut the wait short
+            long releaseGeneration = waitQueue.getReleaseGeneration(lockQName);
             try
             {
                 retryingTransactionHelper.doInTransaction(callback, false, true);
@@ -562,11 +587,18 @@ public class JobLockServiceImpl implements JobLockService
                 }
             }
             // Before running again, do a wait
-            synchronized(callback)
+            if (!waitQueue.awaitRelease(lockQName, releaseGeneration, getRetryWait(lastException, retryWait))
+                    && Thread.currentThread().isInterrupted())
             {
-                try { callback.wait(retryWait); } catch (InterruptedException e) {}
+                // Don't run the remaining attempts back to back
+                if (logger.isDebugEnabled())
+                {
+                    logger.debug("Interrupted while waiting for lock " + lockQName + " after attempt " + lockAttempt);
+                }
+                break;
             }
         }
+        waitQueue.recordAcquisition(System.currentTimeMillis() - start, Math.min(lockAttempt, maxAttempts), lastException == null);
         if (lastException == null)
         {
             // Success
@@ -579,6 +611,31 @@ public class JobLockServiceImpl implements JobLockService
         }
     }
     
+    /**
+     * Works out how long to wait before the next attempt.  If the lock is held by another lock token,
+     * the existing lock's row gives its expiry time: when that comes before the retry wait, there is
+     * no point waiting any longer than that, whichever server holds the lock.
+     */
+    private long getRetryWait(LockAcquisitionException e, long retryWait)
+    {
+        if (!LockAcquisitionException.ERR_EXCLUSIVE_LOCK_EXISTS.equals(e.getMsgId()))
+        {
+            return retryWait;
+        }
+        Object[] params = e.getMsgParams();
+        if (params == null || params.length < 3 || !(params[2] instanceof LockEntity))
+        {
+            return retryWait;
+        }
+        Long expiryTime = ((LockEntity) params[2]).getExpiryTime();
+        if (expiryTime == null)
+        {
+            return retryWait;
+        }
+        long untilExpiry = expiryTime - System.currentTimeMillis() + 1L;
+        return Math.max(0L, Math.min(retryWait, untilExpiry));
+    }
+    
     /**
      * Handles the transction synchronization activity, ensuring locks are rolled back as
      * required.
@@ -619,6 +676,10 @@ public class JobLockServiceImpl implements JobLockService
             };
             retryingTransactionHelper.doInTransaction(releaseCallback, false, true);
             // So they were all successful
+            for (QName lockQName : heldLocks)
+            {
+                waitQueue.lockReleased(lockQName);
+            }
             heldLocks.clear();
         }
 
@@ -651,6 +712,7 @@ public class JobLockServiceImpl implements JobLockService
                 try
                 {
                     retryingTransactionHelper.doInTransaction(releaseCallback, false, true);
+                    waitQueue.lockReleased(lockQName);
                 }
                 catch (Throwable e)
                 {
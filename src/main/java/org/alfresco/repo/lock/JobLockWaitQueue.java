@@ -0,0 +1,276 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.lock;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.alfresco.service.namespace.QName;
+
+/**
+ * Lets threads that failed to get a job lock wait for the lock to be released within this VM
+ * rather than sleeping for the full retry wait.
+ * <p/>
+ * Locks are hierarchical: a lock on <b>a.b.c</b> also takes shared locks on <b>a</b> and <b>a.b</b>
+ * and so the release of any lock can unblock a waiter for any other lock with the same root.
+ * Waiters are therefore grouped by namespace and root name.  Each group keeps a release
+ * generation; a thread reads the generation before trying to get the lock and, if that fails,
+ * waits until the generation moves on or until its wait time runs out.  This means that a
+ * release that happens between the failed attempt and the wait is never missed.  Waking up for
+ * the release of an unrelated lock in the same group only costs an early retry.
+ * <p/>
+ * Locks held by other servers in a cluster are not released in this VM, so waiters still wake up
+ * after the given wait time at the latest.
+ * <p/>
+ * The time taken to acquire locks is recorded and exposed through {@link JobLockWaitQueueMBean}.
+ * 
+ * @since 7.6
+ */
+public class JobLockWaitQueue implements JobLockWaitQueueMBean
+{
+    private static final long[] HISTOGRAM_BOUNDS_MS = new long[] {0L, 10L, 50L, 100L, 500L, 1000L, 5000L, 10000L};
+    
+    private final ConcurrentMap<String, WaitGroup> waitGroups = new ConcurrentHashMap<String, WaitGroup>();
+
+    private final AtomicLong acquisitionCount = new AtomicLong();
+    private final AtomicLong contendedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong wokenCount = new AtomicLong();
+    private final AtomicLong totalWaitTimeMs = new AtomicLong();
+    private final AtomicLong maxWaitTimeMs = new AtomicLong();
+    private final AtomicLongArray histogram = new AtomicLongArray(HISTOGRAM_BOUNDS_MS.length + 1);
+
+    /**
+     * Locks waiting on each other share a group with a release generation
+     */
+    private static class WaitGroup
+    {
+        private long generation;
+    }
+
+    /**
+     * @return the key grouping all the locks that can block the given lock
+     */
+    private static String getGroupKey(QName lockQName)
+    {
+        String localName = lockQName.getLocalName().toLowerCase();
+        int index = localName.indexOf('.');
+        String root = (index < 0) ? localName : localName.substring(0, index);
+        return lockQName.getNamespaceURI() + "|" + root;
+    }
+
+    private WaitGroup getWaitGroup(QName lockQName)
+    {
+        String key = getGroupKey(lockQName);
+        WaitGroup group = waitGroups.get(key);
+        if (group == null)
+        {
+            WaitGroup newGroup = new WaitGroup();
+            group = waitGroups.putIfAbsent(key, newGroup);
+            if (group == null)
+            {
+                group = newGroup;
+            }
+        }
+        return group;
+    }
+
+    /**
+     * Get the current release generation for the lock.  Call this before attempting to get the lock
+     * and pass the value to {@link #awaitRelease(QName, long, long)} if the attempt fails.
+     * 
+     * @param lockQName         the lock about to be requested
+     * @return                  the release generation
+     */
+    public long getReleaseGeneration(QName lockQName)
+    {
+        WaitGroup group = getWaitGroup(lockQName);
+        synchronized (group)
+        {
+            return group.generation;
+        }
+    }
+
+    /**
+     * Wait for a related lock to be released in this VM.
+     * 
+     * @param lockQName         the lock that could not be acquired
+     * @param generation        the release generation obtained before the failed attempt
+     * @param maxWait           the longest time to wait in milliseconds
+     * @return                  <tt>true</tt> if a release was seen or <tt>false</tt> if the wait timed out
+     *                          or the thread was interrupted, in which case its interrupt flag is set
+     */
+    public boolean awaitRelease(QName lockQName, long generation, long maxWait)
+    {
+        WaitGroup group = getWaitGroup(lockQName);
+        long end = System.currentTimeMillis() + maxWait;
+        synchronized (group)
+        {
+            while (group.generation == generation)
+            {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0L)
+                {
+                    return false;
+                }
+                try
+                {
+                    group.wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    // Keep the interrupt, so that the lock service stops retrying
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        wokenCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Wake up the threads waiting for locks related to the released lock.
+     * 
+     * @param lockQName         the lock that has been released
+     */
+    public void lockReleased(QName lockQName)
+    {
+        WaitGroup group = waitGroups.get(getGroupKey(lockQName));
+        if (group == null)
+        {
+            // Nobody has ever waited for it
+            return;
+        }
+        synchronized (group)
+        {
+            group.generation++;
+            group.notifyAll();
+        }
+    }
+
+    /**
+     * Record the outcome of a lock acquisition.
+     * 
+     * @param waitTimeMs        the time from the first attempt to the final outcome
+     * @param attempts          the number of attempts made
+     * @param acquired          <tt>true</tt> if the lock was acquired
+     */
+    public void recordAcquisition(long waitTimeMs, int attempts, boolean acquired)
+    {
+        acquisitionCount.incrementAndGet();
+        if (attempts > 1)
+        {
+            contendedCount.incrementAndGet();
+        }
+        if (!acquired)
+        {
+            failedCount.incrementAndGet();
+        }
+        totalWaitTimeMs.addAndGet(waitTimeMs);
+        long max = maxWaitTimeMs.get();
+        while (waitTimeMs > max && !maxWaitTimeMs.compareAndSet(max, waitTimeMs))
+        {
+            max = maxWaitTimeMs.get();
+        }
+        int bucket = 0;
+        while (bucket < HISTOGRAM_BOUNDS_MS.length && waitTimeMs > HISTOGRAM_BOUNDS_MS[bucket])
+        {
+            bucket++;
+        }
+        histogram.incrementAndGet(bucket);
+    }
+
+    @Override
+    public long getAcquisitionCount()
+    {
+        return acquisitionCount.get();
+    }
+
+    @Override
+    public long getContendedCount()
+    {
+        return contendedCount.get();
+    }
+
+    @Override
+    public long getFailedCount()
+    {
+        return failedCount.get();
+    }
+
+    @Override
+    public long getWokenCount()
+    {
+        return wokenCount.get();
+    }
+
+    @Override
+    public long getTotalWaitTimeMs()
+    {
+        return totalWaitTimeMs.get();
+    }
+
+    @Override
+    public long getMaxWaitTimeMs()
+    {
+        return maxWaitTimeMs.get();
+    }
+
+    @Override
+    public long[] getWaitTimeHistogramBoundsMs()
+    {
+        return HISTOGRAM_BOUNDS_MS.clone();
+    }
+
+    @Override
+    public long[] getWaitTimeHistogram()
+    {
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++)
+        {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        acquisitionCount.set(0L);
+        contendedCount.set(0L);
+        failedCount.set(0L);
+        wokenCount.set(0L);
+        totalWaitTimeMs.set(0L);
+        maxWaitTimeMs.set(0L);
+        for (int i = 0; i < histogram.length(); i++)
+        {
+            histogram.set(i, 0L);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.lock;
+
+/**
+ * Management interface for the lock wait statistics gathered by the {@link JobLockWaitQueue}.
+ * 
+ * @since 7.6
+ */
+public interface JobLockWaitQueueMBean
+{
+    /**
+     * @return the number of lock acquisitions attempted, successful or not
+     */
+    public long getAcquisitionCount();
+
+    /**
+     * @return the number of lock acquisitions that had to wait for the lock at least once
+     */
+    public long getContendedCount();
+
+    /**
+     * @return the number of lock acquisitions that gave up
+     */
+    public long getFailedCount();
+
+    /**
+     * @return the number of waits cut short by the release of a lock in this VM
+     */
+    public long getWokenCount();
+
+    /**
+     * @return the total time spent acquiring locks in milliseconds
+     */
+    public long getTotalWaitTimeMs();
+
+    /**
+     * @return the longest time spent acquiring a lock in milliseconds
+     */
+    public long getMaxWaitTimeMs();
+
+    /**
+     * @return the upper bounds (in milliseconds) of the buckets of the wait time histogram
+     */
+    public long[] getWaitTimeHistogramBoundsMs();
+
+    /**
+     * @return the number of lock acquisitions in each bucket of the wait time histogram;
+     *         the last bucket holds the acquisitions that took longer than the last bound
+     */
+    public long[] getWaitTimeHistogram();
+
+    /**
+     * Reset all the statistics
+     */
+    public void resetStatistics();
+}
@@ -29,7 +29,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 /**
- * {@link LockStoreFactory} implementation that creates new {@link LockStoreImpl} objects.
+ * {@link LockStoreFactory} implementation that creates new {@link StripedLockStoreImpl} objects.
  * 
  * @author Matt Ward
  */
@@ -44,7 +44,7 @@ public class DefaultLockStoreFactory implements LockStoreFactory
         {
             log.debug("Creating LockStore.");
         }
-        LockStore lockStore = new LockStoreImpl();
+        LockStore lockStore = new StripedLockStoreImpl();
         return lockStore;
     }
 
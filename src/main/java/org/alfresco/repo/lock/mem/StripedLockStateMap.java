@@ -0,0 +1,597 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.lock.mem;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.util.EqualsHelper;
+
+/**
+ * {@link ConcurrentMap} of lock state that is split into independently locked segments and that
+ * drops entries a fixed time after they were last written.
+ * <p/>
+ * Each segment keeps its entries on a timing wheel: a ring of buckets, each covering one tick,
+ * that is large enough to hold the whole time-to-live.  A write puts the entry into the bucket of
+ * its expiry tick, so when the wheel is advanced during later access to the segment, the expired
+ * entries are found by sweeping the passed buckets and not by scanning the segment.  Overwritten
+ * entries are left in their old buckets and skipped when those are swept.  Reads check the exact
+ * expiry time, so an expired entry is never returned even when its bucket has not been swept yet.
+ * <p/>
+ * Iteration goes through the segments one at a time, copying only the segment being visited, and
+ * is weakly consistent.
+ * 
+ * @since 7.6
+ */
+public class StripedLockStateMap extends AbstractMap<NodeRef, LockState> implements ConcurrentMap<NodeRef, LockState>
+{
+    public static final int DEFAULT_SEGMENTS = 64;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private final Segment[] segments;
+    private final long ttlMs;
+    private final long tickMs;
+    private final int wheelSize;
+
+    private final AtomicInteger lockCount = new AtomicInteger();
+    private final AtomicLong expiredCount = new AtomicLong();
+
+    /**
+     * A stored lock state with the time at which it expires
+     */
+    private static final class Entry
+    {
+        private final NodeRef nodeRef;
+        private final LockState lockState;
+        private final long expiresAt;
+
+        private Entry(NodeRef nodeRef, LockState lockState, long expiresAt)
+        {
+            this.nodeRef = nodeRef;
+            this.lockState = lockState;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * A part of the map with its own lock and timing wheel
+     */
+    private final class Segment
+    {
+        private Map<NodeRef, Entry> entries = new HashMap<NodeRef, Entry>();
+        private List<Entry>[] wheel = newWheel();
+        private long sweptTick = -1L;
+
+        /**
+         * Advance the wheel up to the current tick, dropping the entries that have expired.
+         * The caller must hold the segment lock.
+         */
+        private void expire(long now)
+        {
+            long nowTick = now / tickMs;
+            if (sweptTick < 0L)
+            {
+                sweptTick = nowTick - 1L;
+            }
+            // No need to go round the wheel more than once
+            long fromTick = Math.max(sweptTick + 1L, nowTick - wheelSize + 1L);
+            for (long tick = fromTick; tick <= nowTick; tick++)
+            {
+                int index = (int) (tick % wheelSize);
+                List<Entry> bucket = wheel[index];
+                if (bucket == null)
+                {
+                    continue;
+                }
+                List<Entry> remaining = null;
+                for (Entry entry : bucket)
+                {
+                    if (entries.get(entry.nodeRef) != entry)
+                    {
+                        // Overwritten or removed since
+                        continue;
+                    }
+                    else if (entry.expiresAt <= now)
+                    {
+                        entries.remove(entry.nodeRef);
+                        lockCount.decrementAndGet();
+                        expiredCount.incrementAndGet();
+                    }
+                    else
+                    {
+                        // Not due until the end of the current tick
+                        if (remaining == null)
+                        {
+                            remaining = new ArrayList<Entry>(4);
+                        }
+                        remaining.add(entry);
+                    }
+                }
+                wheel[index] = remaining;
+            }
+            sweptTick = Math.max(sweptTick, nowTick - 1L);
+        }
+
+        /**
+         * @return the live entry for the node or <tt>null</tt>.  The caller must hold the segment lock.
+         */
+        private Entry getLive(NodeRef nodeRef, long now)
+        {
+            Entry entry = entries.get(nodeRef);
+            return (entry == null || entry.expiresAt <= now) ? null : entry;
+        }
+
+        /**
+         * Store a new entry, replacing any existing one.  The caller must hold the segment lock.
+         */
+        private void write(NodeRef nodeRef, LockState lockState, long now)
+        {
+            Entry entry = new Entry(nodeRef, lockState, now + ttlMs);
+            if (entries.put(nodeRef, entry) == null)
+            {
+                lockCount.incrementAndGet();
+            }
+            int index = (int) ((entry.expiresAt / tickMs) % wheelSize);
+            List<Entry> bucket = wheel[index];
+            if (bucket == null)
+            {
+                bucket = new ArrayList<Entry>(4);
+                wheel[index] = bucket;
+            }
+            bucket.add(entry);
+        }
+
+        /**
+         * Drop an entry.  The caller must hold the segment lock.
+         */
+        private void delete(NodeRef nodeRef)
+        {
+            if (entries.remove(nodeRef) != null)
+            {
+                lockCount.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * @param ttl               how long entries live after they were last written
+     * @param timeUnit          the unit of the time-to-live
+     */
+    public StripedLockStateMap(long ttl, TimeUnit timeUnit)
+    {
+        this(ttl, timeUnit, DEFAULT_SEGMENTS, DEFAULT_WHEEL_SIZE);
+    }
+
+    /**
+     * @param ttl               how long entries live after they were last written
+     * @param timeUnit          the unit of the time-to-live
+     * @param segmentCount      the number of independently locked segments
+     * @param wheelSize         the number of buckets on each timing wheel
+     */
+    public StripedLockStateMap(long ttl, TimeUnit timeUnit, int segmentCount, int wheelSize)
+    {
+        if (ttl <= 0L || segmentCount <= 0 || wheelSize < 2)
+        {
+            throw new IllegalArgumentException("Invalid time-to-live, segment count or wheel size.");
+        }
+        this.ttlMs = timeUnit.toMillis(ttl);
+        this.wheelSize = wheelSize;
+        // The wheel must cover the whole time-to-live without wrapping
+        this.tickMs = Math.max(1L, (ttlMs + wheelSize - 2L) / (wheelSize - 1L));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++)
+        {
+            segments[i] = new Segment();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Entry>[] newWheel()
+    {
+        return new List[wheelSize];
+    }
+
+    /**
+     * @return the current time in milliseconds
+     */
+    protected long currentTimeMillis()
+    {
+        return System.currentTimeMillis();
+    }
+
+    private Segment segmentFor(Object key)
+    {
+        int hash = key.hashCode();
+        // Spread the bits as the NodeRef hash codes are string hashes
+        hash ^= (hash >>> 16);
+        return segments[(hash & 0x7FFFFFFF) % segments.length];
+    }
+
+    /**
+     * Drop all the expired entries in all the segments
+     */
+    public void expireAll()
+    {
+        long now = currentTimeMillis();
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                segment.expire(now);
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries that have been dropped because they expired
+     */
+    public long getExpiredCount()
+    {
+        return expiredCount.get();
+    }
+
+    /**
+     * Reset the count of expired entries
+     */
+    public void resetExpiredCount()
+    {
+        expiredCount.set(0L);
+    }
+
+    /**
+     * @return the number of independently locked segments
+     */
+    public int getSegmentCount()
+    {
+        return segments.length;
+    }
+
+    /**
+     * @return the time covered by each bucket of the timing wheels in milliseconds
+     */
+    public long getTickMs()
+    {
+        return tickMs;
+    }
+
+    @Override
+    public LockState get(Object key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        Segment segment = segmentFor(key);
+        long now = currentTimeMillis();
+        synchronized (segment)
+        {
+            segment.expire(now);
+            Entry entry = segment.getLive((NodeRef) key, now);
+            return (entry == null) ? null : entry.lockState;
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return get(key) != null;
+    }
+
+    @Override
+    public LockState put(NodeRef key, LockState value)
+    {
+        Segment segment = segmentFor(key);
+        long now = currentTimeMillis();
+        synchronized (segment)
+        {
+            segment.expire(now);
+            Entry entry = segment.getLive(key, now);
+            segment.write(key, value, now);
+            return (entry == null) ? null : entry.lockState;
+        }
+    }
+
+    @Override
+    public LockState putIfAbsent(NodeRef key, LockState value)
+    {
+        Segment segment = segmentFor(key);
+        long now = currentTimeMillis();
+        synchronized (segment)
+        {
+            segment.expire(now);
+            Entry entry = segment.getLive(key, now);
+            if (entry != null)
+            {
+                return entry.lockState;
+            }
+            segment.write(key, value, now);
+            return null;
+        }
+    }
+
+    @Override
+    public boolean replace(NodeRef key, LockState oldValue, LockState newValue)
+    {
+        Segment segment = segmentFor(key);
+        long now = currentTimeMillis();
+        synchronized (segment)
+        {
+            segment.expire(now);
+            Entry entry = segment.getLive(key, now);
+            if (entry == null || !EqualsHelper.nullSafeEquals(entry.lockState, oldValue))
+            {
+                return false;
+            }
+            segment.write(key, newValue, now);
+            return true;
+        }
+    }
+
+    @Override
+    public LockState replace(NodeRef key, LockState value)
+    {
+        Segment segment = segmentFor(key);
+        long now = currentTimeMillis();
+        synchronized (segment)
+        {
+            segment.expire(now);
+            Entry entry = segment.getLive(key, now);
+            if (entry == null)
+            {
+                return null;
+            }
+            segment.write(key, value, now);
+            return entry.lockState;
+        }
+    }
+
+    @Override
+    public LockState remove(Object key)
+    {
+        if (key == null)
+        {
+            return null;
+        }
+        Segment segment = segmentFor(key);
+        long now = currentTimeMillis();
+        synchronized (segment)
+        {
+            segment.expire(now);
+            Entry entry = segment.getLive((NodeRef) key, now);
+            segment.delete((NodeRef) key);
+            return (entry == null) ? null : entry.lockState;
+        }
+    }
+
+    @Override
+    public boolean remove(Object key, Object value)
+    {
+        if (key == null)
+        {
+            return false;
+        }
+        Segment segment = segmentFor(key);
+        long now = currentTimeMillis();
+        synchronized (segment)
+        {
+            segment.expire(now);
+            Entry entry = segment.getLive((NodeRef) key, now);
+            if (entry == null || !EqualsHelper.nullSafeEquals(entry.lockState, value))
+            {
+                return false;
+            }
+            segment.delete((NodeRef) key);
+            return true;
+        }
+    }
+
+    /**
+     * Drops all the entries, one segment at a time
+     */
+    @Override
+    public void clear()
+    {
+        for (Segment segment : segments)
+        {
+            synchronized (segment)
+            {
+                lockCount.addAndGet(-segment.entries.size());
+                segment.entries = new HashMap<NodeRef, Entry>();
+                segment.wheel = newWheel();
+            }
+        }
+    }
+
+    /**
+     * @return the number of entries, which may include expired entries that have not been swept yet
+     */
+    @Override
+    public int size()
+    {
+        return lockCount.get();
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size() == 0;
+    }
+
+    @Override
+    public Set<NodeRef> keySet()
+    {
+        return new AbstractSet<NodeRef>()
+        {
+            @Override
+            public Iterator<NodeRef> iterator()
+            {
+                final Iterator<Map.Entry<NodeRef, LockState>> iterator = new EntryIterator();
+                return new Iterator<NodeRef>()
+                {
+                    @Override
+                    public boolean hasNext()
+                    {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public NodeRef next()
+                    {
+                        return iterator.next().getKey();
+                    }
+
+                    @Override
+                    public void remove()
+                    {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return StripedLockStateMap.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o)
+            {
+                return StripedLockStateMap.this.remove(o) != null;
+            }
+
+            @Override
+            public void clear()
+            {
+                StripedLockStateMap.this.clear();
+            }
+        };
+    }
+
+    @Override
+    public Set<Map.Entry<NodeRef, LockState>> entrySet()
+    {
+        return new AbstractSet<Map.Entry<NodeRef, LockState>>()
+        {
+            @Override
+            public Iterator<Map.Entry<NodeRef, LockState>> iterator()
+            {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size()
+            {
+                return StripedLockStateMap.this.size();
+            }
+
+            @Override
+            public void clear()
+            {
+                StripedLockStateMap.this.clear();
+            }
+        };
+    }
+
+    /**
+     * Iterates over the live entries, copying one segment at a time
+     */
+    private class EntryIterator implements Iterator<Map.Entry<NodeRef, LockState>>
+    {
+        private int segmentIndex = 0;
+        private Iterator<Map.Entry<NodeRef, LockState>> segmentIterator = null;
+        private Map.Entry<NodeRef, LockState> last = null;
+
+        @Override
+        public boolean hasNext()
+        {
+            while (segmentIterator == null || !segmentIterator.hasNext())
+            {
+                if (segmentIndex >= segments.length)
+                {
+                    return false;
+                }
+                Segment segment = segments[segmentIndex++];
+                List<Map.Entry<NodeRef, LockState>> copy;
+                long now = currentTimeMillis();
+                synchronized (segment)
+                {
+                    segment.expire(now);
+                    copy = new ArrayList<Map.Entry<NodeRef, LockState>>(segment.entries.size());
+                    for (Entry entry : segment.entries.values())
+                    {
+                        if (entry.expiresAt > now)
+                        {
+                            copy.add(new SimpleImmutableEntry<NodeRef, LockState>(entry.nodeRef, entry.lockState));
+                        }
+                    }
+                }
+                segmentIterator = copy.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public Map.Entry<NodeRef, LockState> next()
+        {
+            if (!hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+            last = segmentIterator.next();
+            return last;
+        }
+
+        @Override
+        public void remove()
+        {
+            if (last == null)
+            {
+                throw new IllegalStateException();
+            }
+            StripedLockStateMap.this.remove(last.getKey(), last.getValue());
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.lock.mem;
+
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.repo.lock.LockServiceImpl;
+
+/**
+ * {@link LockStore} implementation backed by a {@link StripedLockStateMap}, which spreads the locks
+ * over independently locked segments and drops expired locks using timing wheels rather than by
+ * scanning.  This suits stores holding very large numbers of ephemeral locks, as created by CIFS
+ * and WebDAV clients.
+ * 
+ * @since 7.6
+ */
+public class StripedLockStoreImpl extends AbstractLockStore<StripedLockStateMap> implements StripedLockStoreMBean
+{
+    /**
+     * Default constructor.
+     */
+    public StripedLockStoreImpl()
+    {
+        this(LockServiceImpl.MAX_EPHEMERAL_LOCK_SECONDS);
+    }
+
+    /**
+     * Constructor allowing specification of TTLs.
+     * 
+     * @param ephemeralTTLSeconds int
+     */
+    public StripedLockStoreImpl(int ephemeralTTLSeconds)
+    {
+        super(new StripedLockStateMap(ephemeralTTLSeconds, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Constructor allowing a map to be supplied.
+     * 
+     * @param map StripedLockStateMap
+     */
+    public StripedLockStoreImpl(StripedLockStateMap map)
+    {
+        super(map);
+    }
+
+    @Override
+    public int getLockCount()
+    {
+        return map.size();
+    }
+
+    @Override
+    public long getExpiredCount()
+    {
+        return map.getExpiredCount();
+    }
+
+    @Override
+    public int getSegmentCount()
+    {
+        return map.getSegmentCount();
+    }
+
+    @Override
+    public void expireAll()
+    {
+        map.expireAll();
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        map.resetExpiredCount();
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.lock.mem;
+
+/**
+ * Management interface for the lock counts of a {@link StripedLockStoreImpl}.
+ * 
+ * @since 7.6
+ */
+public interface StripedLockStoreMBean
+{
+    /**
+     * @return the number of locks held in memory, including expired locks not yet swept
+     */
+    public int getLockCount();
+
+    /**
+     * @return the number of locks dropped from memory because they expired
+     */
+    public long getExpiredCount();
+
+    /**
+     * @return the number of independently locked segments of the store
+     */
+    public int getSegmentCount();
+
+    /**
+     * Sweep the expired locks out of all the segments now
+     */
+    public void expireAll();
+
+    /**
+     * Reset the count of expired locks
+     */
+    public void resetStatistics();
+}
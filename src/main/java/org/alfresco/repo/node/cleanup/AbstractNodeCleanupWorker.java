@@ -207,6 +207,19 @@ public abstract class AbstractNodeCleanupWorker implements NodeCleanupWorker
         }
     }
     
+    /**
+     * Helper method to report the progress of the current cleanup to the registry
+     * 
+     * @param message       a description of the progress made so far
+     */
+    protected void reportProgress(String message)
+    {
+        if (registry != null)
+        {
+            registry.reportProgress(this, message);
+        }
+    }
+    
     /**
      * Do the actual cleanup.  Any errors are handled by this base class.
      * 
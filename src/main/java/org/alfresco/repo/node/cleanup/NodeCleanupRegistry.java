@@ -26,7 +26,10 @@
 package org.alfresco.repo.node.cleanup;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.alfresco.error.StackTraceUtil;
 import org.apache.commons.logging.Log;
@@ -44,10 +47,12 @@ public class NodeCleanupRegistry implements NodeCleanupWorker
     private static Log logger = LogFactory.getLog(NodeCleanupRegistry.class);
     
     private List<NodeCleanupWorker> cleanupWorkers;
+    private Map<String, String> progress;
     
     public NodeCleanupRegistry()
     {
         cleanupWorkers = new ArrayList<NodeCleanupWorker>(5);
+        progress = new ConcurrentHashMap<String, String>(5);
     }
     
     public void register(NodeCleanupWorker cleanupWorker)
@@ -55,6 +60,29 @@ public class NodeCleanupRegistry implements NodeCleanupWorker
         cleanupWorkers.add(cleanupWorker);
     }
 
+    /**
+     * Record the progress of a registered worker while it is cleaning up
+     * 
+     * @param cleanupWorker         the worker
+     * @param message               a description of the progress made so far
+     */
+    public void reportProgress(NodeCleanupWorker cleanupWorker, String message)
+    {
+        progress.put(cleanupWorker.getClass().getName(), message);
+        if (logger.isDebugEnabled())
+        {
+            logger.debug(cleanupWorker.getClass().getName() + ": " + message);
+        }
+    }
+
+    /**
+     * @return                      the last progress reported by each worker, keyed by worker class name
+     */
+    public Map<String, String> getProgress()
+    {
+        return Collections.unmodifiableMap(progress);
+    }
+
     /**
      * Calls all registered cleaners in order, without transactions or authentication.
      * The return messages are aggregated.
@@ -120,6 +120,7 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
     private StoreArchiveMap storeArchiveMap;
     private BehaviourFilter policyBehaviourFilter;
     private boolean enableTimestampPropagation;
+    private boolean archiveByMove;
     private final ExtendedTrait<NodeServiceTrait> nodeServiceTrait;
     
     public DbNodeServiceImpl()
@@ -169,6 +170,18 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         this.enableTimestampPropagation = enableTimestampPropagation;
     }
 
+    /**
+     * Set whether deleted hierarchies are moved into the archive store rather than copied
+     * into it node by node.  Moving re-points the existing properties, aspects and associations
+     * of each node and keeps its ACL, which avoids reading and rewriting all of the node data.
+     * 
+     * @param archiveByMove                     <tt>true</tt> to move nodes into the archive store
+     */
+    public void setArchiveByMove(boolean archiveByMove)
+    {
+        this.archiveByMove = archiveByMove;
+    }
+
     /**
      * Performs a null-safe get of the node
      * 
@@ -1217,8 +1230,18 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         }
         
         // Archive, if necessary
+        Map<Long, Set<QName>> movedNodeAspectQNames = null;
         if (archive)
         {
+            if (archiveByMove)
+            {
+                // The original nodes will be gone after the move, so keep what the delete events need
+                movedNodeAspectQNames = new HashMap<Long, Set<QName>>(nodesToDelete.size() * 2);
+                for (VisitedNode nodeToDelete : nodesToDelete)
+                {
+                    movedNodeAspectQNames.put(nodeToDelete.id, nodeDAO.getNodeAspects(nodeToDelete.id));
+                }
+            }
             // Archive node
             archiveHierarchy(walker, archiveStoreRef);
         }
@@ -1268,6 +1291,14 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
                 nodeDAO.deleteChildAssoc(secondaryParentAssocPair.getFirst());
                 invokeOnDeleteChildAssociation(secondaryParentAssocPair.getSecond());
             }
+            if (movedNodeAspectQNames != null)
+            {
+                // The node has been moved into the archive store already
+                invokeOnDeleteNode(
+                        nodeToDelete.primaryParentAssocPair.getSecond(),
+                        nodeToDelete.nodeType, movedNodeAspectQNames.get(nodeToDelete.id), archive);
+                continue;
+            }
             QName childNodeTypeQName = nodeDAO.getNodeType(nodeToDelete.id);
             Set<QName> childAspectQnames = nodeDAO.getNodeAspects(nodeToDelete.id);
             // Delete the node
@@ -2369,7 +2400,14 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
         policyBehaviourFilter.disableBehaviour(ContentModel.ASPECT_AUDITABLE);
         try
         {
-            archiveHierarchyImpl(walker, archiveStoreRef);
+            if (archiveByMove)
+            {
+                archiveHierarchyByMoveImpl(walker, archiveStoreRef);
+            }
+            else
+            {
+                archiveHierarchyImpl(walker, archiveStoreRef);
+            }
         }
         finally
         {
@@ -2404,16 +2442,7 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
             {
                 // Attach top-level archival details
                 ChildAssociationRef primaryParentAssocRef = node.primaryParentAssocPair.getSecond();
-                archiveAspects.add(ContentModel.ASPECT_ARCHIVED);
-                archiveProperties.put(ContentModel.PROP_ARCHIVED_BY, AuthenticationUtil.getFullyAuthenticatedUser());
-                archiveProperties.put(ContentModel.PROP_ARCHIVED_DATE, new Date());
-                archiveProperties.put(ContentModel.PROP_ARCHIVED_ORIGINAL_PARENT_ASSOC, primaryParentAssocRef);
-                Serializable originalOwner = archiveProperties.get(ContentModel.PROP_OWNER);
-                archiveProperties.put(ContentModel.PROP_ARCHIVED_ORIGINAL_OWNER, originalOwner != null ? originalOwner : OwnableService.NO_OWNER);
-
-                // change the node ownership
-                archiveAspects.add(ContentModel.ASPECT_OWNABLE);
-                archiveProperties.put(ContentModel.PROP_OWNER, AuthenticationUtil.getFullyAuthenticatedUser());
+                addArchivedDetails(primaryParentAssocRef, archiveAspects, archiveProperties);
                 // Create new primary association
                 archivePrimaryParentAssocRef = new ChildAssociationRef(
                         ContentModel.ASSOC_CHILDREN,
@@ -2530,57 +2559,187 @@ public class DbNodeServiceImpl extends AbstractNodeServiceImpl implements Extens
             // username is linked to the document
             if (firstNode)
             {
-                // Attach archiveRoot aspect to root
-                // TODO: In time, this can be moved into a patch
-                Long archiveStoreRootNodeId = archiveStoreRootNodePair.getFirst();
-                NodeRef archiveStoreRootNodeRef = archiveStoreRootNodePair.getSecond();
-                if (!nodeDAO.hasNodeAspect(archiveStoreRootNodeId, ContentModel.ASPECT_ARCHIVE_ROOT))
-                {
-                    addAspect(archiveStoreRootNodeRef, ContentModel.ASPECT_ARCHIVE_ROOT, null);
-                }
-                // Ensure that the user has a folder for archival
-                String username = AuthenticationUtil.getFullyAuthenticatedUser();
-                if (username == null)
-                {
-                    username = AuthenticationUtil.getAdminUserName();
-                }
-                Pair<Long, ChildAssociationRef> userArchiveAssocPair = nodeDAO.getChildAssoc(
-                        archiveStoreRootNodeId,
-                        ContentModel.ASSOC_ARCHIVE_USER_LINK,
-                        username);
-                NodeRef userArchiveNodeRef = null;
-                if (userArchiveAssocPair == null)
-                {
-                    // User has no node entry.  Create a new one.
-                    QName archiveUserAssocQName = QName.createQName(
-                                NamespaceService.CONTENT_MODEL_1_0_URI,
-                                QName.createValidLocalName(username));
-                    Map<QName, Serializable> userArchiveNodeProps = Collections.singletonMap(
-                            ContentModel.PROP_NAME, (Serializable) username);
-                    userArchiveNodeRef = createNode(
-                            archiveStoreRootNodeRef,
-                            ContentModel.ASSOC_ARCHIVE_USER_LINK,
-                            archiveUserAssocQName,
-                            ContentModel.TYPE_ARCHIVE_USER,
-                            userArchiveNodeProps).getChildRef();
-                }
-                else
+                linkArchivedNode(archiveStoreRootNodePair, archiveNodeRef, archiveProperties);
+            }
+            
+            // Invoke behaviours
+            invokeOnCreateNode(archivePrimaryParentAssocRef);
+
+            firstNode = false;
+        }
+    }
+    
+    /**
+     * Add the archival details to the top-level node of an archived hierarchy
+     * 
+     * @param primaryParentAssocRef         the original primary parent association of the node
+     * @param archiveAspects                the aspects to add to the archived node
+     * @param archiveProperties             the properties to add to the archived node, including any current owner
+     */
+    private void addArchivedDetails(
+            ChildAssociationRef primaryParentAssocRef,
+            Set<QName> archiveAspects,
+            Map<QName, Serializable> archiveProperties)
+    {
+        archiveAspects.add(ContentModel.ASPECT_ARCHIVED);
+        archiveProperties.put(ContentModel.PROP_ARCHIVED_BY, AuthenticationUtil.getFullyAuthenticatedUser());
+        archiveProperties.put(ContentModel.PROP_ARCHIVED_DATE, new Date());
+        archiveProperties.put(ContentModel.PROP_ARCHIVED_ORIGINAL_PARENT_ASSOC, primaryParentAssocRef);
+        Serializable originalOwner = archiveProperties.get(ContentModel.PROP_OWNER);
+        archiveProperties.put(ContentModel.PROP_ARCHIVED_ORIGINAL_OWNER, originalOwner != null ? originalOwner : OwnableService.NO_OWNER);
+
+        // change the node ownership
+        archiveAspects.add(ContentModel.ASPECT_OWNABLE);
+        archiveProperties.put(ContentModel.PROP_OWNER, AuthenticationUtil.getFullyAuthenticatedUser());
+    }
+    
+    /**
+     * Link the top-level node of an archived hierarchy to the archive folder of the current user
+     * 
+     * @param archiveStoreRootNodePair      the root of the archive store
+     * @param archiveNodeRef                the archived node
+     * @param archiveProperties             the properties of the archived node
+     */
+    private void linkArchivedNode(
+            Pair<Long, NodeRef> archiveStoreRootNodePair,
+            NodeRef archiveNodeRef,
+            Map<QName, Serializable> archiveProperties)
+    {
+        // Attach archiveRoot aspect to root
+        // TODO: In time, this can be moved into a patch
+        Long archiveStoreRootNodeId = archiveStoreRootNodePair.getFirst();
+        NodeRef archiveStoreRootNodeRef = archiveStoreRootNodePair.getSecond();
+        if (!nodeDAO.hasNodeAspect(archiveStoreRootNodeId, ContentModel.ASPECT_ARCHIVE_ROOT))
+        {
+            addAspect(archiveStoreRootNodeRef, ContentModel.ASPECT_ARCHIVE_ROOT, null);
+        }
+        // Ensure that the user has a folder for archival
+        String username = AuthenticationUtil.getFullyAuthenticatedUser();
+        if (username == null)
+        {
+            username = AuthenticationUtil.getAdminUserName();
+        }
+        Pair<Long, ChildAssociationRef> userArchiveAssocPair = nodeDAO.getChildAssoc(
+                archiveStoreRootNodeId,
+                ContentModel.ASSOC_ARCHIVE_USER_LINK,
+                username);
+        NodeRef userArchiveNodeRef = null;
+        if (userArchiveAssocPair == null)
+        {
+            // User has no node entry.  Create a new one.
+            QName archiveUserAssocQName = QName.createQName(
+                        NamespaceService.CONTENT_MODEL_1_0_URI,
+                        QName.createValidLocalName(username));
+            Map<QName, Serializable> userArchiveNodeProps = Collections.singletonMap(
+                    ContentModel.PROP_NAME, (Serializable) username);
+            userArchiveNodeRef = createNode(
+                    archiveStoreRootNodeRef,
+                    ContentModel.ASSOC_ARCHIVE_USER_LINK,
+                    archiveUserAssocQName,
+                    ContentModel.TYPE_ARCHIVE_USER,
+                    userArchiveNodeProps).getChildRef();
+        }
+        else
+        {
+            userArchiveNodeRef = userArchiveAssocPair.getSecond().getChildRef();
+        }
+        // Link user node to archived item via secondary child association
+        String archiveNodeName = (String) archiveProperties.get(ContentModel.PROP_NAME);
+        if (archiveNodeName == null)
+        {
+            archiveNodeName = archiveNodeRef.getId();
+        }
+        QName archiveAssocQName = QName.createQNameWithValidLocalName(
+                NamespaceService.SYSTEM_MODEL_1_0_URI, archiveNodeName);
+        addChild(userArchiveNodeRef, archiveNodeRef, ContentModel.ASSOC_ARCHIVED_LINK, archiveAssocQName);
+    }
+    
+    /**
+     * Archive a node hierarchy by moving each node into the archive store.  The node data is
+     * re-pointed at the new node rather than being read and written again, and the ACLs are kept.
+     * 
+     * @param walker                the node hierarchy to archive
+     * @param archiveStoreRef       the archive store
+     */
+    private void archiveHierarchyByMoveImpl(NodeHierarchyWalker walker, StoreRef archiveStoreRef)
+    {
+        // Start with the node we are archiving to
+        Pair<Long, NodeRef> archiveStoreRootNodePair = nodeDAO.getRootNode(archiveStoreRef);
+        
+        // Work through the hierarchy from the top down; each node's parent is moved before the node is
+        boolean firstNode = true;
+        Map<Long, Pair<Long, NodeRef>> archiveRecord = new HashMap<Long, Pair<Long, NodeRef>>(walker.getNodes(false).size() * 2);
+        for (VisitedNode node : walker.getNodes(false))
+        {
+            ChildAssociationRef primaryParentAssocRef = node.primaryParentAssocPair.getSecond();
+            final Pair<Long, NodeRef> archiveParentNodePair;
+            final QName assocTypeQName;
+            final QName assocQName;
+            if (firstNode)
+            {
+                archiveParentNodePair = archiveStoreRootNodePair;
+                assocTypeQName = ContentModel.ASSOC_CHILDREN;
+                assocQName = NodeArchiveService.QNAME_ARCHIVED_ITEM;
+            }
+            else
+            {
+                NodeRef parentNodeRef = primaryParentAssocRef.getParentRef();
+                // Look it up
+                VisitedNode parentNode = walker.getNode(parentNodeRef);
+                if (parentNode == null)
                 {
-                    userArchiveNodeRef = userArchiveAssocPair.getSecond().getChildRef();
+                    throw new IllegalStateException("Expected that a child has a visited primary parent: " + primaryParentAssocRef);
                 }
-                // Link user node to archived item via secondary child association
-                String archiveNodeName = (String) archiveProperties.get(ContentModel.PROP_NAME);
-                if (archiveNodeName == null)
+                // This needs to have been mapped to a new parent
+                archiveParentNodePair = archiveRecord.get(parentNode.id);
+                if (archiveParentNodePair == null)
                 {
-                    archiveNodeName = archiveNodeRef.getId();
+                    throw new IllegalStateException("Expected to have archived primary parent: " + primaryParentAssocRef);
                 }
-                QName archiveAssocQName = QName.createQNameWithValidLocalName(
-                        NamespaceService.SYSTEM_MODEL_1_0_URI, archiveNodeName);
-                addChild(userArchiveNodeRef, archiveNodeRef, ContentModel.ASSOC_ARCHIVED_LINK, archiveAssocQName);
+                // The primary association moved along with the parent, so keep its details
+                assocTypeQName = null;
+                assocQName = null;
             }
             
             // Invoke behaviours
-            invokeOnCreateNode(archivePrimaryParentAssocRef);
+            invokeBeforeCreateNode(
+                    archiveParentNodePair.getSecond(),
+                    assocTypeQName != null ? assocTypeQName : primaryParentAssocRef.getTypeQName(),
+                    assocQName != null ? assocQName : primaryParentAssocRef.getQName(),
+                    node.nodeType);
+            
+            // Move the node
+            Pair<Pair<Long, ChildAssociationRef>, Pair<Long, NodeRef>> moveNodeResult;
+            try
+            {
+                moveNodeResult = nodeDAO.moveNode(node.id, archiveParentNodePair.getFirst(), assocTypeQName, assocQName);
+            }
+            catch (NodeExistsException e)
+            {
+                // There is a conflict, so delete the currently-archived node
+                deleteNode(e.getNodePair().getSecond());
+                moveNodeResult = nodeDAO.moveNode(node.id, archiveParentNodePair.getFirst(), assocTypeQName, assocQName);
+            }
+            Pair<Long, NodeRef> archiveNodePair = moveNodeResult.getSecond();
+            archiveRecord.put(node.id, archiveNodePair);
+            
+            if (firstNode)
+            {
+                // Attach top-level archival details
+                Long archiveNodeId = archiveNodePair.getFirst();
+                Set<QName> archiveAspects = new HashSet<QName>(5);
+                Map<QName, Serializable> archiveProperties = new HashMap<QName, Serializable>(11);
+                archiveProperties.put(ContentModel.PROP_OWNER, nodeDAO.getNodeProperty(archiveNodeId, ContentModel.PROP_OWNER));
+                addArchivedDetails(primaryParentAssocRef, archiveAspects, archiveProperties);
+                nodeDAO.addNodeAspects(archiveNodeId, archiveAspects);
+                nodeDAO.addNodeProperties(archiveNodeId, archiveProperties);
+                // Ensure that the username is linked to the document
+                archiveProperties.put(ContentModel.PROP_NAME, nodeDAO.getNodeProperty(archiveNodeId, ContentModel.PROP_NAME));
+                linkArchivedNode(archiveStoreRootNodePair, archiveNodePair.getSecond(), archiveProperties);
+            }
+            
+            // Invoke behaviours
+            invokeOnCreateNode(moveNodeResult.getFirst().getSecond());
 
             firstNode = false;
         }
@@ -27,12 +27,22 @@ package org.alfresco.repo.node.db;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.node.cleanup.AbstractNodeCleanupWorker;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.util.TraceableThreadFactory;
 
 /**
  * Cleans up deleted nodes and dangling transactions that are old enough.
@@ -49,6 +59,10 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
     // Unused transactions will be purged in chunks determined by commit time boundaries. 'index.tracking.purgeSize' specifies the size
     // of the chunk (in ms). Default is a couple of hours.
     private int purgeSize = 7200000; // ms
+    // The commit time windows are purged by this many threads, each in its own transaction
+    private int purgeThreads = 1;
+    // Windows are shrunk when a purge takes longer than this and grown again when it takes less than half of it
+    private long purgeTargetTimeMs = 10000L;
 
     /**
      * Default constructor
@@ -110,7 +124,29 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
         this.purgeSize = purgeSize;
     }
 
-	/**
+    /**
+     * Set the number of threads that purge commit time windows concurrently.  The default is 1.
+     * 
+     * @param purgeThreads              the number of purge threads
+     */
+    public void setPurgeThreads(int purgeThreads)
+    {
+        this.purgeThreads = purgeThreads;
+    }
+
+    /**
+     * Set the time that a single purge should take.  The commit time window is halved when a purge
+     * takes longer than this and doubled, up to the {@link #setPurgeSize(int) purge size}, when a
+     * purge takes less than half of it.  Use 0 or less to keep the window at the purge size.
+     * 
+     * @param purgeTargetTimeMs         the target time (ms) for a single purge
+     */
+    public void setPurgeTargetTimeMs(long purgeTargetTimeMs)
+    {
+        this.purgeTargetTimeMs = purgeTargetTimeMs;
+    }
+
+    /**
      * Cleans up deleted nodes that are older than the given minimum age.
      * 
      * @param minAge        the minimum age of a transaction or deleted node
@@ -118,8 +154,6 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
      */
     private List<String> purgeOldDeletedNodes(long minAge)
     {
-        final List<String> results = new ArrayList<String>(100);
-
         final long maxCommitTime = System.currentTimeMillis() - minAge;
         long fromCommitTime = fromCustomCommitTime;
         if (fromCommitTime <= 0L)
@@ -129,79 +163,150 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
         if ( fromCommitTime == 0L )
         {
               String msg = "There are no old nodes to purge.";
-              results.add(msg);
-              return results;
+              return Collections.singletonList(msg);
         }
-        
-        long loopPurgeSize = purgeSize;
-        Long purgeCount = new Long(0);
-        while (true)
+        return purge(PurgeType.NODES, fromCommitTime, maxCommitTime);
+    }
+
+    /**
+     * Cleans up unused transactions that are older than the given minimum age.
+     * 
+     * @param minAge        the minimum age of a transaction or deleted node
+     * @return              Returns log message results
+     */
+    private List<String> purgeOldEmptyTransactions(long minAge)
+    {
+        if (minAge < 0)
         {
-            // Ensure we keep the lock
-            refreshLock();
-            
-            RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
-            txnHelper.setMaxRetries(5);                             // Limit number of retries
-            txnHelper.setRetryWaitIncrementMs(1000);                // 1 second to allow other cleanups time to get through
+            return Collections.emptyList();
+        }
+        final long maxCommitTime = System.currentTimeMillis() - minAge;
+        long fromCommitTime = fromCustomCommitTime;
+        if (fromCommitTime <= 0L)
+        {
+            fromCommitTime = nodeDAO.getMinUnusedTxnCommitTime().longValue();
+        }
+        return purge(PurgeType.TXNS, fromCommitTime, maxCommitTime);
+    }
 
-            long toCommitTime = fromCommitTime + loopPurgeSize;
-            if(toCommitTime > maxCommitTime)
-            {
-                toCommitTime = maxCommitTime;
-            }
-            
-            try
+    /**
+     * Purges the commit time range in windows, each in its own transaction, using up to
+     * <code>purgeThreads</code> threads.  The window size adapts to the time each purge takes and is
+     * halved for a window that fails; the purge stops when a failing window is below 10% of the purge size.
+     * 
+     * @param type                  what to purge
+     * @param fromCommitTime        the start of the range (inclusive)
+     * @param maxCommitTime         the end of the range (exclusive)
+     * @return                      Returns log message results
+     */
+    private List<String> purge(final PurgeType type, long fromCommitTime, long maxCommitTime)
+    {
+        final List<String> results = new ArrayList<String>(100);
+        final long totalRange = Math.max(1L, maxCommitTime - fromCommitTime);
+        
+        int threads = Math.max(1, purgeThreads);
+        ExecutorService executorService = null;
+        Executor executor;
+        if (threads > 1)
+        {
+            TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+            threadFactory.setThreadDaemon(true);
+            threadFactory.setNamePrefix("DeletedNodeCleanup");
+            executorService = Executors.newFixedThreadPool(threads, threadFactory);
+            executor = executorService;
+        }
+        else
+        {
+            // Purge in this thread
+            executor = new Executor()
             {
-                DeleteNodesByTransactionsCallback purgeNodesCallback = new DeleteNodesByTransactionsCallback(nodeDAO, fromCommitTime, toCommitTime);
-                purgeCount = txnHelper.doInTransaction(purgeNodesCallback, false, true);
-
-                if (purgeCount.longValue() > 0)
-                {
-                    String msg =
-                        "Purged old nodes: \n" +
-                        "   From commit time (ms):    " + fromCommitTime + "\n" +
-                        "   To commit time (ms):      " + toCommitTime + "\n" +
-                        "   Purge count:     " + purgeCount;
-                    results.add(msg);
-                }
-
-                fromCommitTime += loopPurgeSize;
-                
-                // If the delete succeeded, double the loopPurgeSize
-                loopPurgeSize *= 2L;
-                if (loopPurgeSize > purgeSize)
+                public void execute(Runnable command)
                 {
-                    loopPurgeSize = purgeSize;
+                    command.run();
                 }
-            }
-            catch (Throwable e)
+            };
+        }
+        CompletionService<PurgeResult> completionService = new ExecutorCompletionService<PurgeResult>(executor);
+        
+        // Failed windows are split and purged again before moving on
+        LinkedList<long[]> retryWindows = new LinkedList<long[]>();
+        long nextCommitTime = fromCommitTime;
+        long windowSize = purgeSize;
+        long purgedRange = 0L;
+        long totalPurgeCount = 0L;
+        int running = 0;
+        boolean stop = false;
+        try
+        {
+            while (true)
             {
-                String msg = 
-                    "Failed to purge nodes. \n" +
-                    "  If the purgable set is too large for the available DB resources \n" +
-                    "  then the nodes can be purged manually as well. \n" +
-                    "  Set log level to WARN for this class to get exception log: \n" +
-                    "   From commit time (ms):    " + fromCommitTime + "\n" +
-                    "   To commit time (ms):      " + toCommitTime + "\n" +
-                    "   Error:       " + e.getMessage();
-                // It failed; do a full log in WARN mode
-                if (logger.isWarnEnabled())
+                // Keep every thread busy
+                while (!stop && running < threads)
                 {
-                    logger.warn(msg, e);
+                    long[] window = retryWindows.poll();
+                    if (window == null)
+                    {
+                        if (nextCommitTime >= maxCommitTime)
+                        {
+                            break;
+                        }
+                        long toCommitTime = Math.min(nextCommitTime + windowSize, maxCommitTime);
+                        window = new long[] {nextCommitTime, toCommitTime};
+                        nextCommitTime = toCommitTime;
+                    }
+                    completionService.submit(new PurgeTask(type, window[0], window[1]));
+                    running++;
                 }
-                else
+                if (running == 0)
                 {
-                    logger.error(msg);
+                    break;
                 }
-                results.add(msg);
                 
-                // If delete failed, halve the loopPurgeSize and try again
-                loopPurgeSize /= 2L;
-                // If the purge size drops below 10% of the original size, the entire process must stop
-                if (loopPurgeSize < 0.1 * purgeSize)
+                // Ensure we keep the lock
+                refreshLock();
+                
+                PurgeResult result = completionService.take().get();
+                running--;
+                long resultWindowSize = result.toCommitTime - result.fromCommitTime;
+                if (result.error == null)
+                {
+                    if (result.purgeCount > 0)
+                    {
+                        String msg =
+                            "Purged old " + type.description + ": \n" +
+                            "   From commit time (ms):    " + result.fromCommitTime + "\n" +
+                            "   To commit time (ms):      " + result.toCommitTime + "\n" +
+                            "   Purge count:     " + result.purgeCount;
+                        results.add(msg);
+                    }
+                    totalPurgeCount += result.purgeCount;
+                    purgedRange += resultWindowSize;
+                    reportProgress(
+                            "Purged " + totalPurgeCount + " old " + type.description + ", " +
+                            (purgedRange * 100L / totalRange) + "% of commit time range " + fromCommitTime + " to " + maxCommitTime);
+                    
+                    // Adapt the window to the time the database took
+                    if (purgeTargetTimeMs > 0L && result.timeMs > purgeTargetTimeMs)
+                    {
+                        windowSize = Math.max(1L, Math.min(windowSize, resultWindowSize) / 2L);
+                    }
+                    else if (purgeTargetTimeMs <= 0L || result.timeMs < purgeTargetTimeMs / 2L)
+                    {
+                        windowSize = Math.min(windowSize * 2L, purgeSize);
+                    }
+                }
+                else
                 {
-                    msg ="Failed to purge nodes. \n" +
-                         " The purge time interval dropped below 10% of the original size (" + purgeSize + "), so the purging process was stopped.";
+                    Throwable e = result.error;
+                    String msg = 
+                        "Failed to purge " + type.description + ". \n" +
+                        "  If the purgable set is too large for the available DB resources \n" +
+                        "  then the " + type.description + " can be purged manually as well. \n" +
+                        "  Set log level to WARN for this class to get exception log: \n" +
+                        "   From commit time (ms):    " + result.fromCommitTime + "\n" +
+                        "   To commit time (ms):      " + result.toCommitTime + "\n" +
+                        "   Error:       " + e.getMessage();
+                    // It failed; do a full log in WARN mode
                     if (logger.isWarnEnabled())
                     {
                         logger.warn(msg, e);
@@ -211,100 +316,140 @@ public class DeletedNodeCleanupWorker extends AbstractNodeCleanupWorker
                         logger.error(msg);
                     }
                     results.add(msg);
-                    break;
+                    
+                    // If delete failed, halve the window and try again
+                    long halfWindowSize = resultWindowSize / 2L;
+                    windowSize = Math.max(1L, Math.min(windowSize, halfWindowSize));
+                    // If the window drops below 10% of the original size, the entire process must stop
+                    if (stop || halfWindowSize < 0.1 * purgeSize)
+                    {
+                        if (!stop)
+                        {
+                            msg ="Failed to purge " + type.description + ". \n" +
+                                 " The purge time interval dropped below 10% of the original size (" + purgeSize + "), so the purging process was stopped.";
+                            if (logger.isWarnEnabled())
+                            {
+                                logger.warn(msg, e);
+                            }
+                            else
+                            {
+                                logger.error(msg);
+                            }
+                            results.add(msg);
+                        }
+                        stop = true;
+                        continue;
+                    }
+                    long midCommitTime = result.fromCommitTime + halfWindowSize;
+                    retryWindows.addFirst(new long[] {midCommitTime, result.toCommitTime});
+                    retryWindows.addFirst(new long[] {result.fromCommitTime, midCommitTime});
                 }
             }
-                      
-            if(fromCommitTime >= maxCommitTime)
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            results.add("Purge of old " + type.description + " was interrupted.");
+        }
+        catch (Throwable e)
+        {
+            String msg = "Failed to purge " + type.description + ": " + e.getMessage();
+            logger.error(msg, e);
+            results.add(msg);
+        }
+        finally
+        {
+            if (executorService != null)
             {
-                break;
+                executorService.shutdownNow();
             }
         }
-            
         // Done
         return results;
     }
-
+    
     /**
-     * Cleans up unused transactions that are older than the given minimum age.
-     * 
-     * @param minAge        the minimum age of a transaction or deleted node
-     * @return              Returns log message results
+     * What is purged by commit time
      */
-    private List<String> purgeOldEmptyTransactions(long minAge)
+    private static enum PurgeType
     {
-        if (minAge < 0)
+        NODES("nodes"),
+        TXNS("txns");
+        
+        private final String description;
+        
+        private PurgeType(String description)
         {
-            return Collections.emptyList();
+            this.description = description;
         }
-        final List<String> results = new ArrayList<String>(100);
-
-        final long maxCommitTime = System.currentTimeMillis() - minAge;
-        long fromCommitTime = fromCustomCommitTime;
-        if (fromCommitTime <= 0L)
+    }
+    
+    /**
+     * The outcome of purging a single commit time window
+     */
+    private static class PurgeResult
+    {
+        private final long fromCommitTime;
+        private final long toCommitTime;
+        private long purgeCount;
+        private long timeMs;
+        private Throwable error;
+        
+        private PurgeResult(long fromCommitTime, long toCommitTime)
         {
-            fromCommitTime = nodeDAO.getMinUnusedTxnCommitTime().longValue();
+            this.fromCommitTime = fromCommitTime;
+            this.toCommitTime = toCommitTime;
         }
-    	// delete unused transactions in batches of size 'purgeTxnBlockSize'
-        while (true)
+    }
+    
+    /**
+     * Purges a single commit time window in its own transaction as the system user
+     */
+    private class PurgeTask implements Callable<PurgeResult>
+    {
+        private final PurgeType type;
+        private final PurgeResult result;
+        
+        private PurgeTask(PurgeType type, long fromCommitTime, long toCommitTime)
         {
-            // Ensure we keep the lock
-            refreshLock();
-            
-            RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
-            txnHelper.setMaxRetries(5);                             // Limit number of retries
-            txnHelper.setRetryWaitIncrementMs(1000);                // 1 second to allow other cleanups time to get through
-
-            long toCommitTime = fromCommitTime + purgeSize;
-            if(toCommitTime >= maxCommitTime)
-            {
-            	toCommitTime = maxCommitTime;
-            }
+            this.type = type;
+            this.result = new PurgeResult(fromCommitTime, toCommitTime);
+        }
 
-            // Purge transactions
-            try
-            {               
-                DeleteTransactionsCallback purgeTxnsCallback = new DeleteTransactionsCallback(nodeDAO, fromCommitTime, toCommitTime);
-                long purgeCount = txnHelper.doInTransaction(purgeTxnsCallback, false, true);
-                if (purgeCount > 0)
-                {
-                    String msg =
-                        "Purged old txns: \n" +
-                        "   From commit time (ms):    " + fromCommitTime + "\n" +
-                        "   To commit time (ms):      " + toCommitTime + "\n" +
-                        "   Purge count:     " + purgeCount;
-                    results.add(msg);
-                }
-            }
-            catch (Throwable e)
+        public PurgeResult call() throws Exception
+        {
+            RunAsWork<PurgeResult> purgeWork = new RunAsWork<PurgeResult>()
             {
-                String msg = 
-                    "Failed to purge txns." +
-                    "  Set log level to WARN for this class to get exception log: \n" +
-                    "   From commit time:      " + fromCommitTime + "\n" +
-                    "   To commit time (ms):   " + toCommitTime + "\n" +
-                    "   Error:       " + e.getMessage();
-                // It failed; do a full log in WARN mode
-                if (logger.isWarnEnabled())
-                {
-                    logger.warn(msg, e);
-                }
-                else
+                public PurgeResult doWork() throws Exception
                 {
-                    logger.error(msg);
+                    RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+                    txnHelper.setMaxRetries(5);                             // Limit number of retries
+                    txnHelper.setRetryWaitIncrementMs(1000);                // 1 second to allow other cleanups time to get through
+                    
+                    final DeleteByTransactionsCallback callback;
+                    if (type == PurgeType.NODES)
+                    {
+                        callback = new DeleteNodesByTransactionsCallback(nodeDAO, result.fromCommitTime, result.toCommitTime);
+                    }
+                    else
+                    {
+                        callback = new DeleteTransactionsCallback(nodeDAO, result.fromCommitTime, result.toCommitTime);
+                    }
+                    long start = System.currentTimeMillis();
+                    try
+                    {
+                        result.purgeCount = txnHelper.doInTransaction(callback, false, true);
+                    }
+                    catch (Throwable e)
+                    {
+                        result.error = e;
+                    }
+                    result.timeMs = System.currentTimeMillis() - start;
+                    return result;
                 }
-                results.add(msg);
-                break;
-            }
-
-            fromCommitTime += purgeSize;
-            if(fromCommitTime >= maxCommitTime)
-            {
-            	break;
-            }
+            };
+            return AuthenticationUtil.runAs(purgeWork, AuthenticationUtil.getSystemUserName());
         }
-        // Done
-        return results;
     }
     
     private static abstract class DeleteByTransactionsCallback implements RetryingTransactionCallback<Long>
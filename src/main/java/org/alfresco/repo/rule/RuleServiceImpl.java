@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -42,12 +43,14 @@ import org.alfresco.repo.action.executer.CompositeActionExecuter;
 import org.alfresco.repo.action.executer.MailActionExecuter;
 import org.alfresco.repo.cache.NullCache;
 import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.node.NodeServicePolicies;
 import org.alfresco.repo.policy.JavaBehaviour;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
 import org.alfresco.repo.transaction.TransactionListener;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
 import org.alfresco.repo.transaction.TransactionalResourceHelper;
 import org.alfresco.service.cmr.action.Action;
 import org.alfresco.service.cmr.action.ActionService;
@@ -68,6 +71,7 @@ import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.service.namespace.RegexQNamePattern;
 import org.alfresco.util.GUID;
+import org.alfresco.util.SerializationUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.springframework.extensions.surf.util.ParameterCheck;
@@ -86,7 +90,10 @@ public class RuleServiceImpl
                 NodeServicePolicies.OnCreateChildAssociationPolicy,
                 NodeServicePolicies.OnCreateNodePolicy,
                 NodeServicePolicies.OnUpdateNodePolicy,
-                NodeServicePolicies.OnAddAspectPolicy
+                NodeServicePolicies.OnAddAspectPolicy,
+                NodeServicePolicies.OnRemoveAspectPolicy,
+                NodeServicePolicies.OnDeleteChildAssociationPolicy,
+                NodeServicePolicies.OnMoveNodePolicy
 {
     /** key against which to store disabled rule types in the current txn */
     private static final String KEY_DISABLED_RULE_TYPES = "RuleServiceImpl.disabledRuleTypes";
@@ -100,6 +107,18 @@ public class RuleServiceImpl
     /** key against which to store executed rules on the current transaction */
     private static final String KEY_RULES_EXECUTED = "RuleServiceImpl.ExecutedRules";
     
+    /** key against which to count rule lookups in the current txn */
+    private static final String KEY_RULE_LOOKUPS = "RuleServiceImpl.ruleLookups";
+    
+    /** key against which to count inherited rule cache hits in the current txn */
+    private static final String KEY_INHERITED_RULES_HITS = "RuleServiceImpl.inheritedRulesHits";
+    
+    /** key against which to count inherited rule cache misses in the current txn */
+    private static final String KEY_INHERITED_RULES_MISSES = "RuleServiceImpl.inheritedRulesMisses";
+    
+    /** key against which to store the lookup statistics listener in the current txn */
+    private static final String KEY_RULE_LOOKUP_LISTENER = "RuleServiceImpl.ruleLookupListener";
+    
     /** qname of assoc to rules */
     private String ASSOC_NAME_RULES_PREFIX = "rules";
     private RegexQNamePattern ASSOC_NAME_RULES_REGEX = new RegexQNamePattern(RuleModel.RULE_MODEL_URI, "^" + ASSOC_NAME_RULES_PREFIX + ".*");
@@ -120,6 +139,8 @@ public class RuleServiceImpl
     private DictionaryService dictionaryService;
     private PolicyComponent policyComponent;
     private PermissionService permissionService;
+    private NodeBulkLoader bulkLoader;
+    private int pendingRulesBatchSize = 256;
     
     /**
      * The action service implementation which we need for some things.
@@ -130,6 +151,11 @@ public class RuleServiceImpl
      * Cache of raw rules (not inherited or interpreted) for a given node
      */
     private SimpleCache<NodeRef, List<Rule>> nodeRulesCache;
+    
+    /**
+     * Cache of the resolved inherited rules (all rule types) for a given node
+     */
+    private SimpleCache<NodeRef, List<Rule>> nodeInheritedRulesCache;
        
     /**
      * List of disabled rules.  Any rules that appear in this list will not be added to the pending list and therefore
@@ -221,6 +247,22 @@ public class RuleServiceImpl
         this.permissionService = permissionService;
     }
     
+    /**
+     * @param bulkLoader        used to pre-load the nodes that pending rules act upon
+     */
+    public void setBulkLoader(NodeBulkLoader bulkLoader)
+    {
+        this.bulkLoader = bulkLoader;
+    }
+
+    /**
+     * @param pendingRulesBatchSize the number of nodes acted upon by pending rules that are pre-loaded together
+     */
+    public void setPendingRulesBatchSize(int pendingRulesBatchSize)
+    {
+        this.pendingRulesBatchSize = pendingRulesBatchSize;
+    }
+    
     /**
      * Set the cache to hold node's individual rules.  This cache <b>must not be shared</b>
      * across transactions.
@@ -234,6 +276,20 @@ public class RuleServiceImpl
         this.nodeRulesCache = nodeRulesCache;
     }
 
+    /**
+     * Set the cache to hold the rules each node inherits from its parents.  As with the
+     * {@link #setNodeRulesCache(SimpleCache) node rules cache}, this cache <b>must not be shared</b>
+     * across transactions.
+     * 
+     * @param nodeInheritedRulesCache   a cache of the resolved inherited rules for a node
+     * 
+     * @see NullCache
+     */
+    public void setNodeInheritedRulesCache(SimpleCache<NodeRef, List<Rule>> nodeInheritedRulesCache)
+    {
+        this.nodeInheritedRulesCache = nodeInheritedRulesCache;
+    }
+
     /**
      * Set the global rules disabled flag
      * 
@@ -259,6 +315,36 @@ public class RuleServiceImpl
                 NodeServicePolicies.OnAddAspectPolicy.QNAME,
                 RuleModel.ASPECT_RULES,
                 new JavaBehaviour(this, "onAddAspect"));
+        policyComponent.bindClassBehaviour(
+                NodeServicePolicies.OnRemoveAspectPolicy.QNAME,
+                RuleModel.ASPECT_RULES,
+                new JavaBehaviour(this, "onRemoveAspect"));
+        policyComponent.bindClassBehaviour(
+                NodeServicePolicies.OnAddAspectPolicy.QNAME,
+                RuleModel.ASPECT_IGNORE_INHERITED_RULES,
+                new JavaBehaviour(this, "onAddAspect"));
+        policyComponent.bindClassBehaviour(
+                NodeServicePolicies.OnRemoveAspectPolicy.QNAME,
+                RuleModel.ASPECT_IGNORE_INHERITED_RULES,
+                new JavaBehaviour(this, "onRemoveAspect"));
+        policyComponent.bindAssociationBehaviour(
+                NodeServicePolicies.OnDeleteChildAssociationPolicy.QNAME,
+                RuleModel.ASPECT_RULES,
+                RuleModel.ASSOC_RULE_FOLDER,
+                new JavaBehaviour(this, "onDeleteChildAssociation"));
+        // Changes to the primary or secondary parents of existing nodes change the rules they inherit
+        policyComponent.bindClassBehaviour(
+                NodeServicePolicies.OnMoveNodePolicy.QNAME,
+                ContentModel.TYPE_BASE,
+                new JavaBehaviour(this, "onMoveNode"));
+        policyComponent.bindAssociationBehaviour(
+                NodeServicePolicies.OnCreateChildAssociationPolicy.QNAME,
+                ContentModel.TYPE_BASE,
+                new JavaBehaviour(this, "onCreateParentAssociation"));
+        policyComponent.bindAssociationBehaviour(
+                NodeServicePolicies.OnDeleteChildAssociationPolicy.QNAME,
+                ContentModel.TYPE_BASE,
+                new JavaBehaviour(this, "onDeleteParentAssociation"));
         policyComponent.bindClassBehaviour(
                 NodeServicePolicies.OnUpdateNodePolicy.QNAME,
                 RuleModel.ASPECT_RULES,
@@ -290,12 +376,21 @@ public class RuleServiceImpl
     }
 
     /**
-     * Cache invalidation
+     * Cache invalidation: a rule folder has been created or linked
      */
     @Override
     public void onCreateChildAssociation(ChildAssociationRef childAssocRef, boolean isNewNode)
     {
-        nodeRulesCache.clear();
+        invalidateRules(childAssocRef.getParentRef());
+    }
+
+    /**
+     * Cache invalidation: a rule folder has been removed or unlinked
+     */
+    @Override
+    public void onDeleteChildAssociation(ChildAssociationRef childAssocRef)
+    {
+        invalidateRules(childAssocRef.getParentRef());
     }
 
     /**
@@ -303,7 +398,7 @@ public class RuleServiceImpl
      */
     public void onUpdateNode(NodeRef nodeRef)
     {
-        nodeRulesCache.clear();
+        invalidateRuleOwners(nodeRef);
     }
 
     /**
@@ -311,7 +406,7 @@ public class RuleServiceImpl
      */
     public void onCreateNode(ChildAssociationRef childAssocRef)
     {
-        nodeRulesCache.clear();
+        invalidateRuleOwners(childAssocRef.getChildRef());
     }
 
     /**
@@ -319,7 +414,120 @@ public class RuleServiceImpl
      */
     public void onAddAspect(NodeRef nodeRef, QName aspectTypeQName)
     {
-        nodeRulesCache.clear();
+        invalidateRules(nodeRef);
+    }
+
+    /**
+     * Cache invalidation
+     */
+    @Override
+    public void onRemoveAspect(NodeRef nodeRef, QName aspectTypeQName)
+    {
+        invalidateRules(nodeRef);
+    }
+
+    /**
+     * Cache invalidation: the node inherits from a different parent
+     */
+    @Override
+    public void onMoveNode(ChildAssociationRef oldChildAssocRef, ChildAssociationRef newChildAssocRef)
+    {
+        nodeInheritedRulesCache.clear();
+    }
+
+    /**
+     * Cache invalidation: an existing node has gained a parent
+     */
+    public void onCreateParentAssociation(ChildAssociationRef childAssocRef, boolean isNewNode)
+    {
+        if (!isNewNode)
+        {
+            nodeInheritedRulesCache.clear();
+        }
+    }
+
+    /**
+     * Cache invalidation: a node has lost a secondary parent
+     */
+    public void onDeleteParentAssociation(ChildAssociationRef childAssocRef)
+    {
+        nodeInheritedRulesCache.clear();
+    }
+
+    /**
+     * Drops the cached rules of the given node and of any nodes linked to its rule folder.  Inherited
+     * rules are dropped for all nodes as any descendant of the node may have inherited them.
+     * 
+     * @param nodeRef       the node owning the rules
+     */
+    private void invalidateRules(NodeRef nodeRef)
+    {
+        nodeRulesCache.remove(nodeRef);
+        nodeInheritedRulesCache.clear();
+        if (runtimeNodeService.exists(nodeRef) && runtimeNodeService.hasAspect(nodeRef, RuleModel.ASPECT_RULES))
+        {
+            ChildAssociationRef ruleFolderAssoc = getSavedRuleFolderAssoc(nodeRef);
+            if (ruleFolderAssoc != null)
+            {
+                invalidateRuleFolder(ruleFolderAssoc.getChildRef());
+            }
+        }
+    }
+
+    /**
+     * Drops the cached rules of all nodes sharing the given rule folder
+     */
+    private void invalidateRuleFolder(NodeRef ruleFolderNodeRef)
+    {
+        List<ChildAssociationRef> ownerAssocs = runtimeNodeService.getParentAssocs(
+                ruleFolderNodeRef,
+                RuleModel.ASSOC_RULE_FOLDER,
+                RuleModel.ASSOC_RULE_FOLDER);
+        if (ownerAssocs.isEmpty())
+        {
+            // Not a rule folder
+            return;
+        }
+        for (ChildAssociationRef ownerAssoc : ownerAssocs)
+        {
+            nodeRulesCache.remove(ownerAssoc.getParentRef());
+        }
+        nodeInheritedRulesCache.clear();
+    }
+
+    /**
+     * Finds the rule folder containing the given rule, action or action parameter and drops the cached
+     * rules of the nodes that use it.  Nodes that do not form part of a rule are ignored.
+     * 
+     * @param nodeRef       a rule, action or action parameter node
+     */
+    private void invalidateRuleOwners(NodeRef nodeRef)
+    {
+        NodeRef currentNodeRef = nodeRef;
+        while (currentNodeRef != null && runtimeNodeService.exists(currentNodeRef))
+        {
+            if (runtimeNodeService.hasAspect(currentNodeRef, RuleModel.ASPECT_RULES))
+            {
+                // The node itself owns the rules
+                invalidateRules(currentNodeRef);
+                return;
+            }
+            QName typeQName = runtimeNodeService.getType(currentNodeRef);
+            if (dictionaryService.isSubClass(typeQName, ContentModel.TYPE_SYSTEM_FOLDER))
+            {
+                // Possibly the rule folder
+                invalidateRuleFolder(currentNodeRef);
+                return;
+            }
+            if (!dictionaryService.isSubClass(typeQName, RuleModel.TYPE_RULE) &&
+                !dictionaryService.isSubClass(typeQName, ActionModel.TYPE_ACTION_BASE) &&
+                !dictionaryService.isSubClass(typeQName, ActionModel.TYPE_ACTION_PARAMETER))
+            {
+                // Not part of a rule
+                return;
+            }
+            currentNodeRef = runtimeNodeService.getPrimaryParent(currentNodeRef).getParentRef();
+        }
     }
     
     protected NodeRef getSavedRuleFolderRef(NodeRef nodeRef)
@@ -471,6 +679,7 @@ public class RuleServiceImpl
             public List<Rule> doWork() throws Exception
             {
                 List<Rule> rules = new ArrayList<Rule>();
+                recordRuleLookup();
 
                 if (!runtimeNodeService.exists(nodeRef) || !checkNodeType(nodeRef))
                 {
@@ -605,71 +814,162 @@ public class RuleServiceImpl
      */
     private List<Rule> getInheritedRules(NodeRef nodeRef, String ruleTypeName, Set<NodeRef> visitedNodeRefs)
     {
-        List<Rule> inheritedRules = new ArrayList<Rule>();
+        // Create the visited nodes set if it has not already been created
+        if (visitedNodeRefs == null)
+        {
+            visitedNodeRefs = new HashSet<NodeRef>();
+        }
+        List<Rule> allInheritedRules = resolveInheritedRules(nodeRef, visitedNodeRefs).rules;
         
-        if (this.runtimeNodeService.hasAspect(nodeRef, RuleModel.ASPECT_IGNORE_INHERITED_RULES) == false)
-        {        
-            // Create the visited nodes set if it has not already been created
-            if (visitedNodeRefs == null)
+        List<Rule> inheritedRules = new ArrayList<Rule>(allInheritedRules.size());
+        if (ruleTypeName == null)
+        {
+            inheritedRules.addAll(allInheritedRules);
+        }
+        else
+        {
+            // Filter the rule list by rule type
+            for (Rule rule : allInheritedRules)
             {
-                visitedNodeRefs = new HashSet<NodeRef>();
+                if (rule.getRuleTypes().contains(ruleTypeName) == true)
+                {
+                    inheritedRules.add(rule);
+                }
             }
-            
-            // This check prevents stack over flow when we have a cyclic node graph
-            if (visitedNodeRefs.contains(nodeRef) == false)
+        }
+        return inheritedRules;
+    }
+    
+    /**
+     * Resolves the rules of all types that a node inherits from its parents, using the inherited rules
+     * cache for the node and each of its ancestors.
+     * 
+     * @param nodeRef           the nodeRef
+     * @param visitingNodeRefs  the nodes currently being resolved further down the stack
+     * @return                  the inherited rules and whether they are complete
+     */
+    private InheritedRules resolveInheritedRules(NodeRef nodeRef, Set<NodeRef> visitingNodeRefs)
+    {
+        List<Rule> cachedRules = nodeInheritedRulesCache.get(nodeRef);
+        if (cachedRules != null)
+        {
+            countRuleLookup(KEY_INHERITED_RULES_HITS);
+            return new InheritedRules(cachedRules, true);
+        }
+        countRuleLookup(KEY_INHERITED_RULES_MISSES);
+        
+        if (this.runtimeNodeService.hasAspect(nodeRef, RuleModel.ASPECT_IGNORE_INHERITED_RULES) == true)
+        {
+            List<Rule> noRules = Collections.emptyList();
+            nodeInheritedRulesCache.put(nodeRef, noRules);
+            return new InheritedRules(noRules, true);
+        }
+        
+        // This check prevents stack over flow when we have a cyclic node graph
+        if (visitingNodeRefs.add(nodeRef) == false)
+        {
+            return new InheritedRules(Collections.<Rule>emptyList(), false);
+        }
+        
+        boolean complete = true;
+        List<Rule> allInheritedRules = new ArrayList<Rule>();
+        List<ChildAssociationRef> parents = this.runtimeNodeService.getParentAssocs(nodeRef);
+        for (ChildAssociationRef parent : parents)
+        {
+            // We are not interested in following potentially massive person group membership trees!
+            if (IGNORE_PARENT_ASSOC_TYPES.contains(parent.getTypeQName()))
             {
-                visitedNodeRefs.add(nodeRef);
-                
-                List<Rule> allInheritedRules = new ArrayList<Rule>();
-                List<ChildAssociationRef> parents = this.runtimeNodeService.getParentAssocs(nodeRef);
-                for (ChildAssociationRef parent : parents)
-                {
-                    // We are not interested in following potentially massive person group membership trees!
-                    if (IGNORE_PARENT_ASSOC_TYPES.contains(parent.getTypeQName()))
-                    {
-                        continue;
-                    }
+                continue;
+            }
 
-                    // Add the inherited rule first
-                    for (Rule rule : getInheritedRules(parent.getParentRef(), ruleTypeName, visitedNodeRefs))
-                    {
-                        // Ensure that we don't get any rule duplication (don't use a set cos we want to preserve order)
-                        if (allInheritedRules.contains(rule) == false)
-                        {
-                            allInheritedRules.add(rule);
-                        }
-                    }
-                    
-                    List<Rule> rules = getRules(parent.getParentRef(), false);
-                    for (Rule rule : rules)
-                    {
-                        // Add is we hanvn't already added and it should be applied to the children
-                        if (rule.isAppliedToChildren() == true && allInheritedRules.contains(rule) == false)
-                        {
-                            allInheritedRules.add(rule);
-                        }
-                    }
-                }
-                
-                if (ruleTypeName == null)
+            // Add the inherited rule first
+            InheritedRules parentInheritedRules = resolveInheritedRules(parent.getParentRef(), visitingNodeRefs);
+            complete = complete && parentInheritedRules.complete;
+            for (Rule rule : parentInheritedRules.rules)
+            {
+                // Ensure that we don't get any rule duplication (don't use a set cos we want to preserve order)
+                if (allInheritedRules.contains(rule) == false)
                 {
-                    inheritedRules = allInheritedRules;
+                    allInheritedRules.add(rule);
                 }
-                else
+            }
+            
+            List<Rule> rules = getRules(parent.getParentRef(), false);
+            for (Rule rule : rules)
+            {
+                // Add is we hanvn't already added and it should be applied to the children
+                if (rule.isAppliedToChildren() == true && allInheritedRules.contains(rule) == false)
                 {
-                    // Filter the rule list by rule type
-                    for (Rule rule : allInheritedRules)
-                    {
-                        if (rule.getRuleTypes().contains(ruleTypeName) == true)
-                        {
-                            inheritedRules.add(rule);
-                        }
-                    }
+                    allInheritedRules.add(rule);
                 }
             }
         }
+        visitingNodeRefs.remove(nodeRef);
         
-        return inheritedRules;
+        allInheritedRules = Collections.unmodifiableList(allInheritedRules);
+        if (complete)
+        {
+            // Rules cut short by a cycle are only valid for the node that started the walk
+            nodeInheritedRulesCache.put(nodeRef, allInheritedRules);
+        }
+        return new InheritedRules(allInheritedRules, complete);
+    }
+    
+    /**
+     * The inherited rules of a node, flagged as incomplete if a cycle in the node graph was cut
+     */
+    private static class InheritedRules
+    {
+        private final List<Rule> rules;
+        private final boolean complete;
+        
+        private InheritedRules(List<Rule> rules, boolean complete)
+        {
+            this.rules = rules;
+            this.complete = complete;
+        }
+    }
+    
+    /**
+     * Counts a rule lookup against the current transaction and, when debugging, arranges for the
+     * transaction's lookup statistics to be logged once it completes.
+     */
+    private void recordRuleLookup()
+    {
+        if (countRuleLookup(KEY_RULE_LOOKUPS) && logger.isDebugEnabled() &&
+                !TransactionalResourceHelper.isResourcePresent(KEY_RULE_LOOKUP_LISTENER))
+        {
+            AlfrescoTransactionSupport.bindResource(KEY_RULE_LOOKUP_LISTENER, Boolean.TRUE);
+            AlfrescoTransactionSupport.bindListener(new RuleLookupStatisticsListener());
+        }
+    }
+    
+    /**
+     * @return          <tt>true</tt> if the lookup was counted i.e. there is a transaction
+     */
+    private boolean countRuleLookup(String key)
+    {
+        if (AlfrescoTransactionSupport.getTransactionId() == null)  // not in transaction
+        {
+            return false;
+        }
+        TransactionalResourceHelper.incrementCount(key);
+        return true;
+    }
+    
+    /**
+     * Logs the rule lookup statistics gathered during a transaction
+     */
+    private static class RuleLookupStatisticsListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void beforeCommit(boolean readOnly)
+        {
+            logger.debug(
+                    "Rule lookups in transaction: " + TransactionalResourceHelper.getCount(KEY_RULE_LOOKUPS) +
+                    ", inherited rule cache hits: " + TransactionalResourceHelper.getCount(KEY_INHERITED_RULES_HITS) +
+                    ", misses: " + TransactionalResourceHelper.getCount(KEY_INHERITED_RULES_MISSES));
+        }
     }
 
     /**
@@ -937,7 +1237,7 @@ public class RuleServiceImpl
                 }
             }
             // Drop the rules from the cache
-            nodeRulesCache.remove(nodeRef);
+            invalidateRules(nodeRef);
         }
         else
         {
@@ -984,7 +1284,7 @@ public class RuleServiceImpl
                 this.nodeService.removeAspect(nodeRef, RuleModel.ASPECT_RULES);
             }
             // Drop the rules from the cache
-            nodeRulesCache.remove(nodeRef);
+            invalidateRules(nodeRef);
         }
         else
         {
@@ -1097,13 +1397,46 @@ public class RuleServiceImpl
         }
     	
     	List<PendingRuleData> executeAtEndRules = new ArrayList<PendingRuleData>();
+        // The nodes were pre-loaded with the rest of the pass that deferred them
         executePendingRulesImpl(executeAtEndRules);
+        Map<NodeRef, Rule> loadedRules = new HashMap<NodeRef, Rule>();
         for (PendingRuleData data : executeAtEndRules)
         {
-            executePendingRule(data);
+            executePendingRule(data, loadedRules);
         }
     }     
     
+    /**
+     * Pre-loads the nodes that the given rules will act upon, in batches, so that rule conditions
+     * and actions do not have to read them one at a time.
+     */
+    private void cachePendingRuleNodes(List<PendingRuleData> pendingRules)
+    {
+        if (bulkLoader == null || pendingRules.size() < 2)
+        {
+            return;
+        }
+        Set<NodeRef> nodeRefs = new LinkedHashSet<NodeRef>(pendingRules.size() * 2);
+        for (PendingRuleData pendingRule : pendingRules)
+        {
+            nodeRefs.add(pendingRule.getActionedUponNodeRef());
+        }
+        List<NodeRef> batch = new ArrayList<NodeRef>(Math.min(nodeRefs.size(), pendingRulesBatchSize));
+        for (NodeRef nodeRef : nodeRefs)
+        {
+            batch.add(nodeRef);
+            if (batch.size() >= pendingRulesBatchSize)
+            {
+                bulkLoader.cacheNodes(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty())
+        {
+            bulkLoader.cacheNodes(batch);
+        }
+    }
+    
     /**
      * Executes the pending rules, iterating until all pending rules have been executed
      */
@@ -1119,12 +1452,15 @@ public class RuleServiceImpl
             PendingRuleData[] pendingRulesArr = pendingRules.toArray(new PendingRuleData[0]);
             // remove all pending rules from the transaction
             AlfrescoTransactionSupport.unbindResource(KEY_RULES_PENDING);
+            // load the nodes acted upon together and each rule only once
+            cachePendingRuleNodes(pendingRules);
+            Map<NodeRef, Rule> loadedRules = new HashMap<NodeRef, Rule>();
             // execute each rule
             for (PendingRuleData pendingRule : pendingRulesArr) 
             {
                 if (pendingRule.getExecuteAtEnd() == false)
                 {
-                    executePendingRule(pendingRule);
+                    executePendingRule(pendingRule, loadedRules);
                 }
                 else
                 {
@@ -1141,8 +1477,10 @@ public class RuleServiceImpl
      * Executes a pending rule
      * 
 	 * @param pendingRule	the pending rule data object
+	 * @param loadedRules   the rules already loaded for other pending rules, by rule node.  These are
+	 *                      never executed themselves: each execution gets its own copy.
      */
-    private void executePendingRule(final PendingRuleData pendingRule) 
+    private void executePendingRule(final PendingRuleData pendingRule, final Map<NodeRef, Rule> loadedRules) 
     {
         if (AuthenticationUtil.getRunAsAuthentication() == null && pendingRule.getRunAsUser() != null)
         {
@@ -1151,19 +1489,19 @@ public class RuleServiceImpl
             {
                 public Void doWork() throws Exception
                 {
-                    executePendingRuleImpl(pendingRule);
+                    executePendingRuleImpl(pendingRule, loadedRules);
                     return null;
                 }
             }, pendingRule.getRunAsUser());
         }
         else
         {
-            executePendingRuleImpl(pendingRule);
+            executePendingRuleImpl(pendingRule, loadedRules);
         }
     }
     
     @SuppressWarnings("unchecked")
-    private void executePendingRuleImpl(PendingRuleData pendingRule) 
+    private void executePendingRuleImpl(PendingRuleData pendingRule, Map<NodeRef, Rule> loadedRules) 
     {
         Set<ExecutedRuleData> executedRules =
                (Set<ExecutedRuleData>) AlfrescoTransactionSupport.getResource(KEY_RULES_EXECUTED);
@@ -1188,14 +1526,22 @@ public class RuleServiceImpl
             
         }
         final NodeRef finalRuleNodeRef = ruleNodeRef;
-        // update all associations and actions
-        rule = AuthenticationUtil.runAs(new AuthenticationUtil.RunAsWork<Rule>()
+        // update all associations and actions, once for all the nodes the rule is pending against
+        Rule loadedRule = loadedRules.get(ruleNodeRef);
+        if (loadedRule == null)
         {
-            public Rule doWork() throws Exception
+            loadedRule = AuthenticationUtil.runAs(new AuthenticationUtil.RunAsWork<Rule>()
             {
-                return getRule(finalRuleNodeRef);
-            }
-        }, AuthenticationUtil.getSystemUserName());
+                public Rule doWork() throws Exception
+                {
+                    return getRule(finalRuleNodeRef);
+                }
+            }, AuthenticationUtil.getSystemUserName());
+            loadedRules.put(ruleNodeRef, loadedRule);
+        }
+        // Executers set results on the action and tracking records the execution on it, so every
+        // node gets a copy of the rule as loaded
+        rule = (Rule) SerializationUtils.deserialize(SerializationUtils.serialize(loadedRule));
 
         if (executedRules == null || canExecuteRule(executedRules, actionedUponNodeRef, rule) == true)
         {
@@ -186,6 +186,10 @@ public abstract class AbstractLuceneIndexerAndSearcherFactory extends AbstractIn
 
     private int mergerTargetOverlaysBlockingFactor = 1;
     
+    private int mergerMaxConcurrentMerges = 1;
+    
+    private double mergerMaxMbPerSec = 0.0;
+    
     private boolean fairLocking;
 
     private int termIndexInterval = IndexWriter.DEFAULT_TERM_INDEX_INTERVAL;
@@ -1839,6 +1843,30 @@ public abstract class AbstractLuceneIndexerAndSearcherFactory extends AbstractIn
         this.mergerTargetOverlaysBlockingFactor = mergerTargetOverlaysBlockingFactor;
     }
 
+    @Override
+    public int getMergerMaxConcurrentMerges()
+    {
+        return mergerMaxConcurrentMerges;
+    }
+
+    @Override
+    public void setMergerMaxConcurrentMerges(int mergerMaxConcurrentMerges)
+    {
+        this.mergerMaxConcurrentMerges = mergerMaxConcurrentMerges;
+    }
+
+    @Override
+    public double getMergerMaxMbPerSec()
+    {
+        return mergerMaxMbPerSec;
+    }
+
+    @Override
+    public void setMergerMaxMbPerSec(double mergerMaxMbPerSec)
+    {
+        this.mergerMaxMbPerSec = mergerMaxMbPerSec;
+    }
+
     @Override
     public boolean getFairLocking()
     {
@@ -164,6 +164,19 @@ public interface LuceneConfig
      */
     public int getMergerTargetIndexCount();
     
+    /**
+     * The maximum number of index merges, of separate sets of indexes, that may run at the same time.
+     * @return int
+     */
+    public int getMergerMaxConcurrentMerges();
+    
+    /**
+     * The maximum rate at which merges write to disk, in MB per second (0 = unlimited). The limit is lifted
+     * while writers are blocked waiting for overlays to be merged.
+     * @return double
+     */
+    public double getMergerMaxMbPerSec();
+    
     /**
      * Lucene term index interval
      * @return int
@@ -410,6 +423,16 @@ public interface LuceneConfig
      */
     void setMergerTargetOverlaysBlockingFactor(int mergerTargetOverlaysBlockingFactor);
 
+    /**
+     * @param mergerMaxConcurrentMerges int
+     */
+    void setMergerMaxConcurrentMerges(int mergerMaxConcurrentMerges);
+
+    /**
+     * @param mergerMaxMbPerSec double
+     */
+    void setMergerMaxMbPerSec(double mergerMaxMbPerSec);
+
     /**
      * @param fairLocking boolean
      */
@@ -38,6 +38,7 @@ import java.util.stream.Collectors;
 
 import org.alfresco.repo.domain.node.NodeDAO;
 import org.alfresco.repo.search.SimpleResultSetMetaData;
+import org.alfresco.repo.search.impl.solr.SolrJSONResponseHandler.StreamedDocs;
 import org.alfresco.repo.search.impl.solr.facet.facetsresponse.GenericBucket;
 import org.alfresco.repo.search.impl.solr.facet.facetsresponse.GenericFacetResponse;
 import org.alfresco.repo.search.impl.solr.facet.facetsresponse.GenericFacetResponse.FACET_TYPE;
@@ -147,39 +148,54 @@ public class SolrJSONResultSet implements ResultSet, JSONResult
             {
                 processedDenies = json.getBoolean("processedDenies");
             }
-            JSONArray docs = response.getJSONArray("docs");
-            
-            int numDocs = docs.length();
-            
-            ArrayList<Long> rawDbids = new ArrayList<Long>(numDocs);
-            ArrayList<Float> rawScores = new ArrayList<Float>(numDocs); 
-            for(int i = 0; i < numDocs; i++)
+            int numDocs;
+            ArrayList<Long> rawDbids;
+            ArrayList<Float> rawScores;
+            Object docsValue = response.get("docs");
+            if (docsValue instanceof StreamedDocs)
             {
-                JSONObject doc = docs.getJSONObject(i);
-                JSONArray dbids = doc.optJSONArray("DBID");
-                if(dbids != null)
-                {
-                    Long dbid = dbids.getLong(0);
-                    Float score = Float.valueOf((float)doc.getDouble("score"));
-                    rawDbids.add(dbid);
-                    rawScores.add(score);
-                }
-                else
+                // The DBIDs and scores were collected while the response was streamed
+                StreamedDocs streamedDocs = (StreamedDocs) docsValue;
+                numDocs = streamedDocs.size();
+                rawDbids = streamedDocs.getDbids();
+                rawScores = streamedDocs.getScores();
+            }
+            else
+            {
+                JSONArray docs = (JSONArray) docsValue;
+                
+                numDocs = docs.length();
+                
+                rawDbids = new ArrayList<Long>(numDocs);
+                rawScores = new ArrayList<Float>(numDocs); 
+                for(int i = 0; i < numDocs; i++)
                 {
-                    Long dbid = doc.optLong("DBID");
-                    if(dbid != null)
+                    JSONObject doc = docs.getJSONObject(i);
+                    JSONArray dbids = doc.optJSONArray("DBID");
+                    if(dbids != null)
                     {
+                        Long dbid = dbids.getLong(0);
                         Float score = Float.valueOf((float)doc.getDouble("score"));
                         rawDbids.add(dbid);
                         rawScores.add(score);
                     }
                     else
                     {
-                        // No DBID found 
-                        throw new LuceneQueryParserException("No DBID found for doc ...");
+                        Long dbid = doc.optLong("DBID");
+                        if(dbid != null)
+                        {
+                            Float score = Float.valueOf((float)doc.getDouble("score"));
+                            rawDbids.add(dbid);
+                            rawScores.add(score);
+                        }
+                        else
+                        {
+                            // No DBID found 
+                            throw new LuceneQueryParserException("No DBID found for doc ...");
+                        }
                     }
-                }
                 
+                }
             }
             
             // bulk load
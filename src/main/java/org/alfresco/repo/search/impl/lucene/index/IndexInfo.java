@@ -56,10 +56,16 @@ import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.zip.CRC32;
 
@@ -457,9 +463,32 @@ public class IndexInfo implements IndexMonitor
     private int mergerTargetIndexes = 5;
     
     private int mergerTargetOverlaysBlockingFactor = 1;
+    
+    private int mergerMaxConcurrentMerges = 1;
+    
+    private double mergerMaxMbPerSec = 0.0;
 
     private Object mergerTargetLock = new Object();
     
+    // Merge statistics - see IndexMonitor
+    
+    private final AtomicLong mergeCount = new AtomicLong();
+    
+    private final AtomicLong totalMergeTimeMs = new AtomicLong();
+    
+    private volatile long lastMergeTimeMs = 0;
+    
+    private volatile long maxMergeTimeMs = 0;
+    
+    private final AtomicLong mergeThrottledTimeMs = new AtomicLong();
+    
+    private final AtomicLong writerBlockedCount = new AtomicLong();
+    
+    private final AtomicLong writerBlockedTimeMs = new AtomicLong();
+    
+    // The number of writers currently blocked waiting for overlays to be merged
+    private final AtomicInteger blockedWriters = new AtomicInteger();
+    
     // To avoid deadlock (a thread with multiple deltas never proceeding to commit) we track whether each thread is
     // already in the prepare phase.
     private static ThreadLocal<IndexInfo> thisThreadPreparing = new ThreadLocal<IndexInfo>();
@@ -636,6 +665,8 @@ public class IndexInfo implements IndexMonitor
             this.mergerTargetOverlays = config.getMergerTargetOverlayCount();
             this.mergerTargetIndexes = config.getMergerTargetIndexCount();
             this.mergerTargetOverlaysBlockingFactor = config.getMergerTargetOverlaysBlockingFactor();
+            this.mergerMaxConcurrentMerges = config.getMergerMaxConcurrentMerges();
+            this.mergerMaxMbPerSec = config.getMergerMaxMbPerSec();
             // Work out the relative path of the index
             try
             {
@@ -1609,25 +1640,43 @@ public class IndexInfo implements IndexMonitor
                     }
                     else
                     {
-                        while (shouldBlock())
+                        long blockStart = 0L;
+                        try
                         {
-                            synchronized (mergerTargetLock)
+                            while (shouldBlock())
                             {
-                                if (s_logger.isDebugEnabled())
-                                {
-                                    s_logger.debug("THROTTLING: " + Thread.currentThread().getName() + " " + indexEntries.size());
-                                }
-                                merger.schedule();
-                                releaseWriteLock();
-                                try
+                                if (blockStart == 0L)
                                 {
-                                    mergerTargetLock.wait(60000);
+                                    blockStart = System.nanoTime();
+                                    blockedWriters.incrementAndGet();
                                 }
-                                catch (InterruptedException e)
+                                synchronized (mergerTargetLock)
                                 {
+                                    if (s_logger.isDebugEnabled())
+                                    {
+                                        s_logger.debug("THROTTLING: " + Thread.currentThread().getName() + " " + indexEntries.size());
+                                    }
+                                    merger.schedule();
+                                    releaseWriteLock();
+                                    try
+                                    {
+                                        mergerTargetLock.wait(60000);
+                                    }
+                                    catch (InterruptedException e)
+                                    {
+                                    }
                                 }
+                                getWriteLock();
+                            }
+                        }
+                        finally
+                        {
+                            if (blockStart != 0L)
+                            {
+                                blockedWriters.decrementAndGet();
+                                writerBlockedCount.incrementAndGet();
+                                writerBlockedTimeMs.addAndGet((System.nanoTime() - blockStart) / 1000000L);
                             }
-                            getWriteLock();
                         }
                         thisThreadPreparing.set(this);
                     }
@@ -3902,30 +3951,30 @@ public class IndexInfo implements IndexMonitor
                 s_logger.debug("Merging...");
             }
 
-            final LinkedHashMap<String, IndexEntry> toMerge;
+            final List<LinkedHashMap<String, IndexEntry>> toMerge;
 
             getWriteLock();
             try
             {
-                toMerge = doWithFileLock(new LockWork<LinkedHashMap<String, IndexEntry>>()
+                toMerge = doWithFileLock(new LockWork<List<LinkedHashMap<String, IndexEntry>>>()
                 {
-                    public LinkedHashMap<String, IndexEntry> doWork() throws Exception
+                    public List<LinkedHashMap<String, IndexEntry>> doWork() throws Exception
                     {
-                        LinkedHashMap<String, IndexEntry> set = new LinkedHashMap<String, IndexEntry>();
+                        List<LinkedHashMap<String, IndexEntry>> sets = new ArrayList<LinkedHashMap<String, IndexEntry>>();
 
                         for (IndexEntry entry : indexEntries.values())
                         {
                             if ((entry.getType() == IndexType.INDEX) && (entry.getStatus() == TransactionStatus.MERGE))
                             {
-                                return set;
+                                return sets;
                             }
                             if ((entry.getType() == IndexType.INDEX) && (entry.getStatus() == TransactionStatus.MERGE_TARGET))
                             {
-                                return set;
+                                return sets;
                             }
                             if ((entry.getType() == IndexType.DELTA) && (entry.getStatus() == TransactionStatus.COMMITTED_DELETING))
                             {
-                                return set;
+                                return sets;
                             }
                         }
 
@@ -3938,15 +3987,14 @@ public class IndexInfo implements IndexMonitor
                             }
                         }
 
-                        int position = findMergeIndex(1, mergerMaxMergeDocs, mergerTargetIndexes, mergeList);
-                        String firstMergeId = mergeList.get(position).getName();
-
-                        long count = 0;
-                        String guid = null;
-                        if (position >= 0)
+                        // Separate sets of indexes, each merged into its own target
+                        HashMap<String, IndexEntry> targetsByFirstMergeId = new HashMap<String, IndexEntry>();
+                        for (int[] range : findMergeRanges(mergeList, mergerMergeFactor, mergerMaxMergeDocs, mergerMaxConcurrentMerges, mergerTargetIndexes))
                         {
-                            guid = GUID.generate();
-                            for (int i = position; i < mergeList.size(); i++)
+                            LinkedHashMap<String, IndexEntry> set = new LinkedHashMap<String, IndexEntry>();
+                            long count = 0;
+                            String guid = GUID.generate();
+                            for (int i = range[0]; i < range[1]; i++)
                             {
                                 IndexEntry entry = mergeList.get(i);
                                 count += entry.getDocumentCount();
@@ -3954,18 +4002,21 @@ public class IndexInfo implements IndexMonitor
                                 entry.setStatus(TransactionStatus.MERGE);
                                 entry.setMergeId(guid);
                             }
+                            IndexEntry target = new IndexEntry(IndexType.INDEX, guid, "", TransactionStatus.MERGE_TARGET, guid, count, 0, false);
+                            set.put(guid, target);
+                            targetsByFirstMergeId.put(mergeList.get(range[0]).getName(), target);
+                            sets.add(set);
                         }
 
-                        if (set.size() > 0)
+                        if (sets.size() > 0)
                         {
-                            IndexEntry target = new IndexEntry(IndexType.INDEX, guid, "", TransactionStatus.MERGE_TARGET, guid, count, 0, false);
-                            set.put(guid, target);
                             // rebuild merged index elements
                             LinkedHashMap<String, IndexEntry> reordered = new LinkedHashMap<String, IndexEntry>();
-							invalidateMainReadersFromFirst(Collections.singleton(firstMergeId));
+                            invalidateMainReadersFromFirst(targetsByFirstMergeId.keySet());
                             for (IndexEntry current : indexEntries.values())
                             {
-                                if (current.getName().equals(firstMergeId))
+                                IndexEntry target = targetsByFirstMergeId.get(current.getName());
+                                if (target != null)
                                 {
                                     reordered.put(target.getName(), target);
                                 }
@@ -3974,7 +4025,7 @@ public class IndexInfo implements IndexMonitor
                             indexEntries = reordered;
                             writeStatus();
                         }
-                        return set;
+                        return sets;
 
                     }
 
@@ -3992,7 +4043,7 @@ public class IndexInfo implements IndexMonitor
 
             if (s_logger.isDebugEnabled())
             {
-                s_logger.debug("....Merging..." + (toMerge.size() - 1));
+                s_logger.debug("....Merging..." + toMerge.size() + " sets");
             }
 
             if (toMerge.size() == 0)
@@ -4000,108 +4051,33 @@ public class IndexInfo implements IndexMonitor
                 return;
             }
 
-            String mergeTargetId = null;
+            long start = System.nanoTime();
 
-            long docCount = 0;
+            final List<MergeResult> results = mergeIndexSets(toMerge);
 
-            if (toMerge.size() > 0)
+            long mergeTimeMs = (System.nanoTime() - start) / 1000000L;
+            mergeCount.incrementAndGet();
+            totalMergeTimeMs.addAndGet(mergeTimeMs);
+            lastMergeTimeMs = mergeTimeMs;
+            if (mergeTimeMs > maxMergeTimeMs)
             {
-                int count = 0;
-                IndexReader[] readers = new IndexReader[toMerge.size() - 1];
-                RAMDirectory ramDirectory = null;
-                IndexWriter writer = null;
-
-                File outputLocation = null;
-                double mergeSize = 0;
-                for (IndexEntry entry : toMerge.values())
-                {
-                    File location = new File(indexDirectory, entry.getName()).getCanonicalFile();
-                    if (entry.getStatus() == TransactionStatus.MERGE)
-                    {
-                        IndexReader reader;
-                        if (IndexReader.indexExists(location))
-                        {
-                            reader = IndexReader.open(location);
-                        }
-                        else
-                        {
-                            s_logger.error("Index is missing " + entry.getName());
-                            reader = IndexReader.open(emptyIndex);
-                        }
-                        readers[count++] = reader;
-                        docCount += entry.getDocumentCount();
-                        mergeSize += getSizeInMb(location);
-                    }
-                    else if (entry.getStatus() == TransactionStatus.MERGE_TARGET)
-                    {
-                        mergeTargetId = entry.getName();
-                        outputLocation = location;
-                        if ((docCount < maxDocsForInMemoryMerge) && (mergeSize < maxRamInMbForInMemoryMerge))
-                        {
-                            ramDirectory = new RAMDirectory();
-                            writer = new IndexWriter(ramDirectory, new AlfrescoStandardAnalyser(), true, MaxFieldLength.UNLIMITED);
-                        }
-                        else
-                        {
-                            writer = new IndexWriter(location, new AlfrescoStandardAnalyser(), true, MaxFieldLength.UNLIMITED);
-
-                        }
-                        writer.setUseCompoundFile(mergerUseCompoundFile);
-                        writer.setMaxBufferedDocs(mergerMaxBufferedDocs);
-                        writer.setRAMBufferSizeMB(mergerRamBufferSizeMb);
-                        writer.setMergeFactor(mergerMergeFactor);
-                        writer.setMaxMergeDocs(mergerMaxMergeDocs);
-                        writer.setWriteLockTimeout(writeLockTimeout);
-                        writer.setMergeScheduler(new SerialMergeScheduler());
-                        writer.setMergePolicy(new LogDocMergePolicy());
-                    }
-                }
-                writer.addIndexes(readers);
-                writer.close();
-
-                if (ramDirectory != null)
-                {
-                    String[] files = ramDirectory.list();
-                    Directory directory = FSDirectory.getDirectory(outputLocation, true);
-                    for (int i = 0; i < files.length; i++)
-                    {
-                        // make place on ram disk
-                        IndexOutput os = directory.createOutput(files[i]);
-                        // read current file
-                        IndexInput is = ramDirectory.openInput(files[i]);
-                        // and copy to ram disk
-                        int len = (int) is.length();
-                        byte[] buf = new byte[len];
-                        is.readBytes(buf, 0, len);
-                        os.writeBytes(buf, len);
-                        // graceful cleanup
-                        is.close();
-                        os.close();
-                    }
-                    ramDirectory.close();
-                    directory.close();
-                }
-
-                for (IndexReader reader : readers)
-                {
-                    reader.close();
-                }
+                maxMergeTimeMs = mergeTimeMs;
             }
 
-            final String finalMergeTargetId = mergeTargetId;
-            IndexReader newReader = null;
+            final List<IndexReader> newReaders = new ArrayList<IndexReader>(results.size());
             getReadLock();
             try
             {
-                newReader = buildReferenceCountingIndexReader(mergeTargetId, docCount);
+                for (MergeResult result : results)
+                {
+                    newReaders.add(buildReferenceCountingIndexReader(result.mergeTargetId, result.docCount));
+                }
             }
             finally
             {
                 releaseReadLock();
             }
 
-            final IndexReader finalNewReader = newReader;
-
             getWriteLock();
             try
             {
@@ -4110,25 +4086,30 @@ public class IndexInfo implements IndexMonitor
                     public Object doWork() throws Exception
                     {
                         HashSet<String> toDelete = new HashSet<String>();
-                        for (IndexEntry entry : toMerge.values())
+                        int mergedCount = 0;
+                        for (LinkedHashMap<String, IndexEntry> set : toMerge)
                         {
-                            if (entry.getStatus() == TransactionStatus.MERGE)
+                            mergedCount += set.size();
+                            for (IndexEntry entry : set.values())
                             {
-                                if (s_logger.isDebugEnabled())
+                                if (entry.getStatus() == TransactionStatus.MERGE)
                                 {
-                                    s_logger.debug("... deleting as merged " + entry.getName());
+                                    if (s_logger.isDebugEnabled())
+                                    {
+                                        s_logger.debug("... deleting as merged " + entry.getName());
+                                    }
+                                    toDelete.add(entry.getName());
                                 }
-                                toDelete.add(entry.getName());
-                            }
-                            else if (entry.getStatus() == TransactionStatus.MERGE_TARGET)
-                            {
-
-                                if (s_logger.isDebugEnabled())
+                                else if (entry.getStatus() == TransactionStatus.MERGE_TARGET)
                                 {
-                                    s_logger.debug("... committing merge target " + entry.getName());
-                                }
-                                entry.setStatus(TransactionStatus.COMMITTED);
 
+                                    if (s_logger.isDebugEnabled())
+                                    {
+                                        s_logger.debug("... committing merge target " + entry.getName());
+                                    }
+                                    entry.setStatus(TransactionStatus.COMMITTED);
+
+                                }
                             }
                         }
                         invalidateMainReadersFromFirst(toDelete);
@@ -4137,9 +4118,12 @@ public class IndexInfo implements IndexMonitor
                             indexEntries.remove(id);
                         }
 
-                        registerReferenceCountingIndexReader(finalMergeTargetId, finalNewReader);
+                        for (int i = 0; i < results.size(); i++)
+                        {
+                            registerReferenceCountingIndexReader(results.get(i).mergeTargetId, newReaders.get(i));
+                        }
 
-                        notifyListeners("MergedIndexes", toMerge.size());
+                        notifyListeners("MergedIndexes", mergedCount);
 
                         dumpInfo();
 
@@ -4170,31 +4154,331 @@ public class IndexInfo implements IndexMonitor
 
         }
 
-        private final int findMergeIndex(long min, long max, int target, List<IndexEntry> entries) throws IOException
+        /**
+         * Merge separate sets of indexes at the same time, on this thread and the thread pool.
+         */
+        private List<MergeResult> mergeIndexSets(List<LinkedHashMap<String, IndexEntry>> toMerge) throws IOException
+        {
+            List<Callable<MergeResult>> merges = new ArrayList<Callable<MergeResult>>(toMerge.size());
+            for (final LinkedHashMap<String, IndexEntry> set : toMerge)
+            {
+                merges.add(new Callable<MergeResult>()
+                {
+                    public MergeResult call() throws Exception
+                    {
+                        return mergeIndexSet(set);
+                    }
+                });
+            }
+            return callConcurrently(merges, threadPoolExecutor);
+        }
+
+        private MergeResult mergeIndexSet(LinkedHashMap<String, IndexEntry> toMerge) throws IOException
+        {
+            String mergeTargetId = null;
+
+            long docCount = 0;
+
+            long start = System.nanoTime();
+
+            int count = 0;
+            IndexReader[] readers = new IndexReader[toMerge.size() - 1];
+            RAMDirectory ramDirectory = null;
+            IndexWriter writer = null;
+
+            File outputLocation = null;
+            double mergeSize = 0;
+            for (IndexEntry entry : toMerge.values())
+            {
+                File location = new File(indexDirectory, entry.getName()).getCanonicalFile();
+                if (entry.getStatus() == TransactionStatus.MERGE)
+                {
+                    IndexReader reader;
+                    if (IndexReader.indexExists(location))
+                    {
+                        reader = IndexReader.open(location);
+                    }
+                    else
+                    {
+                        s_logger.error("Index is missing " + entry.getName());
+                        reader = IndexReader.open(emptyIndex);
+                    }
+                    readers[count++] = reader;
+                    docCount += entry.getDocumentCount();
+                    mergeSize += getSizeInMb(location);
+                }
+                else if (entry.getStatus() == TransactionStatus.MERGE_TARGET)
+                {
+                    mergeTargetId = entry.getName();
+                    outputLocation = location;
+                    if ((docCount < maxDocsForInMemoryMerge) && (mergeSize < maxRamInMbForInMemoryMerge))
+                    {
+                        ramDirectory = new RAMDirectory();
+                        writer = new IndexWriter(ramDirectory, new AlfrescoStandardAnalyser(), true, MaxFieldLength.UNLIMITED);
+                    }
+                    else
+                    {
+                        writer = new IndexWriter(location, new AlfrescoStandardAnalyser(), true, MaxFieldLength.UNLIMITED);
+
+                    }
+                    writer.setUseCompoundFile(mergerUseCompoundFile);
+                    writer.setMaxBufferedDocs(mergerMaxBufferedDocs);
+                    writer.setRAMBufferSizeMB(mergerRamBufferSizeMb);
+                    writer.setMergeFactor(mergerMergeFactor);
+                    writer.setMaxMergeDocs(mergerMaxMergeDocs);
+                    writer.setWriteLockTimeout(writeLockTimeout);
+                    writer.setMergeScheduler(new SerialMergeScheduler());
+                    writer.setMergePolicy(new LogDocMergePolicy());
+                }
+            }
+            writer.addIndexes(readers);
+            writer.close();
+
+            if (ramDirectory != null)
+            {
+                String[] files = ramDirectory.list();
+                Directory directory = FSDirectory.getDirectory(outputLocation, true);
+                byte[] buf = new byte[MERGE_COPY_BUFFER_SIZE];
+                long written = 0;
+                for (int i = 0; i < files.length; i++)
+                {
+                    // make place on ram disk
+                    IndexOutput os = directory.createOutput(files[i]);
+                    // read current file
+                    IndexInput is = ramDirectory.openInput(files[i]);
+                    // and copy to ram disk - in chunks, so that the copy can be throttled
+                    long remaining = is.length();
+                    while (remaining > 0)
+                    {
+                        int len = (int) Math.min(remaining, buf.length);
+                        is.readBytes(buf, 0, len);
+                        os.writeBytes(buf, len);
+                        remaining -= len;
+                        written += len;
+                        throttleMerge(written, start);
+                    }
+                    // graceful cleanup
+                    is.close();
+                    os.close();
+                }
+                ramDirectory.close();
+                directory.close();
+            }
+            else
+            {
+                // written directly to disk - pause as required before the next merge
+                throttleMerge(getSize(outputLocation), start);
+            }
+
+            for (IndexReader reader : readers)
+            {
+                reader.close();
+            }
+
+            return new MergeResult(mergeTargetId, docCount);
+        }
+
+    }
+
+    private static final int MERGE_COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Size-tiered choice of the sets of consecutive indexes to merge. Starting with the newest (and smallest) indexes,
+     * each run of <code>mergeFactor</code> indexes of a similar size (with document counts in the same power of the
+     * merge factor) and below <code>maxMergeDocs</code> is merged, up to <code>maxConcurrentMerges</code> runs at a
+     * time. If there is no such run, the newest indexes are merged as before.
+     * 
+     * @return the ranges of the entries to merge - start inclusive, end exclusive
+     */
+    static List<int[]> findMergeRanges(List<IndexEntry> entries, int mergeFactor, int maxMergeDocs, int maxConcurrentMerges, int targetIndexes)
+    {
+        List<int[]> ranges = new ArrayList<int[]>();
+        int factor = Math.max(2, mergeFactor);
+        int maxRanges = Math.max(1, maxConcurrentMerges);
+
+        int end = entries.size();
+        while ((end > 0) && (ranges.size() < maxRanges))
+        {
+            int tier = getMergeTier(entries.get(end - 1), factor, maxMergeDocs);
+            int start = end - 1;
+            while ((tier >= 0) && (start > 0) && (end - start < factor) && (getMergeTier(entries.get(start - 1), factor, maxMergeDocs) == tier))
+            {
+                start--;
+            }
+            if ((tier >= 0) && (end - start == factor))
+            {
+                ranges.add(new int[] { start, end });
+            }
+            end = start;
+        }
+
+        if (ranges.isEmpty())
         {
-            // TODO: Support max
-            if (entries.size() <= target)
+            int position = findMergeIndex(1, maxMergeDocs, targetIndexes, entries);
+            if ((position >= 0) && (entries.size() - position > 1))
             {
-                return -1;
+                ranges.add(new int[] { position, entries.size() });
             }
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the size tier of the index (the power of the factor of its document count) or -1 if too large to merge
+     */
+    static int getMergeTier(IndexEntry entry, int factor, int maxMergeDocs)
+    {
+        long docs = entry.getDocumentCount();
+        if (docs > maxMergeDocs)
+        {
+            return -1;
+        }
+        int tier = 0;
+        while (docs >= factor)
+        {
+            docs /= factor;
+            tier++;
+        }
+        return tier;
+    }
+
+    private static int findMergeIndex(long min, long max, int target, List<IndexEntry> entries)
+    {
+        // TODO: Support max
+        if (entries.size() <= target)
+        {
+            return -1;
+        }
+
+        int total = 0;
+        for (int i = target; i < entries.size(); i++)
+        {
+            total += entries.get(i).getDocumentCount();
+        }
 
-            int total = 0;
-            for (int i = target; i < entries.size(); i++)
+        for (int i = target - 1; i > 0; i--)
+        {
+            total += entries.get(i).getDocumentCount();
+            if (total < entries.get(i - 1).getDocumentCount())
             {
-                total += entries.get(i).getDocumentCount();
+                return i;
             }
+        }
+        return 0;
+    }
+
+    /**
+     * Make the given calls at the same time. The first is called on this thread and the others on the executor - any
+     * that have not started by the time this thread is free are called on this thread, so that the calls cannot wait on
+     * a saturated executor. All of the calls have finished before any failure is thrown.
+     * 
+     * @return the results, in the order of the calls
+     */
+    static <T> List<T> callConcurrently(List<Callable<T>> calls, Executor executor) throws IOException
+    {
+        List<FutureTask<T>> tasks = new ArrayList<FutureTask<T>>(calls.size());
+        for (int i = 1; i < calls.size(); i++)
+        {
+            FutureTask<T> task = new FutureTask<T>(calls.get(i));
+            tasks.add(task);
+            executor.execute(task);
+        }
 
-            for (int i = target - 1; i > 0; i--)
+        List<T> results = new ArrayList<T>(calls.size());
+        Throwable failure = null;
+        try
+        {
+            results.add(calls.get(0).call());
+        }
+        catch (Throwable t)
+        {
+            failure = t;
+        }
+        // wait for all of the calls - even if one has failed
+        for (int i = 0; i < tasks.size(); i++)
+        {
+            FutureTask<T> task = tasks.get(i);
+            try
             {
-                total += entries.get(i).getDocumentCount();
-                if (total < entries.get(i - 1).getDocumentCount())
+                if (task.cancel(false))
                 {
-                    return i;
+                    // not started
+                    results.add(calls.get(i + 1).call());
                 }
+                else
+                {
+                    results.add(task.get());
+                }
+            }
+            catch (ExecutionException e)
+            {
+                failure = (failure == null ? e.getCause() : failure);
+            }
+            catch (Throwable t)
+            {
+                failure = (failure == null ? t : failure);
             }
-            return 0;
         }
 
+        if (failure instanceof IOException)
+        {
+            throw (IOException) failure;
+        }
+        else if (failure instanceof RuntimeException)
+        {
+            throw (RuntimeException) failure;
+        }
+        else if (failure != null)
+        {
+            throw new IndexerException("Failed to merge indexes", failure);
+        }
+        return results;
+    }
+
+    /**
+     * The result of merging a set of indexes
+     */
+    private static class MergeResult
+    {
+        final String mergeTargetId;
+
+        final long docCount;
+
+        MergeResult(String mergeTargetId, long docCount)
+        {
+            this.mergeTargetId = mergeTargetId;
+            this.docCount = docCount;
+        }
+    }
+
+    /**
+     * Pause a merge that has written the given number of bytes since it started, if it is writing faster than
+     * <code>mergerMaxMbPerSec</code>. Merges are not throttled while writers are blocked waiting for them.
+     */
+    private void throttleMerge(long bytesWritten, long startNanos)
+    {
+        if ((mergerMaxMbPerSec <= 0.0d) || (blockedWriters.get() > 0))
+        {
+            return;
+        }
+        long minNanos = (long) (bytesWritten / (mergerMaxMbPerSec * 1024.0d * 1024.0d) * 1000000000.0d);
+        long pauseMs = (minNanos - (System.nanoTime() - startNanos)) / 1000000L;
+        // pause in short steps, so that the throttle is lifted as soon as a writer blocks
+        while ((pauseMs > 0) && (blockedWriters.get() == 0))
+        {
+            long step = Math.min(pauseMs, 100L);
+            try
+            {
+                Thread.sleep(step);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            mergeThrottledTimeMs.addAndGet(step);
+            pauseMs -= step;
+        }
     }
 
     private void dumpInfo()
@@ -4459,6 +4743,116 @@ public class IndexInfo implements IndexMonitor
         this.applicationListeners.add(listener);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getOverlayCount()
+     */
+    public int getOverlayCount()
+    {
+        int overlays = 0;
+        getReadLock();
+        try
+        {
+            for (IndexEntry entry : indexEntries.values())
+            {
+                if (entry.getType() == IndexType.DELTA)
+                {
+                    TransactionStatus status = entry.getStatus();
+                    if (status == TransactionStatus.COMMITTED || status == TransactionStatus.COMMITTED_DELETING)
+                    {
+                        overlays++;
+                    }
+                }
+            }
+            return overlays;
+        }
+        finally
+        {
+            releaseReadLock();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getMergeCount()
+     */
+    public long getMergeCount()
+    {
+        return mergeCount.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getTotalMergeTimeMs()
+     */
+    public long getTotalMergeTimeMs()
+    {
+        return totalMergeTimeMs.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getLastMergeTimeMs()
+     */
+    public long getLastMergeTimeMs()
+    {
+        return lastMergeTimeMs;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getMaxMergeTimeMs()
+     */
+    public long getMaxMergeTimeMs()
+    {
+        return maxMergeTimeMs;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getMergeThrottledTimeMs()
+     */
+    public long getMergeThrottledTimeMs()
+    {
+        return mergeThrottledTimeMs.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getWriterBlockedCount()
+     */
+    public long getWriterBlockedCount()
+    {
+        return writerBlockedCount.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getWriterBlockedTimeMs()
+     */
+    public long getWriterBlockedTimeMs()
+    {
+        return writerBlockedTimeMs.get();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see org.alfresco.repo.search.impl.lucene.index.IndexMonitor#getBlockedWriterCount()
+     */
+    public int getBlockedWriterCount()
+    {
+        return blockedWriters.get();
+    }
+
     private long sizeRecurse(File fileOrDir)
     {
         long size = 0;
@@ -105,4 +105,67 @@ public interface IndexMonitor
      *            the listener
      */
     public void addApplicationListener(ApplicationListener listener);
+
+    /**
+     * Gets the number of committed deltas (overlays) that are waiting to be applied to the index.
+     * 
+     * @return the number of overlays
+     */
+    public int getOverlayCount();
+
+    /**
+     * Gets the number of merges of index entries completed since startup.
+     * 
+     * @return the number of merges
+     */
+    public long getMergeCount();
+
+    /**
+     * Gets the total time spent merging index entries since startup.
+     * 
+     * @return the total merge time in milliseconds
+     */
+    public long getTotalMergeTimeMs();
+
+    /**
+     * Gets the duration of the most recent merge.
+     * 
+     * @return the last merge time in milliseconds
+     */
+    public long getLastMergeTimeMs();
+
+    /**
+     * Gets the duration of the longest merge since startup.
+     * 
+     * @return the maximum merge time in milliseconds
+     */
+    public long getMaxMergeTimeMs();
+
+    /**
+     * Gets the total time merges have been paused to keep within the configured merge I/O rate.
+     * 
+     * @return the throttled time in milliseconds
+     */
+    public long getMergeThrottledTimeMs();
+
+    /**
+     * Gets the number of times a writer has been blocked waiting for overlays to be merged.
+     * 
+     * @return the number of blocked writes
+     */
+    public long getWriterBlockedCount();
+
+    /**
+     * Gets the total time writers have spent blocked waiting for overlays to be merged.
+     * 
+     * @return the blocked time in milliseconds
+     */
+    public long getWriterBlockedTimeMs();
+
+    /**
+     * Gets the number of writers that are currently blocked waiting for overlays to be merged.
+     * 
+     * @return the number of blocked writers
+     */
+    public int getBlockedWriterCount();
 }
@@ -25,68 +25,92 @@
  */
 package org.alfresco.repo.search.impl.solr;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.Reader;
 import java.io.UnsupportedEncodingException;
 
-import javax.servlet.http.HttpServletResponse;
-
-import org.alfresco.repo.search.impl.lucene.LuceneQueryParserException;
-import org.apache.commons.httpclient.Header;
+import org.alfresco.repo.search.impl.solr.SolrAuthoritySetCache.AuthoritySet;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.util.Pair;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpException;
-import org.apache.commons.httpclient.HttpStatus;
-import org.apache.commons.httpclient.URI;
 import org.apache.commons.httpclient.URIException;
-import org.apache.commons.httpclient.methods.PostMethod;
-import org.apache.commons.httpclient.methods.StringRequestEntity;
-import org.apache.commons.httpclient.params.HttpMethodParams;
 import org.json.JSONException;
 import org.json.JSONObject;
-import org.json.JSONTokener;
 
 public abstract class AbstractSolrQueryHTTPClient
 {
     public static final int DEFAULT_SAVEPOST_BUFFER = 4096;
+
+    private SolrQueryTransport queryTransport = new SolrQueryTransport();
+
+    private SolrAuthoritySetCache authoritySetCache;
+
+    /**
+     * @param queryTransport the transport used to send queries to SOLR
+     */
+    public void setQueryTransport(SolrQueryTransport queryTransport)
+    {
+        this.queryTransport = queryTransport;
+    }
+
+    /**
+     * @return the transport used to send queries to SOLR
+     */
+    public SolrQueryTransport getQueryTransport()
+    {
+        return queryTransport;
+    }
+
+    /**
+     * @param authoritySetCache the cache of the authorities sent with each query, or <tt>null</tt> to build them for every query
+     */
+    public void setAuthoritySetCache(SolrAuthoritySetCache authoritySetCache)
+    {
+        this.authoritySetCache = authoritySetCache;
+    }
+
+    /**
+     * @return the authorities of the current user to send with a query
+     */
+    protected AuthoritySet getAuthoritySet(PermissionService permissionService, boolean includeGroupsForRoleAdmin)
+    {
+        if (authoritySetCache == null)
+        {
+            return AuthoritySet.build(permissionService.getAuthorisations(), includeGroupsForRoleAdmin);
+        }
+        return authoritySetCache.getAuthoritySet(includeGroupsForRoleAdmin);
+    }
     
     protected JSONObject postQuery(HttpClient httpClient, String url, JSONObject body) throws UnsupportedEncodingException,
     IOException, HttpException, URIException, JSONException
     {
-        PostMethod post = new PostMethod(url);
-        if (body.toString().length() > DEFAULT_SAVEPOST_BUFFER)
-        {
-            post.getParams().setBooleanParameter(HttpMethodParams.USE_EXPECT_CONTINUE, true);
-        }
-        StringRequestEntity requestEntity = new StringRequestEntity(body.toString(), "application/json", "UTF-8");
-        post.setRequestEntity(requestEntity);
-        try
-        {
-            httpClient.executeMethod(post);
-            if(post.getStatusCode() == HttpStatus.SC_MOVED_PERMANENTLY || post.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY)
-            {
-                Header locationHeader = post.getResponseHeader("location");
-                if (locationHeader != null)
-                {
-                    String redirectLocation = locationHeader.getValue();
-                    post.setURI(new URI(redirectLocation, true));
-                    httpClient.executeMethod(post);
-                }
-            }
-            if (post.getStatusCode() != HttpServletResponse.SC_OK)
-            {
-                throw new LuceneQueryParserException("Request failed " + post.getStatusCode() + " " + url.toString());
-            }
+        return postQuery(httpClient, url, body, false);
+    }
 
-            Reader reader = new BufferedReader(new InputStreamReader(post.getResponseBodyAsStream(), post.getResponseCharSet()));
-            // TODO - replace with streaming-based solution e.g. SimpleJSON ContentHandler
-            JSONObject json = new JSONObject(new JSONTokener(reader));
-            return json;
-        }
-        finally
-        {
-            post.releaseConnection();
-        }
+    /**
+     * Post a query to SOLR and parse the JSON response.
+     * 
+     * @param streaming         <tt>true</tt> to parse the response as it is streamed using a {@link SolrJSONResponseHandler},
+     *                          which does not build the result documents
+     */
+    protected JSONObject postQuery(HttpClient httpClient, String url, JSONObject body, boolean streaming) throws UnsupportedEncodingException,
+    IOException, HttpException, URIException, JSONException
+    {
+        return postQuery(httpClient, url, null, body, streaming);
+    }
+
+    /**
+     * Post a query to SOLR and parse the JSON response.
+     * 
+     * @param replica           the client and url of a replica that can answer the query if the node is slow,
+     *                          or <tt>null</tt> if the query must not be hedged
+     * @param streaming         <tt>true</tt> to parse the response as it is streamed using a {@link SolrJSONResponseHandler},
+     *                          which does not build the result documents
+     * @see SolrQueryTransport
+     */
+    protected JSONObject postQuery(HttpClient httpClient, String url, Pair<HttpClient, String> replica, JSONObject body, boolean streaming)
+    throws UnsupportedEncodingException, IOException, HttpException, URIException, JSONException
+    {
+        return queryTransport.post(httpClient, url, replica, body, streaming);
     }
 }
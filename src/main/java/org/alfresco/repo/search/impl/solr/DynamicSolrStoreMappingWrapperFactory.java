@@ -26,6 +26,7 @@
 package org.alfresco.repo.search.impl.solr;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
@@ -134,6 +135,42 @@ public class DynamicSolrStoreMappingWrapperFactory
                 throw new LuceneQueryParserException("", e);
             }
         }
+
+        /* (non-Javadoc)
+         * @see org.alfresco.repo.search.impl.solr.SolrStoreMappingWrapper#getReplicaHttpClientAndBaseUrl(org.alfresco.util.Pair)
+         */
+        @Override
+        public Pair<HttpClient, String> getReplicaHttpClientAndBaseUrl(Pair<HttpClient, String> httpClientAndBaseUrl)
+        {
+            List<Pair<HttpClient, String>> candidates = new ArrayList<Pair<HttpClient, String>>();
+            for (Pair<HttpClient, String> candidate : getHttpClientsAndBaseUrls())
+            {
+                if (candidate.getFirst() != httpClientAndBaseUrl.getFirst())
+                {
+                    candidates.add(candidate);
+                }
+            }
+            if (candidates.isEmpty())
+            {
+                return null;
+            }
+            return candidates.get(ThreadLocalRandom.current().nextInt(candidates.size()));
+        }
+
+        /* (non-Javadoc)
+         * @see org.alfresco.repo.search.impl.solr.SolrStoreMappingWrapper#getHttpClientsAndBaseUrls()
+         */
+        @Override
+        public List<Pair<HttpClient, String>> getHttpClientsAndBaseUrls()
+        {
+            List<Pair<HttpClient, String>> result = new ArrayList<Pair<HttpClient, String>>();
+            for (ShardInstance instance : slice)
+            {
+                Pair<String, Integer> key = new Pair<String, Integer>(instance.getHostName(), instance.getPort());
+                result.add(new Pair<HttpClient, String>(clients.get(key), instance.getBaseUrl()));
+            }
+            return result;
+        }
         
     }
 }
@@ -26,6 +26,7 @@
 package org.alfresco.repo.search.impl.solr;
 
 import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -362,4 +363,46 @@ public class ExplicitSolrStoreMappingWrapper implements SolrStoreMappingWrapper
         return new Pair<>(httpClientAndBaseUrl.httpClient, isSharded() ? httpClientAndBaseUrl.baseUrl+"-"+shard : httpClientAndBaseUrl.baseUrl);
     }
     
+
+    /**
+     * Chooses a node that hosts any shard, as the node that is queried asks the other shards itself.
+     */
+    @Override
+    public Pair<HttpClient, String> getReplicaHttpClientAndBaseUrl(Pair<HttpClient, String> httpClientAndBaseUrl)
+    {
+        List<Pair<HttpClient, String>> candidates = new ArrayList<Pair<HttpClient, String>>();
+        for (Pair<HttpClient, String> candidate : getHttpClientsAndBaseUrls())
+        {
+            if (candidate.getFirst() != httpClientAndBaseUrl.getFirst())
+            {
+                candidates.add(candidate);
+            }
+        }
+        if (candidates.isEmpty())
+        {
+            return null;
+        }
+        return candidates.get(random.nextInt(candidates.size()));
+    }
+
+    @Override
+    public List<Pair<HttpClient, String>> getHttpClientsAndBaseUrls()
+    {
+        List<Pair<HttpClient, String>> result = new ArrayList<>();
+        if (!policy.configurationIsValid())
+        {
+            return result;
+        }
+        HttpClientAndBaseUrl[] nodes = httpClientsAndBaseURLs.toArray(new HttpClientAndBaseUrl[0]);
+        for (int shard = 0; shard < wrapped.getNumShards(); shard++)
+        {
+            for (Integer nodeId : policy.getNodeInstancesForShardId(shard))
+            {
+                HttpClientAndBaseUrl httpClientAndBaseUrl = nodes[nodeId-1];
+                result.add(new Pair<>(httpClientAndBaseUrl.httpClient, isSharded() ? httpClientAndBaseUrl.baseUrl+"-"+shard : httpClientAndBaseUrl.baseUrl));
+            }
+        }
+        return result;
+    }
+    
 }
@@ -0,0 +1,275 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.cache.SimpleCache;
+import org.alfresco.repo.node.NodeServicePolicies;
+import org.alfresco.repo.policy.JavaBehaviour;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.security.authority.AuthorityServicePolicies;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.security.AuthorityType;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.util.Pair;
+import org.alfresco.util.PropertyCheck;
+import org.json.JSONArray;
+
+/**
+ * Caches the authorities that are sent to SOLR with the queries of each user.
+ * <p>
+ * Expanding the authorities of a user in many nested groups is expensive and the result only changes with group
+ * membership. When a user is added to or removed from a group, or a person is deleted, only the sets of that user
+ * are dropped. When a group is added to or removed from another group, or a group is deleted, every user below it
+ * is affected; finding them means walking the whole membership tree of the group, which costs more than rebuilding
+ * the sets on demand, so the whole cache is cleared instead. The cache is transactional, so the invalidation takes
+ * effect when the change commits and is sent to the other members of a cluster.
+ * 
+ * @since 7.6
+ */
+public class SolrAuthoritySetCache implements AuthorityServicePolicies.OnAuthorityAddedToGroup,
+        AuthorityServicePolicies.OnAuthorityRemovedFromGroup, AuthorityServicePolicies.OnGroupDeleted,
+        NodeServicePolicies.BeforeDeleteNodePolicy
+{
+    private PermissionService permissionService;
+    private NodeService nodeService;
+    private PolicyComponent policyComponent;
+    private SimpleCache<Pair<String, Boolean>, AuthoritySet> authoritySetCache;
+    private boolean enabled = true;
+    private boolean userNamesAreCaseSensitive = false;
+
+    public void setPermissionService(PermissionService permissionService)
+    {
+        this.permissionService = permissionService;
+    }
+
+    public void setNodeService(NodeService nodeService)
+    {
+        this.nodeService = nodeService;
+    }
+
+    public void setPolicyComponent(PolicyComponent policyComponent)
+    {
+        this.policyComponent = policyComponent;
+    }
+
+    /**
+     * @param authoritySetCache the cache of authority sets keyed by user name and whether groups are included for administrators
+     */
+    public void setAuthoritySetCache(SimpleCache<Pair<String, Boolean>, AuthoritySet> authoritySetCache)
+    {
+        this.authoritySetCache = authoritySetCache;
+    }
+
+    /**
+     * @param enabled <tt>false</tt> to build the authorities for every query
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param userNamesAreCaseSensitive <tt>true</tt> if user names differing only in case are different users
+     */
+    public void setUserNamesAreCaseSensitive(boolean userNamesAreCaseSensitive)
+    {
+        this.userNamesAreCaseSensitive = userNamesAreCaseSensitive;
+    }
+
+    public void init()
+    {
+        PropertyCheck.mandatory(this, "permissionService", permissionService);
+        PropertyCheck.mandatory(this, "nodeService", nodeService);
+        PropertyCheck.mandatory(this, "policyComponent", policyComponent);
+        PropertyCheck.mandatory(this, "authoritySetCache", authoritySetCache);
+
+        policyComponent.bindClassBehaviour(AuthorityServicePolicies.OnAuthorityAddedToGroup.QNAME, ContentModel.TYPE_AUTHORITY,
+                new JavaBehaviour(this, "onAuthorityAddedToGroup"));
+        policyComponent.bindClassBehaviour(AuthorityServicePolicies.OnAuthorityRemovedFromGroup.QNAME, ContentModel.TYPE_AUTHORITY,
+                new JavaBehaviour(this, "onAuthorityRemovedFromGroup"));
+        policyComponent.bindClassBehaviour(AuthorityServicePolicies.OnGroupDeleted.QNAME, ContentModel.TYPE_AUTHORITY,
+                new JavaBehaviour(this, "onGroupDeleted"));
+        policyComponent.bindClassBehaviour(NodeServicePolicies.BeforeDeleteNodePolicy.QNAME, ContentModel.TYPE_PERSON,
+                new JavaBehaviour(this, "beforeDeleteNode"));
+    }
+
+    /**
+     * Get the authorities of the current user to send to SOLR.
+     * 
+     * @param includeGroupsForRoleAdmin <tt>true</tt> to send the groups of administrators, who otherwise only send their other authorities
+     * @return the authorities of the current user
+     */
+    public AuthoritySet getAuthoritySet(boolean includeGroupsForRoleAdmin)
+    {
+        String userName = AuthenticationUtil.getRunAsUser();
+        if (!enabled || userName == null)
+        {
+            return AuthoritySet.build(permissionService.getAuthorisations(), includeGroupsForRoleAdmin);
+        }
+        Pair<String, Boolean> key = new Pair<String, Boolean>(getCacheUserName(userName), includeGroupsForRoleAdmin);
+        AuthoritySet authoritySet = authoritySetCache.get(key);
+        if (authoritySet == null)
+        {
+            authoritySet = AuthoritySet.build(permissionService.getAuthorisations(), includeGroupsForRoleAdmin);
+            authoritySetCache.put(key, authoritySet);
+        }
+        return authoritySet;
+    }
+
+    /**
+     * Membership changes of a group reach every user below it, so they clear the whole cache
+     */
+    private void onMembershipChanged(String childAuthority)
+    {
+        if (AuthorityType.getAuthorityType(childAuthority) == AuthorityType.USER)
+        {
+            removeUser(childAuthority);
+        }
+        else
+        {
+            authoritySetCache.clear();
+        }
+    }
+
+    private void removeUser(String userName)
+    {
+        String cacheUserName = getCacheUserName(userName);
+        authoritySetCache.remove(new Pair<String, Boolean>(cacheUserName, Boolean.TRUE));
+        authoritySetCache.remove(new Pair<String, Boolean>(cacheUserName, Boolean.FALSE));
+    }
+
+    private String getCacheUserName(String userName)
+    {
+        return userNamesAreCaseSensitive ? userName : userName.toLowerCase();
+    }
+
+    @Override
+    public void onAuthorityAddedToGroup(String parentGroup, String childAuthority)
+    {
+        onMembershipChanged(childAuthority);
+    }
+
+    @Override
+    public void onAuthorityRemovedFromGroup(String parentGroup, String childAuthority)
+    {
+        onMembershipChanged(childAuthority);
+    }
+
+    @Override
+    public void onGroupDeleted(String groupName, boolean cascade)
+    {
+        authoritySetCache.clear();
+    }
+
+    @Override
+    public void beforeDeleteNode(NodeRef nodeRef)
+    {
+        String userName = (String) nodeService.getProperty(nodeRef, ContentModel.PROP_USERNAME);
+        if (userName == null)
+        {
+            authoritySetCache.clear();
+        }
+        else
+        {
+            removeUser(userName);
+        }
+    }
+
+    /**
+     * The authorities of a user as sent to SOLR
+     */
+    public static class AuthoritySet implements Serializable
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final String[] authorities;
+
+        private AuthoritySet(String[] authorities)
+        {
+            this.authorities = authorities;
+        }
+
+        /**
+         * Authorities go over as is - and tenant mangling and query building takes place on the SOLR side.
+         * The groups of administrators are left out unless <tt>includeGroupsForRoleAdmin</tt> is set.
+         * 
+         * @param allAuthorisations             all the authorities of the user
+         * @param includeGroupsForRoleAdmin     <tt>true</tt> to keep the groups of administrators
+         */
+        public static AuthoritySet build(Set<String> allAuthorisations, boolean includeGroupsForRoleAdmin)
+        {
+            boolean includeGroups = includeGroupsForRoleAdmin ? true : !allAuthorisations.contains(PermissionService.ADMINISTRATOR_AUTHORITY);
+            List<String> authorities = new ArrayList<String>(allAuthorisations.size());
+            for (String authority : allAuthorisations)
+            {
+                if (includeGroups || AuthorityType.getAuthorityType(authority) != AuthorityType.GROUP)
+                {
+                    authorities.add(authority);
+                }
+            }
+            String[] sorted = authorities.toArray(new String[authorities.size()]);
+            Arrays.sort(sorted);
+            return new AuthoritySet(sorted);
+        }
+
+        /**
+         * @return the sorted authorities
+         */
+        public List<String> getAuthorities()
+        {
+            return Collections.unmodifiableList(Arrays.asList(authorities));
+        }
+
+        /**
+         * @return the authorities as a new JSON array
+         */
+        public JSONArray toJSONArray()
+        {
+            JSONArray array = new JSONArray();
+            for (String authority : authorities)
+            {
+                array.put(authority);
+            }
+            return array;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "AuthoritySet [size=" + authorities.length + "]";
+        }
+    }
+}
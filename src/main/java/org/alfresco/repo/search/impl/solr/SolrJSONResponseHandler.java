@@ -0,0 +1,357 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+
+import org.alfresco.repo.search.impl.lucene.LuceneQueryParserException;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Builds the JSON of a SOLR query response while it is being streamed, without building the result documents.
+ * <p/>
+ * The result documents (<b>response.docs</b>) are by far the largest part of a typical response and only
+ * their <b>DBID</b> and <b>score</b> fields are used.  These are collected directly into a
+ * {@link StreamedDocs} which is put into the response in place of the documents array.  The rest of the
+ * response (header, facets, highlighting, stats, spell checking etc.) is small and is built into the
+ * usual {@link JSONObject}s with the same value types as a {@link org.json.JSONTokener} would give.
+ * A document without a <b>DBID</b> is rejected with a {@link LuceneQueryParserException}.
+ * 
+ * @since 7.6
+ */
+public class SolrJSONResponseHandler implements ContentHandler
+{
+    private static final String RESPONSE = "response";
+    private static final String DOCS = "docs";
+    private static final String DBID = "DBID";
+    private static final String SCORE = "score";
+
+    /**
+     * The <b>DBID</b> and <b>score</b> of the documents in a streamed response
+     */
+    public static class StreamedDocs
+    {
+        private final ArrayList<Long> dbids = new ArrayList<Long>();
+        private final ArrayList<Float> scores = new ArrayList<Float>();
+
+        private void add(long dbid, float score)
+        {
+            dbids.add(Long.valueOf(dbid));
+            scores.add(Float.valueOf(score));
+        }
+
+        /**
+         * @return the number of documents
+         */
+        public int size()
+        {
+            return dbids.size();
+        }
+
+        /**
+         * @return the <b>DBID</b>s in document order
+         */
+        public ArrayList<Long> getDbids()
+        {
+            return dbids;
+        }
+
+        /**
+         * @return the scores in document order
+         */
+        public ArrayList<Float> getScores()
+        {
+            return scores;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "[" + dbids.size() + " streamed docs]";
+        }
+    }
+
+    private JSONObject root;
+    private final Deque<Object> containers = new ArrayDeque<Object>();
+    private final Deque<String> keys = new ArrayDeque<String>();
+
+    private StreamedDocs docs;
+    /** The nesting level within the documents array; zero when outside it */
+    private int docsLevel;
+    private String docField;
+    private boolean docFieldSeen;
+    private boolean docDbidSeen;
+    private long docDbid;
+    private float docScore;
+
+    /**
+     * Parse a SOLR response
+     * 
+     * @param reader            the response body
+     * @return                  the response with its documents replaced by {@link StreamedDocs}
+     */
+    public static JSONObject parse(Reader reader) throws IOException, JSONException
+    {
+        SolrJSONResponseHandler handler = new SolrJSONResponseHandler();
+        try
+        {
+            new JSONParser().parse(reader, handler);
+        }
+        catch (ParseException e)
+        {
+            throw new JSONException("Invalid SOLR response: " + e);
+        }
+        if (handler.root == null)
+        {
+            throw new JSONException("SOLR response is not a JSON object");
+        }
+        return handler.root;
+    }
+
+    /**
+     * @return the documents collected from the response or <tt>null</tt> if there were none
+     */
+    public StreamedDocs getDocs()
+    {
+        return docs;
+    }
+
+    /**
+     * @return the parsed response or <tt>null</tt> if parsing is not complete
+     */
+    public JSONObject getResult()
+    {
+        return root;
+    }
+
+    @Override
+    public void startJSON()
+    {
+        root = null;
+        containers.clear();
+        keys.clear();
+        docs = null;
+        docsLevel = 0;
+    }
+
+    @Override
+    public void endJSON()
+    {
+    }
+
+    @Override
+    public boolean startObject() throws ParseException
+    {
+        if (docsLevel > 0)
+        {
+            if (docsLevel == 1)
+            {
+                // A new document
+                docDbid = 0L;
+                docDbidSeen = false;
+                docScore = 0.0F;
+                docField = null;
+            }
+            docsLevel++;
+            return true;
+        }
+        JSONObject object = new JSONObject();
+        if (containers.isEmpty())
+        {
+            root = object;
+        }
+        else
+        {
+            attach(object);
+        }
+        containers.push(object);
+        return true;
+    }
+
+    @Override
+    public boolean endObject()
+    {
+        if (docsLevel > 0)
+        {
+            docsLevel--;
+            if (docsLevel == 1)
+            {
+                if (!docDbidSeen)
+                {
+                    // No DBID found
+                    throw new LuceneQueryParserException("No DBID found for doc ...");
+                }
+                docs.add(docDbid, docScore);
+            }
+            return true;
+        }
+        containers.pop();
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key)
+    {
+        if (docsLevel > 0)
+        {
+            if (docsLevel == 2)
+            {
+                docField = key;
+                docFieldSeen = false;
+            }
+            return true;
+        }
+        keys.push(key);
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry()
+    {
+        if (docsLevel > 0)
+        {
+            return true;
+        }
+        keys.pop();
+        return true;
+    }
+
+    @Override
+    public boolean startArray() throws ParseException
+    {
+        if (docsLevel > 0)
+        {
+            docsLevel++;
+            return true;
+        }
+        if (isDocsArray())
+        {
+            // Collect the documents rather than building them
+            docs = new StreamedDocs();
+            attach(docs);
+            docsLevel = 1;
+            return true;
+        }
+        JSONArray array = new JSONArray();
+        attach(array);
+        containers.push(array);
+        return true;
+    }
+
+    @Override
+    public boolean endArray()
+    {
+        if (docsLevel > 0)
+        {
+            docsLevel--;
+            return true;
+        }
+        containers.pop();
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) throws ParseException
+    {
+        if (docsLevel > 0)
+        {
+            // Only the first value of a multi-valued DBID is used
+            if ((docsLevel == 2 || (docsLevel == 3 && !docFieldSeen)) && value instanceof Number)
+            {
+                if (DBID.equals(docField))
+                {
+                    docDbid = ((Number) value).longValue();
+                    docDbidSeen = true;
+                }
+                else if (SCORE.equals(docField))
+                {
+                    docScore = ((Number) value).floatValue();
+                }
+                docFieldSeen = true;
+            }
+            return true;
+        }
+        attach(toJSONValue(value));
+        return true;
+    }
+
+    /**
+     * @return <tt>true</tt> if an array about to start is the <b>response.docs</b> array
+     */
+    private boolean isDocsArray()
+    {
+        return containers.size() == 2 && DOCS.equals(keys.peek()) && keys.size() == 2 && RESPONSE.equals(keys.peekLast());
+    }
+
+    private void attach(Object value) throws ParseException
+    {
+        Object container = containers.peek();
+        try
+        {
+            if (container instanceof JSONObject)
+            {
+                ((JSONObject) container).put(keys.peek(), value);
+            }
+            else if (container instanceof JSONArray)
+            {
+                ((JSONArray) container).put(value);
+            }
+        }
+        catch (JSONException e)
+        {
+            throw new ParseException(ParseException.ERROR_UNEXPECTED_EXCEPTION, e);
+        }
+    }
+
+    /**
+     * Convert a parsed value to the type a {@link org.json.JSONTokener} gives
+     */
+    private static Object toJSONValue(Object value)
+    {
+        if (value == null)
+        {
+            return JSONObject.NULL;
+        }
+        else if (value instanceof Long)
+        {
+            long l = ((Long) value).longValue();
+            if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE)
+            {
+                return Integer.valueOf((int) l);
+            }
+        }
+        return value;
+    }
+}
@@ -40,7 +40,6 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
-import java.util.Set;
 import java.util.StringJoiner;
 
 import javax.servlet.http.HttpServletResponse;
@@ -58,6 +57,7 @@ import org.alfresco.repo.search.impl.lucene.LuceneQueryParserException;
 import org.alfresco.repo.search.impl.lucene.SolrJSONResultSet;
 import org.alfresco.repo.search.impl.lucene.SolrJsonProcessor;
 import org.alfresco.repo.search.impl.lucene.SolrStatsResult;
+import org.alfresco.repo.search.impl.solr.SolrAuthoritySetCache.AuthoritySet;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
 import org.alfresco.service.cmr.dictionary.DictionaryService;
@@ -80,7 +80,6 @@ import org.alfresco.service.cmr.search.SearchParameters.FieldFacetSort;
 import org.alfresco.service.cmr.search.SearchParameters.SortDefinition;
 import org.alfresco.service.cmr.search.StatsParameters;
 import org.alfresco.service.cmr.search.StatsRequestParameters;
-import org.alfresco.service.cmr.security.AuthorityType;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.util.Pair;
 import org.alfresco.util.ParameterCheck;
@@ -147,6 +146,8 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
     private int defaultUnshardedFacetLimit = 100;
     
     private int defaultShardedFacetLimit = 20;
+    
+    private boolean streamResponses = true;
 
     private NamespaceDAO namespaceDAO;
 
@@ -276,6 +277,15 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
         this.defaultShardedFacetLimit = defaultShardedFacetLimit;
     }
 
+    /**
+     * @param streamResponses <tt>true</tt> (default) to parse query responses as they are streamed
+     *                        without building the result documents, see {@link SolrJSONResponseHandler}
+     */
+    public void setStreamResponses(boolean streamResponses)
+    {
+        this.streamResponses = streamResponses;
+    }
+
     /**
      * Executes a solr query for statistics
      * 
@@ -509,25 +519,8 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
             
             // Authorities go over as is - and tenant mangling and query building takes place on the SOLR side
 
-            Set<String> allAuthorisations = permissionService.getAuthorisations();
-            boolean includeGroups = includeGroupsForRoleAdmin ? true : !allAuthorisations.contains(PermissionService.ADMINISTRATOR_AUTHORITY);
-            
-            JSONArray authorities = new JSONArray();
-            for (String authority : allAuthorisations)
-            {
-                if(includeGroups)
-                {
-                    authorities.put(authority);
-                }
-                else
-                {
-                    if(AuthorityType.getAuthorityType(authority) != AuthorityType.GROUP)
-                    {
-                        authorities.put(authority);
-                    }
-                }
-            }
-            body.put("authorities", authorities);
+            AuthoritySet authoritySet = getAuthoritySet(permissionService, includeGroupsForRoleAdmin);
+            body.put("authorities", authoritySet.toJSONArray());
             body.put("anyDenyDenies", anyDenyDenies);
             
             JSONArray tenants = new JSONArray();
@@ -580,7 +573,18 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
 
             final int maximumResults = maxResults;  //just needed for the final parameter
             
-            return (ResultSet) postSolrQuery(httpClient, url.toString(), body, json ->
+            Pair<HttpClient, String> replica = null;
+            if (getQueryTransport().isHedgingEnabled())
+            {
+                Pair<HttpClient, String> replicaHttpClientAndBaseUrl = mapping.getReplicaHttpClientAndBaseUrl(httpClientAndBaseUrl);
+                if (replicaHttpClientAndBaseUrl != null)
+                {
+                    String replicaUrl = replicaHttpClientAndBaseUrl.getSecond() + url.substring(httpClientAndBaseUrl.getSecond().length());
+                    replica = new Pair<HttpClient, String>(replicaHttpClientAndBaseUrl.getFirst(), replicaUrl);
+                }
+            }
+            
+            return (ResultSet) postSolrQuery(httpClient, url.toString(), replica, body, json ->
             {
                 return new SolrJSONResultSet(json, searchParameters, nodeService, nodeDAO, limitBy, maximumResults);
             }, spellCheckQueryStr);
@@ -1113,13 +1117,23 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
                 throws UnsupportedEncodingException, IOException, HttpException, URIException,
                 JSONException
     {
-        JSONObject json = postQuery(httpClient, url, body);
+        return postSolrQuery(httpClient, url, null, body, jsonProcessor, spellCheckParams);
+    }
+
+    /**
+     * @param replica   the client and url of a replica used to hedge the query, or <tt>null</tt>
+     */
+    protected JSONResult postSolrQuery(HttpClient httpClient, String url, Pair<HttpClient, String> replica, JSONObject body, SolrJsonProcessor<?> jsonProcessor, String spellCheckParams)
+                throws UnsupportedEncodingException, IOException, HttpException, URIException,
+                JSONException
+    {
+        JSONObject json = postQuery(httpClient, url, replica, body, streamResponses);
         if (spellCheckParams != null)
         {
             SpellCheckDecisionManager manager = new SpellCheckDecisionManager(json, url, body, spellCheckParams);
             if (manager.isCollate())
             {
-                json = postQuery(httpClient, manager.getUrl(), body);
+                json = postQuery(httpClient, manager.getUrl(), body, streamResponses);
             }
             json.put("spellcheck", manager.getSpellCheckJsonValue());
         }
@@ -1204,6 +1218,10 @@ public class SolrQueryHTTPClient extends AbstractSolrQueryHTTPClient implements
         {
             mappingLookup.put(mapping.getStoreRef(), new ExplicitSolrStoreMappingWrapper(mapping, beanFactory));
         }
+        for (SolrStoreMappingWrapper mapping : mappingLookup.values())
+        {
+            getQueryTransport().warmUp(mapping.getHttpClientsAndBaseUrls());
+        }
     }
 
     /**
@@ -0,0 +1,886 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.search.impl.lucene.LuceneQueryParserException;
+import org.alfresco.util.Pair;
+import org.alfresco.util.TraceableThreadFactory;
+import org.apache.commons.httpclient.Header;
+import org.apache.commons.httpclient.HostConfiguration;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.HttpMethodBase;
+import org.apache.commons.httpclient.HttpStatus;
+import org.apache.commons.httpclient.URI;
+import org.apache.commons.httpclient.methods.ByteArrayRequestEntity;
+import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.PostMethod;
+import org.apache.commons.httpclient.methods.StringRequestEntity;
+import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+
+/**
+ * Sends JSON queries to SOLR over the pooled, keep-alive connections of the {@link HttpClient HttpClients}
+ * created by the <tt>solrHttpClientFactory</tt>.
+ * <p>
+ * On top of a plain post the transport:
+ * <ul>
+ * <li>asks for gzip compressed responses and decompresses them as they are read</li>
+ * <li>optionally gzips large query bodies, such as those of users in many groups</li>
+ * <li>limits the number of requests in flight to each shard</li>
+ * <li>keeps a latency histogram for each shard</li>
+ * <li>optionally hedges a query by sending it to a replica when the first attempt takes longer than a
+ * percentile of the latencies seen for its shard, and uses whichever response arrives first</li>
+ * <li>optionally warms up connections to each node so that the first queries do not pay for connection set up</li>
+ * </ul>
+ * A shard is identified by the host and the core path of the request url, e.g. <tt>http://solr1:8983/solr/alfresco-2</tt>.
+ * 
+ * @since 7.6
+ */
+public class SolrQueryTransport implements SolrQueryTransportMBean
+{
+    private static final Log logger = LogFactory.getLog(SolrQueryTransport.class);
+
+    private static final String WARM_UP_PATH = "/admin/ping?wt=json";
+
+    private boolean acceptGzip = true;
+    private boolean compressRequests = false;
+    private int maxConcurrentRequestsPerShard = 0;
+    private long shardPermitWaitMs = 10000;
+    private boolean hedgingEnabled = false;
+    private int hedgePercentile = 95;
+    private long minHedgeDelayMs = 50;
+    private int minHedgeSamples = 100;
+    private int maxThreads = 32;
+    private int warmUpConnections = 0;
+
+    private final ConcurrentHashMap<String, ShardStatistics> shardStatistics = new ConcurrentHashMap<String, ShardStatistics>();
+    private final AtomicLong hedgedRequestCount = new AtomicLong();
+    private final AtomicLong hedgeWinCount = new AtomicLong();
+    private final AtomicLong rejectedRequestCount = new AtomicLong();
+    private volatile ThreadPoolExecutor executor;
+
+    public SolrQueryTransport()
+    {
+    }
+
+    /**
+     * @param acceptGzip <tt>true</tt> (default) to ask SOLR for gzip compressed responses
+     */
+    public void setAcceptGzip(boolean acceptGzip)
+    {
+        this.acceptGzip = acceptGzip;
+    }
+
+    /**
+     * @param compressRequests <tt>true</tt> to gzip query bodies larger than {@link AbstractSolrQueryHTTPClient#DEFAULT_SAVEPOST_BUFFER}.
+     *                         SOLR must accept gzip encoded requests.
+     */
+    public void setCompressRequests(boolean compressRequests)
+    {
+        this.compressRequests = compressRequests;
+    }
+
+    /**
+     * @param maxConcurrentRequestsPerShard the maximum number of requests in flight to any one shard
+     *                                      or <tt>0</tt> (default) for no limit
+     */
+    public void setMaxConcurrentRequestsPerShard(int maxConcurrentRequestsPerShard)
+    {
+        this.maxConcurrentRequestsPerShard = maxConcurrentRequestsPerShard;
+    }
+
+    /**
+     * @param shardPermitWaitMs how long a request waits for a busy shard before it fails (default 10s)
+     */
+    public void setShardPermitWaitMs(long shardPermitWaitMs)
+    {
+        this.shardPermitWaitMs = shardPermitWaitMs;
+    }
+
+    /**
+     * @param hedgingEnabled <tt>true</tt> to send slow queries to a replica as well
+     */
+    public void setHedgingEnabled(boolean hedgingEnabled)
+    {
+        this.hedgingEnabled = hedgingEnabled;
+    }
+
+    /**
+     * @param hedgePercentile the latency percentile of a shard after which a query is hedged (default 95)
+     */
+    public void setHedgePercentile(int hedgePercentile)
+    {
+        if (hedgePercentile < 1 || hedgePercentile > 100)
+        {
+            throw new IllegalArgumentException("The hedge percentile must be between 1 and 100: " + hedgePercentile);
+        }
+        this.hedgePercentile = hedgePercentile;
+    }
+
+    /**
+     * @param minHedgeDelayMs the least time to wait before a query is hedged (default 50ms)
+     */
+    public void setMinHedgeDelayMs(long minHedgeDelayMs)
+    {
+        this.minHedgeDelayMs = minHedgeDelayMs;
+    }
+
+    /**
+     * @param minHedgeSamples the number of latencies to record for a shard before its queries are hedged (default 100)
+     */
+    public void setMinHedgeSamples(int minHedgeSamples)
+    {
+        this.minHedgeSamples = minHedgeSamples;
+    }
+
+    /**
+     * @param maxThreads the maximum number of threads used to run hedged queries and warm up connections (default 32).
+     *                   Queries that can not get a thread are sent without hedging.
+     */
+    public void setMaxThreads(int maxThreads)
+    {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * @param warmUpConnections the number of connections to open to each node when the
+     *                          transport is {@link #warmUp(Collection) warmed up} (default 0)
+     */
+    public void setWarmUpConnections(int warmUpConnections)
+    {
+        this.warmUpConnections = warmUpConnections;
+    }
+
+    @Override
+    public boolean isAcceptGzip()
+    {
+        return acceptGzip;
+    }
+
+    @Override
+    public boolean isHedgingEnabled()
+    {
+        return hedgingEnabled;
+    }
+
+    /**
+     * Post a query and parse the JSON response.
+     * 
+     * @param httpClient        the client for the node to query
+     * @param url               the url of the query
+     * @param replica           the client and url to use to hedge the query or <tt>null</tt> to never hedge it
+     * @param body              the JSON body of the query
+     * @param streaming         <tt>true</tt> to parse the response as it is streamed using a {@link SolrJSONResponseHandler}
+     */
+    public JSONObject post(HttpClient httpClient, String url, Pair<HttpClient, String> replica, JSONObject body, boolean streaming)
+            throws IOException, JSONException
+    {
+        String bodyString = body.toString();
+        Attempt primary = new Attempt(httpClient, url, bodyString, streaming, false);
+        if (!hedgingEnabled || replica == null || replica.getFirst() == null)
+        {
+            return primary.call();
+        }
+        long hedgeDelay = getHedgeDelay(primary.statistics);
+        if (hedgeDelay < 0)
+        {
+            return primary.call();
+        }
+        return hedge(primary, new Attempt(replica.getFirst(), replica.getSecond(), bodyString, streaming, true), hedgeDelay);
+    }
+
+    /**
+     * @return how long to wait for the shard before hedging or <tt>-1</tt> if too little is known about it
+     */
+    private long getHedgeDelay(ShardStatistics statistics)
+    {
+        if (statistics.latencies.getCount() < minHedgeSamples)
+        {
+            return -1;
+        }
+        return Math.max(minHedgeDelayMs, statistics.latencies.getPercentile(hedgePercentile));
+    }
+
+    private JSONObject hedge(Attempt primary, Attempt hedge, long hedgeDelay) throws IOException, JSONException
+    {
+        ExecutorCompletionService<JSONObject> completionService = new ExecutorCompletionService<JSONObject>(getExecutor());
+        Future<JSONObject> primaryFuture;
+        try
+        {
+            primaryFuture = completionService.submit(primary);
+        }
+        catch (RejectedExecutionException e)
+        {
+            return primary.call();
+        }
+        try
+        {
+            Future<JSONObject> done = completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS);
+            if (done != null)
+            {
+                return getResult(done, primary);
+            }
+            try
+            {
+                completionService.submit(hedge);
+            }
+            catch (RejectedExecutionException e)
+            {
+                return getResult(primaryFuture, primary);
+            }
+            hedgedRequestCount.incrementAndGet();
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Hedging query to " + primary.statistics.getShard() + " after " + hedgeDelay + "ms with " + hedge.statistics.getShard());
+            }
+
+            Future<JSONObject> first = completionService.take();
+            JSONObject json;
+            try
+            {
+                json = getResult(first, (first == primaryFuture) ? primary : hedge);
+            }
+            catch (IOException | JSONException | RuntimeException e)
+            {
+                // The first to finish failed so wait for the other
+                first = completionService.take();
+                json = getResult(first, (first == primaryFuture) ? primary : hedge);
+            }
+            if (first != primaryFuture)
+            {
+                hedgeWinCount.incrementAndGet();
+            }
+            return json;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for SOLR query to " + primary.statistics.getShard());
+        }
+        finally
+        {
+            // A primary that lost records the time it had taken so far, as a lower bound of its latency
+            primary.abort();
+            hedge.abort();
+        }
+    }
+
+    private JSONObject getResult(Future<JSONObject> future, Attempt attempt) throws IOException, JSONException, InterruptedException
+    {
+        try
+        {
+            return future.get();
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+            {
+                throw (IOException) cause;
+            }
+            if (cause instanceof JSONException)
+            {
+                throw (JSONException) cause;
+            }
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new AlfrescoRuntimeException("SOLR query failed", cause);
+        }
+    }
+
+    /**
+     * Open connections to each node in the background so that they are ready in the connection pool
+     * for the first queries. Failures are ignored.
+     * 
+     * @param httpClientsAndBaseUrls    the client and base url of each node
+     */
+    public void warmUp(Collection<Pair<HttpClient, String>> httpClientsAndBaseUrls)
+    {
+        if (warmUpConnections <= 0)
+        {
+            return;
+        }
+        for (Pair<HttpClient, String> httpClientAndBaseUrl : httpClientsAndBaseUrls)
+        {
+            final HttpClient httpClient = httpClientAndBaseUrl.getFirst();
+            String baseUrl = httpClientAndBaseUrl.getSecond();
+            final String url = (baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl) + WARM_UP_PATH;
+            for (int i = 0; i < warmUpConnections; i++)
+            {
+                try
+                {
+                    getExecutor().execute(new Runnable()
+                    {
+                        @Override
+                        public void run()
+                        {
+                            warmUp(httpClient, url);
+                        }
+                    });
+                }
+                catch (RejectedExecutionException e)
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void warmUp(HttpClient httpClient, String url)
+    {
+        GetMethod get = new GetMethod(url);
+        try
+        {
+            httpClient.executeMethod(get);
+            get.getResponseBody();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Failed to warm up connection for " + url + ": " + e.getMessage());
+            }
+        }
+        finally
+        {
+            get.releaseConnection();
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor()
+    {
+        ThreadPoolExecutor result = executor;
+        if (result == null)
+        {
+            synchronized (this)
+            {
+                result = executor;
+                if (result == null)
+                {
+                    TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+                    threadFactory.setThreadDaemon(true);
+                    threadFactory.setNamePrefix("SolrQueryTransport");
+                    result = new ThreadPoolExecutor(0, maxThreads, 60L, TimeUnit.SECONDS,
+                            new SynchronousQueue<Runnable>(), threadFactory);
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Shut down the threads used for hedging and warm up
+     */
+    public synchronized void shutdown()
+    {
+        if (executor != null)
+        {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * @return the shard of a request - the host and the path of the url without its last segment
+     */
+    static String getShard(HttpClient httpClient, String url)
+    {
+        int query = url.indexOf('?');
+        String path = (query == -1) ? url : url.substring(0, query);
+        int slash = path.lastIndexOf('/');
+        if (slash > 0)
+        {
+            path = path.substring(0, slash);
+        }
+        if (path.startsWith("http://") || path.startsWith("https://"))
+        {
+            return path;
+        }
+        HostConfiguration hostConfiguration = httpClient.getHostConfiguration();
+        if (hostConfiguration == null || hostConfiguration.getHost() == null)
+        {
+            return path;
+        }
+        return hostConfiguration.getHostURL() + path;
+    }
+
+    private ShardStatistics getShardStatistics(String shard)
+    {
+        ShardStatistics statistics = shardStatistics.get(shard);
+        if (statistics == null)
+        {
+            statistics = new ShardStatistics(shard, maxConcurrentRequestsPerShard);
+            ShardStatistics existing = shardStatistics.putIfAbsent(shard, statistics);
+            if (existing != null)
+            {
+                statistics = existing;
+            }
+        }
+        return statistics;
+    }
+
+    /**
+     * @param shard the shard, as reported by {@link #getShardRequestCounts()}
+     * @return the latencies of the shard or <tt>null</tt> if no request has been sent to it
+     */
+    public LatencyHistogram getLatencyHistogram(String shard)
+    {
+        ShardStatistics statistics = shardStatistics.get(shard);
+        return statistics == null ? null : statistics.latencies;
+    }
+
+    @Override
+    public Map<String, Long> getShardRequestCounts()
+    {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (ShardStatistics statistics : shardStatistics.values())
+        {
+            counts.put(statistics.getShard(), statistics.latencies.getCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getShardErrorCounts()
+    {
+        Map<String, Long> counts = new TreeMap<String, Long>();
+        for (ShardStatistics statistics : shardStatistics.values())
+        {
+            counts.put(statistics.getShard(), statistics.errors.get());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Integer> getShardActiveRequestCounts()
+    {
+        Map<String, Integer> counts = new TreeMap<String, Integer>();
+        for (ShardStatistics statistics : shardStatistics.values())
+        {
+            counts.put(statistics.getShard(), statistics.getActiveRequestCount());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getShardLatencyPercentiles(int percentile)
+    {
+        Map<String, Long> percentiles = new TreeMap<String, Long>();
+        for (ShardStatistics statistics : shardStatistics.values())
+        {
+            percentiles.put(statistics.getShard(), statistics.latencies.getPercentile(percentile));
+        }
+        return percentiles;
+    }
+
+    @Override
+    public Map<String, Long> getShardLatencyHistogram(String shard)
+    {
+        LatencyHistogram latencies = getLatencyHistogram(shard);
+        return latencies == null ? null : latencies.getBuckets();
+    }
+
+    @Override
+    public long getHedgedRequestCount()
+    {
+        return hedgedRequestCount.get();
+    }
+
+    @Override
+    public long getHedgeWinCount()
+    {
+        return hedgeWinCount.get();
+    }
+
+    @Override
+    public long getRejectedRequestCount()
+    {
+        return rejectedRequestCount.get();
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        for (ShardStatistics statistics : shardStatistics.values())
+        {
+            statistics.latencies.reset();
+            statistics.errors.set(0);
+        }
+        hedgedRequestCount.set(0);
+        hedgeWinCount.set(0);
+        rejectedRequestCount.set(0);
+    }
+
+    /**
+     * A single post of a query to a node, which can be aborted by another thread
+     * if another attempt answers first.
+     */
+    private class Attempt implements Callable<JSONObject>
+    {
+        private final HttpClient httpClient;
+        private final String url;
+        private final String body;
+        private final boolean streaming;
+        private final ShardStatistics statistics;
+
+        private HttpMethodBase method;
+        private boolean aborted;
+        private boolean finished;
+        /** <tt>true</tt> for a hedge, whose latency is not recorded so that the hedge delay only depends on primary attempts */
+        private final boolean hedge;
+        private long startNanos = -1L;
+        private boolean latencyRecorded;
+
+        Attempt(HttpClient httpClient, String url, String body, boolean streaming, boolean hedge)
+        {
+            this.httpClient = httpClient;
+            this.url = url;
+            this.body = body;
+            this.streaming = streaming;
+            this.hedge = hedge;
+            this.statistics = getShardStatistics(getShard(httpClient, url));
+        }
+
+        @Override
+        public JSONObject call() throws IOException, JSONException
+        {
+            PostMethod post = new PostMethod(url);
+            if (body.length() > AbstractSolrQueryHTTPClient.DEFAULT_SAVEPOST_BUFFER)
+            {
+                post.getParams().setBooleanParameter(HttpMethodParams.USE_EXPECT_CONTINUE, true);
+            }
+            if (acceptGzip)
+            {
+                post.setRequestHeader("Accept-Encoding", "gzip");
+            }
+            if (compressRequests && body.length() > AbstractSolrQueryHTTPClient.DEFAULT_SAVEPOST_BUFFER)
+            {
+                post.setRequestHeader("Content-Encoding", "gzip");
+                post.setRequestEntity(new ByteArrayRequestEntity(gzip(body), "application/json; charset=UTF-8"));
+            }
+            else
+            {
+                post.setRequestEntity(new StringRequestEntity(body, "application/json", "UTF-8"));
+            }
+            synchronized (this)
+            {
+                if (aborted)
+                {
+                    throw new InterruptedIOException("Query to " + statistics.getShard() + " was not needed");
+                }
+                method = post;
+            }
+
+            statistics.acquire();
+            long start = System.nanoTime();
+            synchronized (this)
+            {
+                startNanos = start;
+            }
+            boolean failed = true;
+            try
+            {
+                httpClient.executeMethod(post);
+                if(post.getStatusCode() == HttpStatus.SC_MOVED_PERMANENTLY || post.getStatusCode() == HttpStatus.SC_MOVED_TEMPORARILY)
+                {
+                    Header locationHeader = post.getResponseHeader("location");
+                    if (locationHeader != null)
+                    {
+                        String redirectLocation = locationHeader.getValue();
+                        post.setURI(new URI(redirectLocation, true));
+                        httpClient.executeMethod(post);
+                    }
+                }
+                if (post.getStatusCode() != HttpServletResponse.SC_OK)
+                {
+                    throw new LuceneQueryParserException("Request failed " + post.getStatusCode() + " " + url.toString());
+                }
+
+                InputStream stream = post.getResponseBodyAsStream();
+                Header contentEncoding = post.getResponseHeader("Content-Encoding");
+                if (contentEncoding != null && "gzip".equalsIgnoreCase(contentEncoding.getValue().trim()))
+                {
+                    stream = new GZIPInputStream(stream);
+                }
+                Reader reader = new BufferedReader(new InputStreamReader(stream, post.getResponseCharSet()));
+                JSONObject json = streaming ? SolrJSONResponseHandler.parse(reader) : new JSONObject(new JSONTokener(reader));
+                failed = false;
+                recordLatency();
+                return json;
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    finished = true;
+                }
+                post.releaseConnection();
+                statistics.release();
+                if (failed && !isAborted())
+                {
+                    statistics.errors.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Record the time taken so far by a primary attempt, once only: when it completes or, if it
+         * loses to a hedge, when it is aborted.
+         */
+        private synchronized void recordLatency()
+        {
+            if (hedge || latencyRecorded || startNanos < 0L)
+            {
+                return;
+            }
+            latencyRecorded = true;
+            statistics.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+
+        private byte[] gzip(String text) throws IOException
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(text.length() / 4);
+            try (GZIPOutputStream out = new GZIPOutputStream(bytes))
+            {
+                out.write(text.getBytes("UTF-8"));
+            }
+            return bytes.toByteArray();
+        }
+
+        synchronized boolean isAborted()
+        {
+            return aborted;
+        }
+
+        /**
+         * Abort the attempt if it is still running. A finished attempt has already handed its
+         * connection back to the pool so it must not be touched.
+         */
+        synchronized void abort()
+        {
+            if (!aborted && !finished)
+            {
+                aborted = true;
+                recordLatency();
+                if (method != null)
+                {
+                    method.abort();
+                }
+            }
+        }
+    }
+
+    /**
+     * The concurrency limit and statistics of a shard
+     */
+    private class ShardStatistics
+    {
+        private final String shard;
+        private final Semaphore permits;
+        private final int maxPermits;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+
+        ShardStatistics(String shard, int maxPermits)
+        {
+            this.shard = shard;
+            this.maxPermits = maxPermits;
+            this.permits = (maxPermits > 0) ? new Semaphore(maxPermits, true) : null;
+        }
+
+        String getShard()
+        {
+            return shard;
+        }
+
+        int getActiveRequestCount()
+        {
+            return (permits == null) ? 0 : maxPermits - permits.availablePermits();
+        }
+
+        void acquire() throws InterruptedIOException
+        {
+            if (permits == null)
+            {
+                return;
+            }
+            try
+            {
+                if (!permits.tryAcquire(shardPermitWaitMs, TimeUnit.MILLISECONDS))
+                {
+                    rejectedRequestCount.incrementAndGet();
+                    throw new LuceneQueryParserException("Too many concurrent requests to SOLR shard " + shard);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for SOLR shard " + shard);
+            }
+        }
+
+        void release()
+        {
+            if (permits != null)
+            {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * A lock free histogram of latencies in milliseconds with fixed buckets
+     */
+    public static class LatencyHistogram
+    {
+        private static final long[] BUCKET_LIMITS = { 1, 2, 3, 5, 7, 10, 15, 20, 30, 50, 75, 100, 150, 200, 300, 500, 750, 1000,
+                1500, 2000, 3000, 5000, 7500, 10000, 15000, 30000, 60000 };
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_LIMITS.length + 1);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMs = new AtomicLong();
+        private final AtomicLong maxMs = new AtomicLong();
+
+        public void record(long ms)
+        {
+            int index = Arrays.binarySearch(BUCKET_LIMITS, ms);
+            if (index < 0)
+            {
+                index = -index - 1;
+            }
+            buckets.incrementAndGet(index);
+            count.incrementAndGet();
+            totalMs.addAndGet(ms);
+            maxMs.accumulateAndGet(ms, Math::max);
+        }
+
+        public long getCount()
+        {
+            return count.get();
+        }
+
+        public long getMeanMs()
+        {
+            long n = count.get();
+            return n == 0 ? 0 : totalMs.get() / n;
+        }
+
+        public long getMaxMs()
+        {
+            return maxMs.get();
+        }
+
+        /**
+         * @param percentile    the percentile between 1 and 100
+         * @return the upper limit of the bucket holding the percentile or <tt>-1</tt> if nothing has been recorded
+         */
+        public long getPercentile(int percentile)
+        {
+            long n = count.get();
+            if (n == 0)
+            {
+                return -1;
+            }
+            long rank = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_LIMITS.length; i++)
+            {
+                seen += buckets.get(i);
+                if (seen >= rank)
+                {
+                    return Math.min(BUCKET_LIMITS[i], maxMs.get());
+                }
+            }
+            return maxMs.get();
+        }
+
+        /**
+         * @return the non empty buckets keyed by their upper limit, e.g. <tt>&lt;=50ms</tt>
+         */
+        public Map<String, Long> getBuckets()
+        {
+            Map<String, Long> result = new LinkedHashMap<String, Long>();
+            for (int i = 0; i < buckets.length(); i++)
+            {
+                long bucketCount = buckets.get(i);
+                if (bucketCount > 0)
+                {
+                    String label = (i < BUCKET_LIMITS.length) ? "<=" + BUCKET_LIMITS[i] + "ms" : ">" + BUCKET_LIMITS[BUCKET_LIMITS.length - 1] + "ms";
+                    result.put(label, bucketCount);
+                }
+            }
+            return result;
+        }
+
+        public void reset()
+        {
+            for (int i = 0; i < buckets.length(); i++)
+            {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            totalMs.set(0);
+            maxMs.set(0);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import java.util.Map;
+
+/**
+ * Management interface for the statistics gathered by the {@link SolrQueryTransport}.
+ * <p>
+ * Shards are identified by the host and core path of their requests, e.g. <tt>http://solr1:8983/solr/alfresco-2</tt>.
+ * 
+ * @since 7.6
+ */
+public interface SolrQueryTransportMBean
+{
+    /**
+     * @return <tt>true</tt> if gzip compressed responses are requested
+     */
+    public boolean isAcceptGzip();
+
+    /**
+     * @return <tt>true</tt> if slow queries are hedged by sending them to a replica
+     */
+    public boolean isHedgingEnabled();
+
+    /**
+     * @return the number of requests answered by each shard, not counting failed requests or hedged requests that lost
+     */
+    public Map<String, Long> getShardRequestCounts();
+
+    /**
+     * @return the number of failed requests for each shard
+     */
+    public Map<String, Long> getShardErrorCounts();
+
+    /**
+     * @return the number of requests currently in flight to each shard, when the concurrency per shard is limited
+     */
+    public Map<String, Integer> getShardActiveRequestCounts();
+
+    /**
+     * @param percentile    the percentile between 1 and 100
+     * @return the latency percentile in milliseconds for each shard
+     */
+    public Map<String, Long> getShardLatencyPercentiles(int percentile);
+
+    /**
+     * @param shard         the shard
+     * @return the number of requests of the shard in each latency bucket
+     */
+    public Map<String, Long> getShardLatencyHistogram(String shard);
+
+    /**
+     * @return the number of queries that were sent to a replica as well
+     */
+    public long getHedgedRequestCount();
+
+    /**
+     * @return the number of hedged queries that were answered by the replica first
+     */
+    public long getHedgeWinCount();
+
+    /**
+     * @return the number of requests that failed waiting for a busy shard
+     */
+    public long getRejectedRequestCount();
+
+    /**
+     * Reset all the statistics
+     */
+    public void resetStatistics();
+}
@@ -31,7 +31,6 @@ import java.net.ConnectException;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
-import java.util.Set;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.admin.RepositoryState;
@@ -40,6 +39,7 @@ import org.alfresco.repo.index.shard.ShardRegistry;
 import org.alfresco.repo.search.impl.lucene.JSONResult;
 import org.alfresco.repo.search.impl.lucene.LuceneQueryParserException;
 import org.alfresco.repo.search.impl.lucene.SolrJsonProcessor;
+import org.alfresco.repo.search.impl.solr.SolrAuthoritySetCache.AuthoritySet;
 import org.alfresco.repo.tenant.TenantService;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.cmr.repository.datatype.DefaultTypeConverter;
@@ -47,7 +47,6 @@ import org.alfresco.service.cmr.search.ResultSet;
 import org.alfresco.service.cmr.search.SearchParameters;
 import org.alfresco.service.cmr.search.StatsParameters;
 import org.alfresco.service.cmr.search.StatsResultSet;
-import org.alfresco.service.cmr.security.AuthorityType;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.util.Pair;
 import org.alfresco.util.PropertyCheck;
@@ -165,25 +164,8 @@ public class SolrSQLHttpClient extends AbstractSolrQueryHTTPClient implements So
             
             // Authorities go over as is - and tenant mangling and query building takes place on the SOLR side
 
-            Set<String> allAuthorisations = permissionService.getAuthorisations();
-            boolean includeGroups = includeGroupsForRoleAdmin ? true : !allAuthorisations.contains(PermissionService.ADMINISTRATOR_AUTHORITY);
-            
-            JSONArray authorities = new JSONArray();
-            for (String authority : allAuthorisations)
-            {
-                if(includeGroups)
-                {
-                    authorities.put(authority);
-                }
-                else
-                {
-                    if(AuthorityType.getAuthorityType(authority) != AuthorityType.GROUP)
-                    {
-                        authorities.put(authority);
-                    }
-                }
-            }
-            body.put("authorities", authorities);
+            AuthoritySet authoritySet = getAuthoritySet(permissionService, includeGroupsForRoleAdmin);
+            body.put("authorities", authoritySet.toJSONArray());
             body.put("anyDenyDenies", anyDenyDenies);
             
             JSONArray tenants = new JSONArray();
@@ -25,6 +25,8 @@
  */
 package org.alfresco.repo.search.impl.solr;
 
+import java.util.List;
+
 import org.alfresco.util.Pair;
 import org.apache.commons.httpclient.HttpClient;
 
@@ -50,4 +52,15 @@ public interface SolrStoreMappingWrapper
      */
     String getShards();
 
+    /**
+     * @param httpClientAndBaseUrl  a client and base url returned by {@link #getHttpClientAndBaseUrl()}
+     * @return the client and base url of a different node that can answer the same queries or <tt>null</tt> if there is none
+     */
+    Pair<HttpClient, String> getReplicaHttpClientAndBaseUrl(Pair<HttpClient, String> httpClientAndBaseUrl);
+
+    /**
+     * @return the client and base url of every node and core that can be queried
+     */
+    List<Pair<HttpClient, String>> getHttpClientsAndBaseUrls();
+
 }
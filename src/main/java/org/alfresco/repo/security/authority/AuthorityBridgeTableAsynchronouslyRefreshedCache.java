@@ -25,20 +25,30 @@
  */
 package org.alfresco.repo.security.authority;
 
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.cache.AbstractMTAsynchronouslyRefreshedCache;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
 import org.alfresco.repo.tenant.TenantAdminService;
+import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
+import org.alfresco.repo.transaction.TransactionalResourceHelper;
 import org.alfresco.util.BridgeTable;
 import org.alfresco.util.PropertyCheck;
 import org.apache.commons.logging.Log;
@@ -46,16 +56,43 @@ import org.apache.commons.logging.LogFactory;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
+ * Per tenant {@link BridgeTable} of the links between authority containers.
+ * <p>
+ * Links added and removed by committed transactions (see {@link #addLink(String, String)} and
+ * {@link #removeLink(String, String)}) are applied in place to the current table the next time it is read, so
+ * {@link #getAncestors(String)} reflects them as soon as they are committed without rebuilding the table from the
+ * database. The table is only fully rebuilt when {@link #refresh()} is called, after
+ * <code>maxDeltasBeforeRebuild</code> changes or once it is older than <code>rebuildIntervalMs</code>. The rebuilds
+ * are broadcast to the other members of a cluster, which is how changes made on other nodes are seen.
+ * 
  * @author Andy
  * @since 4.1.3
  */
-public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractMTAsynchronouslyRefreshedCache<BridgeTable<String>> implements InitializingBean
+public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractMTAsynchronouslyRefreshedCache<BridgeTable<String>> implements InitializingBean, AuthorityBridgeTableAsynchronouslyRefreshedCacheMBean
 {
+    private static final String KEY_LINK_DELTAS = "AuthorityBridgeTableAsynchronouslyRefreshedCache.linkDeltas";
+    private static final String KEY_CHANGED = "AuthorityBridgeTableAsynchronouslyRefreshedCache.changed";
+
     private AuthorityBridgeDAO authorityBridgeDAO;
     private RetryingTransactionHelper retryingTransactionHelper;
     private TenantAdminService tenantAdminService;
+    private TenantService tenantService;
     private AuthorityDAO authorityDAO;
 
+    private boolean incrementalRefresh = true;
+    private int maxDeltasBeforeRebuild = 10000;
+    private long rebuildIntervalMs = 300000L;
+
+    private final ConcurrentMap<String, TenantBridgeTable> tenantBridgeTables = new ConcurrentHashMap<String, TenantBridgeTable>();
+    private final ConcurrentMap<String, TenantDeltas> tenantDeltas = new ConcurrentHashMap<String, TenantDeltas>();
+    private final LinkDeltaTransactionListener linkDeltaTransactionListener = new LinkDeltaTransactionListener();
+
+    private final AtomicLong fullRebuildCount = new AtomicLong();
+    private volatile long lastFullRebuildTimeMs = 0;
+    private final AtomicLong deltaRefreshCount = new AtomicLong();
+    private volatile long lastDeltaRefreshTimeMs = 0;
+    private final AtomicLong appliedDeltaCount = new AtomicLong();
+
     private Log logger = LogFactory.getLog(getClass());
 
     /**
@@ -90,6 +127,271 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
         this.tenantAdminService = tenantAdminService;
     }
 
+    @Override
+    public void setTenantService(TenantService tenantService)
+    {
+        super.setTenantService(tenantService);
+        this.tenantService = tenantService;
+    }
+
+    /**
+     * @param incrementalRefresh
+     *            <tt>true</tt> to apply committed link changes to the table on this node without waiting for it to
+     *            be rebuilt
+     */
+    public void setIncrementalRefresh(boolean incrementalRefresh)
+    {
+        this.incrementalRefresh = incrementalRefresh;
+    }
+
+    /**
+     * @param maxDeltasBeforeRebuild
+     *            the number of link changes applied to a table before it is rebuilt from the database
+     */
+    public void setMaxDeltasBeforeRebuild(int maxDeltasBeforeRebuild)
+    {
+        this.maxDeltasBeforeRebuild = maxDeltasBeforeRebuild;
+    }
+
+    /**
+     * @param rebuildIntervalMs
+     *            the age of a table after which it is rebuilt from the database, so that the changes made on other
+     *            members of a cluster are seen, or zero to only rebuild after <code>maxDeltasBeforeRebuild</code>
+     *            changes
+     */
+    public void setRebuildIntervalMs(long rebuildIntervalMs)
+    {
+        this.rebuildIntervalMs = rebuildIntervalMs;
+    }
+
+    @Override
+    public boolean isIncrementalRefresh()
+    {
+        return incrementalRefresh;
+    }
+
+    @Override
+    public int getMaxDeltasBeforeRebuild()
+    {
+        return maxDeltasBeforeRebuild;
+    }
+
+    @Override
+    public long getRebuildIntervalMs()
+    {
+        return rebuildIntervalMs;
+    }
+
+    @Override
+    public long getFullRebuildCount()
+    {
+        return fullRebuildCount.get();
+    }
+
+    @Override
+    public long getLastFullRebuildTimeMs()
+    {
+        return lastFullRebuildTimeMs;
+    }
+
+    @Override
+    public long getDeltaRefreshCount()
+    {
+        return deltaRefreshCount.get();
+    }
+
+    @Override
+    public long getLastDeltaRefreshTimeMs()
+    {
+        return lastDeltaRefreshTimeMs;
+    }
+
+    @Override
+    public long getAppliedDeltaCount()
+    {
+        return appliedDeltaCount.get();
+    }
+
+    @Override
+    public int getPendingDeltaCount()
+    {
+        int pending = 0;
+        for (Map.Entry<String, TenantDeltas> entry : tenantDeltas.entrySet())
+        {
+            TenantBridgeTable current = tenantBridgeTables.get(entry.getKey());
+            pending += entry.getValue().countAfter(current == null ? Long.MAX_VALUE : current.appliedSequence);
+        }
+        return pending;
+    }
+
+    /**
+     * Record that a child authority container has been added to a parent authority container by the current
+     * transaction. The link is applied to the table once the transaction commits. The cache must still be
+     * {@link #refresh() refreshed} so that other nodes see the change.
+     */
+    public void addLink(String parentName, String childName)
+    {
+        recordLinkDelta(true, parentName, childName);
+    }
+
+    /**
+     * Record that a child authority container has been removed from a parent authority container by the current
+     * transaction. The link is removed from the table once the transaction commits. The cache must still be
+     * {@link #refresh() refreshed} so that other nodes see the change.
+     */
+    public void removeLink(String parentName, String childName)
+    {
+        recordLinkDelta(false, parentName, childName);
+    }
+
+    private void recordLinkDelta(boolean add, String parentName, String childName)
+    {
+        if (!incrementalRefresh)
+        {
+            refresh();
+            return;
+        }
+        List<LinkDelta> deltas = TransactionalResourceHelper.getList(KEY_LINK_DELTAS);
+        deltas.add(new LinkDelta(tenantService.getCurrentUserDomain(), add, parentName, childName));
+        AlfrescoTransactionSupport.bindListener(linkDeltaTransactionListener);
+        markChanged();
+    }
+
+    @Override
+    public void refresh()
+    {
+        markChanged();
+        super.refresh();
+    }
+
+    private void markChanged()
+    {
+        if (AlfrescoTransactionSupport.getTransactionReadState() != TxnReadState.TXN_NONE)
+        {
+            AlfrescoTransactionSupport.bindResource(KEY_CHANGED, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * @return <tt>true</tt> if the current transaction has changed the links, so that they will not be seen by
+     *         {@link #getAncestors(String)} until it has committed
+     */
+    public boolean isChangedByThisTransaction()
+    {
+        return Boolean.TRUE.equals(AlfrescoTransactionSupport.getResource(KEY_CHANGED));
+    }
+
+    /**
+     * Get the authority containers that transitively contain the given authority, including any links changed by
+     * transactions that have committed on this node since the table was built.
+     */
+    public Set<String> getAncestors(String authorityName)
+    {
+        return get().getAncestors(authorityName);
+    }
+
+    @Override
+    public BridgeTable<String> get()
+    {
+        // Makes sure that the table has been built
+        BridgeTable<String> bridgeTable = super.get();
+        if (incrementalRefresh)
+        {
+            String tenantId = tenantService.getCurrentUserDomain();
+            TenantBridgeTable current = applyDeltas(tenantId);
+            if (current != null)
+            {
+                if (((maxDeltasBeforeRebuild > 0) && (current.deltaCount >= maxDeltasBeforeRebuild))
+                        || ((rebuildIntervalMs > 0) && (System.currentTimeMillis() - current.buildTime > rebuildIntervalMs)))
+                {
+                    requestRebuild(tenantId, current);
+                }
+                return current.bridgeTable;
+            }
+        }
+        return bridgeTable;
+    }
+
+    /**
+     * Rebuild a tenant's table from the database, unless a rebuild of it has already been requested
+     */
+    private void requestRebuild(String tenantId, TenantBridgeTable current)
+    {
+        if (!current.rebuildRequested)
+        {
+            current.rebuildRequested = true;
+            refresh(tenantId);
+        }
+    }
+
+    /**
+     * Apply the committed link changes to the tenant's table, in place. Changes to the links are idempotent, so
+     * changes that were already seen by a concurrent rebuild can safely be applied again.
+     * 
+     * @return the table or <tt>null</tt> if none has been built for the tenant
+     */
+    private TenantBridgeTable applyDeltas(String tenantId)
+    {
+        TenantBridgeTable current = tenantBridgeTables.get(tenantId);
+        TenantDeltas deltas = getTenantDeltas(tenantId);
+        if (current == null || deltas.getSequence() == current.appliedSequence)
+        {
+            return current;
+        }
+        synchronized (deltas)
+        {
+            current = tenantBridgeTables.get(tenantId);
+            List<LinkDelta> pending = deltas.getAfter(current.appliedSequence);
+            if (pending.isEmpty())
+            {
+                return current;
+            }
+            long start = System.currentTimeMillis();
+            for (LinkDelta delta : pending)
+            {
+                if (!delta.add)
+                {
+                    current.bridgeTable.removeLink(delta.parentName, delta.childName);
+                }
+                else if (delta.parentName.equals(delta.childName)
+                        || current.bridgeTable.getAncestors(delta.parentName).contains(delta.childName))
+                {
+                    // A cycle - leave the rebuild to detect and remove it
+                    logger.warn("Authority link from '" + delta.parentName + "' to '" + delta.childName
+                            + "' would create a cycle - rebuilding the authority bridge table");
+                    requestRebuild(tenantId, current);
+                }
+                else
+                {
+                    current.bridgeTable.addLink(delta.parentName, delta.childName);
+                }
+            }
+            current.appliedSequence = pending.get(pending.size() - 1).sequence;
+            current.deltaCount += pending.size();
+
+            lastDeltaRefreshTimeMs = System.currentTimeMillis() - start;
+            deltaRefreshCount.incrementAndGet();
+            appliedDeltaCount.addAndGet(pending.size());
+            if (logger.isDebugEnabled())
+            {
+                logger.debug("Applied " + pending.size() + " authority link changes for tenant '" + tenantId + "' in " + lastDeltaRefreshTimeMs + " ms");
+            }
+            return current;
+        }
+    }
+
+    private TenantDeltas getTenantDeltas(String tenantId)
+    {
+        TenantDeltas deltas = tenantDeltas.get(tenantId);
+        if (deltas == null)
+        {
+            deltas = new TenantDeltas();
+            TenantDeltas existing = tenantDeltas.putIfAbsent(tenantId, deltas);
+            deltas = (existing == null) ? deltas : existing;
+        }
+        return deltas;
+    }
+
     @Override
     protected BridgeTable<String> buildCache(final String tenantId)
     {
@@ -112,6 +414,10 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
 
     private BridgeTable<String> doBuildCache(String tenantId)
     {
+        long start = System.currentTimeMillis();
+        TenantDeltas deltas = getTenantDeltas(tenantId);
+        // Changes committed from here on may not be seen by the query and are applied again afterwards
+        long startSequence = deltas.getSequence();
         List<AuthorityBridgeLink> links = authorityBridgeDAO.getAuthorityBridgeLinks();
         BridgeTable<String> bridgeTable = new BridgeTable<String>();
         try
@@ -128,6 +434,17 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
             // If cyclic groups is not the cause then rethrow
             throw e;
         }
+
+        if (incrementalRefresh)
+        {
+            synchronized (deltas)
+            {
+                tenantBridgeTables.put(tenantId, new TenantBridgeTable(bridgeTable, startSequence, start));
+                deltas.discardUpTo(startSequence);
+            }
+        }
+        lastFullRebuildTimeMs = System.currentTimeMillis() - start;
+        fullRebuildCount.incrementAndGet();
         return bridgeTable;
     }
 
@@ -236,6 +553,110 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCache extends  AbstractM
         }, false, true);
     }
 
+    /**
+     * A link change committed by a transaction
+     */
+    private static class LinkDelta
+    {
+        private final String tenantId;
+        private final boolean add;
+        private final String parentName;
+        private final String childName;
+        private long sequence;
+
+        private LinkDelta(String tenantId, boolean add, String parentName, String childName)
+        {
+            this.tenantId = tenantId;
+            this.add = add;
+            this.parentName = parentName;
+            this.childName = childName;
+        }
+    }
+
+    /**
+     * The committed link changes for a tenant, in commit order, that have not yet been seen by a full rebuild
+     */
+    private static class TenantDeltas
+    {
+        private final List<LinkDelta> deltas = new ArrayList<LinkDelta>();
+        private volatile long sequence = 0;
+
+        private long getSequence()
+        {
+            return sequence;
+        }
+
+        private synchronized void add(LinkDelta delta)
+        {
+            delta.sequence = ++sequence;
+            deltas.add(delta);
+        }
+
+        private synchronized List<LinkDelta> getAfter(long appliedSequence)
+        {
+            List<LinkDelta> after = new ArrayList<LinkDelta>();
+            for (LinkDelta delta : deltas)
+            {
+                if (delta.sequence > appliedSequence)
+                {
+                    after.add(delta);
+                }
+            }
+            return after;
+        }
+
+        private synchronized int countAfter(long appliedSequence)
+        {
+            return getAfter(appliedSequence).size();
+        }
+
+        private synchronized void discardUpTo(long seenSequence)
+        {
+            for (Iterator<LinkDelta> it = deltas.iterator(); it.hasNext(); /**/)
+            {
+                if (it.next().sequence <= seenSequence)
+                {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * A tenant's table and the last link change applied to it
+     */
+    private static class TenantBridgeTable
+    {
+        private final BridgeTable<String> bridgeTable;
+        private final long buildTime;
+        private volatile long appliedSequence;
+        private volatile int deltaCount;
+        private volatile boolean rebuildRequested;
+
+        private TenantBridgeTable(BridgeTable<String> bridgeTable, long appliedSequence, long buildTime)
+        {
+            this.bridgeTable = bridgeTable;
+            this.appliedSequence = appliedSequence;
+            this.buildTime = buildTime;
+        }
+    }
+
+    /**
+     * Publishes the link changes of a transaction once it has committed
+     */
+    private class LinkDeltaTransactionListener extends TransactionListenerAdapter
+    {
+        @Override
+        public void afterCommit()
+        {
+            List<LinkDelta> deltas = TransactionalResourceHelper.getList(KEY_LINK_DELTAS);
+            for (LinkDelta delta : deltas)
+            {
+                getTenantDeltas(delta.tenantId).add(delta);
+            }
+        }
+    }
+
     @Override
     public void afterPropertiesSet() throws Exception
     {
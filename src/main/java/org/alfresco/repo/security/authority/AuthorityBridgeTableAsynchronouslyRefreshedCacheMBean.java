@@ -0,0 +1,79 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.authority;
+
+/**
+ * Management interface for the refreshes of the {@link AuthorityBridgeTableAsynchronouslyRefreshedCache}.
+ * 
+ * @since 7.6
+ */
+public interface AuthorityBridgeTableAsynchronouslyRefreshedCacheMBean
+{
+    /**
+     * @return true if committed link changes are applied to the table without waiting for a rebuild
+     */
+    public boolean isIncrementalRefresh();
+    
+    /**
+     * @return the number of link changes applied to a table before it is rebuilt from the database
+     */
+    public int getMaxDeltasBeforeRebuild();
+    
+    /**
+     * @return the age in milliseconds after which a table is rebuilt from the database, or zero for no age limit
+     */
+    public long getRebuildIntervalMs();
+    
+    /**
+     * @return the number of times a table has been rebuilt from the database
+     */
+    public long getFullRebuildCount();
+    
+    /**
+     * @return the duration of the most recent rebuild from the database in milliseconds
+     */
+    public long getLastFullRebuildTimeMs();
+    
+    /**
+     * @return the number of times link changes have been applied to a table
+     */
+    public long getDeltaRefreshCount();
+    
+    /**
+     * @return the duration of the most recent application of link changes in milliseconds
+     */
+    public long getLastDeltaRefreshTimeMs();
+    
+    /**
+     * @return the total number of link changes applied to tables
+     */
+    public long getAppliedDeltaCount();
+    
+    /**
+     * @return the number of committed link changes that have not yet been applied to a table
+     */
+    public int getPendingDeltaCount();
+}
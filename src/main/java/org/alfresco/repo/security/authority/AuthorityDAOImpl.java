@@ -85,7 +85,6 @@ import org.alfresco.service.namespace.NamespacePrefixResolver;
 import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.service.namespace.RegexQNamePattern;
-import org.alfresco.util.BridgeTable;
 import org.alfresco.util.EqualsHelper;
 import org.alfresco.util.ISO9075;
 import org.alfresco.util.Pair;
@@ -367,8 +366,11 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         else
         {
+            for (NodeRef parentRef : parentRefs)
+            {
+                authorityBridgeTableCache.addLink(getAuthorityName(parentRef), childName);
+            }
             userAuthorityCache.clear();
-            authorityBridgeTableCache.refresh();
         }
     }
 
@@ -424,12 +426,48 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         }
         zoneAuthorityCache.remove(new Pair<String, String>(currentUserDomain, null));
         removeParentsFromChildAuthorityCache(nodeRef, false);
+        if (AuthorityType.getAuthorityType(name) != AuthorityType.USER)
+        {
+            recordBridgeTableLinks(nodeRef, name, false);
+        }
         
         nodeService.deleteNode(nodeRef);
         
         authorityLookupCache.remove(cacheKey(name));
         userAuthorityCache.clear();
-        authorityBridgeTableCache.refresh();
+    }
+    
+    /**
+     * Record, in the bridge table, the addition or removal of the links between an authority container and the
+     * containers that it belongs to or contains.
+     */
+    private void recordBridgeTableLinks(NodeRef nodeRef, String name, boolean add)
+    {
+        for (ChildAssociationRef car : nodeService.getParentAssocs(nodeRef, ContentModel.ASSOC_MEMBER, RegexQNamePattern.MATCH_ALL))
+        {
+            String parentName = getAuthorityName(car.getParentRef());
+            if (add)
+            {
+                authorityBridgeTableCache.addLink(parentName, name);
+            }
+            else
+            {
+                authorityBridgeTableCache.removeLink(parentName, name);
+            }
+        }
+        Pair<Map<NodeRef, String>, List<NodeRef>> childAuthorities = getChildAuthorities(nodeRef);
+        for (NodeRef childRef : childAuthorities.getSecond())
+        {
+            String childName = childAuthorities.getFirst().get(childRef);
+            if (add)
+            {
+                authorityBridgeTableCache.addLink(name, childName);
+            }
+            else
+            {
+                authorityBridgeTableCache.removeLink(name, childName);
+            }
+        }
     }
     
     public PagingResults<AuthorityInfo> getAuthoritiesInfo(AuthorityType type, String zoneName, String displayNameFilter, String sortBy, boolean sortAscending, PagingRequest pagingRequest)
@@ -808,7 +846,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
             userAuthorityCache.clear();
             if (cacheRefresh)
             {
-                authorityBridgeTableCache.refresh();
+                authorityBridgeTableCache.removeLink(getAuthorityName(parentRef), childName);
             }
         }
     }
@@ -818,8 +856,6 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
      */
     private void listAuthoritiesByBridgeTable(Set<String> authorities, String name)
     {
-        BridgeTable<String> bridgeTable = authorityBridgeTableCache.get();
-        
         AuthorityType type = AuthorityType.getAuthorityType(name);
         switch(type)
         {
@@ -835,7 +871,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
             for(AuthorityBridgeLink parent : parents)
             {
                 authorities.add(getPooledName(parent.getParentName()));
-                for (String ancestor : bridgeTable.getAncestors(parent.getParentName()))
+                for (String ancestor : authorityBridgeTableCache.getAncestors(parent.getParentName()))
                 {
                     authorities.add(getPooledName(ancestor));
                 }
@@ -844,7 +880,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         case GROUP:
         case OWNER:
         case ROLE:
-            for (String ancestor : bridgeTable.getAncestors(name))
+            for (String ancestor : authorityBridgeTableCache.getAncestors(name))
             {
                 authorities.add(getPooledName(ancestor));
             }
@@ -874,7 +910,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
             if (authorities == null)
             {
                 authorities = new TreeSet<String>();
-                if(useBridgeTable)
+                if(useBridgeTable && !authorityBridgeTableCache.isChangedByThisTransaction())
                 {
                     listAuthoritiesByBridgeTable(authorities, name);
                 }
@@ -902,7 +938,24 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
         else
         {
             Set<String> authorities = new TreeSet<String>();
-            listAuthorities(type, name, authorities, true, !immediate);
+            AuthorityType authorityType = AuthorityType.getAuthorityType(name);
+            // The bridge table does not see the changes made by this transaction until it commits
+            if (!immediate && useBridgeTable && (authorityType == AuthorityType.GROUP || authorityType == AuthorityType.ROLE)
+                    && !authorityBridgeTableCache.isChangedByThisTransaction())
+            {
+                if (getAuthorityOrNull(name) == null)
+                {
+                    throw new UnknownAuthorityException("An authority was not found for " + name);
+                }
+                for (String ancestor : authorityBridgeTableCache.getAncestors(name))
+                {
+                    addAuthorityNameIfMatches(authorities, getPooledName(ancestor), type);
+                }
+            }
+            else
+            {
+                listAuthorities(type, name, authorities, true, !immediate);
+            }
             return authorities;
         }
     }
@@ -1196,7 +1249,7 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
             negativeHits.add(getPooledName(authority));
             return false;
         }
-        if (authorityBridgeTableCache.isUpToDate())
+        if (useBridgeTable && !authorityBridgeTableCache.isChangedByThisTransaction())
         {
             return getContainingAuthorities(null, authorityToFind, false).contains(authority);
         }
@@ -1630,7 +1683,8 @@ public class AuthorityDAOImpl implements AuthorityDAO, NodeServicePolicies.Befor
                         }
                     }
                     authorityLookupCache.clear();
-                    authorityBridgeTableCache.refresh();
+                    recordBridgeTableLinks(nodeRef, authBefore, false);
+                    recordBridgeTableLinks(nodeRef, authAfter, true);
                     
                     // Cache is out of date
                     userAuthorityCache.clear();
@@ -30,6 +30,7 @@ import java.text.MessageFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.AbstractCollection;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -37,6 +38,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -45,6 +47,11 @@ import java.util.Set;
 import java.util.TimeZone;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.regex.Pattern;
 
 import javax.naming.CommunicationException;
@@ -99,6 +106,9 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
 
     public static final String NAMING_TIMEOUT_EXCEPTION_MESSAGE = "LDAP response read timed out";
 
+    /** The number of group members needing a directory lookup that are held before they are resolved. */
+    private static final int MEMBER_RESOLUTION_BATCH_SIZE = 5000;
+
     /** Is this bean active? I.e. should this part of the subsystem be used? */
     private boolean active = true;
 
@@ -172,6 +182,15 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
      */
     private int attributeBatchSize;
 
+    /**
+     * The number of threads, each with its own directory context, used to look up group members that can not be
+     * recognized from their distinguished name alone.
+     */
+    private int memberResolutionThreads = 4;
+
+    /** The thread pool used to look up group members, or <tt>null</tt> to look them up on the calling thread. */
+    private ThreadPoolExecutor memberResolutionThreadPool;
+
     /** Should we error on missing group members?. */
     private boolean errorOnMissingMembers;
 
@@ -510,6 +529,29 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
         this.attributeBatchSize = attributeBatchSize;
     }
 
+    /**
+     * Sets the number of threads used to look up group members.
+     * 
+     * @param memberResolutionThreads
+     *            the number of concurrent directory lookups of group members that can not be recognized from their
+     *            distinguished name alone
+     */
+    public void setMemberResolutionThreads(int memberResolutionThreads)
+    {
+        this.memberResolutionThreads = memberResolutionThreads;
+    }
+
+    /**
+     * Sets the thread pool used to look up group members.
+     * 
+     * @param memberResolutionThreadPool
+     *            the thread pool, or <tt>null</tt> to look up group members on the calling thread
+     */
+    public void setMemberResolutionThreadPool(ThreadPoolExecutor memberResolutionThreadPool)
+    {
+        this.memberResolutionThreadPool = memberResolutionThreadPool;
+    }
+
     public void setUserAccountStatusInterpreter(AbstractDirectoryServiceUserAccountStatusInterpreter userAccountStatusInterpreter)
     {
         this.userAccountStatusInterpreter = userAccountStatusInterpreter;
@@ -710,6 +752,9 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
 
         // Run the query and process the results
         final Map<String, NodeDescription> lookup = new TreeMap<String, NodeDescription>();
+        // Members that need a directory lookup, resolved in batches
+        final List<UnresolvedMember> unresolvedMembers = new LinkedList<UnresolvedMember>();
+        final Set<String> unresolvedDistinguishedNames = new LinkedHashSet<String>();
         processQuery(new AbstractSearchCallback()
         {
             // We get a whole new context to avoid interference with cookies from paged results
@@ -816,91 +861,19 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
                                     }
                                 }
 
-                                // If we can't determine the name and type from the DN alone, try a directory lookup
+                                // If we can't determine the name and type from the DN alone, look it up in the
+                                // directory later
                                 if (distinguishedNameForComparison.startsWith(userDistinguishedNamePrefix)
                                         || distinguishedNameForComparison.startsWith(groupDistinguishedNamePrefix))
                                 {
-                                    try
-                                    {
-                                        Attributes childAttributes = this.ctx.getAttributes(jndiName(attribute),
-                                                new String[]
-                                                {
-                                                    "objectclass", LDAPUserRegistry.this.groupIdAttributeName,
-                                                    LDAPUserRegistry.this.userIdAttributeName
-                                                });
-                                        Attribute objectClass = childAttributes.get("objectclass");
-                                        if (hasAttributeValue(objectClass, LDAPUserRegistry.this.personType))
-                                        {
-                                            nameAttribute = childAttributes
-                                                    .get(LDAPUserRegistry.this.userIdAttributeName);
-                                            if (nameAttribute == null)
-                                            {
-                                                if (LDAPUserRegistry.this.errorOnMissingUID)
-                                                {
-                                                    throw new AlfrescoRuntimeException(
-                                                            "User missing user id attribute DN =" + attribute
-                                                                    + "  att = "
-                                                                    + LDAPUserRegistry.this.userIdAttributeName);
-                                                }
-                                                else
-                                                {
-                                                    LDAPUserRegistry.logger.warn("User missing user id attribute DN ="
-                                                            + attribute + "  att = "
-                                                            + LDAPUserRegistry.this.userIdAttributeName);
-                                                    continue;
-                                                }
-                                            }
-                                            if (LDAPUserRegistry.logger.isDebugEnabled())
-                                            {
-                                                LDAPUserRegistry.logger.debug("User DN recognized by directory lookup: " + nameAttribute.get());
-                                            }
-                                            childAssocs.add((String) nameAttribute.get());
-                                            continue;
-                                        }
-                                        else if (hasAttributeValue(objectClass, LDAPUserRegistry.this.groupType))
-                                        {
-                                            nameAttribute = childAttributes
-                                                    .get(LDAPUserRegistry.this.groupIdAttributeName);
-                                            if (nameAttribute == null)
-                                            {
-                                                if (LDAPUserRegistry.this.errorOnMissingGID)
-                                                {
-                                                    Object[] params = {result.getNameInNamespace(), LDAPUserRegistry.this.groupIdAttributeName};
-                                                    throw new AlfrescoRuntimeException("synchronization.err.ldap.get.group.id.missing", params);
-                                                }
-                                                else
-                                                {
-                                                    LDAPUserRegistry.logger.warn("Missing GID on " + childAttributes);
-                                                    continue;
-                                                }
-                                            }
-                                            if (LDAPUserRegistry.logger.isDebugEnabled())
-                                            {
-                                                LDAPUserRegistry.logger.debug("Group DN recognized by directory lookup: " + "GROUP_" + nameAttribute.get());
-                                            }
-                                            childAssocs.add("GROUP_" + nameAttribute.get());
-                                            continue;
-                                        }
-                                    }
-                                    catch (NamingException e)
+                                    unresolvedMembers.add(new UnresolvedMember(group, groupShortName,
+                                            result.getNameInNamespace(), attribute));
+                                    unresolvedDistinguishedNames.add(attribute);
+                                    if (unresolvedMembers.size() >= LDAPUserRegistry.MEMBER_RESOLUTION_BATCH_SIZE)
                                     {
-                                        // Check if it is a timeout and fail
-                                        // MNT-17966
-                                        if (e.getMessage() != null && e.getMessage().startsWith(NAMING_TIMEOUT_EXCEPTION_MESSAGE))
-                                        {
-                                            Object[] params = {e.getLocalizedMessage() };
-                                            throw new AlfrescoRuntimeException("synchronization.err.ldap.search", params, e);
-                                        }
-                                        // Unresolvable name
-                                        if (LDAPUserRegistry.this.errorOnMissingMembers)
-                                        {
-                                            Object[] params = {groupShortName, attribute, e.getLocalizedMessage() };
-                                            throw new AlfrescoRuntimeException("synchronization.err.ldap.group.member.missing.exception", params, e);
-                                        }
-                                        LDAPUserRegistry.logger.warn("Failed to resolve member of group '"
-                                                + groupShortName + "' with distinguished name: " + attribute, e);
-                                        continue;
+                                        applyMemberResolutions(unresolvedMembers, unresolvedDistinguishedNames);
                                     }
+                                    continue;
                                 }
                                 if (LDAPUserRegistry.this.errorOnMissingMembers)
                                 {
@@ -951,6 +924,11 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
             }
         }, this.groupSearchBase, query, this.groupKeys.getFirst());
 
+        if (!unresolvedMembers.isEmpty())
+        {
+            applyMemberResolutions(unresolvedMembers, unresolvedDistinguishedNames);
+        }
+
         if (LDAPUserRegistry.logger.isDebugEnabled())
         {
             LDAPUserRegistry.logger.debug("Found " + lookup.size());
@@ -959,6 +937,292 @@ public class LDAPUserRegistry implements UserRegistry, LDAPNameResolver, Initial
         return lookup.values();
     }
 
+    /**
+     * Looks up a batch of group members in the directory and adds them to their groups. Each distinct member of the
+     * batch is looked up once, rather than once per group. Both collections are cleared afterwards.
+     * 
+     * @param unresolvedMembers
+     *            the group members that could not be recognized from their distinguished name alone
+     * @param unresolvedDistinguishedNames
+     *            the distinct distinguished names of those members
+     */
+    private void applyMemberResolutions(List<UnresolvedMember> unresolvedMembers, Set<String> unresolvedDistinguishedNames)
+    {
+        Map<String, MemberResolution> resolutions = resolveMembers(unresolvedDistinguishedNames);
+        for (UnresolvedMember member : unresolvedMembers)
+        {
+            MemberResolution resolution = resolutions.get(member.distinguishedName);
+            if (resolution.authorityName != null)
+            {
+                member.group.getChildAssociations().add(resolution.authorityName);
+                continue;
+            }
+            if (resolution == MemberResolution.MISSING_GID)
+            {
+                Object[] params = {member.groupDistinguishedName, this.groupIdAttributeName};
+                throw new AlfrescoRuntimeException("synchronization.err.ldap.get.group.id.missing", params);
+            }
+            if (resolution.reported)
+            {
+                continue;
+            }
+            if (resolution.exception != null)
+            {
+                // Unresolvable name
+                if (this.errorOnMissingMembers)
+                {
+                    Object[] params = {member.groupShortName, member.distinguishedName, resolution.exception.getLocalizedMessage() };
+                    throw new AlfrescoRuntimeException("synchronization.err.ldap.group.member.missing.exception", params, resolution.exception);
+                }
+                LDAPUserRegistry.logger.warn("Failed to resolve member of group '"
+                        + member.groupShortName + "' with distinguished name: " + member.distinguishedName, resolution.exception);
+                continue;
+            }
+            if (this.errorOnMissingMembers)
+            {
+                Object[] params = {member.groupShortName, member.distinguishedName};
+                throw new AlfrescoRuntimeException("synchronization.err.ldap.group.member.missing", params);
+            }
+            LDAPUserRegistry.logger.warn("Failed to resolve member of group '" + member.groupShortName
+                    + "' with distinguished name: " + member.distinguishedName);
+        }
+        unresolvedMembers.clear();
+        unresolvedDistinguishedNames.clear();
+    }
+
+    /**
+     * Looks up the given group members in the directory, using up to <code>memberResolutionThreads</code> threads, each
+     * with its own directory context. The lookups run on the calling thread if there is no thread pool.
+     * 
+     * @param distinguishedNames
+     *            the distinct distinguished names of the members
+     * @return the resolution of each distinguished name
+     */
+    private Map<String, MemberResolution> resolveMembers(Collection<String> distinguishedNames)
+    {
+        final List<String> toResolve = new ArrayList<String>(distinguishedNames);
+        final Map<String, MemberResolution> resolutions = new ConcurrentHashMap<String, MemberResolution>(toResolve.size() * 2);
+        // Don't start threads for a handful of lookups
+        final int threads = this.memberResolutionThreadPool == null ? 1 :
+                Math.max(1, Math.min(this.memberResolutionThreads, toResolve.size() / 100));
+        List<Callable<Void>> workers = new ArrayList<Callable<Void>>(threads);
+        for (int i = 0; i < threads; i++)
+        {
+            final int first = i;
+            workers.add(new Callable<Void>()
+            {
+                public Void call() throws Exception
+                {
+                    DirContext ctx = LDAPUserRegistry.this.ldapInitialContextFactory.getDefaultIntialDirContext();
+                    try
+                    {
+                        for (int j = first; j < toResolve.size(); j += threads)
+                        {
+                            String distinguishedName = toResolve.get(j);
+                            resolutions.put(distinguishedName, resolveMember(ctx, distinguishedName));
+                        }
+                    }
+                    finally
+                    {
+                        try
+                        {
+                            ctx.close();
+                        }
+                        catch (NamingException e)
+                        {
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        try
+        {
+            if (threads == 1)
+            {
+                workers.get(0).call();
+            }
+            else
+            {
+                if (LDAPUserRegistry.logger.isDebugEnabled())
+                {
+                    LDAPUserRegistry.logger.debug("Resolving " + toResolve.size() + " group members with " + threads + " threads");
+                }
+                List<Future<Void>> futures = this.memberResolutionThreadPool.invokeAll(workers);
+                try
+                {
+                    for (Future<Void> future : futures)
+                    {
+                        future.get();
+                    }
+                }
+                catch (ExecutionException e)
+                {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Exception)
+                    {
+                        throw (Exception) cause;
+                    }
+                    throw new AlfrescoRuntimeException("Failed to resolve group members", cause);
+                }
+                finally
+                {
+                    for (Future<Void> future : futures)
+                    {
+                        future.cancel(true);
+                    }
+                }
+            }
+        }
+        catch (RuntimeException e)
+        {
+            throw e;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new AlfrescoRuntimeException("Interrupted while resolving group members", e);
+        }
+        catch (Exception e)
+        {
+            Object[] params = {e.getLocalizedMessage()};
+            throw new AlfrescoRuntimeException("synchronization.err.ldap.search", params, e);
+        }
+        return resolutions;
+    }
+
+    /**
+     * Looks up the name and type of a group member in the directory.
+     */
+    private MemberResolution resolveMember(DirContext ctx, String attribute) throws NamingException
+    {
+        try
+        {
+            Attributes childAttributes = ctx.getAttributes(jndiName(attribute),
+                    new String[]
+                    {
+                        "objectclass", LDAPUserRegistry.this.groupIdAttributeName,
+                        LDAPUserRegistry.this.userIdAttributeName
+                    });
+            Attribute objectClass = childAttributes.get("objectclass");
+            Attribute nameAttribute;
+            if (hasAttributeValue(objectClass, LDAPUserRegistry.this.personType))
+            {
+                nameAttribute = childAttributes
+                        .get(LDAPUserRegistry.this.userIdAttributeName);
+                if (nameAttribute == null)
+                {
+                    if (LDAPUserRegistry.this.errorOnMissingUID)
+                    {
+                        throw new AlfrescoRuntimeException(
+                                "User missing user id attribute DN =" + attribute
+                                        + "  att = "
+                                        + LDAPUserRegistry.this.userIdAttributeName);
+                    }
+                    else
+                    {
+                        LDAPUserRegistry.logger.warn("User missing user id attribute DN ="
+                                + attribute + "  att = "
+                                + LDAPUserRegistry.this.userIdAttributeName);
+                        return MemberResolution.REPORTED;
+                    }
+                }
+                if (LDAPUserRegistry.logger.isDebugEnabled())
+                {
+                    LDAPUserRegistry.logger.debug("User DN recognized by directory lookup: " + nameAttribute.get());
+                }
+                return new MemberResolution((String) nameAttribute.get(), null);
+            }
+            else if (hasAttributeValue(objectClass, LDAPUserRegistry.this.groupType))
+            {
+                nameAttribute = childAttributes
+                        .get(LDAPUserRegistry.this.groupIdAttributeName);
+                if (nameAttribute == null)
+                {
+                    if (LDAPUserRegistry.this.errorOnMissingGID)
+                    {
+                        // Reported against the containing group, which is only known to the caller
+                        return MemberResolution.MISSING_GID;
+                    }
+                    else
+                    {
+                        LDAPUserRegistry.logger.warn("Missing GID on " + childAttributes);
+                        return MemberResolution.REPORTED;
+                    }
+                }
+                if (LDAPUserRegistry.logger.isDebugEnabled())
+                {
+                    LDAPUserRegistry.logger.debug("Group DN recognized by directory lookup: " + "GROUP_" + nameAttribute.get());
+                }
+                return new MemberResolution("GROUP_" + nameAttribute.get(), null);
+            }
+            return MemberResolution.UNRESOLVED;
+        }
+        catch (NamingException e)
+        {
+            // Check if it is a timeout and fail
+            // MNT-17966
+            if (e.getMessage() != null && e.getMessage().startsWith(NAMING_TIMEOUT_EXCEPTION_MESSAGE))
+            {
+                Object[] params = {e.getLocalizedMessage() };
+                throw new AlfrescoRuntimeException("synchronization.err.ldap.search", params, e);
+            }
+            return new MemberResolution(null, e);
+        }
+    }
+
+    /**
+     * A group member that could not be recognized from its distinguished name alone.
+     */
+    private static class UnresolvedMember
+    {
+        private final NodeDescription group;
+        private final String groupShortName;
+        private final String groupDistinguishedName;
+        private final String distinguishedName;
+
+        private UnresolvedMember(NodeDescription group, String groupShortName, String groupDistinguishedName,
+                String distinguishedName)
+        {
+            this.group = group;
+            this.groupShortName = groupShortName;
+            this.groupDistinguishedName = groupDistinguishedName;
+            this.distinguishedName = distinguishedName;
+        }
+    }
+
+    /**
+     * The result of looking up a group member in the directory.
+     */
+    private static class MemberResolution
+    {
+        /** Neither a person nor a group */
+        private static final MemberResolution UNRESOLVED = new MemberResolution(null, null);
+
+        /** A person or group without an id, which has already been reported */
+        private static final MemberResolution REPORTED = new MemberResolution(null, null, true);
+
+        /** A group without an id, which must fail the sync */
+        private static final MemberResolution MISSING_GID = new MemberResolution(null, null);
+
+        private final String authorityName;
+        private final NamingException exception;
+        private final boolean reported;
+
+        private MemberResolution(String authorityName, NamingException exception)
+        {
+            this(authorityName, exception, false);
+        }
+
+        private MemberResolution(String authorityName, NamingException exception, boolean reported)
+        {
+            this.authorityName = authorityName;
+            this.exception = exception;
+            this.reported = reported;
+        }
+    }
+
     /*
      * (non-Javadoc)
      * @see org.alfresco.repo.security.sync.ldap.LDAPNameResolver#resolveDistinguishedName(java.lang.String)
@@ -34,6 +34,7 @@ import org.alfresco.repo.forms.FormService;
 import org.alfresco.repo.i18n.MessageService;
 import org.alfresco.repo.imap.ImapService;
 import org.alfresco.repo.lock.JobLockService;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.nodelocator.NodeLocatorService;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.search.impl.solr.facet.SolrFacetHelper;
@@ -501,4 +502,11 @@ public class ServiceDescriptorRegistry
     {
         return (PolicyComponent)beanFactory.getBean(POLICY_COMPONENT.getLocalName());
     }
+    
+    @Override
+    public NodeBulkLoader getNodeBulkLoader()
+    {
+        final String beanName = "nodeDAO";
+        return (NodeBulkLoader) beanFactory.getBean(beanName);
+    }
 }
@@ -30,8 +30,14 @@ import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.regex.Pattern;
 
 import javax.transaction.UserTransaction;
@@ -41,6 +47,8 @@ import net.sf.acegisecurity.providers.encoding.PasswordEncoder;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.admin.RepoModelDefinition;
+import org.alfresco.repo.cache.CacheFactory;
+import org.alfresco.repo.cache.DefaultCacheFactory;
 import org.alfresco.repo.content.ContentStore;
 import org.alfresco.repo.content.ContentStoreCaps;
 import org.alfresco.repo.dictionary.DictionaryComponent;
@@ -82,7 +90,7 @@ import org.springframework.extensions.surf.util.ParameterCheck;
  * MT Admin Service Implementation.
  * 
  */
-public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationContextAware, InitializingBean
+public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationContextAware, InitializingBean, MultiTAdminServiceImplMBean
 {
     // Logger
     private static Log logger = LogFactory.getLog(MultiTAdminServiceImpl.class);
@@ -115,6 +123,31 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
 
     // Experimental: Thor
     private TenantRoutingDataSource trds;
+    
+    private CacheFactory<?, ?> cacheFactory;
+    
+    // Lazy bootstrap - enabled tenants are bootstrapped on first access rather than at startup
+    private boolean lazyTenantBootstrap = false;
+    private long idleTenantTimeoutMs = 0L;
+    
+    private final Map<String, TenantActivity> loadedTenants = new ConcurrentHashMap<String, TenantActivity>();
+    // held while a tenant is loaded, evicted or disabled
+    private final ConcurrentHashMap<String, ReentrantLock> tenantLocks = new ConcurrentHashMap<String, ReentrantLock>();
+    private final AtomicLong tenantLoadCount = new AtomicLong();
+    private final AtomicLong evictedTenantCount = new AtomicLong();
+    
+    // tenants being loaded or evicted by the current thread - so that nested access does not re-enter
+    private static final ThreadLocal<Set<String>> loadingTenants = new ThreadLocal<Set<String>>()
+    {
+        @Override
+        protected Set<String> initialValue()
+        {
+            return new HashSet<String>(4);
+        }
+    };
+    
+    // a loaded tenant is considered active if accessed within this period
+    private static final long ACTIVE_TENANT_PERIOD_MS = 5L * 60L * 1000L;
 
     /*
      * Tenant domain/ids are unique strings that are case-insensitive. Tenant ids must be valid filenames. 
@@ -242,6 +275,33 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
         this.contentRootContainerPath = contentRootContainerPath;
     }
     
+    /**
+     * @param cacheFactory          the factory of the caches from which the entries of a tenant are discarded
+     *                              when the tenant is deleted
+     */
+    public void setCacheFactory(CacheFactory<?, ?> cacheFactory)
+    {
+        this.cacheFactory = cacheFactory;
+    }
+    
+    /**
+     * @param lazyTenantBootstrap   if true then enabled tenants are not bootstrapped at startup
+     *                              but on first access (eg. authentication or run as tenant)
+     */
+    public void setLazyTenantBootstrap(boolean lazyTenantBootstrap)
+    {
+        this.lazyTenantBootstrap = lazyTenantBootstrap;
+    }
+    
+    /**
+     * @param idleTenantTimeoutMs   time after which the in-memory state of an idle, lazily bootstrapped
+     *                              tenant can be evicted (0 = never evict)
+     */
+    public void setIdleTenantTimeoutMs(long idleTenantTimeoutMs)
+    {
+        this.idleTenantTimeoutMs = idleTenantTimeoutMs;
+    }
+    
     public static final String PROTOCOL_STORE_USER = "user";
     public static final String PROTOCOL_STORE_WORKSPACE = "workspace";
     public static final String PROTOCOL_STORE_SYSTEM = "system";
@@ -319,6 +379,7 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
             
             int enabledCount = 0;
             int disabledCount = 0;
+            int deferredCount = 0;
             
             for (Tenant tenant : tenants)
             {
@@ -332,8 +393,16 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
                 
                 if (tenant.isEnabled())
                 {
-                    // notify tenant deployers registered so far ...
-                    notifyAfterEnableTenant(tenantDomain);
+                    if (lazyTenantBootstrap)
+                    {
+                        // defer until first access to the tenant
+                        deferredCount++;
+                    }
+                    else
+                    {
+                        // notify tenant deployers registered so far ...
+                        notifyAfterEnableTenant(tenantDomain);
+                    }
                     enabledCount++;
                 }
                 else
@@ -349,6 +418,17 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
             
             userTransaction.commit();
             
+            if (lazyTenantBootstrap)
+            {
+                tenantService.setTenantBootstrapper(this);
+                
+                if (logger.isInfoEnabled() && (deferredCount > 0))
+                {
+                    logger.info(String.format("Alfresco Multi-Tenant startup - bootstrap of %d enabled tenants deferred until first access",
+                                              deferredCount));
+                }
+            }
+            
             if ((enabledCount+disabledCount) == 0)
             {
                 AuthenticationUtil.setMtEnabled(false); // explicitly disable if there are no tenants
@@ -380,6 +460,8 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
     @Override
     public void stopTenants()
     {
+        tenantService.setTenantBootstrapper(null);
+        loadedTenants.clear();
         tenantDeployers.clear();
         tenantDeployers = null;
         AuthenticationUtil.setMtEnabled(false);
@@ -429,6 +511,9 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
             contentRootPath = defaultContentRoot;
         }
 
+        // the new tenant is initialised below
+        markTenantLoaded(tenantDomain);
+        
         initTenant(tenantDomain, contentRootPath, dbUrl);
         
         if ((dbUrl != null) && (trds != null))
@@ -562,6 +647,9 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
         
         AuthenticationUtil.setMtEnabled(true); // in case this is the 1st tenant
         
+        // the imported tenant is initialised below
+        markTenantLoaded(tenantDomain);
+        
         initTenant(tenantDomain, contentRoot, null);
         
         try
@@ -661,7 +749,15 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
         tenantUpdateEntity.setEnabled(true);
         tenantAdminDAO.updateTenant(tenantUpdateEntity);
         
-        notifyAfterEnableTenant(tenantDomain);
+        if (lazyTenantBootstrap)
+        {
+            // in its own transaction
+            onTenantAccess(tenantDomain);
+        }
+        else
+        {
+            notifyAfterEnableTenant(tenantDomain);
+        }
     }
     
     /**
@@ -706,12 +802,34 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
             logger.warn("Tenant already disabled: " + tenantDomain);
         }
         
-        notifyBeforeDisableTenant(tenantDomain);
-        
-        // update tenant attributes / tenant cache - need to disable after notifying listeners (else they cannot disable) 
-        TenantUpdateEntity tenantUpdateEntity = tenantAdminDAO.getTenantForUpdate(tenantDomain);
-        tenantUpdateEntity.setEnabled(false);
-        tenantAdminDAO.updateTenant(tenantUpdateEntity);
+        // lock out a concurrent load or eviction of a lazily bootstrapped tenant
+        ReentrantLock lock = lazyTenantBootstrap ? getTenantLock(tenantDomain) : null;
+        if (lock != null)
+        {
+            lock.lock();
+        }
+        try
+        {
+            // note: a lazily bootstrapped tenant that has not been loaded has nothing to disable
+            if ((! lazyTenantBootstrap) || loadedTenants.containsKey(tenantDomain))
+            {
+                notifyBeforeDisableTenant(tenantDomain);
+            }
+            
+            // update tenant attributes / tenant cache - need to disable after notifying listeners (else they cannot disable) 
+            TenantUpdateEntity tenantUpdateEntity = tenantAdminDAO.getTenantForUpdate(tenantDomain);
+            tenantUpdateEntity.setEnabled(false);
+            tenantAdminDAO.updateTenant(tenantUpdateEntity);
+            
+            loadedTenants.remove(tenantDomain);
+        }
+        finally
+        {
+            if (lock != null)
+            {
+                lock.unlock();
+            }
+        }
     }
     
     private void notifyBeforeDisableTenant(String tenantDomain)
@@ -852,6 +970,15 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
                 
                 // remove tenant
                 tenantAdminDAO.deleteTenant(tenantDomain);
+                
+                loadedTenants.remove(tenantDomain);
+                tenantLocks.remove(tenantDomain);
+                tenantService.clearNameCaches();
+                // note: only the default cache factory partitions caches by tenant
+                if (cacheFactory instanceof DefaultCacheFactory)
+                {
+                    ((DefaultCacheFactory<?, ?>) cacheFactory).removeTenantPartitions(tenantDomain);
+                }
             } 
             catch (Throwable t)
             {
@@ -1145,7 +1272,8 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
             
             for (Tenant tenant : tenants)
             {
-                if (tenant.isEnabled())
+                // note: a lazily bootstrapped tenant will be deployed when it is first accessed
+                if (tenant.isEnabled() && isTenantLoaded(tenant.getTenantDomain()))
                 {
                     try
                     {
@@ -1213,7 +1341,7 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
                 AuthenticationUtil.pushAuthentication();
                 for (Tenant tenant : tenants)
                 {
-                    if (tenant.isEnabled())
+                    if (tenant.isEnabled() && isTenantLoaded(tenant.getTenantDomain()))
                     {
                         try
                         {
@@ -1488,4 +1616,291 @@ public class MultiTAdminServiceImpl implements TenantAdminService, ApplicationCo
         ParameterCheck.mandatory("tenantDomain", tenantDomain);
         return tenantDomain.toLowerCase(I18NUtil.getLocale());
     }
+    
+    /**
+     * Called by the tenant service whenever an enabled tenant is accessed, if tenants are bootstrapped lazily.
+     * Bootstraps the tenant on first access. A tenant that is already loaded is only marked as accessed,
+     * without taking its lock, as this is called every time a tenant-specific name is resolved.
+     */
+    void onTenantAccess(String tenantDomain)
+    {
+        TenantActivity activity = loadedTenants.get(tenantDomain);
+        if (activity == null)
+        {
+            tenantDomain = getTenantDomain(tenantDomain);
+            activity = loadedTenants.get(tenantDomain);
+        }
+        
+        if (activity != null)
+        {
+            activity.touch();
+            return;
+        }
+        
+        if (loadingTenants.get().contains(tenantDomain))
+        {
+            // being loaded or evicted by the current thread
+            return;
+        }
+        
+        ReentrantLock lock = getTenantLock(tenantDomain);
+        lock.lock();
+        try
+        {
+            // re-check - may have been loaded while waiting for the lock
+            if (! loadedTenants.containsKey(tenantDomain))
+            {
+                loadTenant(tenantDomain);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+    }
+    
+    private boolean isTenantLoaded(String tenantDomain)
+    {
+        return (! lazyTenantBootstrap) || loadedTenants.containsKey(getTenantDomain(tenantDomain));
+    }
+    
+    private void markTenantLoaded(String tenantDomain)
+    {
+        if (lazyTenantBootstrap)
+        {
+            loadedTenants.put(tenantDomain, new TenantActivity());
+        }
+    }
+    
+    private ReentrantLock getTenantLock(String tenantDomain)
+    {
+        ReentrantLock lock = tenantLocks.get(tenantDomain);
+        if (lock == null)
+        {
+            ReentrantLock newLock = new ReentrantLock();
+            lock = tenantLocks.putIfAbsent(tenantDomain, newLock);
+            if (lock == null)
+            {
+                lock = newLock;
+            }
+        }
+        return lock;
+    }
+    
+    /**
+     * Bootstrap a lazily bootstrapped tenant, by notifying the {@link TenantDeployer TenantDeployers}. The caller
+     * must hold the lock of the tenant.
+     * <p>
+     * The deployers run in a new writable transaction, as the transaction that first accesses the tenant
+     * may be read-only.
+     * 
+     * @param tenantDomain          the tenant domain
+     */
+    private void loadTenant(final String tenantDomain)
+    {
+        long start = System.currentTimeMillis();
+        
+        Set<String> loading = loadingTenants.get();
+        loading.add(tenantDomain);
+        try
+        {
+            RetryingTransactionCallback<Object> loadCallback = new RetryingTransactionCallback<Object>()
+            {
+                public Object execute() throws Throwable
+                {
+                    notifyAfterEnableTenant(tenantDomain);
+                    return null;
+                }
+            };
+            transactionService.getRetryingTransactionHelper().doInTransaction(loadCallback, false, true);
+            
+            loadedTenants.put(tenantDomain, new TenantActivity());
+            tenantLoadCount.incrementAndGet();
+        }
+        finally
+        {
+            loading.remove(tenantDomain);
+        }
+        
+        if (logger.isInfoEnabled())
+        {
+            logger.info("Tenant bootstrapped on first access: " + tenantDomain + " in "+(System.currentTimeMillis()-start)+" ms");
+        }
+    }
+    
+    @Override
+    public int evictIdleTenants()
+    {
+        if ((! lazyTenantBootstrap) || (idleTenantTimeoutMs <= 0L))
+        {
+            return 0;
+        }
+        
+        int count = 0;
+        long now = System.currentTimeMillis();
+        
+        for (Map.Entry<String, TenantActivity> entry : loadedTenants.entrySet())
+        {
+            if ((now - entry.getValue().getLastAccessed()) > idleTenantTimeoutMs)
+            {
+                try
+                {
+                    if (evictTenant(entry.getKey(), now))
+                    {
+                        count++;
+                    }
+                }
+                catch (Throwable e)
+                {
+                    // tenant eviction failure should not affect other tenants
+                    logger.error("Failed to evict idle tenant: " + entry.getKey(), e);
+                }
+            }
+        }
+        
+        if (logger.isDebugEnabled() && (count > 0))
+        {
+            logger.debug("Evicted " + count + " idle tenants");
+        }
+        
+        return count;
+    }
+    
+    /**
+     * Evict the in-memory state of an idle tenant, by notifying the {@link TenantDeployer TenantDeployers}.
+     * The tenant remains enabled and will be bootstrapped again on next access. A tenant that has been
+     * accessed within the idle timeout, or that is being loaded or disabled, is not evicted.
+     */
+    private boolean evictTenant(final String tenantDomain, long now)
+    {
+        ReentrantLock lock = getTenantLock(tenantDomain);
+        if (! lock.tryLock())
+        {
+            // being loaded or disabled
+            return false;
+        }
+        
+        Set<String> loading = loadingTenants.get();
+        try
+        {
+            // re-check - may have been accessed meanwhile
+            TenantActivity activity = loadedTenants.get(tenantDomain);
+            if ((activity == null) || ((now - activity.getLastAccessed()) <= idleTenantTimeoutMs))
+            {
+                return false;
+            }
+            
+            loadedTenants.remove(tenantDomain);
+            
+            loading.add(tenantDomain);
+            try
+            {
+                RetryingTransactionCallback<Object> evictCallback = new RetryingTransactionCallback<Object>()
+                {
+                    public Object execute() throws Throwable
+                    {
+                        return TenantUtil.runAsSystemTenant(new TenantRunAsWork<Object>()
+                        {
+                            public Object doWork()
+                            {
+                                for (TenantDeployer tenantDeployer : tenantDeployers)
+                                {
+                                    tenantDeployer.onDisableTenant();
+                                }
+                                return null;
+                            }
+                        }, tenantDomain);
+                    }
+                };
+                transactionService.getRetryingTransactionHelper().doInTransaction(evictCallback, transactionService.isReadOnly(), true);
+                
+                evictedTenantCount.incrementAndGet();
+            }
+            finally
+            {
+                loading.remove(tenantDomain);
+            }
+        }
+        finally
+        {
+            lock.unlock();
+        }
+        
+        if (logger.isInfoEnabled())
+        {
+            logger.info("Idle tenant evicted: " + tenantDomain);
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public boolean isLazyTenantBootstrap()
+    {
+        return lazyTenantBootstrap;
+    }
+    
+    @Override
+    public long getIdleTenantTimeoutMs()
+    {
+        return idleTenantTimeoutMs;
+    }
+    
+    @Override
+    public int getActiveTenantCount()
+    {
+        int count = 0;
+        long now = System.currentTimeMillis();
+        for (TenantActivity activity : loadedTenants.values())
+        {
+            if ((now - activity.getLastAccessed()) <= ACTIVE_TENANT_PERIOD_MS)
+            {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    @Override
+    public int getLoadedTenantCount()
+    {
+        return loadedTenants.size();
+    }
+    
+    @Override
+    public long getTenantLoadCount()
+    {
+        return tenantLoadCount.get();
+    }
+    
+    @Override
+    public long getEvictedTenantCount()
+    {
+        return evictedTenantCount.get();
+    }
+    
+    /**
+     * Last access time of a loaded tenant
+     */
+    private static class TenantActivity
+    {
+        // updated at most once per second - to avoid contention on frequently accessed tenants
+        private static final long TOUCH_RESOLUTION_MS = 1000L;
+        
+        private volatile long lastAccessed = System.currentTimeMillis();
+        
+        void touch()
+        {
+            long now = System.currentTimeMillis();
+            if ((now - lastAccessed) > TOUCH_RESOLUTION_MS)
+            {
+                lastAccessed = now;
+            }
+        }
+        
+        long getLastAccessed()
+        {
+            return lastAccessed;
+        }
+    }
 }
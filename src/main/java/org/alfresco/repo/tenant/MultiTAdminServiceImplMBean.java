@@ -0,0 +1,71 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.tenant;
+
+/**
+ * Management interface for the lazy bootstrap of tenants by the {@link MultiTAdminServiceImpl}.
+ * 
+ * @since 7.6
+ */
+public interface MultiTAdminServiceImplMBean
+{
+    /**
+     * @return true if tenants are bootstrapped on first access rather than at startup
+     */
+    public boolean isLazyTenantBootstrap();
+    
+    /**
+     * @return the time after which an idle tenant is evicted, or 0 if tenants are never evicted
+     */
+    public long getIdleTenantTimeoutMs();
+    
+    /**
+     * @return the number of loaded tenants that have been accessed recently
+     */
+    public int getActiveTenantCount();
+    
+    /**
+     * @return the number of tenants currently loaded
+     */
+    public int getLoadedTenantCount();
+    
+    /**
+     * @return the number of times a tenant has been loaded on first access
+     */
+    public long getTenantLoadCount();
+    
+    /**
+     * @return the number of times an idle tenant has been evicted
+     */
+    public long getEvictedTenantCount();
+    
+    /**
+     * Evict the loaded tenants that have been idle for longer than the idle timeout.
+     * 
+     * @return the number of tenants evicted
+     */
+    public int evictIdleTenants();
+}
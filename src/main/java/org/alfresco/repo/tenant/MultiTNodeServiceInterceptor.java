@@ -113,6 +113,12 @@ public class MultiTNodeServiceInterceptor extends DelegatingIntroductionIntercep
 
         String methodName = invocation.getMethod().getName();
         
+        // Non-tenant (default domain) context - references pass through unchanged, apart from the listed stores
+        if (tenantService.getCurrentUserDomain().equals(TenantService.DEFAULT_DOMAIN) && !methodName.equals("getStores"))
+        {
+            return invocation.proceed();
+        }
+        
         if (logger.isTraceEnabled())
         {
             logger.trace("Intercepting method " + methodName);
@@ -266,30 +272,7 @@ public class MultiTNodeServiceInterceptor extends DelegatingIntroductionIntercep
      */
     private Collection<Object> convertOutboundValues(Collection<Object> rawValues)
     {
-        /*
-         * Return types can be Lists or Sets, so cater for both.
-         */
-        final Collection<Object> convertedValues;
-        if (rawValues instanceof List)
-        {
-            convertedValues = new ArrayList<Object>(rawValues.size());
-        }
-        else if (rawValues instanceof Set)
-        {
-            convertedValues = new HashSet<Object>(rawValues.size(), 1.0F);
-        }
-        else
-        {
-            throw new IllegalArgumentException("Interceptor can only handle List and Set return types.");
-        }
-        
-        for (Object rawValue : rawValues)
-        {
-            Object convertedValue = convertOutboundValue(rawValue);
-            convertedValues.add(convertedValue);
-        }
-        // Done
-        return convertedValues;
+        return convertValues(rawValues, false);
     }
     
     /**
@@ -353,31 +336,53 @@ public class MultiTNodeServiceInterceptor extends DelegatingIntroductionIntercep
      * Convert inbound collection to non-spoofed (ie. with tenant prefix) values.
      */
     private Collection<Object> convertInboundValues(Collection<Object> rawValues)
+    {
+        return convertValues(rawValues, true);
+    }
+    
+    /**
+     * Convert a collection of values.  The collection is only copied if at least one value is converted.
+     */
+    private Collection<Object> convertValues(Collection<Object> rawValues, boolean inbound)
     {
         /*
          * Return types can be Lists or Sets, so cater for both.
          */
-        final Collection<Object> convertedValues;
-        if (rawValues instanceof List)
-        {
-            convertedValues = new ArrayList<Object>(rawValues.size());
-        }
-        else if (rawValues instanceof Set)
-        {
-            convertedValues = new HashSet<Object>(rawValues.size(), 1.0F);
-        }
-        else
+        if (!(rawValues instanceof List) && !(rawValues instanceof Set))
         {
             throw new IllegalArgumentException("Interceptor can only handle List and Set return types.");
         }
         
+        Collection<Object> convertedValues = null;
+        int count = 0;
         for (Object rawValue : rawValues)
         {
-            Object convertedValue = convertInboundValue(rawValue);
-            convertedValues.add(convertedValue);
+            Object convertedValue = (inbound ? convertInboundValue(rawValue) : convertOutboundValue(rawValue));
+            if ((convertedValues == null) && (convertedValue != rawValue))
+            {
+                // first converted value - copy the (unchanged) values so far
+                if (rawValues instanceof List)
+                {
+                    convertedValues = new ArrayList<Object>(rawValues.size());
+                }
+                else
+                {
+                    convertedValues = new HashSet<Object>(rawValues.size(), 1.0F);
+                }
+                Iterator<Object> itr = rawValues.iterator();
+                for (int i = 0; i < count; i++)
+                {
+                    convertedValues.add(itr.next());
+                }
+            }
+            if (convertedValues != null)
+            {
+                convertedValues.add(convertedValue);
+            }
+            count++;
         }
         // Done
-        return convertedValues;
+        return (convertedValues != null ? convertedValues : rawValues);
     }
     
     /**
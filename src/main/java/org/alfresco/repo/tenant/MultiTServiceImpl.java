@@ -28,6 +28,8 @@ package org.alfresco.repo.tenant;
 import java.util.List;
 
 import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.domain.tenant.TenantAdminDAO;
 import org.alfresco.repo.domain.tenant.TenantEntity;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
@@ -39,6 +41,7 @@ import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.cmr.search.SearchService;
 import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
+import org.alfresco.util.Pair;
 import org.alfresco.util.ParameterCheck;
 import org.springframework.extensions.surf.util.I18NUtil;
 
@@ -52,13 +55,36 @@ import org.springframework.extensions.surf.util.I18NUtil;
  */
 public class MultiTServiceImpl implements TenantService
 {
+    // bound on the number of names held by each of the name caches below
+    private static final int MAX_CACHED_NAMES = 10000;
+
     private TenantAdminDAO tenantAdminDAO;
+    private volatile MultiTAdminServiceImpl tenantBootstrapper;
+
+    // tenant-qualified stores and qnames, keyed by tenant domain and base store/qname - to avoid re-creating them on every call
+    // note: the least recently used names are dropped, so that rarely used names (eg. child assoc qnames) do not crowd out the rest
+    private final SimpleCache<Pair<String, StoreRef>, StoreRef> tenantStoreRefs =
+            new DefaultSimpleCache<Pair<String, StoreRef>, StoreRef>(MAX_CACHED_NAMES, "tenantStoreRefs");
+    private final SimpleCache<Pair<String, QName>, QName> tenantQNames =
+            new DefaultSimpleCache<Pair<String, QName>, QName>(MAX_CACHED_NAMES, "tenantQNames");
+    // base stores and qnames, keyed by the tenant-qualified store/qname
+    private final SimpleCache<StoreRef, StoreRef> baseStoreRefs = new DefaultSimpleCache<StoreRef, StoreRef>(MAX_CACHED_NAMES, "baseStoreRefs");
+    private final SimpleCache<QName, QName> baseQNames = new DefaultSimpleCache<QName, QName>(MAX_CACHED_NAMES, "baseQNames");
 
     public void setTenantAdminDAO(TenantAdminDAO tenantAdminDAO)
     {
         this.tenantAdminDAO = tenantAdminDAO;
     }
 
+    /**
+     * Set by the tenant admin service when tenants are bootstrapped lazily, so that a tenant is
+     * bootstrapped the first time it is accessed.
+     */
+    void setTenantBootstrapper(MultiTAdminServiceImpl tenantBootstrapper)
+    {
+        this.tenantBootstrapper = tenantBootstrapper;
+    }
+
     @Override
     public NodeRef getName(NodeRef nodeRef)
     {
@@ -67,7 +93,14 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
-        return new NodeRef(nodeRef.getStoreRef().getProtocol(), getName(nodeRef.getStoreRef().getIdentifier()), nodeRef.getId());
+        StoreRef storeRef = nodeRef.getStoreRef();
+        StoreRef tenantStoreRef = getName(storeRef);
+        if (tenantStoreRef == storeRef)
+        {
+            // non-tenant context or already tenant-qualified
+            return nodeRef;
+        }
+        return new NodeRef(tenantStoreRef, nodeRef.getId());
     }
 
     @Override
@@ -96,7 +129,22 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
-        return new StoreRef(storeRef.getProtocol(), getName(storeRef.getIdentifier()));
+        String tenantDomain = getCurrentUserDomain();
+        if (tenantDomain.equals(DEFAULT_DOMAIN))
+        {
+            return storeRef;
+        }
+
+        Pair<String, StoreRef> key = new Pair<String, StoreRef>(tenantDomain, storeRef);
+        StoreRef tenantStoreRef = tenantStoreRefs.get(key);
+        if (tenantStoreRef == null)
+        {
+            String identifier = storeRef.getIdentifier();
+            String tenantIdentifier = getName(identifier, tenantDomain, false);
+            tenantStoreRef = (tenantIdentifier == identifier) ? storeRef : new StoreRef(storeRef.getProtocol(), tenantIdentifier);
+            tenantStoreRefs.put(key, tenantStoreRef);
+        }
+        return tenantStoreRef;
     }
 
     @Override
@@ -107,11 +155,20 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
+        NodeRef parentRef = childAssocRef.getParentRef();
+        NodeRef childRef = childAssocRef.getChildRef();
+        NodeRef tenantParentRef = getName(parentRef);
+        NodeRef tenantChildRef = getName(childRef);
+        if ((tenantParentRef == parentRef) && (tenantChildRef == childRef))
+        {
+            return childAssocRef;
+        }
+
         return new ChildAssociationRef(
                 childAssocRef.getTypeQName(),
-                getName(childAssocRef.getParentRef()),
+                tenantParentRef,
                 childAssocRef.getQName(),
-                getName(childAssocRef.getChildRef()),
+                tenantChildRef,
                 childAssocRef.isPrimary(),
                 childAssocRef.getNthSibling());
     }
@@ -124,10 +181,19 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
+        NodeRef sourceRef = assocRef.getSourceRef();
+        NodeRef targetRef = assocRef.getTargetRef();
+        NodeRef tenantSourceRef = getName(sourceRef);
+        NodeRef tenantTargetRef = getName(targetRef);
+        if ((tenantSourceRef == sourceRef) && (tenantTargetRef == targetRef))
+        {
+            return assocRef;
+        }
+
         return new AssociationRef(assocRef.getId(),
-                getName(assocRef.getSourceRef()),
+                tenantSourceRef,
                 assocRef.getTypeQName(),
-                getName(assocRef.getTargetRef()));
+                tenantTargetRef);
     }
 
     @Override
@@ -244,9 +310,16 @@ public class MultiTServiceImpl implements TenantService
         int idx1 = namespace.indexOf(SEPARATOR);
         if (idx1 == -1)
         {
-            // no domain, so add it as a prefix (between two domain separators)
-            namespace = SEPARATOR + tenantDomain + SEPARATOR + namespace;
-            name = QName.createQName(namespace, name.getLocalName());
+            Pair<String, QName> key = new Pair<String, QName>(tenantDomain, name);
+            QName tenantName = tenantQNames.get(key);
+            if (tenantName == null)
+            {
+                // no domain, so add it as a prefix (between two domain separators)
+                namespace = SEPARATOR + tenantDomain + SEPARATOR + namespace;
+                tenantName = QName.createQName(namespace, name.getLocalName());
+                tenantQNames.put(key, tenantName);
+            }
+            name = tenantName;
         }
         else
         {
@@ -296,8 +369,20 @@ public class MultiTServiceImpl implements TenantService
     @Override
     public QName getBaseName(QName name, boolean forceForNonTenant)
     {
-        String baseNamespaceURI = getBaseName(name.getNamespaceURI(), forceForNonTenant);
-        return QName.createQName(baseNamespaceURI, name.getLocalName());
+        String namespaceURI = name.getNamespaceURI();
+        int idx = getTenantPrefixEnd(namespaceURI, forceForNonTenant);
+        if (idx == -1)
+        {
+            return name;
+        }
+
+        QName baseName = baseQNames.get(name);
+        if (baseName == null)
+        {
+            baseName = QName.createQName(namespaceURI.substring(idx + 1), name.getLocalName());
+            baseQNames.put(name, baseName);
+        }
+        return baseName;
     }
 
     @Override
@@ -313,7 +398,13 @@ public class MultiTServiceImpl implements TenantService
         {
             return null;
         }
-        return new NodeRef(nodeRef.getStoreRef().getProtocol(), getBaseName(nodeRef.getStoreRef().getIdentifier(), forceForNonTenant), nodeRef.getId());
+        StoreRef storeRef = nodeRef.getStoreRef();
+        StoreRef baseStoreRef = getBaseName(storeRef, forceForNonTenant);
+        if (baseStoreRef == storeRef)
+        {
+            return nodeRef;
+        }
+        return new NodeRef(baseStoreRef, nodeRef.getId());
     }
 
     @Override
@@ -324,7 +415,25 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
-        return new StoreRef(storeRef.getProtocol(), getBaseName(storeRef.getIdentifier()));
+        return getBaseName(storeRef, false);
+    }
+
+    private StoreRef getBaseName(StoreRef storeRef, boolean forceForNonTenant)
+    {
+        String identifier = storeRef.getIdentifier();
+        int idx = getTenantPrefixEnd(identifier, forceForNonTenant);
+        if (idx == -1)
+        {
+            return storeRef;
+        }
+
+        StoreRef baseStoreRef = baseStoreRefs.get(storeRef);
+        if (baseStoreRef == null)
+        {
+            baseStoreRef = new StoreRef(storeRef.getProtocol(), identifier.substring(idx + 1));
+            baseStoreRefs.put(storeRef, baseStoreRef);
+        }
+        return baseStoreRef;
     }
 
     @Override
@@ -341,11 +450,20 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
+        NodeRef parentRef = childAssocRef.getParentRef();
+        NodeRef childRef = childAssocRef.getChildRef();
+        NodeRef baseParentRef = getBaseName(parentRef, forceForNonTenant);
+        NodeRef baseChildRef = getBaseName(childRef, forceForNonTenant);
+        if ((baseParentRef == parentRef) && (baseChildRef == childRef))
+        {
+            return childAssocRef;
+        }
+
         return new ChildAssociationRef(
                 childAssocRef.getTypeQName(),
-                getBaseName(childAssocRef.getParentRef(), forceForNonTenant),
+                baseParentRef,
                 childAssocRef.getQName(),
-                getBaseName(childAssocRef.getChildRef(), forceForNonTenant),
+                baseChildRef,
                 childAssocRef.isPrimary(),
                 childAssocRef.getNthSibling());
     }
@@ -358,10 +476,19 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
+        NodeRef sourceRef = assocRef.getSourceRef();
+        NodeRef targetRef = assocRef.getTargetRef();
+        NodeRef baseSourceRef = getBaseName(sourceRef);
+        NodeRef baseTargetRef = getBaseName(targetRef);
+        if ((baseSourceRef == sourceRef) && (baseTargetRef == targetRef))
+        {
+            return assocRef;
+        }
+
         return new AssociationRef(assocRef.getId(),
-                getBaseName(assocRef.getSourceRef()),
+                baseSourceRef,
                 assocRef.getTypeQName(),
-                getBaseName(assocRef.getTargetRef()));
+                baseTargetRef);
     }
 
     @Override
@@ -379,27 +506,49 @@ public class MultiTServiceImpl implements TenantService
             return null;
         }
 
-        String tenantDomain = getCurrentUserDomain();
+        int idx = getTenantPrefixEnd(name, forceForNonTenant);
+        if (idx != -1)
+        {
+            // remove tenant domain
+            name = name.substring(idx + 1);
+        }
 
-        int idx1 = name.indexOf(SEPARATOR);
-        if (idx1 == 0)
+        return name;
+    }
+
+    /**
+     * Check the tenant domain prefix (if any) of the given name against the current domain, without allocating.
+     * 
+     * @return the index of the separator that ends the tenant domain prefix, if the prefix should be removed, else -1
+     */
+    private int getTenantPrefixEnd(String name, boolean forceForNonTenant)
+    {
+        if (!name.startsWith(SEPARATOR))
         {
-            int idx2 = name.indexOf(SEPARATOR, 1);
-            String nameDomain = name.substring(1, idx2);
+            return -1;
+        }
 
-            if ((!tenantDomain.equals(DEFAULT_DOMAIN)) && (!tenantDomain.equals(nameDomain)))
-            {
-                throw new AlfrescoRuntimeException("domain mismatch: expected = " + tenantDomain + ", actual = " + nameDomain);
-            }
+        int idx2 = name.indexOf(SEPARATOR, 1);
+        String tenantDomain = getCurrentUserDomain();
+        boolean isDefaultDomain = tenantDomain.equals(DEFAULT_DOMAIN);
 
-            if ((!tenantDomain.equals(DEFAULT_DOMAIN)) || (forceForNonTenant))
-            {
-                // remove tenant domain
-                name = name.substring(idx2 + 1);
-            }
+        if ((!isDefaultDomain) && ((idx2 - 1 != tenantDomain.length()) || (!name.startsWith(tenantDomain, 1))))
+        {
+            throw new AlfrescoRuntimeException("domain mismatch: expected = " + tenantDomain + ", actual = " + name.substring(1, idx2));
         }
 
-        return name;
+        return ((!isDefaultDomain) || (forceForNonTenant)) ? idx2 : -1;
+    }
+
+    /**
+     * Drop the cached tenant-qualified and base names, eg. when a tenant is deleted
+     */
+    void clearNameCaches()
+    {
+        tenantStoreRefs.clear();
+        tenantQNames.clear();
+        baseStoreRefs.clear();
+        baseQNames.clear();
     }
 
     public String getBaseNameUser(String name)
@@ -741,6 +890,13 @@ public class MultiTServiceImpl implements TenantService
         {
             throw new TenantDisabledException(tenantDomain);
         }
+        
+        MultiTAdminServiceImpl bootstrapper = tenantBootstrapper;
+        if (bootstrapper != null && tenant.isEnabled())
+        {
+            // first access to a lazily bootstrapped tenant
+            bootstrapper.onTenantAccess(tenantDomain);
+        }
     }
 
     @Override
@@ -0,0 +1,187 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transaction;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.alfresco.error.ExceptionStackUtil;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.JdbcUpdateAffectedIncorrectNumberOfRowsException;
+
+/**
+ * Schedules the retries of the {@link RetryingTransactionHelper} according to what caused them.
+ * <p/>
+ * When many transactions fight over the same rows (many users adding documents to the same folder,
+ * for example) a plain increasing wait lets all the losers come back at roughly the same time and
+ * collide again.  This scheduler classifies the cause of each retry and:
+ * <ul>
+ *   <li>waits for a jittered, exponentially increasing time between the minimum and maximum retry wait,
+ *       which spreads the losers out without holding anything while they retry</li>
+ *   <li>counts the retries by cause (see {@link ContendedRetrySchedulerMBean})</li>
+ * </ul>
+ * Retries are not serialized: the cause of a retry does not identify the row that was fought over,
+ * so any queuing would hold up unrelated work.
+ * 
+ * @since 7.6
+ */
+public class ContendedRetryScheduler implements ContendedRetrySchedulerMBean
+{
+    private static final int MAX_BACKOFF_SHIFT = 16;
+
+    /**
+     * The classification of retry causes
+     */
+    public enum RetryCause
+    {
+        /** A row was changed or removed by another transaction */
+        OPTIMISTIC_LOCK,
+        /** Another transaction created the same unique key e.g. a child with the same name */
+        UNIQUE_CONSTRAINT,
+        /** The database chose this transaction as a deadlock victim */
+        DEADLOCK,
+        /** Anything else that is retryable */
+        OTHER
+    }
+
+    private boolean enabled;
+
+    private final AtomicLongArray retryCounts = new AtomicLongArray(RetryCause.values().length);
+
+    /**
+     * Default constructor.  The scheduler is disabled.
+     */
+    public ContendedRetryScheduler()
+    {
+        this.enabled = false;
+    }
+
+    /**
+     * @param enabled           <tt>true</tt> to let the {@link RetryingTransactionHelper} use this scheduler
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Classify a retry cause as found by {@link RetryingTransactionHelper#extractRetryCause(Throwable)}
+     * 
+     * @param retryCause        the exception that caused the retry
+     * @return                  the classification of the cause
+     */
+    public static RetryCause classify(Throwable retryCause)
+    {
+        if (ExceptionStackUtil.getCause(retryCause, DeadlockLoserDataAccessException.class) != null)
+        {
+            return RetryCause.DEADLOCK;
+        }
+        if (ExceptionStackUtil.getCause(retryCause, DataIntegrityViolationException.class) != null)
+        {
+            return RetryCause.UNIQUE_CONSTRAINT;
+        }
+        if (ExceptionStackUtil.getCause(retryCause, ConcurrencyFailureException.class) != null ||
+                ExceptionStackUtil.getCause(retryCause, JdbcUpdateAffectedIncorrectNumberOfRowsException.class) != null)
+        {
+            return RetryCause.OPTIMISTIC_LOCK;
+        }
+        // Wrapped SQL exceptions are only identified by their messages
+        String msg = retryCause.getMessage();
+        if (msg != null)
+        {
+            msg = msg.toLowerCase();
+            if (msg.contains("deadlock"))
+            {
+                return RetryCause.DEADLOCK;
+            }
+            else if (msg.contains("constraint") || msg.contains("duplicate"))
+            {
+                return RetryCause.UNIQUE_CONSTRAINT;
+            }
+        }
+        return RetryCause.OTHER;
+    }
+
+    /**
+     * Count a retry and work out how long to wait before it.  The wait grows exponentially from the
+     * minimum wait with each retry up to the maximum wait and is jittered over the upper half of the range.
+     * 
+     * @param cause             the classification of the retry cause
+     * @param count             the number of retries already made for the unit of work
+     * @param minRetryWaitMs    the minimum wait
+     * @param maxRetryWaitMs    the maximum wait
+     * @return                  the time to wait in milliseconds
+     */
+    public int getRetryWait(RetryCause cause, int count, int minRetryWaitMs, int maxRetryWaitMs)
+    {
+        retryCounts.incrementAndGet(cause.ordinal());
+        
+        long ceiling = (long) Math.max(minRetryWaitMs, 1) << Math.min(count, MAX_BACKOFF_SHIFT);
+        ceiling = Math.min(ceiling, maxRetryWaitMs);
+        long half = ceiling / 2L;
+        long wait = half + ThreadLocalRandom.current().nextLong(ceiling - half + 1L);
+        return (int) Math.max(wait, minRetryWaitMs);
+    }
+
+    @Override
+    public Map<String, Long> getRetryCounts()
+    {
+        Map<String, Long> counts = new HashMap<String, Long>(8);
+        for (RetryCause cause : RetryCause.values())
+        {
+            counts.put(cause.name(), retryCounts.get(cause.ordinal()));
+        }
+        return counts;
+    }
+
+    /**
+     * @param cause             the classification of the retry cause
+     * @return                  the number of retries counted for the cause
+     */
+    public long getRetryCount(RetryCause cause)
+    {
+        return retryCounts.get(cause.ordinal());
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        for (int i = 0; i < retryCounts.length(); i++)
+        {
+            retryCounts.set(i, 0L);
+        }
+    }
+}
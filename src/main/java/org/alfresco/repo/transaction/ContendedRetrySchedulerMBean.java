@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transaction;
+
+import java.util.Map;
+
+/**
+ * Management interface for the retry statistics gathered by the {@link ContendedRetryScheduler}.
+ * 
+ * @since 7.6
+ */
+public interface ContendedRetrySchedulerMBean
+{
+    /**
+     * @return <tt>true</tt> if retries are being scheduled by the contention-aware scheduler
+     */
+    public boolean isEnabled();
+
+    /**
+     * @return the number of retries keyed by the name of the {@link ContendedRetryScheduler.RetryCause cause}
+     */
+    public Map<String, Long> getRetryCounts();
+
+    /**
+     * Reset all the statistics
+     */
+    public void resetStatistics();
+}
@@ -74,6 +74,9 @@ import org.springframework.jdbc.UncategorizedSQLException;
  *   <li><b>retryWaitIncrementMs: 100</b></li>
  * </ul>
  * <p>
+ * An optional {@link ContendedRetryScheduler} can replace the linear wait increment with a jittered
+ * exponential backoff, so that retries that fight over the same resource spread out.
+ * <p>
  * To get details of 'why' transactions are retried use the following log level:<br>
  * <b>Summary: log4j.logger.org.alfresco.repo.transaction.RetryingTransactionHelper=INFO</b><br>
  * <b>Details: log4j.logger.org.alfresco.repo.transaction.RetryingTransactionHelper=DEBUG</b><br>
@@ -201,6 +204,11 @@ public class RetryingTransactionHelper
      */
     private List<Class<?>> extraExceptions;
 
+    /**
+     * Optional scheduler for retries caused by contention
+     */
+    private ContendedRetryScheduler retryScheduler;
+
     /**
      * Callback interface
      * @author Derek Hulley
@@ -299,6 +307,15 @@ public class RetryingTransactionHelper
     {
         this.extraExceptions = extraExceptions;
     }
+
+    /**
+     * Set the optional scheduler that classifies retry causes and backs off exponentially, with jitter.
+     * It is only used when {@link ContendedRetryScheduler#isEnabled() enabled}.
+     */
+    public void setRetryScheduler(ContendedRetryScheduler retryScheduler)
+    {
+        this.retryScheduler = retryScheduler;
+    }
     
     /**
      * Execute a callback in a transaction until it succeeds, fails
@@ -545,13 +562,23 @@ public class RetryingTransactionHelper
                     
                     if (retryCause != null)
                     {
-                        // Sleep a random amount of time before retrying.
-                        // The sleep interval increases with the number of retries.
-                        int sleepIntervalRandom = (count > 0 &&  retryWaitIncrementMs > 0)
-                                                    ? random.nextInt(count * retryWaitIncrementMs)
-                                                    : minRetryWaitMs;
-                        int sleepInterval = Math.min(maxRetryWaitMs, sleepIntervalRandom);
-                        sleepInterval = Math.max(sleepInterval, minRetryWaitMs);
+                        int sleepInterval;
+                        if (retryScheduler != null && retryScheduler.isEnabled())
+                        {
+                            // Back off exponentially, depending on the number of retries
+                            ContendedRetryScheduler.RetryCause retryCauseType = ContendedRetryScheduler.classify(retryCause);
+                            sleepInterval = retryScheduler.getRetryWait(retryCauseType, count, minRetryWaitMs, maxRetryWaitMs);
+                        }
+                        else
+                        {
+                            // Sleep a random amount of time before retrying.
+                            // The sleep interval increases with the number of retries.
+                            int sleepIntervalRandom = (count > 0 &&  retryWaitIncrementMs > 0)
+                                                        ? random.nextInt(count * retryWaitIncrementMs)
+                                                        : minRetryWaitMs;
+                            sleepInterval = Math.min(maxRetryWaitMs, sleepIntervalRandom);
+                            sleepInterval = Math.max(sleepInterval, minRetryWaitMs);
+                        }
                         if (logger.isInfoEnabled() && !logger.isDebugEnabled())
                         {
                             String msg = String.format(
@@ -60,6 +60,7 @@ public class TransactionServiceImpl implements TransactionService
     private int minRetryWaitMs = -1;
     private int maxRetryWaitMs = -1;
     private int retryWaitIncrementMs = -1;
+    private ContendedRetryScheduler retryScheduler;
     
     private static final Log logger = LogFactory.getLog(TransactionServiceImpl.class);
 
@@ -222,6 +223,14 @@ public class TransactionServiceImpl implements TransactionService
         this.retryWaitIncrementMs = retryWaitIncrementMs;
     }
 
+    /**
+     * @see RetryingTransactionHelper#setRetryScheduler(ContendedRetryScheduler)
+     */
+    public void setRetryScheduler(ContendedRetryScheduler retryScheduler)
+    {
+        this.retryScheduler = retryScheduler;
+    }
+
     /**
      * @see org.springframework.transaction.TransactionDefinition#PROPAGATION_REQUIRED
      */
@@ -330,6 +339,7 @@ public class TransactionServiceImpl implements TransactionService
         {
             helper.setRetryWaitIncrementMs(retryWaitIncrementMs);
         }
+        helper.setRetryScheduler(retryScheduler);
         return helper;
     }
 }
@@ -0,0 +1,297 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.version;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectStreamException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.alfresco.repo.version.common.VersionHistoryImpl;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.version.Version;
+import org.alfresco.service.cmr.version.VersionDoesNotExistException;
+import org.alfresco.service.cmr.version.VersionHistory;
+
+/**
+ * Version history that loads its versions as they are asked for.
+ * <p>
+ * The version nodes are known up front, in creation order, but the metadata of a version is only read
+ * when that version is requested.  Looking up the head or root version, a predecessor or a successor
+ * reads a single version node.  Listing all versions, or searching for a version label beyond the most
+ * recent versions, loads the remaining versions in bulk.  Versions are ordered by creation only, so this
+ * is not used when a version comparator is configured.
+ * <p>
+ * Versions deleted after the history was listed are left out when they are first loaded, so the history
+ * can be held across {@link org.alfresco.service.cmr.version.VersionService#deleteVersion deleteVersion}.
+ * If every version has been deleted, the root and head versions are <tt>null</tt>.
+ * <p>
+ * Serialization writes a fully-loaded {@link VersionHistoryImpl}.
+ * 
+ * @since 7.6
+ */
+public class LazyVersionHistoryImpl implements VersionHistory
+{
+    private static final long serialVersionUID = -2375946254829034178L;
+    
+    /** The number of versions read one at a time when searching for a label, before loading all of them */
+    private static final int MAX_LABEL_SCAN = 10;
+    
+    private transient Version2ServiceImpl versionService;
+    private final NodeRef versionHistoryRef;
+    private final List<NodeRef> versionNodeRefs;
+    private final Version[] versions;
+    private final boolean[] deleted;
+    private final Map<String, Integer> indexesByLabel;
+    private int scannedFromHead = 0;
+    private boolean allLoaded = false;
+    
+    /**
+     * @param versionService        the service used to load versions
+     * @param versionHistoryRef     the version history node
+     * @param versionNodeRefs       the version nodes in creation order (root first), must not be empty
+     */
+    LazyVersionHistoryImpl(Version2ServiceImpl versionService, NodeRef versionHistoryRef, List<NodeRef> versionNodeRefs)
+    {
+        this.versionService = versionService;
+        this.versionHistoryRef = versionHistoryRef;
+        this.versionNodeRefs = new ArrayList<NodeRef>(versionNodeRefs);
+        this.versions = new Version[versionNodeRefs.size()];
+        this.deleted = new boolean[versionNodeRefs.size()];
+        this.indexesByLabel = new HashMap<String, Integer>(versionNodeRefs.size() * 2);
+    }
+    
+    /**
+     * Gets the root (initial / least recent) version of the version history.
+     */
+    @Override
+    public Version getRootVersion()
+    {
+        return findVersion(0, 1);
+    }
+    
+    /**
+     * Gets the head (current / most recent) version of the version history.
+     */
+    @Override
+    public Version getHeadVersion()
+    {
+        return findVersion(versions.length - 1, -1);
+    }
+    
+    /**
+     * Gets all the versions in descending create date order (most recent first).
+     */
+    @Override
+    public Collection<Version> getAllVersions()
+    {
+        loadAll();
+        List<Version> result = new ArrayList<Version>(versions.length);
+        for (int i = versions.length - 1; i >= 0; i--)
+        {
+            if (!deleted[i])
+            {
+                result.add(versions[i]);
+            }
+        }
+        return result;
+    }
+    
+    @Override
+    public Version getPredecessor(Version version)
+    {
+        if (version == null)
+        {
+            return null;
+        }
+        int index = getIndex(version.getVersionLabel());
+        return index > 0 ? findVersion(index - 1, -1) : null;
+    }
+    
+    @Override
+    public Collection<Version> getSuccessors(Version version)
+    {
+        if (version == null)
+        {
+            return Collections.emptyList();
+        }
+        int index = getIndex(version.getVersionLabel());
+        if (index < 0 || index == versions.length - 1)
+        {
+            return Collections.emptyList();
+        }
+        Version successor = findVersion(index + 1, 1);
+        if (successor == null)
+        {
+            return Collections.emptyList();
+        }
+        List<Version> result = new ArrayList<Version>(1);
+        result.add(successor);
+        return result;
+    }
+    
+    @Override
+    public Version getVersion(String versionLabel)
+    {
+        if (versionLabel == null)
+        {
+            return null;
+        }
+        int index = getIndex(versionLabel);
+        if (index < 0)
+        {
+            // Throw exception indicating that the version does not exit
+            throw new VersionDoesNotExistException(versionLabel);
+        }
+        return getVersion(index);
+    }
+    
+    /**
+     * @return          the version at the index, or <tt>null</tt> if it has been deleted
+     */
+    private synchronized Version getVersion(int index)
+    {
+        Version version = versions[index];
+        if (version == null && !deleted[index])
+        {
+            version = versionService.loadVersion(versionNodeRefs.get(index));
+            setVersion(index, version);
+        }
+        return version;
+    }
+    
+    /**
+     * @param step      1 to look at later versions, -1 to look at earlier versions
+     * @return          the first version that has not been deleted, starting at the index, or <tt>null</tt> if there is none
+     */
+    private synchronized Version findVersion(int index, int step)
+    {
+        for (int i = index; i >= 0 && i < versions.length; i += step)
+        {
+            Version version = getVersion(i);
+            if (version != null)
+            {
+                return version;
+            }
+        }
+        return null;
+    }
+    
+    private void setVersion(int index, Version version)
+    {
+        if (version == null)
+        {
+            deleted[index] = true;
+            return;
+        }
+        versions[index] = version;
+        // Later versions win if labels are duplicated, as for a fully-built history
+        Integer existing = indexesByLabel.get(version.getVersionLabel());
+        if (existing == null || existing < index)
+        {
+            indexesByLabel.put(version.getVersionLabel(), index);
+        }
+    }
+    
+    /**
+     * @return          the index of the most recent version with the label, or -1 if there is none
+     */
+    private synchronized int getIndex(String versionLabel)
+    {
+        Integer index = indexesByLabel.get(versionLabel);
+        // Labels are usually looked up for recent versions, so check those one at a time first
+        while (index == null && !allLoaded && scannedFromHead < Math.min(MAX_LABEL_SCAN, versions.length))
+        {
+            scannedFromHead++;
+            getVersion(versions.length - scannedFromHead);
+            index = indexesByLabel.get(versionLabel);
+        }
+        if (index == null && !allLoaded)
+        {
+            loadAll();
+            index = indexesByLabel.get(versionLabel);
+        }
+        return index == null ? -1 : index;
+    }
+    
+    private synchronized void loadAll()
+    {
+        if (allLoaded)
+        {
+            return;
+        }
+        // Load all the versions in bulk and pick out those still missing
+        Map<String, Version> loadedVersions = new HashMap<String, Version>(versions.length * 2);
+        for (Version version : versionService.loadAllVersions(versionHistoryRef))
+        {
+            loadedVersions.put(version.getFrozenStateNodeRef().getId(), version);
+        }
+        for (int i = 0; i < versions.length; i++)
+        {
+            if (versions[i] == null && !deleted[i])
+            {
+                Version version = loadedVersions.get(versionNodeRefs.get(i).getId());
+                setVersion(i, version != null ? version : versionService.loadVersion(versionNodeRefs.get(i)));
+            }
+        }
+        allLoaded = true;
+    }
+    
+    /**
+     * Serialize as a fully-loaded version history, which does not need the version service
+     */
+    private Object writeReplace() throws ObjectStreamException
+    {
+        loadAll();
+        VersionHistoryImpl versionHistory = null;
+        Version previous = null;
+        for (int i = 0; i < versions.length; i++)
+        {
+            if (deleted[i])
+            {
+                continue;
+            }
+            if (versionHistory == null)
+            {
+                versionHistory = new VersionHistoryImpl(versions[i], null);
+            }
+            else
+            {
+                versionHistory.addVersion(versions[i], previous);
+            }
+            previous = versions[i];
+        }
+        if (versionHistory == null)
+        {
+            throw new InvalidObjectException("All versions of " + versionHistoryRef + " have been deleted");
+        }
+        return versionHistory;
+    }
+}
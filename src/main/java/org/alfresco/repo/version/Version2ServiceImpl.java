@@ -41,6 +41,9 @@ import org.alfresco.model.ContentModel;
 import org.alfresco.model.ForumModel;
 import org.alfresco.repo.policy.PolicyScope;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport.TxnReadState;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.repo.version.VersionRevertCallback.RevertAspectAction;
 import org.alfresco.repo.version.VersionRevertCallback.RevertAssocAction;
 import org.alfresco.repo.version.common.VersionHistoryImpl;
@@ -65,6 +68,7 @@ import org.alfresco.service.cmr.version.VersionServiceException;
 import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.service.namespace.RegexQNamePattern;
+import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.traitextender.AJProxyTrait;
 import org.alfresco.traitextender.Extend;
 import org.alfresco.traitextender.ExtendedTrait;
@@ -84,6 +88,10 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
     private static Log logger = LogFactory.getLog(Version2ServiceImpl.class);
     
     private PermissionService permissionService;
+    
+    private TransactionService transactionService;
+    
+    private boolean lazyVersionHistory = false;
 
     private ExtendedTrait<VersionServiceTrait> versionServiceTrait;
     
@@ -97,6 +105,25 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
         this.permissionService = permissionService;
     }
     
+    /**
+     * @param transactionService    used to load the versions of a lazy version history outside of a transaction
+     */
+    public void setTransactionService(TransactionService transactionService)
+    {
+        this.transactionService = transactionService;
+    }
+    
+    /**
+     * Set whether version histories load their versions as they are asked for, rather than all at once.
+     * This is ignored when a version comparator is set, as the versions must then all be loaded to be sorted.
+     * 
+     * @param lazyVersionHistory    <tt>true</tt> to load versions on demand
+     */
+    public void setLazyVersionHistory(boolean lazyVersionHistory)
+    {
+        this.lazyVersionHistory = lazyVersionHistory;
+    }
+    
     /**
      * Initialise method
      */
@@ -406,7 +433,7 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
         NodeRef versionHistoryRef = getVersionHistoryNodeRef(nodeRef);
         if (versionHistoryRef != null)
         {
-            versionHistory = buildVersionHistory(versionHistoryRef, nodeRef);
+            versionHistory = getVersionHistoryImpl(versionHistoryRef, nodeRef);
         }
         return versionHistory;
     }
@@ -713,6 +740,92 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
         return versions;
     }
     
+    /**
+     * Gets a version history that is either built in full or, if enabled, loads its versions on demand
+     * 
+     * @param versionHistoryRef  the node ref for the version history
+     * @param nodeRef            the node reference
+     * @return                   the version history, or <tt>null</tt> if there are no versions
+     */
+    private VersionHistory getVersionHistoryImpl(NodeRef versionHistoryRef, NodeRef nodeRef)
+    {
+        if (!lazyVersionHistory || versionComparatorDesc != null)
+        {
+            return buildVersionHistory(versionHistoryRef, nodeRef);
+        }
+        
+        List<ChildAssociationRef> versionAssocs = getVersionAssocs(versionHistoryRef, false);
+        if (versionAssocs.isEmpty())
+        {
+            return null;
+        }
+        List<NodeRef> versionRefs = new ArrayList<NodeRef>(versionAssocs.size());
+        for (ChildAssociationRef versionAssoc : versionAssocs)
+        {
+            versionRefs.add(versionAssoc.getChildRef());
+        }
+        return new LazyVersionHistoryImpl(this, versionHistoryRef, versionRefs);
+    }
+    
+    /**
+     * Loads a single version for a lazy version history, which may be used after the transaction it was created in
+     * 
+     * @return          the version, or <tt>null</tt> if the version node has since been deleted
+     */
+    Version loadVersion(final NodeRef versionRef)
+    {
+        if (!needsTransaction())
+        {
+            return loadExistingVersion(versionRef);
+        }
+        return transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Version>()
+        {
+            public Version execute() throws Throwable
+            {
+                return loadExistingVersion(versionRef);
+            }
+        }, true, false);
+    }
+    
+    /**
+     * Loads all versions for a lazy version history, which may be used after the transaction it was created in
+     * 
+     * @return          the versions, which are empty if the version history node has since been deleted
+     */
+    List<Version> loadAllVersions(final NodeRef versionHistoryRef)
+    {
+        if (!needsTransaction())
+        {
+            return loadExistingVersions(versionHistoryRef);
+        }
+        return transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<List<Version>>()
+        {
+            public List<Version> execute() throws Throwable
+            {
+                return loadExistingVersions(versionHistoryRef);
+            }
+        }, true, false);
+    }
+    
+    private Version loadExistingVersion(NodeRef versionRef)
+    {
+        return dbNodeService.exists(versionRef) ? getVersion(versionRef) : null;
+    }
+    
+    private List<Version> loadExistingVersions(NodeRef versionHistoryRef)
+    {
+        if (!dbNodeService.exists(versionHistoryRef))
+        {
+            return Collections.<Version>emptyList();
+        }
+        return getAllVersions(versionHistoryRef);
+    }
+    
+    private boolean needsTransaction()
+    {
+        return transactionService != null && AlfrescoTransactionSupport.getTransactionReadState() == TxnReadState.TXN_NONE;
+    }
+    
     private List<ChildAssociationRef> getVersionAssocs(NodeRef versionHistoryRef, boolean preLoad)
     {
         // note: resultant list is ordered by (a) explicit index and (b) association creation time
@@ -1404,7 +1517,7 @@ public class Version2ServiceImpl extends VersionServiceImpl implements VersionSe
         Version headVersion = null;
         if (versionHistoryNodeRef != null)
         {
-            VersionHistory versionHistory = buildVersionHistory(versionHistoryNodeRef, nodeRef);
+            VersionHistory versionHistory = getVersionHistoryImpl(versionHistoryNodeRef, nodeRef);
             if (versionHistory != null)
             {
                 headVersion = versionHistory.getHeadVersion();
@@ -35,6 +35,7 @@ import org.alfresco.repo.forms.FormService;
 import org.alfresco.repo.i18n.MessageService;
 import org.alfresco.repo.imap.ImapService;
 import org.alfresco.repo.lock.JobLockService;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.nodelocator.NodeLocatorService;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.search.impl.solr.facet.SolrFacetHelper;
@@ -606,4 +607,13 @@ public interface ServiceRegistry
      */
     @NotAuditable
     PolicyComponent getPolicyComponent();
+    
+    /**
+     * Get the loader used to pre-cache the data of nodes in bulk
+     * @return the node bulk loader, or <tt>null</tt> if nodes must be loaded one at a time
+     * @deprecated This method has been deprecated as it would return an object that is not part of the public API. 
+     * The object itself is not deprecated, but access to it via the ServiceRegistry will be removed in the future.
+     */
+    @NotAuditable
+    NodeBulkLoader getNodeBulkLoader();
 }
@@ -51,13 +51,16 @@ import org.junit.runners.Suite;
     org.alfresco.repo.cache.lookup.EntityLookupCacheTest.class,
     org.alfresco.repo.calendar.CalendarHelpersTest.class,
     org.alfresco.repo.dictionary.RepoDictionaryDAOTest.class,
+    org.alfresco.repo.domain.node.PrimaryPathCacheTest.class,
     org.alfresco.repo.forms.processor.node.FieldProcessorTest.class,
     org.alfresco.repo.forms.processor.workflow.TaskFormProcessorTest.class,
     org.alfresco.repo.forms.processor.workflow.WorkflowFormProcessorTest.class,
     org.alfresco.repo.invitation.site.InviteSenderTest.class,
     org.alfresco.repo.invitation.site.InviteModeratedSenderTest.class,
+    org.alfresco.repo.lock.JobLockWaitQueueTest.class,
     org.alfresco.repo.lock.LockUtilsTest.class,
     org.alfresco.repo.lock.mem.LockStoreImplTest.class,
+    org.alfresco.repo.lock.mem.StripedLockStoreImplTest.class,
     org.alfresco.repo.module.ModuleDetailsImplTest.class,
     org.alfresco.repo.module.ModuleVersionNumberTest.class,
     org.alfresco.repo.module.tool.ModuleManagementToolTest.class,
@@ -68,9 +71,12 @@ import org.junit.runners.Suite;
     org.alfresco.repo.rendition.RenditionNodeManagerTest.class,
     org.alfresco.repo.rendition.RenditionServiceImplTest.class,
     org.alfresco.repo.replication.ReplicationServiceImplTest.class,
+    org.alfresco.repo.search.impl.lucene.index.IndexInfoMergeTest.class,
     org.alfresco.repo.service.StoreRedirectorProxyFactoryTest.class,
     org.alfresco.repo.site.RoleComparatorImplTest.class,
+    org.alfresco.repo.tenant.MultiTServiceImplNameTest.class,
     org.alfresco.repo.thumbnail.ThumbnailServiceImplParameterTest.class,
+    org.alfresco.repo.transaction.ContendedRetrySchedulerTest.class,
     org.alfresco.repo.transfer.ContentChunkerImplTest.class,
     org.alfresco.repo.transfer.HttpClientTransmitterImplTest.class,
     org.alfresco.repo.transfer.manifest.TransferManifestTest.class,
@@ -111,6 +117,9 @@ import org.junit.runners.Suite;
     org.alfresco.util.schemacomp.validator.TypeNameOnlyValidatorTest.class,
     org.alfresco.util.test.junitrules.TemporaryMockOverrideTest.class,
     org.alfresco.repo.search.impl.solr.SolrQueryHTTPClientTest.class,
+    org.alfresco.repo.search.impl.solr.SolrJSONResponseHandlerTest.class,
+    org.alfresco.repo.search.impl.solr.SolrQueryTransportTest.class,
+    org.alfresco.repo.search.impl.solr.SolrAuthoritySetCacheTest.class,
     org.alfresco.repo.search.impl.solr.SolrStatsResultTest.class,
     org.alfresco.repo.search.impl.solr.facet.SolrFacetComparatorTest.class,
     org.alfresco.repo.search.impl.solr.facet.FacetQNameUtilsTest.class,
@@ -155,6 +164,7 @@ import org.junit.runners.Suite;
     org.alfresco.repo.action.ActionConditionImplTest.class,
     org.alfresco.repo.action.CompositeActionImplTest.class,
     org.alfresco.repo.action.CompositeActionConditionImplTest.class,
+    org.alfresco.repo.action.AsynchronousActionExecutionQueueImplTest.class,
     org.alfresco.repo.audit.AuditableAnnotationTest.class,
     org.alfresco.repo.audit.PropertyAuditFilterTest.class,
     org.alfresco.repo.content.filestore.SpoofedTextContentReaderTest.class,
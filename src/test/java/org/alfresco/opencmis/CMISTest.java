@@ -33,6 +33,12 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
@@ -50,6 +56,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
 
 import org.alfresco.model.ContentModel;
@@ -170,6 +177,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
+import org.mockito.ArgumentCaptor;
 import org.springframework.context.ApplicationContext;
 import org.springframework.extensions.webscripts.GUID;
 
@@ -1697,6 +1705,124 @@ public class CMISTest
         });
     }
 
+    /**
+     * Checks that the pre-loading of a page of children does not change the folder listing,
+     * for both unversioned and versioned documents, and that the whole page is loaded in one bulk call.
+     */
+    @Test
+    public void testGetChildrenPreload()
+    {
+        final int count = 20;
+        AuthenticationUtil.pushAuthentication();
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+        final NodeRef folderNodeRef;
+        try
+        {
+            folderNodeRef = transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<NodeRef>()
+            {
+                @Override
+                public NodeRef execute() throws Throwable
+                {
+                    NodeRef companyHomeNodeRef = repositoryHelper.getCompanyHome();
+                    NodeRef newFolderNodeRef = fileFolderService.create(companyHomeNodeRef, GUID.generate(), ContentModel.TYPE_FOLDER).getNodeRef();
+                    for (int i = 0; i < count; i++)
+                    {
+                        NodeRef docNodeRef = fileFolderService.create(newFolderNodeRef, GUID.generate(), ContentModel.TYPE_CONTENT).getNodeRef();
+                        if (i % 2 == 0)
+                        {
+                            // 1.0 then 1.1, so that they differ from the unversioned label
+                            versionService.createVersion(docNodeRef, new HashMap<String, Serializable>());
+                            versionService.createVersion(docNodeRef, new HashMap<String, Serializable>());
+                        }
+                    }
+                    return newFolderNodeRef;
+                }
+            });
+        }
+        finally
+        {
+            AuthenticationUtil.popAuthentication();
+        }
+
+        boolean preloadNodes = cmisConnector.isPreloadNodes();
+        // Record the bulk loads made by the connector
+        NodeDAO recordingNodeDAO = mock(NodeDAO.class, delegatesTo(nodeDAO));
+        cmisConnector.setNodeDAO(recordingNodeDAO);
+        try
+        {
+            cmisConnector.setPreloadNodes(false);
+            Map<String, String> withoutPreload = describeChildren(folderNodeRef, count);
+            verify(recordingNodeDAO, never()).cacheNodes(anyListOf(NodeRef.class));
+            cmisConnector.setPreloadNodes(true);
+            Map<String, String> withPreload = describeChildren(folderNodeRef, count);
+
+            // The page of children is pre-loaded with a single bulk call, not one node at a time
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            ArgumentCaptor<List<NodeRef>> preloaded = (ArgumentCaptor) ArgumentCaptor.forClass(List.class);
+            verify(recordingNodeDAO, times(1)).cacheNodes(preloaded.capture());
+            Set<String> preloadedIds = new HashSet<String>();
+            for (NodeRef nodeRef : preloaded.getValue())
+            {
+                preloadedIds.add(nodeRef.getId());
+            }
+            Set<String> childIds = new HashSet<String>();
+            for (String objectId : withPreload.keySet())
+            {
+                int versionIdx = objectId.indexOf(';');
+                childIds.add(versionIdx == -1 ? objectId : objectId.substring(0, versionIdx));
+            }
+            assertEquals(childIds, preloadedIds);
+
+            assertEquals(count, withPreload.size());
+            assertEquals(withoutPreload, withPreload);
+            int versioned = 0;
+            for (String child : withPreload.values())
+            {
+                if (child.startsWith("1.1 "))
+                {
+                    versioned++;
+                }
+            }
+            assertEquals(count / 2, versioned);
+        }
+        finally
+        {
+            cmisConnector.setPreloadNodes(preloadNodes);
+            cmisConnector.setNodeDAO(nodeDAO);
+        }
+    }
+
+    /**
+     * @return the version label and allowable actions of each child, by object id
+     */
+    private Map<String, String> describeChildren(final NodeRef folderNodeRef, final int expectedCount)
+    {
+        // start from cold node caches
+        nodeDAO.clear();
+
+        return withCmisService(new CmisServiceCallback<Map<String, String>>()
+        {
+            @Override
+            public Map<String, String> execute(CmisService cmisService)
+            {
+                String repositoryId = cmisService.getRepositoryInfos(null).get(0).getId();
+
+                ObjectInFolderList children = cmisService.getChildren(repositoryId, folderNodeRef.getId(), null, null, true, IncludeRelationships.NONE,
+                        null, false, BigInteger.valueOf(expectedCount), BigInteger.valueOf(0), null);
+                assertEquals(expectedCount, children.getObjects().size());
+
+                Map<String, String> result = new HashMap<String, String>();
+                for (ObjectInFolderData child : children.getObjects())
+                {
+                    ObjectData object = child.getObject();
+                    String versionLabel = (String) object.getProperties().getProperties().get(PropertyIds.VERSION_LABEL).getFirstValue();
+                    result.put(object.getId(), versionLabel + " " + new TreeSet<Action>(object.getAllowableActions().getAllowableActions()));
+                }
+                return result;
+            }
+        });
+    }
+
     @SuppressWarnings({ "rawtypes", "unchecked" })
     @Test
     public void testSecondaryTypes()
@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.action;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.tenant.TenantService;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.cmr.action.Action;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.transaction.TransactionService;
+import org.alfresco.util.GUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests how {@link AsynchronousActionExecutionQueueImpl} coalesces waiting actions and orders its priority lanes.
+ * Dispatchers handed to the thread pool are run by the test, and each execution is recorded as the run-as user of
+ * the action.
+ * 
+ * @since 7.6
+ */
+public class AsynchronousActionExecutionQueueImplTest
+{
+    private static final NodeRef NODE = new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, "node");
+
+    private ActionServiceImpl actionServiceImpl;
+    private AsynchronousActionExecutionQueueImpl queue;
+    private List<Runnable> dispatchers;
+    private List<String> executions;
+    private Runnable duringExecution;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        // The queue reads the rules executed by the transaction that queues the action
+        TransactionSynchronizationManager.initSynchronization();
+
+        dispatchers = new ArrayList<Runnable>();
+        executions = new ArrayList<String>();
+        duringExecution = null;
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>())
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                dispatchers.add(command);
+            }
+        };
+        RetryingTransactionHelper txnHelper = mock(RetryingTransactionHelper.class);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class))).thenAnswer(new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                executions.add(AuthenticationUtil.getRunAsUser());
+                if (duringExecution != null)
+                {
+                    duringExecution.run();
+                }
+                return null;
+            }
+        });
+        TransactionService transactionService = mock(TransactionService.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        actionServiceImpl = mock(ActionServiceImpl.class);
+
+        queue = new AsynchronousActionExecutionQueueImpl();
+        queue.setActionServiceImpl(actionServiceImpl);
+        queue.setThreadPoolExecutor(threadPoolExecutor);
+        queue.setTransactionService(transactionService);
+        queue.setCoalesceActions(true);
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        TransactionSynchronizationManager.clearSynchronization();
+        AuthenticationUtil.clearCurrentSecurityContext();
+    }
+
+    private ActionImpl createAction(String id, String actionDefinitionName, String runAsUser)
+    {
+        ActionImpl action = new ActionImpl(null, id, actionDefinitionName);
+        action.setParameterValue("param", "value");
+        action.setRunAsUser(runAsUser);
+        action.setTenantId(TenantService.DEFAULT_DOMAIN);
+        return action;
+    }
+
+    private void queueAction(Action action)
+    {
+        queue.executeAction(actionServiceImpl, action, NODE, false, null);
+    }
+
+    private void runDispatchers()
+    {
+        while (!dispatchers.isEmpty())
+        {
+            dispatchers.remove(0).run();
+        }
+    }
+
+    @Test
+    public void testRepeatedRequestIsCoalesced()
+    {
+        String id = GUID.generate();
+        queueAction(createAction(id, "test-action", "user"));
+        queueAction(createAction(id, "test-action", "user"));
+        assertEquals("The repeated request should not be queued", 1, dispatchers.size());
+
+        runDispatchers();
+        assertEquals(Arrays.asList("user"), executions);
+    }
+
+    @Test
+    public void testDifferentActionsAreNotCoalesced()
+    {
+        // Different ids, e.g. two ad hoc actions
+        queueAction(createAction(GUID.generate(), "test-action", "user"));
+        queueAction(createAction(GUID.generate(), "test-action", "user"));
+        // A different run-as user
+        String id = GUID.generate();
+        queueAction(createAction(id, "test-action", "user"));
+        queueAction(createAction(id, "test-action", "another"));
+
+        runDispatchers();
+        assertEquals(Arrays.asList("user", "user", "user", "another"), executions);
+    }
+
+    @Test
+    public void testTrackedActionIsNotCoalesced()
+    {
+        String id = GUID.generate();
+        ActionImpl action = createAction(id, "test-action", "user");
+        ActionImpl repeat = createAction(id, "test-action", "user");
+        when(actionServiceImpl.getTrackStatus(action)).thenReturn(true);
+        when(actionServiceImpl.getTrackStatus(repeat)).thenReturn(true);
+        queueAction(action);
+        queueAction(repeat);
+
+        runDispatchers();
+        assertEquals("Each tracked request has been recorded as pending, so it must run",
+                Arrays.asList("user", "user"), executions);
+    }
+
+    @Test
+    public void testRequestAfterWaitingActionStartedIsQueued()
+    {
+        String id = GUID.generate();
+        final ActionImpl repeat = createAction(id, "test-action", "repeat");
+        queueAction(createAction(id, "test-action", "repeat"));
+        duringExecution = new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                duringExecution = null;
+                // The running action may miss the changes made for this request
+                queueAction(repeat);
+            }
+        };
+
+        runDispatchers();
+        assertEquals(Arrays.asList("repeat", "repeat"), executions);
+    }
+
+    @Test
+    public void testLanesRunInPriorityOrder()
+    {
+        queue.setHighPriorityActions("high-action");
+        queue.setLowPriorityActions("low-action, other-low-action");
+        queueAction(createAction(GUID.generate(), "low-action", "low"));
+        queueAction(createAction(GUID.generate(), "test-action", "normal1"));
+        queueAction(createAction(GUID.generate(), "other-low-action", "low2"));
+        queueAction(createAction(GUID.generate(), "high-action", "high"));
+        queueAction(createAction(GUID.generate(), "test-action", "normal2"));
+
+        runDispatchers();
+        assertEquals(Arrays.asList("high", "normal1", "normal2", "low", "low2"), executions);
+    }
+}
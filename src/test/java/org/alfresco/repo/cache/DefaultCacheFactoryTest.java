@@ -27,8 +27,10 @@ package org.alfresco.repo.cache;
 
 import static org.junit.Assert.*;
 
+import java.io.Serializable;
 import java.util.Properties;
 
+import org.alfresco.repo.cache.TransactionalCache.CacheRegionKey;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -62,6 +64,11 @@ public class DefaultCacheFactoryTest
         properties.setProperty("cache.withMaxIdle.maxItems", "0");
         properties.setProperty("cache.withMaxIdle.eviction-policy", "NONE");
         properties.setProperty("cache.withMaxIdle.maxIdleSeconds", "7");
+        // cache.tenantPartitioned
+        properties.setProperty("cache.tenantPartitioned.maxItems", "10");
+        properties.setProperty("cache.tenantPartitioned.eviction-policy", "LRU");
+        properties.setProperty("cache.tenantPartitioned.tenant.maxItems", "3");
+        properties.setProperty("cache.tenantPartitioned.tenant.big.example.com.maxItems", "20");
         
         cacheFactory.setProperties(properties);
     }
@@ -100,4 +107,61 @@ public class DefaultCacheFactoryTest
         assertEquals(0, cache.getTTLSecs());        
         assertEquals(7, cache.getMaxIdleSecs());        
     }
+    
+    @Test
+    public void canCreateTenantPartitionedCache()
+    {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        TenantPartitionedSimpleCache<Serializable, String> partitionedCache =
+                    (TenantPartitionedSimpleCache) cacheFactory.createCache("cache.tenantPartitioned");
+        assertEquals("cache.tenantPartitioned", partitionedCache.getCacheName());
+        assertEquals(10, ((DefaultSimpleCache<?, ?>) partitionedCache.getDefaultPartition()).getMaxItems());
+        
+        // A busy tenant only evicts its own entries
+        partitionedCache.put("key", "default");
+        partitionedCache.put(new CacheRegionKey("quiet.example.com", "key"), "quiet");
+        for (int i = 0; i < 100; i++)
+        {
+            partitionedCache.put(new CacheRegionKey("busy.example.com", "key" + i), "busy" + i);
+        }
+        assertEquals("default", partitionedCache.get("key"));
+        assertEquals("quiet", partitionedCache.get(new CacheRegionKey("quiet.example.com", "key")));
+        assertEquals("busy99", partitionedCache.get(new CacheRegionKey("busy.example.com", "key99")));
+        assertNull(partitionedCache.get(new CacheRegionKey("other.example.com", "key")));
+        assertFalse(partitionedCache.contains(new CacheRegionKey("other.example.com", "key")));
+        
+        DefaultSimpleCache<?, ?> busyPartition = (DefaultSimpleCache<?, ?>) partitionedCache.getTenantPartitions().get("busy.example.com");
+        assertEquals(3, busyPartition.getMaxItems());
+        assertEquals("cache.tenantPartitioned.busy.example.com", busyPartition.getCacheName());
+        assertTrue(busyPartition.getKeys().size() <= 3);
+        
+        // Per-tenant override
+        partitionedCache.put(new CacheRegionKey("big.example.com", "key"), "big");
+        DefaultSimpleCache<?, ?> bigPartition = (DefaultSimpleCache<?, ?>) partitionedCache.getTenantPartitions().get("big.example.com");
+        assertEquals(20, bigPartition.getMaxItems());
+        
+        partitionedCache.remove(new CacheRegionKey("quiet.example.com", "key"));
+        assertNull(partitionedCache.get(new CacheRegionKey("quiet.example.com", "key")));
+        
+        partitionedCache.clear();
+        assertTrue(partitionedCache.getKeys().isEmpty());
+    }
+    
+    @Test
+    public void removesPartitionsOfDeletedTenant()
+    {
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        TenantPartitionedSimpleCache<Serializable, String> partitionedCache =
+                    (TenantPartitionedSimpleCache) cacheFactory.createCache("cache.tenantPartitioned");
+        partitionedCache.put("key", "default");
+        partitionedCache.put(new CacheRegionKey("deleted.example.com", "key"), "deleted");
+        partitionedCache.put(new CacheRegionKey("other.example.com", "key"), "other");
+        
+        cacheFactory.removeTenantPartitions("deleted.example.com");
+        
+        assertFalse(partitionedCache.getTenantPartitions().containsKey("deleted.example.com"));
+        assertNull(partitionedCache.get(new CacheRegionKey("deleted.example.com", "key")));
+        assertEquals("other", partitionedCache.get(new CacheRegionKey("other.example.com", "key")));
+        assertEquals("default", partitionedCache.get("key"));
+    }
 }
@@ -196,6 +196,50 @@ public class InMemoryCacheStatisticsTest
         assertEquals(1, snapshot.get(OpType.GET_MISS).getCount());
     }
     
+    @Test
+    public void canAccumulateStatisticsPerTenant()
+    {
+        TransactionStats txStats = new TransactionStats();
+        txStats.record(0, 1000, OpType.GET_HIT);
+        txStats.record(0, 1000, OpType.GET_MISS);
+        cacheStats.add("cache1", txStats);
+        
+        txStats = new TransactionStats();
+        txStats.record(0, 1000, OpType.GET_HIT);
+        txStats.record(0, 1000, OpType.GET_HIT);
+        txStats.record(0, 1000, OpType.GET_HIT);
+        txStats.record(0, 1000, OpType.GET_MISS);
+        cacheStats.add("cache1", "tenant1.example.com", txStats);
+        
+        txStats = new TransactionStats();
+        txStats.record(0, 1000, OpType.GET_MISS);
+        cacheStats.add("cache1", "tenant2.example.com", txStats);
+        
+        // Totals include all tenants
+        assertEquals(4, cacheStats.count("cache1", OpType.GET_HIT));
+        assertEquals(3, cacheStats.count("cache1", OpType.GET_MISS));
+        assertEquals(7, cacheStats.numGets("cache1"));
+        
+        // Per-tenant stats
+        assertEquals(2, cacheStats.tenantDomains("cache1").size());
+        assertTrue(cacheStats.tenantDomains("cache1").contains("tenant1.example.com"));
+        assertEquals(4, cacheStats.numGets("cache1", "tenant1.example.com"));
+        assertEquals(0.75, cacheStats.hitMissRatio("cache1", "tenant1.example.com"), 0.01d);
+        assertEquals(0.0, cacheStats.hitMissRatio("cache1", "tenant2.example.com"), 0.01d);
+        assertEquals(1, cacheStats.allStats("cache1", "tenant2.example.com").get(OpType.GET_MISS).getCount());
+        
+        assertTrue(cacheStats.tenantDomains("cache2").isEmpty());
+        try
+        {
+            cacheStats.numGets("cache1", "tenant3.example.com");
+            fail("NoStatsForCache should have been thrown.");
+        }
+        catch(NoStatsForCache e)
+        {
+            // Good.
+        }
+    }
+    
     @Test
     public void canRetrieveSnapshotOfAllStats()
     {
@@ -0,0 +1,216 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.copy;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
+import org.alfresco.service.ServiceRegistry;
+import org.alfresco.service.cmr.repository.CopyService;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.ApplicationContextHelper;
+import org.alfresco.util.GUID;
+import org.alfresco.util.PropertyMap;
+import org.alfresco.util.testing.category.PerformanceTests;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.context.ApplicationContext;
+
+/**
+ * Compares copying a large hierarchy node by node with copying it in bulk.
+ * 
+ * @since 7.6
+ */
+@Category(PerformanceTests.class)
+public class CopyServiceImplPerformanceTest
+{
+    private static final Log logger = LogFactory.getLog(CopyServiceImplPerformanceTest.class);
+
+    /** 1,111 folders over three levels with 49 documents in each of the 1,000 leaf folders: just over 50k nodes */
+    private static final int FOLDERS_PER_FOLDER = 10;
+    private static final int DEPTH = 3;
+    private static final int DOCUMENTS_PER_FOLDER = 49;
+
+    private ApplicationContext ctx;
+    private NodeService nodeService;
+    private CopyService copyService;
+    private CopyServiceImpl copyServiceImpl;
+    private RetryingTransactionHelper txnHelper;
+    private NodeRef testRootNodeRef;
+    private NodeRef sourceNodeRef;
+    private int nodeCount;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        ctx = ApplicationContextHelper.getApplicationContext();
+        ServiceRegistry serviceRegistry = (ServiceRegistry) ctx.getBean("ServiceRegistry");
+        nodeService = serviceRegistry.getNodeService();
+        copyService = serviceRegistry.getCopyService();
+        copyServiceImpl = (CopyServiceImpl) ctx.getBean("copyService");
+        txnHelper = serviceRegistry.getTransactionService().getRetryingTransactionHelper();
+        AuthenticationUtil.setRunAsUserSystem();
+
+        testRootNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            public NodeRef execute() throws Throwable
+            {
+                StoreRef storeRef = nodeService.createStore(StoreRef.PROTOCOL_WORKSPACE, "CopyPerf-" + GUID.generate());
+                NodeRef rootNodeRef = nodeService.getRootNode(storeRef);
+                return createFolder(rootNodeRef, "root");
+            }
+        });
+        sourceNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            public NodeRef execute() throws Throwable
+            {
+                return createFolder(testRootNodeRef, "source");
+            }
+        });
+        nodeCount = 1;
+        createHierarchy(sourceNodeRef, 1);
+        logger.info("Created a hierarchy of " + nodeCount + " nodes to copy");
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        copyServiceImpl.setBulkCopy(true);
+        AuthenticationUtil.clearCurrentSecurityContext();
+    }
+
+    /**
+     * Each folder of the hierarchy is filled in its own transaction
+     */
+    private void createHierarchy(final NodeRef parentNodeRef, final int depth)
+    {
+        final List<NodeRef> folderNodeRefs = txnHelper.doInTransaction(new RetryingTransactionCallback<List<NodeRef>>()
+        {
+            public List<NodeRef> execute() throws Throwable
+            {
+                List<NodeRef> folderNodeRefs = new ArrayList<NodeRef>(FOLDERS_PER_FOLDER);
+                if (depth > DEPTH)
+                {
+                    for (int i = 0; i < DOCUMENTS_PER_FOLDER; i++)
+                    {
+                        PropertyMap properties = new PropertyMap();
+                        properties.put(ContentModel.PROP_NAME, "document-" + i);
+                        properties.put(ContentModel.PROP_TITLE, "Document " + i);
+                        nodeService.createNode(
+                                parentNodeRef,
+                                ContentModel.ASSOC_CONTAINS,
+                                QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "document-" + i),
+                                ContentModel.TYPE_CONTENT,
+                                properties);
+                    }
+                }
+                else
+                {
+                    for (int i = 0; i < FOLDERS_PER_FOLDER; i++)
+                    {
+                        folderNodeRefs.add(createFolder(parentNodeRef, "folder-" + i));
+                    }
+                }
+                return folderNodeRefs;
+            }
+        }, false, true);
+        nodeCount += folderNodeRefs.isEmpty() ? DOCUMENTS_PER_FOLDER : folderNodeRefs.size();
+        for (NodeRef folderNodeRef : folderNodeRefs)
+        {
+            createHierarchy(folderNodeRef, depth + 1);
+        }
+    }
+
+    private NodeRef createFolder(NodeRef parentNodeRef, String name)
+    {
+        PropertyMap properties = new PropertyMap();
+        properties.put(ContentModel.PROP_NAME, name);
+        return nodeService.createNode(
+                parentNodeRef,
+                ContentModel.ASSOC_CONTAINS,
+                QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, name),
+                ContentModel.TYPE_FOLDER,
+                properties).getChildRef();
+    }
+
+    /**
+     * @return              the time taken (ms) to copy the hierarchy in a single transaction
+     */
+    private long copyHierarchy(final String name)
+    {
+        long start = System.currentTimeMillis();
+        final NodeRef copyNodeRef = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef>()
+        {
+            public NodeRef execute() throws Throwable
+            {
+                return copyService.copy(
+                        sourceNodeRef,
+                        testRootNodeRef,
+                        ContentModel.ASSOC_CONTAINS,
+                        QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, name),
+                        true);
+            }
+        }, false, true);
+        long time = System.currentTimeMillis() - start;
+        // Check that the hierarchy was copied
+        int childCount = txnHelper.doInTransaction(new RetryingTransactionCallback<Integer>()
+        {
+            public Integer execute() throws Throwable
+            {
+                return nodeService.getChildAssocs(copyNodeRef).size();
+            }
+        }, true, false);
+        assertEquals("Copy is missing children", FOLDERS_PER_FOLDER, childCount);
+        return time;
+    }
+
+    @Test
+    public void measureRecursiveCopy() throws Exception
+    {
+        copyServiceImpl.setBulkCopy(false);
+        long nodeByNodeTime = copyHierarchy("copy-node-by-node");
+        copyServiceImpl.setBulkCopy(true);
+        long bulkTime = copyHierarchy("copy-bulk");
+        logger.info(
+                "Copied " + nodeCount + " nodes: \n" +
+                "   Node by node (ms): " + nodeByNodeTime + "\n" +
+                "   Bulk (ms):         " + bulkTime);
+    }
+}
@@ -31,6 +31,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
 import javax.transaction.UserTransaction;
 
@@ -1086,6 +1087,122 @@ public class CopyServiceImplTest extends TestCase
         assertNotNull(value);
         assertEquals(nodeTwoCopy, value);
     }
+    
+    /**
+     * Tests that a bulk copy creates the same children, peer associations and aspects as a node-by-node copy.
+     */
+    public void testBulkCopyMatchesNodeByNodeCopy()
+    {
+        NodeRef nodeNotCopied = nodeService.createNode(
+                rootNodeRef,
+                ContentModel.ASSOC_CHILDREN,
+                QName.createQName("{test}nodeNotCopied"),
+                TEST_TYPE_QNAME).getChildRef();
+        NodeRef nodeOne = nodeService.createNode(
+                rootNodeRef,
+                ContentModel.ASSOC_CHILDREN,
+                QName.createQName("{test}nodeOne"),
+                TEST_TYPE_QNAME).getChildRef();
+        nodeService.addAspect(nodeOne, ContentModel.ASPECT_TITLED, null);
+        // More children than fit in one pre-loading batch
+        NodeRef[] children = new NodeRef[5];
+        for (int i = 0; i < children.length; i++)
+        {
+            children[i] = nodeService.createNode(
+                    nodeOne,
+                    TEST_CHILD_ASSOC_TYPE_QNAME,
+                    QName.createQName("{test}child" + i),
+                    TEST_TYPE_QNAME).getChildRef();
+        }
+        Map<QName, Serializable> aspectProperties = new HashMap<QName, Serializable>();
+        aspectProperties.put(PROP3_QNAME_MANDATORY, TEST_VALUE_1);
+        nodeService.addAspect(children[0], TEST_ASPECT_QNAME, aspectProperties);
+        NodeRef grandchild = nodeService.createNode(
+                children[1],
+                TEST_CHILD_ASSOC_TYPE_QNAME,
+                QName.createQName("{test}grandchild"),
+                TEST_TYPE_QNAME).getChildRef();
+        nodeService.addChild(children[2], grandchild, TEST_CHILD_ASSOC_TYPE_QNAME, TEST_CHILD_ASSOC_QNAME);
+        nodeService.addChild(nodeOne, nonPrimaryChildNodeRef, TEST_CHILD_ASSOC_TYPE_QNAME, TEST_CHILD_ASSOC_QNAME2);
+        nodeService.createAssociation(children[3], grandchild, TEST_ASSOC_TYPE_QNAME);
+        nodeService.createAssociation(children[3], nodeNotCopied, TEST_ASSOC_TYPE_QNAME);
+        nodeService.createAssociation(nodeOne, children[4], TEST_ASSOC_TYPE_QNAME);
+        
+        CopyServiceImpl copyServiceImpl = (CopyServiceImpl) copyService;
+        NodeRef nodeByNodeCopy;
+        NodeRef bulkCopy;
+        try
+        {
+            copyServiceImpl.setBulkCopy(false);
+            nodeByNodeCopy = copyService.copy(
+                    nodeOne, rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{test}nodeByNodeCopy"), true);
+            copyServiceImpl.setBulkCopy(true);
+            copyServiceImpl.setBulkCopyBatchSize(2);
+            bulkCopy = copyService.copy(
+                    nodeOne, rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("{test}bulkCopy"), true);
+        }
+        finally
+        {
+            copyServiceImpl.setBulkCopy(true);
+            copyServiceImpl.setBulkCopyBatchSize(256);
+        }
+        
+        Set<String> nodeByNodeDescription = describeHierarchy(nodeByNodeCopy);
+        assertEquals("Every node should have been copied", 7, nodeByNodeDescription.size());
+        assertEquals(nodeByNodeDescription, describeHierarchy(bulkCopy));
+    }
+    
+    /**
+     * Describes the type, aspects, child associations and peer associations of each node in a hierarchy.  Nodes
+     * within the hierarchy are named by their path, so that copies of the same hierarchy have the same description.
+     */
+    private Set<String> describeHierarchy(NodeRef rootNodeRef)
+    {
+        Map<NodeRef, String> paths = new HashMap<NodeRef, String>();
+        collectPaths(rootNodeRef, "", paths);
+        Set<String> description = new TreeSet<String>();
+        for (Map.Entry<NodeRef, String> entry : paths.entrySet())
+        {
+            NodeRef nodeRef = entry.getKey();
+            Set<String> aspects = new TreeSet<String>();
+            for (QName aspectQName : nodeService.getAspects(nodeRef))
+            {
+                aspects.add(aspectQName.toString());
+            }
+            Set<String> childAssocs = new TreeSet<String>();
+            for (ChildAssociationRef childAssocRef : nodeService.getChildAssocs(nodeRef))
+            {
+                childAssocs.add(childAssocRef.getTypeQName() + " " + childAssocRef.getQName() + " "
+                        + childAssocRef.isPrimary() + " " + describeNode(childAssocRef.getChildRef(), paths));
+            }
+            Set<String> targetAssocs = new TreeSet<String>();
+            for (AssociationRef assocRef : nodeService.getTargetAssocs(nodeRef, RegexQNamePattern.MATCH_ALL))
+            {
+                targetAssocs.add(assocRef.getTypeQName() + " " + describeNode(assocRef.getTargetRef(), paths));
+            }
+            description.add(entry.getValue() + ": " + nodeService.getType(nodeRef)
+                    + " aspects=" + aspects + " children=" + childAssocs + " targets=" + targetAssocs);
+        }
+        return description;
+    }
+    
+    private void collectPaths(NodeRef nodeRef, String path, Map<NodeRef, String> paths)
+    {
+        paths.put(nodeRef, path);
+        for (ChildAssociationRef childAssocRef : nodeService.getChildAssocs(nodeRef))
+        {
+            if (childAssocRef.isPrimary())
+            {
+                collectPaths(childAssocRef.getChildRef(), path + "/" + childAssocRef.getQName(), paths);
+            }
+        }
+    }
+    
+    private String describeNode(NodeRef nodeRef, Map<NodeRef, String> paths)
+    {
+        String path = paths.get(nodeRef);
+        return path == null ? nodeRef.toString() : "copy:" + path;
+    }
      
     public void testCopyAndRename()
     {
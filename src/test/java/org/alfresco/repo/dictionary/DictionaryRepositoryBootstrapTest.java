@@ -25,9 +25,13 @@
  */
 package org.alfresco.repo.dictionary;
 
+import java.io.ByteArrayOutputStream;
 import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.alfresco.model.ContentModel;
 import org.alfresco.repo.content.MimetypeMap;
@@ -254,6 +258,81 @@ public class DictionaryRepositoryBootstrapTest extends BaseSpringTest
         txn.commit();
     }
 
+    /**
+     * Test bootstrap with the models parsed in parallel, and parsed models shared by identical content
+     */
+    @Test
+    public void testParallelBootstrap() throws Exception
+    {
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        try
+        {
+            this.bootstrap.setThreadPoolExecutor(threadPoolExecutor);
+            
+            txn = transactionService.getUserTransaction();
+            txn.begin();
+            // turn the behaviour off for the model type
+            this.behaviourFilter.disableBehaviour(ContentModel.TYPE_DICTIONARY_MODEL);
+            createModelNode(
+                    "http://www.alfresco.org/model/test5DictionaryBootstrapFromRepo/1.0",
+                    "test5",
+                    "testModel5",
+                    " <import uri=\"http://www.alfresco.org/model/test4DictionaryBootstrapFromRepo/1.0\" prefix=\"test4\"/> ",
+                    "Test model five",
+                    "base5",
+                    "prop5");
+            createModelNode(
+                    "http://www.alfresco.org/model/test6DictionaryBootstrapFromRepo/1.0",
+                    "test6",
+                    "testModel6",
+                    " <import uri=\"http://www.alfresco.org/model/test5DictionaryBootstrapFromRepo/1.0\" prefix=\"test5\"/> ",
+                    "Test model six",
+                    "base6",
+                    "prop6");
+            NodeRef model4 = createModelNode(
+                    "http://www.alfresco.org/model/test4DictionaryBootstrapFromRepo/1.0",
+                    "test4",
+                    "testModel4",
+                    "",
+                    "Test model four",
+                    "base4",
+                    "prop4");
+            
+            // Now do the bootstrap
+            this.bootstrap.init();
+            
+            // Check that the models are there, having been registered in dependency order
+            for (int i = 4; i <= 6; i++)
+            {
+                ModelDefinition modelDefinition = this.dictionaryDAO.getModel(
+                        QName.createQName("http://www.alfresco.org/model/test" + i + "DictionaryBootstrapFromRepo/1.0", "testModel" + i));
+                assertNotNull(modelDefinition);
+            }
+            
+            // Each call parses a new model with the same content
+            M2Model m2Model = this.bootstrap.createM2Model(model4);
+            M2Model m2ModelAgain = this.bootstrap.createM2Model(model4);
+            assertNotSame(m2Model, m2ModelAgain);
+            assertEquals(toXML(m2Model), toXML(m2ModelAgain));
+            
+            txn.commit();
+        }
+        finally
+        {
+            threadPoolExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Write a model out as XML, to compare the content of two models
+     */
+    private String toXML(M2Model model) throws Exception
+    {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        model.toXML(xml);
+        return xml.toString("UTF-8");
+    }
+
     /**
      * Create model node 
      * 
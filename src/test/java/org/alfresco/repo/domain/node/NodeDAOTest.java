@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -40,16 +41,21 @@ import org.alfresco.repo.cache.SimpleCache;
 import org.alfresco.repo.cache.TransactionalCache;
 import org.alfresco.repo.cache.TransactionalCache.ValueHolder;
 import org.alfresco.repo.domain.node.NodeDAO.NodeRefQueryCallback;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.transaction.RetryingTransactionHelper;
 import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.ServiceRegistry;
 import org.alfresco.service.cmr.dictionary.DataTypeDefinition;
 import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.Path;
 import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.NamespaceService;
 import org.alfresco.service.namespace.QName;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.test_category.OwnJVMTestsCategory;
 import org.alfresco.util.ApplicationContextHelper;
+import org.alfresco.util.GUID;
 import org.alfresco.util.Pair;
 import org.alfresco.util.testing.category.DBTests;
 import org.alfresco.util.testing.category.LuceneTests;
@@ -368,4 +374,138 @@ public class NodeDAOTest extends TestCase
             Assert.assertEquals(node, clonedNode);          // Does NPE check implicitly
         }
     }
+    
+    /**
+     * Primary paths are served from the cache until a node above them changes
+     */
+    public void testPrimaryPathCache() throws Throwable
+    {
+        if (((AbstractNodeDAOImpl) nodeDAO).getPrimaryPathCache() == null)
+        {
+            // Primary path caching is disabled
+            return;
+        }
+        final NodeService nodeService = (NodeService) ctx.getBean("nodeService");
+        AuthenticationUtil.pushAuthentication();
+        AuthenticationUtil.setRunAsUserSystem();
+        try
+        {
+            // Build folderA/doc and folderB
+            final NodeRef[] nodeRefs = txnHelper.doInTransaction(new RetryingTransactionCallback<NodeRef[]>()
+            {
+                public NodeRef[] execute() throws Throwable
+                {
+                    StoreRef storeRef = nodeService.createStore(StoreRef.PROTOCOL_WORKSPACE, "PrimaryPathCache-" + GUID.generate());
+                    NodeRef rootNodeRef = nodeService.getRootNode(storeRef);
+                    NodeRef folderA = createNode(nodeService, rootNodeRef, "folderA", ContentModel.TYPE_FOLDER);
+                    NodeRef folderB = createNode(nodeService, rootNodeRef, "folderB", ContentModel.TYPE_FOLDER);
+                    NodeRef doc = createNode(nodeService, folderA, "doc", ContentModel.TYPE_CONTENT);
+                    return new NodeRef[] {folderA, folderB, doc};
+                }
+            });
+            final NodeRef folderA = nodeRefs[0];
+            final NodeRef folderB = nodeRefs[1];
+            final NodeRef doc = nodeRefs[2];
+            final Long docId = txnHelper.doInTransaction(new RetryingTransactionCallback<Long>()
+            {
+                public Long execute() throws Throwable
+                {
+                    return nodeDAO.getNodePair(doc).getFirst();
+                }
+            }, true);
+            
+            // The path is cached once read
+            String path = getPrimaryPath(doc);
+            assertTrue(path, path.contains("folderA"));
+            assertEquals("Primary path should be cached", path, getPrimaryPathCached(docId));
+            
+            // Any change to the folder gives it a new version, so the path is built again
+            txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+            {
+                public Void execute() throws Throwable
+                {
+                    nodeService.setProperty(folderA, ContentModel.PROP_TITLE, GUID.generate());
+                    return null;
+                }
+            });
+            assertNull("Primary path should have been invalidated", getPrimaryPathCached(docId));
+            assertEquals(path, getPrimaryPath(doc));
+            assertEquals("Primary path should be cached again", path, getPrimaryPathCached(docId));
+            
+            // A rolled back move leaves the path as it was
+            try
+            {
+                txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+                {
+                    public Void execute() throws Throwable
+                    {
+                        nodeService.moveNode(folderA, folderB, ContentModel.ASSOC_CHILDREN, QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "folderA"));
+                        assertTrue(getPrimaryPathInTxn(doc).contains("folderB"));
+                        throw new IllegalStateException("Rollback");
+                    }
+                });
+                fail("Transaction should have been rolled back");
+            }
+            catch (IllegalStateException e)
+            {
+                // Expected
+            }
+            assertEquals(path, getPrimaryPath(doc));
+            assertEquals("Primary path should still be cached", path, getPrimaryPathCached(docId));
+            
+            // Moving the folder gives a new path to everything below it
+            txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+            {
+                public Void execute() throws Throwable
+                {
+                    nodeService.moveNode(folderA, folderB, ContentModel.ASSOC_CHILDREN, QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "folderA"));
+                    return null;
+                }
+            });
+            assertNull("Primary path should have been invalidated", getPrimaryPathCached(docId));
+            String movedPath = getPrimaryPath(doc);
+            assertTrue(movedPath, movedPath.contains("folderB"));
+            assertEquals(movedPath, getPrimaryPathCached(docId));
+        }
+        finally
+        {
+            AuthenticationUtil.popAuthentication();
+        }
+    }
+    
+    private NodeRef createNode(NodeService nodeService, NodeRef parentNodeRef, String name, QName type)
+    {
+        QName assocQName = QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, name);
+        Map<QName, Serializable> props = Collections.<QName, Serializable>singletonMap(ContentModel.PROP_NAME, name);
+        return nodeService.createNode(parentNodeRef, ContentModel.ASSOC_CHILDREN, assocQName, type, props).getChildRef();
+    }
+    
+    private String getPrimaryPath(final NodeRef nodeRef)
+    {
+        return txnHelper.doInTransaction(new RetryingTransactionCallback<String>()
+        {
+            public String execute() throws Throwable
+            {
+                return getPrimaryPathInTxn(nodeRef);
+            }
+        }, true);
+    }
+    
+    private String getPrimaryPathCached(final Long nodeId)
+    {
+        return txnHelper.doInTransaction(new RetryingTransactionCallback<String>()
+        {
+            public String execute() throws Throwable
+            {
+                Path path = ((AbstractNodeDAOImpl) nodeDAO).getPrimaryPathCached(nodeId);
+                return path == null ? null : path.toString();
+            }
+        }, true);
+    }
+    
+    private String getPrimaryPathInTxn(NodeRef nodeRef)
+    {
+        Pair<Long, NodeRef> nodePair = nodeDAO.getNodePair(nodeRef);
+        return nodeDAO.getPaths(nodePair, true).get(0).toString();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.domain.node;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.repo.domain.node.PrimaryPathCache.Chain;
+import org.alfresco.repo.domain.node.PrimaryPathCache.NodeVersions;
+import org.alfresco.service.cmr.repository.Path;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link PrimaryPathCache} class.
+ * 
+ * @since 7.6
+ */
+public class PrimaryPathCacheTest
+{
+    private PrimaryPathCache cache;
+    private final Map<Long, String> changeTxnIds = new HashMap<Long, String>();
+    private final NodeVersions nodeVersions = new NodeVersions()
+    {
+        @Override
+        public String getChangeTxnId(Long nodeId)
+        {
+            return changeTxnIds.get(nodeId);
+        }
+    };
+
+    @Before
+    public void setUp()
+    {
+        cache = new PrimaryPathCache(100);
+        for (long nodeId = 1L; nodeId < 10L; nodeId++)
+        {
+            changeTxnIds.put(nodeId, "txn-1");
+        }
+    }
+
+    private Chain newChain(long... nodeIds)
+    {
+        Chain chain = cache.newChain();
+        for (long nodeId : nodeIds)
+        {
+            chain.add(nodeId, changeTxnIds.get(nodeId));
+        }
+        return chain;
+    }
+
+    @Test
+    public void putAndGet()
+    {
+        assertTrue(cache.put(3L, newChain(3L, 2L, 1L), new Path(), "txn-2"));
+        assertNotNull(cache.get(3L, nodeVersions));
+        assertNull(cache.get(2L, nodeVersions));
+    }
+
+    @Test
+    public void changingAncestorInvalidatesSubtree()
+    {
+        cache.put(3L, newChain(3L, 2L, 1L), new Path(), "txn-2");
+        cache.put(4L, newChain(4L, 3L, 2L, 1L), new Path(), "txn-2");
+        cache.put(5L, newChain(5L, 1L), new Path(), "txn-2");
+
+        // Moving node 2, possibly on another server, invalidates everything below it and nothing else
+        changeTxnIds.put(2L, "txn-3");
+        assertNull(cache.get(3L, nodeVersions));
+        assertNull(cache.get(4L, nodeVersions));
+        assertNotNull(cache.get(5L, nodeVersions));
+    }
+
+    @Test
+    public void changingLeafOnlyInvalidatesItself()
+    {
+        cache.put(3L, newChain(3L, 2L, 1L), new Path(), "txn-2");
+        cache.put(5L, newChain(5L, 2L, 1L), new Path(), "txn-2");
+
+        changeTxnIds.put(5L, "txn-3");
+        assertNull(cache.get(5L, nodeVersions));
+        assertNotNull(cache.get(3L, nodeVersions));
+    }
+
+    @Test
+    public void changeWhileBuildingIsNotUsed()
+    {
+        Chain chain = newChain(3L, 2L, 1L);
+        // Node 2 is moved after it was visited but before the path is cached
+        changeTxnIds.put(2L, "txn-3");
+        cache.put(3L, chain, new Path(), "txn-2");
+        assertNull(cache.get(3L, nodeVersions));
+    }
+
+    @Test
+    public void deletedAncestorInvalidatesSubtree()
+    {
+        cache.put(3L, newChain(3L, 2L, 1L), new Path(), "txn-2");
+        changeTxnIds.remove(2L);
+        assertNull(cache.get(3L, nodeVersions));
+    }
+
+    @Test
+    public void pathWithOwnChangesIsNotCached()
+    {
+        // Node 2 was changed by the transaction building the path
+        changeTxnIds.put(2L, "txn-2");
+        assertFalse(cache.put(3L, newChain(3L, 2L, 1L), new Path(), "txn-2"));
+        assertNull(cache.get(3L, nodeVersions));
+    }
+
+    @Test
+    public void invalidateDropsOnlyTheNode()
+    {
+        cache.put(3L, newChain(3L, 2L, 1L), new Path(), "txn-2");
+        cache.put(2L, newChain(2L, 1L), new Path(), "txn-2");
+        cache.invalidate(2L);
+        assertNull(cache.get(2L, nodeVersions));
+        assertNotNull(cache.get(3L, nodeVersions));
+    }
+
+    @Test
+    public void clearDropsAll()
+    {
+        cache.put(8L, newChain(8L, 7L), new Path(), "txn-2");
+        cache.clear();
+        assertNull(cache.get(8L, nodeVersions));
+    }
+
+    @Test
+    public void pathIsCopied()
+    {
+        Path path = new Path();
+        cache.put(2L, newChain(2L, 1L), path, "txn-2");
+        Path cachedPath = cache.get(2L, nodeVersions);
+        assertNotSame(path, cachedPath);
+        assertNotSame(cachedPath, cache.get(2L, nodeVersions));
+        assertEquals(0, cachedPath.size());
+    }
+}
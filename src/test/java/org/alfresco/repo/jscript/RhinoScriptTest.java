@@ -261,6 +261,68 @@ public class RhinoScriptTest extends TestCase
             });
     }
     
+    public void testNodeScriptCache()
+    {
+        final RhinoScriptProcessor processor = (RhinoScriptProcessor)ctx.getBean("javaScriptProcessor");
+        transactionService.getRetryingTransactionHelper().doInTransaction(
+            new RetryingTransactionCallback<Object>()
+            {
+                public Object execute() throws Exception
+                {
+                    StoreRef store = nodeService.createStore(StoreRef.PROTOCOL_WORKSPACE, "rhino_" + System.currentTimeMillis());
+                    NodeRef root = nodeService.getRootNode(store);
+                    NodeRef libNodeRef = createScriptNode(root, "lib", "var lib = 'one';");
+                    NodeRef scriptNodeRef = createScriptNode(root, "script",
+                            "<import resource=\"" + libNodeRef + "\">\nlib + ' first';");
+                    
+                    processor.resetNodeScriptCacheStatistics();
+                    assertEquals("one first", executeScriptNode(scriptNodeRef));
+                    assertEquals(1, processor.getNodeScriptCacheMisses());
+                    assertEquals("one first", executeScriptNode(scriptNodeRef));
+                    assertEquals(1, processor.getNodeScriptCacheHits());
+                    
+                    // editing the script recompiles it
+                    writeScript(scriptNodeRef, "<import resource=\"" + libNodeRef + "\">\nlib + ' second';");
+                    assertEquals("one second", executeScriptNode(scriptNodeRef));
+                    assertEquals(2, processor.getNodeScriptCacheMisses());
+                    
+                    // as does editing an import
+                    writeScript(libNodeRef, "var lib = 'two';");
+                    assertEquals("two second", executeScriptNode(scriptNodeRef));
+                    assertEquals(3, processor.getNodeScriptCacheMisses());
+                    assertEquals("two second", executeScriptNode(scriptNodeRef));
+                    assertEquals(2, processor.getNodeScriptCacheHits());
+                    
+                    return null;
+                }
+            });
+    }
+    
+    private NodeRef createScriptNode(NodeRef parent, String name, String script)
+    {
+        NodeRef nodeRef = nodeService.createNode(
+                parent,
+                BaseNodeServiceTest.ASSOC_TYPE_QNAME_TEST_CHILDREN,
+                QName.createQName(BaseNodeServiceTest.NAMESPACE, name),
+                ContentModel.TYPE_CONTENT,
+                null).getChildRef();
+        writeScript(nodeRef, script);
+        return nodeRef;
+    }
+    
+    private void writeScript(NodeRef nodeRef, String script)
+    {
+        ContentWriter writer = contentService.getWriter(nodeRef, ContentModel.PROP_CONTENT, true);
+        writer.setMimetype("application/x-javascript");
+        writer.setEncoding("UTF-8");
+        writer.putContent(script);
+    }
+    
+    private Object executeScriptNode(NodeRef nodeRef)
+    {
+        return scriptService.executeScript(nodeRef, ContentModel.PROP_CONTENT, new HashMap<String, Object>());
+    }
+    
     public void testScriptActions()
     {
         transactionService.getRetryingTransactionHelper().doInTransaction(
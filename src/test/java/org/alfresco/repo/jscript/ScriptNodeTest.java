@@ -28,12 +28,16 @@ package org.alfresco.repo.jscript;
 
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.InputStream;
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -64,6 +68,7 @@ import org.alfresco.service.cmr.repository.ContentService;
 import org.alfresco.service.cmr.repository.ContentWriter;
 import org.alfresco.service.cmr.repository.NodeRef;
 import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.ScriptService;
 import org.alfresco.service.cmr.repository.StoreRef;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.service.cmr.site.SiteVisibility;
@@ -174,6 +179,7 @@ public class ScriptNodeTest
     boolean autoVersionProps;
 
     private static final String TEST_CONTENT_MODEL = "alfresco/extension/model/testContentModel.xml";
+    private static final String TESTSCRIPT_CHILDREN_PROPERTIES = "org/alfresco/repo/jscript/test_childrenproperties.js";
 
     @BeforeClass public static void initStaticData() throws Exception
     {
@@ -739,6 +745,79 @@ public class ScriptNodeTest
         }
     }
 
+    /**
+     * Properties are converted for script usage when they are read, and unread properties are written back unchanged.
+     */
+    @Test
+    public void testLazyProperties()
+    {
+        Repository repositoryHelper = (Repository) APP_CONTEXT_INIT.getApplicationContext().getBean("repositoryHelper");
+        NodeRef companyHome = repositoryHelper.getCompanyHome();
+
+        NodeRef newNode = testNodes.createQuickFile(MimetypeMap.MIMETYPE_TEXT_PLAIN, companyHome, "lazyProperties.txt", TEST_USER1.getUsername());
+        NODE_SERVICE.setProperty(newNode, ContentModel.PROP_DESCRIPTION, "A description");
+        Map<QName, Serializable> repoProps = NODE_SERVICE.getProperties(newNode);
+
+        ScriptNode sn = new ScriptNode(newNode, SERVICE_REGISTRY);
+        sn.setScope(getScope());
+        LazyScriptableQNameMap<?, ?> props = (LazyScriptableQNameMap<?, ?>) sn.getProperties();
+
+        // all the keys are available before any value is read
+        assertEquals(repoProps.size(), props.size());
+        assertTrue(props.containsKey("cm:created"));
+        assertTrue(props.isUnconverted("cm:created"));
+
+        // values are converted on first access
+        assertEquals("lazyProperties.txt", props.get("cm:name"));
+        assertFalse(props.isUnconverted("cm:name"));
+        assertTrue(props.get(ContentModel.PROP_CONTENT.toString()) instanceof ScriptContentData);
+        assertTrue(props.isUnconverted("cm:description"));
+
+        // properties that were not read are persisted unchanged
+        props.put("cm:title", "A title");
+        sn.save();
+        assertEquals("A title", NODE_SERVICE.getProperty(newNode, ContentModel.PROP_TITLE));
+        assertEquals("A description", NODE_SERVICE.getProperty(newNode, ContentModel.PROP_DESCRIPTION));
+        assertEquals(repoProps.get(ContentModel.PROP_CREATED), NODE_SERVICE.getProperty(newNode, ContentModel.PROP_CREATED));
+        assertEquals(repoProps.get(ContentModel.PROP_CONTENT), NODE_SERVICE.getProperty(newNode, ContentModel.PROP_CONTENT));
+    }
+
+    /**
+     * Measures the per-node overhead of a script reading the properties of each child of a folder.
+     */
+    @Test
+    public void testChildrenPropertiesPerNodeOverhead()
+    {
+        final int childCount = 50;
+        Repository repositoryHelper = (Repository) APP_CONTEXT_INIT.getApplicationContext().getBean("repositoryHelper");
+        NodeRef companyHome = repositoryHelper.getCompanyHome();
+
+        final NodeRef folder = testNodes.createNode(companyHome, "childrenProperties", ContentModel.TYPE_FOLDER, TEST_USER1.getUsername());
+        for (int i = 0; i < childCount; i++)
+        {
+            testNodes.createQuickFile(MimetypeMap.MIMETYPE_TEXT_PLAIN, folder, "child" + i + ".txt", TEST_USER1.getUsername());
+        }
+
+        final ScriptService scriptService = SERVICE_REGISTRY.getScriptService();
+        for (int run = 0; run < 3; run++)
+        {
+            long start = System.nanoTime();
+            Object result = TRANSACTION_HELPER.doInTransaction(new RetryingTransactionCallback<Object>()
+            {
+                public Object execute() throws Throwable
+                {
+                    Map<String, Object> model = new HashMap<String, Object>();
+                    model.put("folder", new ScriptNode(folder, SERVICE_REGISTRY));
+                    return scriptService.executeScript(new ClasspathScriptLocation(TESTSCRIPT_CHILDREN_PROPERTIES), model);
+                }
+            }, true);
+            long perNode = (System.nanoTime() - start) / childCount / 1000;
+            log.debug("Run " + run + ": " + perNode + "us per child node");
+
+            assertEquals(childCount, ((Number) result).intValue());
+        }
+    }
+
     private ScriptableObject getScope() 
     {
         // Create a scope for the value conversion. This scope will be an empty scope exposing basic Object and Function, sufficient for value-conversion.
@@ -229,6 +229,76 @@ public class JobLockServiceTest extends TestCase
         txnHelper.doInTransaction(lockCheckCallback, true, true);
     }
     
+    /**
+     * Checks that a thread waiting for a lock is woken when the lock is released rather
+     * than only after its full retry wait has elapsed.
+     */
+    public void testWaiterWokenOnRelease() throws Exception
+    {
+        final String lockToken = jobLockService.getLock(lockAAA, 60000L);
+        final long[] acquiredAt = new long[] {-1L};
+        Thread waiter = new Thread("JobLockServiceTest-waiter")
+        {
+            @Override
+            public void run()
+            {
+                // A second attempt after a long wait, which the release should cut short
+                String waiterToken = jobLockService.getLock(lockAAA, 1000L, 20000L, 2);
+                acquiredAt[0] = System.currentTimeMillis();
+                jobLockService.releaseLock(waiterToken, lockAAA);
+            }
+        };
+        waiter.start();
+        Thread.sleep(500L);
+        long releasedAt = System.currentTimeMillis();
+        jobLockService.releaseLock(lockToken, lockAAA);
+        waiter.join(30000L);
+        assertTrue("Waiter did not get the lock", acquiredAt[0] > 0);
+        assertTrue("Waiter was not woken by the release", acquiredAt[0] - releasedAt < 10000L);
+    }
+    
+    /**
+     * An interrupted waiter gives up rather than running its remaining attempts without waiting
+     */
+    public void testInterruptedWaiterGivesUp() throws Exception
+    {
+        final String lockToken = jobLockService.getLock(lockAAA, 60000L);
+        final Throwable[] failure = new Throwable[1];
+        final boolean[] interrupted = new boolean[1];
+        Thread waiter = new Thread("JobLockServiceTest-waiter")
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    jobLockService.getLock(lockAAA, 1000L, 20000L, 5);
+                }
+                catch (Throwable e)
+                {
+                    failure[0] = e;
+                }
+                interrupted[0] = Thread.currentThread().isInterrupted();
+            }
+        };
+        try
+        {
+            waiter.start();
+            Thread.sleep(500L);
+            long interruptedAt = System.currentTimeMillis();
+            waiter.interrupt();
+            waiter.join(30000L);
+            assertFalse("Waiter is still retrying", waiter.isAlive());
+            assertTrue("Waiter did not give up promptly", System.currentTimeMillis() - interruptedAt < 10000L);
+            assertTrue("Expected the lock failure but got " + failure[0], failure[0] instanceof LockAcquisitionException);
+            assertTrue("The interrupt should be kept", interrupted[0]);
+        }
+        finally
+        {
+            jobLockService.releaseLock(lockToken, lockAAA);
+        }
+    }
+    
     /**
      * Sets up two threads in a deadlock scenario.  Each of the threads has a long wait timeout
      * for the required locks.  If there were a deadlock, the shorter of the the wait times would
@@ -0,0 +1,140 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.lock;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.alfresco.service.namespace.QName;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link JobLockWaitQueue} class.
+ * 
+ * @since 7.6
+ */
+public class JobLockWaitQueueTest
+{
+    private static final String NAMESPACE = "http://www.alfresco.org/test/JobLockWaitQueueTest";
+    
+    private static final QName LOCK_A = QName.createQName(NAMESPACE, "a");
+    private static final QName LOCK_A_B = QName.createQName(NAMESPACE, "a.b");
+    private static final QName LOCK_C = QName.createQName(NAMESPACE, "c");
+
+    private JobLockWaitQueue waitQueue;
+
+    @Before
+    public void setUp()
+    {
+        waitQueue = new JobLockWaitQueue();
+    }
+
+    @Test
+    public void waitTimesOutWithoutRelease()
+    {
+        long generation = waitQueue.getReleaseGeneration(LOCK_A);
+        long start = System.currentTimeMillis();
+        assertFalse(waitQueue.awaitRelease(LOCK_A, generation, 50L));
+        assertTrue(System.currentTimeMillis() - start >= 50L);
+    }
+
+    @Test
+    public void releaseBeforeWaitIsNotMissed()
+    {
+        long generation = waitQueue.getReleaseGeneration(LOCK_A);
+        waitQueue.lockReleased(LOCK_A);
+        long start = System.currentTimeMillis();
+        assertTrue(waitQueue.awaitRelease(LOCK_A, generation, 10000L));
+        assertTrue(System.currentTimeMillis() - start < 5000L);
+    }
+
+    @Test
+    public void releaseOfRelatedLockWakesWaiter()
+    {
+        // 'a.b' holds a shared lock on 'a', so its release matters to 'a'
+        long generation = waitQueue.getReleaseGeneration(LOCK_A);
+        waitQueue.lockReleased(LOCK_A_B);
+        assertTrue(waitQueue.awaitRelease(LOCK_A, generation, 10000L));
+        // ... but not to 'c'
+        generation = waitQueue.getReleaseGeneration(LOCK_C);
+        waitQueue.lockReleased(LOCK_A_B);
+        assertFalse(waitQueue.awaitRelease(LOCK_C, generation, 10L));
+    }
+
+    @Test
+    public void waiterIsWokenByReleaseInOtherThread() throws Exception
+    {
+        final long generation = waitQueue.getReleaseGeneration(LOCK_A_B);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(1);
+        final AtomicBoolean woken = new AtomicBoolean();
+        Thread waiter = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                started.countDown();
+                woken.set(waitQueue.awaitRelease(LOCK_A_B, generation, 60000L));
+                finished.countDown();
+            }
+        };
+        waiter.start();
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        waitQueue.lockReleased(LOCK_A_B);
+        assertTrue("Waiter was not woken up", finished.await(10, TimeUnit.SECONDS));
+        assertTrue(woken.get());
+        assertEquals(1L, waitQueue.getWokenCount());
+    }
+
+    @Test
+    public void statistics()
+    {
+        waitQueue.recordAcquisition(0L, 1, true);
+        waitQueue.recordAcquisition(75L, 3, true);
+        waitQueue.recordAcquisition(20000L, 10, false);
+
+        assertEquals(3L, waitQueue.getAcquisitionCount());
+        assertEquals(2L, waitQueue.getContendedCount());
+        assertEquals(1L, waitQueue.getFailedCount());
+        assertEquals(20075L, waitQueue.getTotalWaitTimeMs());
+        assertEquals(20000L, waitQueue.getMaxWaitTimeMs());
+
+        long[] bounds = waitQueue.getWaitTimeHistogramBoundsMs();
+        long[] histogram = waitQueue.getWaitTimeHistogram();
+        assertEquals(bounds.length + 1, histogram.length);
+        assertEquals(1L, histogram[0]);                     // 0 ms
+        assertEquals(1L, histogram[3]);                     // up to 100 ms
+        assertEquals(1L, histogram[histogram.length - 1]);  // beyond the last bound
+
+        waitQueue.resetStatistics();
+        assertEquals(0L, waitQueue.getAcquisitionCount());
+        assertEquals(0L, waitQueue.getWaitTimeHistogram()[0]);
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.lock.mem;
+
+import static org.junit.Assert.*;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.alfresco.service.cmr.lock.LockType;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link StripedLockStoreImpl} class.
+ * 
+ * @since 7.6
+ */
+public class StripedLockStoreImplTest extends AbstractLockStoreTestBase<StripedLockStoreImpl>
+{
+    /**
+     * A map with a clock that only moves when told to
+     */
+    private static class ManualClockMap extends StripedLockStateMap
+    {
+        private long now = 1000000L;
+
+        private ManualClockMap(long ttlSeconds)
+        {
+            super(ttlSeconds, TimeUnit.SECONDS, 4, 16);
+        }
+
+        @Override
+        protected long currentTimeMillis()
+        {
+            return now;
+        }
+    }
+
+    @Override
+    protected StripedLockStoreImpl createLockStore()
+    {
+        return new StripedLockStoreImpl(20);
+    }
+
+    private static LockState createLock(NodeRef nodeRef)
+    {
+        return LockState.createLock(nodeRef, LockType.NODE_LOCK, "owner", null, Lifetime.EPHEMERAL, null);
+    }
+
+    @Test
+    public void testExpiry()
+    {
+        ManualClockMap map = new ManualClockMap(60);
+        StripedLockStoreImpl store = new StripedLockStoreImpl(map);
+        NodeRef nodeRef1 = new NodeRef("workspace://SpacesStore/1");
+        NodeRef nodeRef2 = new NodeRef("workspace://SpacesStore/2");
+        store.set(nodeRef1, createLock(nodeRef1));
+        map.now += 30000L;
+        store.set(nodeRef2, createLock(nodeRef2));
+        assertEquals(2, store.getLockCount());
+
+        // The first lock expires exactly on time
+        map.now += 30000L;
+        assertNull(store.get(nodeRef1));
+        assertNotNull(store.get(nodeRef2));
+
+        // Sweeping drops it from memory
+        store.expireAll();
+        assertEquals(1, store.getLockCount());
+        assertEquals(1L, store.getExpiredCount());
+        
+        map.now += 30000L;
+        store.expireAll();
+        assertEquals(0, store.getLockCount());
+        assertEquals(2L, store.getExpiredCount());
+        assertTrue(store.getNodes().isEmpty());
+
+        store.resetStatistics();
+        assertEquals(0L, store.getExpiredCount());
+    }
+
+    @Test
+    public void testRewriteExtendsLife()
+    {
+        ManualClockMap map = new ManualClockMap(60);
+        StripedLockStoreImpl store = new StripedLockStoreImpl(map);
+        NodeRef nodeRef = new NodeRef("workspace://SpacesStore/1");
+        LockState lock = createLock(nodeRef);
+        store.set(nodeRef, lock);
+        map.now += 50000L;
+        LockState newLock = LockState.createWithOwner(lock, "other");
+        store.set(nodeRef, newLock);
+        
+        // The original write would have expired by now
+        map.now += 50000L;
+        store.expireAll();
+        assertEquals(newLock, map.get(nodeRef));
+        assertEquals(1, store.getLockCount());
+        assertEquals(0L, store.getExpiredCount());
+
+        map.now += 10000L;
+        store.expireAll();
+        assertNull(map.get(nodeRef));
+        assertEquals(0, store.getLockCount());
+    }
+
+    @Test
+    public void testIdleLongerThanWheel()
+    {
+        ManualClockMap map = new ManualClockMap(60);
+        StripedLockStoreImpl store = new StripedLockStoreImpl(map);
+        for (int i = 0; i < 100; i++)
+        {
+            NodeRef nodeRef = new NodeRef("workspace://SpacesStore/" + i);
+            store.set(nodeRef, createLock(nodeRef));
+            map.now += 1000L;
+        }
+        map.now += 3600000L;
+        store.expireAll();
+        assertEquals(0, store.getLockCount());
+        assertEquals(100L, store.getExpiredCount());
+    }
+
+    @Test
+    public void testMapOperations()
+    {
+        StripedLockStateMap map = new ManualClockMap(60);
+        NodeRef nodeRef = new NodeRef("workspace://SpacesStore/1");
+        LockState lock1 = createLock(nodeRef);
+        LockState lock2 = LockState.createWithOwner(lock1, "other");
+        assertNull(map.putIfAbsent(nodeRef, lock1));
+        assertEquals(lock1, map.putIfAbsent(nodeRef, lock2));
+        assertFalse(map.replace(nodeRef, lock2, lock1));
+        assertTrue(map.replace(nodeRef, lock1, lock2));
+        assertFalse(map.remove(nodeRef, lock1));
+        assertTrue(map.containsKey(nodeRef));
+        assertEquals(lock2, map.remove(nodeRef));
+        assertNull(map.get(nodeRef));
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void testGetNodesAcrossSegments()
+    {
+        Set<NodeRef> expected = new HashSet<NodeRef>();
+        for (int i = 0; i < 1000; i++)
+        {
+            NodeRef nodeRef = new NodeRef("workspace://SpacesStore/" + i);
+            lockStore.set(nodeRef, createLock(nodeRef));
+            expected.add(nodeRef);
+        }
+        assertEquals(1000, lockStore.getNodes().size());
+        assertEquals(expected, new HashSet<NodeRef>(lockStore.getNodes()));
+        lockStore.clear();
+        assertEquals(0, lockStore.getLockCount());
+        assertFalse(lockStore.getNodes().iterator().hasNext());
+    }
+}
@@ -32,6 +32,7 @@ import java.util.List;
 import junit.framework.TestCase;
 
 import org.alfresco.model.ContentModel;
+import org.alfresco.repo.node.db.DbNodeServiceImpl;
 import org.alfresco.repo.security.authentication.AuthenticationComponent;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
 import org.alfresco.repo.security.authentication.AuthenticationUtil.RunAsWork;
@@ -320,4 +321,70 @@ public class LargeArchiveAndRestoreTest extends TestCase
         };
         AuthenticationUtil.runAs(purgeHierarchyWork, AuthenticationUtil.SYSTEM_USER_NAME);
     }
+    
+    /**
+     * Compare the time taken to archive the same hierarchy by copying and by moving the nodes
+     */
+    public void testArchiveByCopyAndByMove() throws Exception
+    {
+        DbNodeServiceImpl dbNodeService = (DbNodeServiceImpl) ctx.getBean("dbNodeService");
+        try
+        {
+            dbNodeService.setArchiveByMove(false);
+            long copyTime = archiveHierarchy();
+            dbNodeService.setArchiveByMove(true);
+            long moveTime = archiveHierarchy();
+            logger.info("Archived hierarchy by copy in " + copyTime + "ms and by move in " + moveTime + "ms");
+        }
+        finally
+        {
+            dbNodeService.setArchiveByMove(true);
+        }
+    }
+    
+    /**
+     * Create, archive and purge a hierarchy
+     * 
+     * @return                  the time taken to archive the hierarchy in milliseconds
+     */
+    private long archiveHierarchy()
+    {
+        RunAsWork<Long> archiveHierarchyWork = new RunAsWork<Long>()
+        {
+            public Long doWork() throws Exception
+            {
+                final NodeRef parentNodeRef = transactionService.getRetryingTransactionHelper().doInTransaction(
+                        new CreateDataCallback(rootNodeRef));
+                final NodeRef archivedParentNodeRef = new NodeRef("archive", parentNodeRef.getStoreRef().getIdentifier(), parentNodeRef.getId());
+                
+                long start = System.currentTimeMillis();
+                transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Object>()
+                {
+                    public Object execute() throws Throwable
+                    {
+                        fileFolderService.delete(parentNodeRef);
+                        return null;
+                    }
+                });
+                long time = System.currentTimeMillis() - start;
+                
+                transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionCallback<Object>()
+                {
+                    public Object execute() throws Throwable
+                    {
+                        // Check that the whole hierarchy made it into the archive
+                        assertFalse("Original node was found after delete", nodeService.exists(parentNodeRef));
+                        assertTrue("Archived node not found after delete", nodeService.exists(archivedParentNodeRef));
+                        assertTrue("Archived node is missing the archived aspect", nodeService.hasAspect(archivedParentNodeRef, ContentModel.ASPECT_ARCHIVED));
+                        assertEquals("Archived node is missing children", NUM_FOLDERS, nodeService.getChildAssocs(archivedParentNodeRef).size());
+                        // Clean up
+                        nodeArchiveService.purgeArchivedNode(archivedParentNodeRef);
+                        return null;
+                    }
+                });
+                return time;
+            }
+        };
+        return AuthenticationUtil.runAs(archiveHierarchyWork, AuthenticationUtil.SYSTEM_USER_NAME);
+    }
 }
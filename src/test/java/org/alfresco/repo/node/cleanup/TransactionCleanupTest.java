@@ -359,6 +359,37 @@ public class TransactionCleanupTest
         assertNull("Node 5 was not cleaned up", nodeDAO.getNodeRefStatus(nodeRef5));
     }
 
+    @Test public void testPurgeInParallel() throws Exception
+    {
+        // make sure we clean up all the other nodes that may require purging
+        worker.setPurgeSize(7200000);// 2 hours
+        worker.doClean();
+        // delete the node 4 and node 5 with a half a second delay between the events
+        createTransactionsForNodePurgeTest();
+
+        nodesCache.clear();
+        assertNotNull("Node 4 is deleted but not purged", nodeDAO.getNodeRefStatus(nodeRef4));
+        assertNotNull("Node 5 is deleted but not purged", nodeDAO.getNodeRefStatus(nodeRef5));
+
+        // run the transaction cleaner with small purge windows spread across several threads
+        worker.setPurgeThreads(4);
+        worker.setPurgeSize(5);
+        worker.setFromCustomCommitTime(fromCustomCommitTime);
+        List<String> reports = worker.doClean();
+        for (String report : reports)
+        {
+            logger.debug(report);
+        }
+
+        nodesCache.clear();
+        assertNotNull("Node 4 is deleted but not purged", nodeDAO.getNodeRefStatus(nodeRef4));
+        assertNull("Node 5 was not cleaned up", nodeDAO.getNodeRefStatus(nodeRef5));
+
+        // the progress is available from the registry
+        NodeCleanupRegistry registry = (NodeCleanupRegistry) ctx.getBean("nodeCleanupRegistry");
+        assertNotNull("Purge progress was not reported", registry.getProgress().get(DeletedNodeCleanupWorker.class.getName()));
+    }
+
     @After
     public void after()
     {
@@ -36,6 +36,7 @@ import org.alfresco.repo.forms.FormService;
 import org.alfresco.repo.i18n.MessageService;
 import org.alfresco.repo.imap.ImapService;
 import org.alfresco.repo.lock.JobLockService;
+import org.alfresco.repo.node.NodeBulkLoader;
 import org.alfresco.repo.nodelocator.NodeLocatorService;
 import org.alfresco.repo.policy.PolicyComponent;
 import org.alfresco.repo.search.impl.solr.facet.SolrFacetHelper;
@@ -516,4 +517,11 @@ public class MockedTestServiceRegistry implements ServiceRegistry
         // A mock response
         return null;
     }
+
+    @Override
+    public NodeBulkLoader getNodeBulkLoader()
+    {
+        // A mock response
+        return null;
+    }
 }
@@ -40,6 +40,7 @@ import org.alfresco.repo.action.executer.AddFeaturesActionExecuter;
 import org.alfresco.repo.action.executer.CopyActionExecuter;
 import org.alfresco.repo.action.executer.ImageTransformActionExecuter;
 import org.alfresco.repo.action.executer.MoveActionExecuter;
+import org.alfresco.repo.action.executer.ScriptActionExecuter;
 import org.alfresco.repo.content.MimetypeMap;
 import org.alfresco.repo.content.transform.AbstractContentTransformerTest;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
@@ -892,6 +893,55 @@ public class RuleServiceImplTest extends BaseRuleTest
         assertTrue(allRules4.contains(rule4));        
     }
     
+    /**
+     * Ensures that the inherited rules of a node follow moves, links and new rules made in the same transaction
+     */
+    @Test
+    public void testInheritedRulesFollowHierarchyChanges()
+    {
+        NodeRef folderA = createNewNode(this.rootNodeRef);
+        Rule ruleA = createTestRule(true, "ruleA");
+        this.ruleService.saveRule(folderA, ruleA);
+        NodeRef folderB = createNewNode(this.rootNodeRef);
+        Rule ruleB = createTestRule(true, "ruleB");
+        this.ruleService.saveRule(folderB, ruleB);
+        NodeRef child = createNewNode(folderA);
+        NodeRef grandchild = createNewNode(child);
+        
+        List<Rule> rules1 = this.ruleService.getRules(grandchild);
+        assertEquals(1, rules1.size());
+        assertEquals("ruleA", rules1.get(0).getTitle());
+        
+        // Move the child to the other folder
+        this.nodeService.moveNode(child, folderB, ContentModel.ASSOC_CHILDREN, QName.createQName("{test}moved"));
+        List<Rule> rules2 = this.ruleService.getRules(grandchild);
+        assertEquals(1, rules2.size());
+        assertEquals("ruleB", rules2.get(0).getTitle());
+        
+        // Link the child to the rules of the original folder
+        Action linkAction = this.actionService.createAction(LinkRules.NAME);
+        linkAction.setParameterValue(LinkRules.PARAM_LINK_FROM_NODE, folderA);
+        this.actionService.executeAction(linkAction, child);
+        List<Rule> rules3 = this.ruleService.getRules(grandchild);
+        assertEquals(2, rules3.size());
+        assertEquals("ruleB", rules3.get(0).getTitle());
+        assertEquals("ruleA", rules3.get(1).getTitle());
+        
+        // Add another rule to the new parent
+        this.ruleService.saveRule(folderB, createTestRule(true, "ruleB2"));
+        List<Rule> rules4 = this.ruleService.getRules(grandchild);
+        assertEquals(3, rules4.size());
+        assertEquals("ruleB2", rules4.get(1).getTitle());
+        
+        // Unlink the rules again
+        Action unlinkAction = this.actionService.createAction(UnlinkRules.NAME);
+        this.actionService.executeAction(unlinkAction, child);
+        List<Rule> rules5 = this.ruleService.getRules(grandchild);
+        assertEquals(2, rules5.size());
+        assertEquals("ruleB", rules5.get(0).getTitle());
+        assertEquals("ruleB2", rules5.get(1).getTitle());
+    }
+    
     @Test
     public void testCyclicRules()
     {
@@ -1273,6 +1323,56 @@ public class RuleServiceImplTest extends BaseRuleTest
         ((RuntimeRuleService) ruleService).executePendingRules();
         assertTrue("Pending rule was not executed", this.nodeService.hasAspect(actionedUponNodeRef, ContentModel.ASPECT_VERSIONABLE));
     }
+    
+    /**
+     * A rule pending against many nodes is loaded once, but each node must be acted upon by its own copy of the
+     * action.  The script records any result left on the action by an earlier execution.
+     */
+    @Test
+    public void testRulePendingAgainstManyNodes() throws Exception
+    {
+        NodeRef parentNodeRef = this.nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("parentnode" + GUID.generate()), ContentModel.TYPE_FOLDER)
+                .getChildRef();
+        
+        Map<QName, Serializable> props = new HashMap<QName, Serializable>(1);
+        props.put(ContentModel.PROP_NAME, "rule-script-" + GUID.generate() + ".js");
+        NodeRef scriptNodeRef = this.nodeService.createNode(rootNodeRef, ContentModel.ASSOC_CHILDREN, QName.createQName("script" + GUID.generate()),
+                ContentModel.TYPE_CONTENT, props).getChildRef();
+        ContentWriter writer = this.contentService.getWriter(scriptNodeRef, ContentModel.PROP_CONTENT, true);
+        writer.setMimetype(MimetypeMap.MIMETYPE_JAVASCRIPT);
+        writer.setEncoding("UTF-8");
+        writer.putContent(
+                "var previous = action.parameters[\"" + ScriptActionExecuter.PARAM_RESULT + "\"];\n" +
+                "document.properties[\"cm:description\"] = document.name + (previous ? \" after \" + previous : \"\");\n" +
+                "document.save();\n" +
+                "document.name;\n");
+        
+        Rule testRule = new Rule();
+        testRule.setRuleTypes(Collections.singletonList(RuleType.INBOUND));
+        testRule.setTitle("RuleServiceTest" + GUID.generate());
+        Action action = this.actionService.createAction(ScriptActionExecuter.NAME);
+        action.setParameterValue(ScriptActionExecuter.PARAM_SCRIPTREF, scriptNodeRef);
+        testRule.setAction(action);
+        this.ruleService.saveRule(parentNodeRef, testRule);
+        
+        List<NodeRef> actionedUponNodeRefs = new ArrayList<NodeRef>();
+        for (int i = 0; i < 20; i++)
+        {
+            props = new HashMap<QName, Serializable>(1);
+            props.put(ContentModel.PROP_NAME, "document-" + i);
+            NodeRef actionedUponNodeRef = this.nodeService.createNode(parentNodeRef, ContentModel.ASSOC_CONTAINS, QName.createQName("document" + i),
+                    ContentModel.TYPE_CONTENT, props).getChildRef();
+            actionedUponNodeRefs.add(actionedUponNodeRef);
+            ((RuntimeRuleService) ruleService).addRulePendingExecution(parentNodeRef, actionedUponNodeRef, testRule);
+        }
+        ((RuntimeRuleService) ruleService).executePendingRules();
+        
+        for (int i = 0; i < actionedUponNodeRefs.size(); i++)
+        {
+            assertEquals("Rule result for document-" + i, "document-" + i,
+                    this.nodeService.getProperty(actionedUponNodeRefs.get(i), ContentModel.PROP_DESCRIPTION));
+        }
+    }
 	    
     /**
      * Test for MNT-11695
@@ -0,0 +1,261 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.lucene.index;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the choice of the sets of indexes that {@link IndexInfo} merges, and how it merges separate sets at the same
+ * time.
+ * 
+ * @since 7.6
+ */
+public class IndexInfoMergeTest
+{
+    private static final int MAX_MERGE_DOCS = 1000;
+
+    @Test
+    public void mergeTierIsThePowerOfTheFactor()
+    {
+        assertEquals(0, IndexInfo.getMergeTier(entry(0), 10, MAX_MERGE_DOCS));
+        assertEquals(0, IndexInfo.getMergeTier(entry(9), 10, MAX_MERGE_DOCS));
+        assertEquals(1, IndexInfo.getMergeTier(entry(10), 10, MAX_MERGE_DOCS));
+        assertEquals(1, IndexInfo.getMergeTier(entry(99), 10, MAX_MERGE_DOCS));
+        assertEquals(2, IndexInfo.getMergeTier(entry(100), 10, MAX_MERGE_DOCS));
+        assertEquals(3, IndexInfo.getMergeTier(entry(1000), 10, MAX_MERGE_DOCS));
+        assertEquals("Too large to merge", -1, IndexInfo.getMergeTier(entry(1001), 10, MAX_MERGE_DOCS));
+    }
+
+    @Test
+    public void newestRunOfSimilarSizeIsMerged()
+    {
+        // with a merge factor of 3: tier 1 is 3 to 8 documents, tier 2 is 9 to 26 and tier 4 is 81 to 242
+        List<IndexEntry> entries = entries(5000, 100, 150, 200, 10, 3, 4, 5);
+
+        List<int[]> ranges = IndexInfo.findMergeRanges(entries, 3, MAX_MERGE_DOCS, 1, 5);
+
+        assertRanges(ranges, new int[] { 5, 8 });
+    }
+
+    @Test
+    public void separateRunsAreMergedUpToTheConcurrentLimit()
+    {
+        List<IndexEntry> entries = entries(5000, 100, 150, 200, 10, 3, 4, 5);
+
+        assertRanges(IndexInfo.findMergeRanges(entries, 3, MAX_MERGE_DOCS, 2, 5), new int[] { 5, 8 }, new int[] { 1, 4 });
+        // no more runs to find
+        assertRanges(IndexInfo.findMergeRanges(entries, 3, MAX_MERGE_DOCS, 5, 5), new int[] { 5, 8 }, new int[] { 1, 4 });
+    }
+
+    @Test
+    public void runsDoNotSpanTiers()
+    {
+        // two tier 0 indexes, then three tier 1 indexes - only the tier 1 run is long enough
+        List<IndexEntry> entries = entries(1, 2, 3, 4, 5);
+
+        assertRanges(IndexInfo.findMergeRanges(entries, 3, MAX_MERGE_DOCS, 2, 5), new int[] { 2, 5 });
+    }
+
+    @Test
+    public void tailIsMergedWhenNoRunQualifies()
+    {
+        // every index is in a different tier - fall back to merging the newest indexes
+        List<IndexEntry> entries = entries(1000, 500, 50, 5, 1);
+
+        assertRanges(IndexInfo.findMergeRanges(entries, 3, 100000, 2, 2), new int[] { 1, 5 });
+    }
+
+    @Test
+    public void nothingToMerge()
+    {
+        assertRanges(IndexInfo.findMergeRanges(entries(5), 3, MAX_MERGE_DOCS, 2, 5));
+        // too large to be tiered and too few to merge the tail
+        assertRanges(IndexInfo.findMergeRanges(entries(2000, 2000, 2000), 3, MAX_MERGE_DOCS, 2, 5));
+    }
+
+    @Test
+    public void callsAreMadeConcurrently() throws Exception
+    {
+        final CyclicBarrier barrier = new CyclicBarrier(3);
+        final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        List<Callable<Integer>> calls = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 3; i++)
+        {
+            final int result = i;
+            calls.add(new Callable<Integer>()
+            {
+                public Integer call() throws Exception
+                {
+                    threads.add(Thread.currentThread());
+                    // fails unless all three calls are running at the same time
+                    barrier.await(10, TimeUnit.SECONDS);
+                    return result;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            assertEquals(Arrays.asList(0, 1, 2), IndexInfo.callConcurrently(calls, executor));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals(3, threads.size());
+        assertTrue(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void callsNotStartedByTheExecutorAreMadeOnThisThread() throws Exception
+    {
+        final Thread thisThread = Thread.currentThread();
+        final AtomicInteger otherThreadCalls = new AtomicInteger();
+        List<Callable<Integer>> calls = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < 3; i++)
+        {
+            final int result = i;
+            calls.add(new Callable<Integer>()
+            {
+                public Integer call() throws Exception
+                {
+                    if (Thread.currentThread() != thisThread)
+                    {
+                        otherThreadCalls.incrementAndGet();
+                    }
+                    return result;
+                }
+            });
+        }
+
+        // a saturated executor, that never gets round to the tasks
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        Executor executor = new Executor()
+        {
+            public void execute(Runnable command)
+            {
+                queued.add(command);
+            }
+        };
+
+        assertEquals(Arrays.asList(0, 1, 2), IndexInfo.callConcurrently(calls, executor));
+        assertEquals(2, queued.size());
+
+        // the queued tasks were cancelled, so the calls are not made again
+        for (Runnable task : queued)
+        {
+            task.run();
+        }
+        assertEquals(0, otherThreadCalls.get());
+    }
+
+    @Test
+    public void failureIsThrownOnceAllCallsHaveFinished() throws Exception
+    {
+        final AtomicInteger finished = new AtomicInteger();
+        List<Callable<Integer>> calls = new ArrayList<Callable<Integer>>();
+        calls.add(new Callable<Integer>()
+        {
+            public Integer call() throws Exception
+            {
+                throw new IOException("Merge failed");
+            }
+        });
+        for (int i = 0; i < 2; i++)
+        {
+            calls.add(new Callable<Integer>()
+            {
+                public Integer call() throws Exception
+                {
+                    Thread.sleep(100);
+                    finished.incrementAndGet();
+                    return 0;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            IndexInfo.callConcurrently(calls, executor);
+            fail("Expected the failure of the first call");
+        }
+        catch (IOException e)
+        {
+            assertEquals("Merge failed", e.getMessage());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        assertEquals(2, finished.get());
+    }
+
+    private static IndexEntry entry(long documentCount)
+    {
+        return new IndexEntry(IndexType.INDEX, "index-" + documentCount, "", TransactionStatus.COMMITTED, "", documentCount, 0, false);
+    }
+
+    /**
+     * @return committed indexes with the given document counts, oldest first
+     */
+    private static List<IndexEntry> entries(long... documentCounts)
+    {
+        List<IndexEntry> entries = new ArrayList<IndexEntry>();
+        for (long documentCount : documentCounts)
+        {
+            entries.add(entry(documentCount));
+        }
+        return entries;
+    }
+
+    private static void assertRanges(List<int[]> actual, int[]... expected)
+    {
+        assertEquals(expected.length, actual.size());
+        for (int i = 0; i < expected.length; i++)
+        {
+            assertArrayEquals(expected[i], actual.get(i));
+        }
+    }
+}
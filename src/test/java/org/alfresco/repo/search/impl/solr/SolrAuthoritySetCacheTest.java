@@ -0,0 +1,187 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.cache.DefaultSimpleCache;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.repo.search.impl.solr.SolrAuthoritySetCache.AuthoritySet;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.cmr.security.PermissionService;
+import org.alfresco.util.Pair;
+import org.json.JSONArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link SolrAuthoritySetCache} class.
+ * 
+ * @since 7.6
+ */
+public class SolrAuthoritySetCacheTest
+{
+    private static final Set<String> USER_AUTHORITIES = new HashSet<String>(Arrays.asList(
+            "bob", "GROUP_EVERYONE", "GROUP_site_a", "GROUP_site_b"));
+    private static final Set<String> ADMIN_AUTHORITIES = new HashSet<String>(Arrays.asList(
+            "admin", "GROUP_EVERYONE", "GROUP_ALFRESCO_ADMINISTRATORS", PermissionService.ADMINISTRATOR_AUTHORITY));
+
+    private PermissionService permissionService;
+    private NodeService nodeService;
+    private SolrAuthoritySetCache authoritySetCache;
+
+    @Before
+    public void setUp()
+    {
+        permissionService = mock(PermissionService.class);
+        when(permissionService.getAuthorisations()).thenReturn(USER_AUTHORITIES);
+        nodeService = mock(NodeService.class);
+
+        authoritySetCache = new SolrAuthoritySetCache();
+        authoritySetCache.setPermissionService(permissionService);
+        authoritySetCache.setNodeService(nodeService);
+        authoritySetCache.setPolicyComponent(mock(PolicyComponent.class));
+        authoritySetCache.setAuthoritySetCache(new DefaultSimpleCache<Pair<String, Boolean>, AuthoritySet>(100, getClass().getName()));
+        authoritySetCache.init();
+
+        AuthenticationUtil.setRunAsUser("bob");
+    }
+
+    @After
+    public void tearDown()
+    {
+        AuthenticationUtil.clearCurrentSecurityContext();
+    }
+
+    @Test
+    public void groupsOfAdministratorsAreLeftOut() throws Exception
+    {
+        AuthoritySet authoritySet = AuthoritySet.build(ADMIN_AUTHORITIES, false);
+        assertEquals(Arrays.asList(PermissionService.ADMINISTRATOR_AUTHORITY, "admin"), authoritySet.getAuthorities());
+
+        authoritySet = AuthoritySet.build(ADMIN_AUTHORITIES, true);
+        assertEquals(4, authoritySet.getAuthorities().size());
+
+        authoritySet = AuthoritySet.build(USER_AUTHORITIES, false);
+        assertEquals(Arrays.asList("GROUP_EVERYONE", "GROUP_site_a", "GROUP_site_b", "bob"), authoritySet.getAuthorities());
+        JSONArray array = authoritySet.toJSONArray();
+        assertEquals(4, array.length());
+        assertEquals("GROUP_EVERYONE", array.getString(0));
+    }
+
+    @Test
+    public void setIsCachedUntilMembershipChanges()
+    {
+        AuthoritySet first = authoritySetCache.getAuthoritySet(false);
+        assertSame(first, authoritySetCache.getAuthoritySet(false));
+        verify(permissionService, times(1)).getAuthorisations();
+
+        authoritySetCache.onAuthorityAddedToGroup("GROUP_site_c", "bob");
+        authoritySetCache.getAuthoritySet(false);
+        verify(permissionService, times(2)).getAuthorisations();
+
+        authoritySetCache.onAuthorityRemovedFromGroup("GROUP_site_c", "GROUP_nested");
+        authoritySetCache.getAuthoritySet(false);
+        verify(permissionService, times(3)).getAuthorisations();
+
+        authoritySetCache.onGroupDeleted("GROUP_site_c", false);
+        authoritySetCache.getAuthoritySet(false);
+        verify(permissionService, times(4)).getAuthorisations();
+    }
+
+    @Test
+    public void userMembershipChangesOnlyDropThatUser()
+    {
+        authoritySetCache.getAuthoritySet(false);
+        authoritySetCache.getAuthoritySet(true);
+        verify(permissionService, times(2)).getAuthorisations();
+
+        authoritySetCache.onAuthorityAddedToGroup("GROUP_site_c", "alice");
+        authoritySetCache.getAuthoritySet(false);
+        authoritySetCache.getAuthoritySet(true);
+        verify(permissionService, times(2)).getAuthorisations();
+
+        // User names are not case sensitive by default
+        authoritySetCache.onAuthorityRemovedFromGroup("GROUP_site_a", "Bob");
+        authoritySetCache.getAuthoritySet(false);
+        authoritySetCache.getAuthoritySet(true);
+        verify(permissionService, times(4)).getAuthorisations();
+    }
+
+    @Test
+    public void deletingAPersonDropsThatUser()
+    {
+        NodeRef alice = new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, "alice");
+        NodeRef bob = new NodeRef(StoreRef.STORE_REF_WORKSPACE_SPACESSTORE, "bob");
+        when(nodeService.getProperty(alice, ContentModel.PROP_USERNAME)).thenReturn("alice");
+        when(nodeService.getProperty(bob, ContentModel.PROP_USERNAME)).thenReturn("bob");
+
+        authoritySetCache.getAuthoritySet(false);
+        authoritySetCache.beforeDeleteNode(alice);
+        authoritySetCache.getAuthoritySet(false);
+        verify(permissionService, times(1)).getAuthorisations();
+
+        authoritySetCache.beforeDeleteNode(bob);
+        authoritySetCache.getAuthoritySet(false);
+        verify(permissionService, times(2)).getAuthorisations();
+    }
+
+    @Test
+    public void setsAreCachedPerUser()
+    {
+        authoritySetCache.getAuthoritySet(false);
+        AuthenticationUtil.setRunAsUser("admin");
+        when(permissionService.getAuthorisations()).thenReturn(ADMIN_AUTHORITIES);
+        AuthoritySet adminSet = authoritySetCache.getAuthoritySet(false);
+        assertEquals(2, adminSet.getAuthorities().size());
+        verify(permissionService, times(2)).getAuthorisations();
+
+        // Groups for administrators are cached separately
+        assertEquals(4, authoritySetCache.getAuthoritySet(true).getAuthorities().size());
+    }
+
+    @Test
+    public void disabledCacheBuildsEverySet()
+    {
+        authoritySetCache.setEnabled(false);
+        authoritySetCache.getAuthoritySet(false);
+        authoritySetCache.getAuthoritySet(false);
+        verify(permissionService, times(2)).getAuthorisations();
+    }
+}
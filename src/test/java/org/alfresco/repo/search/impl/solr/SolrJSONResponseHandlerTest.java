@@ -0,0 +1,177 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import org.alfresco.repo.search.impl.lucene.LuceneQueryParserException;
+import org.alfresco.repo.search.impl.solr.SolrJSONResponseHandler.StreamedDocs;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.Test;
+
+/**
+ * Tests for the {@link SolrJSONResponseHandler} class.
+ * 
+ * @since 7.6
+ */
+public class SolrJSONResponseHandlerTest
+{
+    public static final String TEST_QUERY = "{\"responseHeader\":{\"status\":0,\"QTime\":9},"
+            + "\"response\":{\"numFound\":3,\"start\":0,\"maxScore\":1.5,\"docs\":["
+            + "{\"id\":\"_DEFAULT_!8000016f66a1a298!8000016f66a1a29e\",\"_version_\":0,\"DBID\":[123],\"score\":1.5},"
+            + "{\"id\":\"_DEFAULT_!8000016f66a1a298!8000016f66a1a29f\",\"DBID\":124,\"cm:title\":[\"a\",\"b\"],\"nested\":{\"DBID\":9,\"score\":9},\"score\":0.75},"
+            + "{\"id\":\"_DEFAULT_!8000016f66a1a298!8000016f66a1a2a0\",\"DBID\":[12345678901,5],\"score\":0.5}]},"
+            + "\"highlighting\":{\"_DEFAULT_!8000016f66a1a298!8000016f66a1a29e\":{\"DBID\":\"123\",\"cm:name\":[\"<em>test</em>.txt\"]}},"
+            + "\"facet_counts\":{\"facet_queries\":{\"{!afts}@cm:modified:[NOW/DAY-1DAY TO NOW/DAY+1DAY]\":2},"
+            + "\"facet_fields\":{\"@{http://www.alfresco.org/model/content/1.0}creator\":[\"admin\",3,\"guest\",0]},"
+            + "\"facet_intervals\":{},\"facet_ranges\":{},\"facet_pivot\":{}},"
+            + "\"stats\":{\"stats_fields\":{\"contentsize\":{\"min\":25.0,\"max\":null,\"sum\":1.4742886E7,\"count\":179,\"mean\":\"NaN\"}}},"
+            + "\"lastIndexedTx\":12345678901,\"processedDenies\":true}";
+
+    @Test
+    public void docsAreCollected() throws Exception
+    {
+        JSONObject json = SolrJSONResponseHandler.parse(new StringReader(TEST_QUERY));
+        Object docs = json.getJSONObject("response").get("docs");
+        assertTrue("Documents were not streamed: " + docs, docs instanceof StreamedDocs);
+        StreamedDocs streamedDocs = (StreamedDocs) docs;
+        assertEquals(3, streamedDocs.size());
+        assertEquals(Arrays.asList(123L, 124L, 12345678901L), streamedDocs.getDbids());
+        assertEquals(Arrays.asList(1.5F, 0.75F, 0.5F), streamedDocs.getScores());
+    }
+
+    @Test
+    public void docWithoutDbidIsRejected() throws Exception
+    {
+        try
+        {
+            // A DBID in a nested object is not the document's own
+            SolrJSONResponseHandler.parse(new StringReader(
+                    "{\"response\":{\"docs\":[{\"DBID\":1,\"score\":1.0},{\"nested\":{\"DBID\":2},\"score\":0.5}]}}"));
+            fail("Expected a document without a DBID to be rejected");
+        }
+        catch (LuceneQueryParserException e)
+        {
+            // Expected
+        }
+    }
+
+    @Test
+    public void restOfResponseMatchesTokener() throws Exception
+    {
+        assertSameExceptDocs(TEST_QUERY);
+        assertSameExceptDocs(SolrStatsResultTest.TEST_CREATED);
+        assertSameExceptDocs(SolrStatsResultTest.TEST_MIMETYPE);
+        assertSameExceptDocs(SolrStatsResultTest.TEST_CREATOR);
+        assertSameExceptDocs(SolrStatsResultTest.TEST_MODIFIER);
+        assertSameExceptDocs(SolrStatsResultTest.TEST_VERSIONLABEL_DOT);
+    }
+
+    @Test
+    public void invalidResponse() throws Exception
+    {
+        try
+        {
+            SolrJSONResponseHandler.parse(new StringReader("{\"response\":{\"docs\":[{\"DBID\":1,]}"));
+            fail("Expected invalid JSON to be rejected");
+        }
+        catch (JSONException e)
+        {
+            // Expected
+        }
+        try
+        {
+            SolrJSONResponseHandler.parse(new StringReader("[1,2]"));
+            fail("Expected a JSON array to be rejected");
+        }
+        catch (JSONException e)
+        {
+            // Expected
+        }
+    }
+
+    private void assertSameExceptDocs(String response) throws Exception
+    {
+        JSONObject expected = new JSONObject(new JSONTokener(response));
+        JSONObject actual = SolrJSONResponseHandler.parse(new StringReader(response));
+        expected.getJSONObject("response").remove("docs");
+        assertTrue(actual.getJSONObject("response").remove("docs") instanceof StreamedDocs);
+        assertSameJSON("", expected, actual);
+    }
+
+    /**
+     * Compare JSON values, including their Java types
+     */
+    private static void assertSameJSON(String path, Object expected, Object actual) throws JSONException
+    {
+        if (expected instanceof JSONObject)
+        {
+            assertTrue(path + " is not an object", actual instanceof JSONObject);
+            JSONObject expectedObject = (JSONObject) expected;
+            JSONObject actualObject = (JSONObject) actual;
+            Set<String> expectedKeys = new HashSet<String>();
+            for (Iterator<?> it = expectedObject.keys(); it.hasNext(); /**/)
+            {
+                expectedKeys.add((String) it.next());
+            }
+            Set<String> actualKeys = new HashSet<String>();
+            for (Iterator<?> it = actualObject.keys(); it.hasNext(); /**/)
+            {
+                actualKeys.add((String) it.next());
+            }
+            assertEquals(path + " keys", expectedKeys, actualKeys);
+            for (String key : expectedKeys)
+            {
+                assertSameJSON(path + "." + key, expectedObject.get(key), actualObject.get(key));
+            }
+        }
+        else if (expected instanceof JSONArray)
+        {
+            assertTrue(path + " is not an array", actual instanceof JSONArray);
+            JSONArray expectedArray = (JSONArray) expected;
+            JSONArray actualArray = (JSONArray) actual;
+            assertEquals(path + " length", expectedArray.length(), actualArray.length());
+            for (int i = 0; i < expectedArray.length(); i++)
+            {
+                assertSameJSON(path + "[" + i + "]", expectedArray.get(i), actualArray.get(i));
+            }
+        }
+        else
+        {
+            assertEquals(path, expected, actual);
+            assertEquals(path + " type", expected.getClass(), actual.getClass());
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import org.alfresco.util.testing.category.PerformanceTests;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.json.JSONObject;
+import org.json.JSONTokener;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+/**
+ * Compares the time taken and memory allocated to parse a large SOLR query response into a
+ * {@link JSONObject} with the {@link JSONTokener} and with the streaming {@link SolrJSONResponseHandler}.
+ * 
+ * @since 7.6
+ */
+@Category(PerformanceTests.class)
+public class SolrJSONResponseParsingPerformanceTest
+{
+    private static final Log logger = LogFactory.getLog(SolrJSONResponseParsingPerformanceTest.class);
+
+    private static final int DOC_COUNT = 5000;
+    private static final int WARM_UP = 20;
+    private static final int ITERATIONS = 50;
+
+    private static String response;
+
+    /**
+     * A response in the shape returned by the Alfresco SOLR core for a query with highlighting and facets
+     */
+    @BeforeClass
+    public static void setUpResponse()
+    {
+        StringBuilder sb = new StringBuilder(DOC_COUNT * 400);
+        sb.append("{\"responseHeader\":{\"status\":0,\"QTime\":42},\"response\":{\"numFound\":")
+          .append(DOC_COUNT * 10).append(",\"start\":0,\"maxScore\":2.5,\"docs\":[");
+        for (int i = 0; i < DOC_COUNT; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(',');
+            }
+            sb.append("{\"id\":\"_DEFAULT_!8000016f66a1a298!").append(Long.toHexString(0x8000016f66a1a29eL + i))
+              .append("\",\"_version_\":0,\"DBID\":[").append(1000 + i).append("],\"score\":").append(2.5F - i / (float) DOC_COUNT)
+              .append(",\"cm:name\":[\"document-").append(i).append(".txt\"],\"cm:title\":[\"Title of document ").append(i)
+              .append("\"],\"TYPE\":[\"{http://www.alfresco.org/model/content/1.0}content\"]}");
+        }
+        sb.append("]},\"highlighting\":{");
+        for (int i = 0; i < 100; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(',');
+            }
+            sb.append("\"doc").append(i).append("\":{\"DBID\":\"").append(1000 + i)
+              .append("\",\"cm:name\":[\"<em>document</em>-").append(i).append(".txt\"]}");
+        }
+        sb.append("},\"facet_counts\":{\"facet_queries\":{},\"facet_fields\":{\"@{http://www.alfresco.org/model/content/1.0}creator\":[");
+        for (int i = 0; i < 100; i++)
+        {
+            if (i > 0)
+            {
+                sb.append(',');
+            }
+            sb.append("\"user").append(i).append("\",").append(100 - i);
+        }
+        sb.append("]}},\"lastIndexedTx\":123456,\"processedDenies\":false}");
+        response = sb.toString();
+    }
+
+    @Test
+    public void compareParsers() throws Exception
+    {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        for (int i = 0; i < WARM_UP; i++)
+        {
+            parseWithTokener();
+            parseWithHandler();
+        }
+
+        long tokenerBytes = allocatedBytes(threadBean);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            parseWithTokener();
+        }
+        long tokenerNanos = System.nanoTime() - start;
+        tokenerBytes = allocatedBytes(threadBean) - tokenerBytes;
+
+        long handlerBytes = allocatedBytes(threadBean);
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            parseWithHandler();
+        }
+        long handlerNanos = System.nanoTime() - start;
+        handlerBytes = allocatedBytes(threadBean) - handlerBytes;
+
+        String msg = String.format(
+                "Parsing a response of %d documents (%d chars): tokener %.2f ms, %d KB; streaming %.2f ms, %d KB per response",
+                DOC_COUNT, response.length(),
+                tokenerNanos / 1E6 / ITERATIONS, tokenerBytes / 1024 / ITERATIONS,
+                handlerNanos / 1E6 / ITERATIONS, handlerBytes / 1024 / ITERATIONS);
+        logger.info(msg);
+        System.out.println(msg);
+        if (tokenerBytes > 0L)
+        {
+            assertTrue("Streaming should allocate less: " + msg, handlerBytes < tokenerBytes);
+        }
+    }
+
+    private JSONObject parseWithTokener() throws Exception
+    {
+        return new JSONObject(new JSONTokener(new StringReader(response)));
+    }
+
+    private JSONObject parseWithHandler() throws Exception
+    {
+        return SolrJSONResponseHandler.parse(new StringReader(response));
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far or -1 if the JVM cannot tell
+     */
+    private static long allocatedBytes(ThreadMXBean threadBean)
+    {
+        if (threadBean instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+}
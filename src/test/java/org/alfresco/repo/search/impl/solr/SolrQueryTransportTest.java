@@ -0,0 +1,363 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.search.impl.solr;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.alfresco.repo.search.impl.lucene.LuceneQueryParserException;
+import org.alfresco.repo.search.impl.solr.SolrQueryTransport.LatencyHistogram;
+import org.alfresco.util.Pair;
+import org.apache.commons.httpclient.HttpClient;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests for the {@link SolrQueryTransport} class, using a local stub HTTP server for SOLR.
+ * 
+ * @since 7.6
+ */
+public class SolrQueryTransportTest
+{
+    private static final String RESPONSE = "{\"responseHeader\":{\"status\":0},\"response\":{\"numFound\":0,\"docs\":[]}}";
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private HttpClient httpClient;
+    private SolrQueryTransport transport;
+    private volatile String lastAcceptEncoding;
+    private volatile String lastContentEncoding;
+    private volatile String lastBody;
+    private final CountDownLatch releaseSlowRequests = new CountDownLatch(1);
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/solr/fast/", new StubHandler(false, false));
+        server.createContext("/solr/gzip/", new StubHandler(false, true));
+        server.createContext("/solr/slow/", new StubHandler(true, false));
+        server.createContext("/solr/error/", new HttpHandler()
+        {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException
+            {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+            }
+        });
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        httpClient = new HttpClient(new MultiThreadedHttpConnectionManager());
+        httpClient.getHostConfiguration().setHost("localhost", server.getAddress().getPort());
+
+        transport = new SolrQueryTransport();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        releaseSlowRequests.countDown();
+        transport.shutdown();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void plainResponse() throws Exception
+    {
+        transport.setAcceptGzip(false);
+        JSONObject json = transport.post(httpClient, "/solr/fast/afts?wt=json", null, new JSONObject(), false);
+        assertEquals(0, json.getJSONObject("response").getInt("numFound"));
+        assertNull(lastAcceptEncoding);
+    }
+
+    @Test
+    public void gzipResponse() throws Exception
+    {
+        JSONObject json = transport.post(httpClient, "/solr/gzip/afts?wt=json", null, new JSONObject(), false);
+        assertEquals(0, json.getJSONObject("response").getInt("numFound"));
+        assertEquals("gzip", lastAcceptEncoding);
+
+        json = transport.post(httpClient, "/solr/gzip/afts?wt=json", null, new JSONObject(), true);
+        assertEquals(0, json.getJSONObject("response").getInt("numFound"));
+    }
+
+    @Test
+    public void largeRequestsAreCompressed() throws Exception
+    {
+        transport.setCompressRequests(true);
+        JSONObject body = new JSONObject();
+        body.put("query", "small");
+        transport.post(httpClient, "/solr/fast/afts?wt=json", null, body, false);
+        assertNull(lastContentEncoding);
+        assertEquals(body.toString(), lastBody);
+
+        StringBuilder authorities = new StringBuilder();
+        while (authorities.length() <= AbstractSolrQueryHTTPClient.DEFAULT_SAVEPOST_BUFFER)
+        {
+            authorities.append("GROUP_site_").append(authorities.length()).append(' ');
+        }
+        body.put("authorities", authorities.toString());
+        transport.post(httpClient, "/solr/fast/afts?wt=json", null, body, false);
+        assertEquals("gzip", lastContentEncoding);
+        assertEquals(body.toString(), lastBody);
+    }
+
+    @Test
+    public void latenciesAreRecordedPerShard() throws Exception
+    {
+        for (int i = 0; i < 3; i++)
+        {
+            transport.post(httpClient, "/solr/fast/afts?wt=json", null, new JSONObject(), false);
+        }
+        try
+        {
+            transport.post(httpClient, "/solr/error/afts?wt=json", null, new JSONObject(), false);
+            fail("Expected the request to fail");
+        }
+        catch (LuceneQueryParserException e)
+        {
+            // expected
+        }
+
+        String host = "http://localhost:" + server.getAddress().getPort();
+        assertEquals(Long.valueOf(3), transport.getShardRequestCounts().get(host + "/solr/fast"));
+        assertEquals(Long.valueOf(0), transport.getShardErrorCounts().get(host + "/solr/fast"));
+        assertEquals(Long.valueOf(1), transport.getShardErrorCounts().get(host + "/solr/error"));
+        assertEquals(3, transport.getLatencyHistogram(host + "/solr/fast").getCount());
+        assertFalse(transport.getShardLatencyHistogram(host + "/solr/fast").isEmpty());
+
+        transport.resetStatistics();
+        assertEquals(0, transport.getLatencyHistogram(host + "/solr/fast").getCount());
+    }
+
+    @Test
+    public void slowQueryIsHedged() throws Exception
+    {
+        transport.setHedgingEnabled(true);
+        transport.setMinHedgeSamples(0);
+        transport.setMinHedgeDelayMs(50);
+
+        long start = System.nanoTime();
+        JSONObject json = transport.post(httpClient, "/solr/slow/afts?wt=json",
+                new Pair<HttpClient, String>(httpClient, "/solr/fast/afts?wt=json"), new JSONObject(), true);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(0, json.getJSONObject("response").getInt("numFound"));
+        assertTrue("The replica should have answered first: " + elapsedMs + "ms", elapsedMs < 5000);
+        assertEquals(1, transport.getHedgedRequestCount());
+        assertEquals(1, transport.getHedgeWinCount());
+
+        // The primary's time is recorded even though it lost, and the hedge's time is not
+        String host = "http://localhost:" + server.getAddress().getPort();
+        assertEquals(1, transport.getLatencyHistogram(host + "/solr/slow").getCount());
+        assertTrue(transport.getLatencyHistogram(host + "/solr/slow").getMaxMs() >= 50);
+        assertEquals(0, transport.getLatencyHistogram(host + "/solr/fast").getCount());
+    }
+
+    @Test
+    public void fastQueryIsNotHedged() throws Exception
+    {
+        transport.setHedgingEnabled(true);
+        transport.setMinHedgeSamples(0);
+        transport.setMinHedgeDelayMs(5000);
+
+        transport.post(httpClient, "/solr/fast/afts?wt=json",
+                new Pair<HttpClient, String>(httpClient, "/solr/slow/afts?wt=json"), new JSONObject(), false);
+        assertEquals(0, transport.getHedgedRequestCount());
+    }
+
+    @Test
+    public void hedgingWaitsForSamples() throws Exception
+    {
+        transport.setHedgingEnabled(true);
+        transport.setMinHedgeSamples(10);
+        transport.setMinHedgeDelayMs(0);
+
+        transport.post(httpClient, "/solr/fast/afts?wt=json",
+                new Pair<HttpClient, String>(httpClient, "/solr/slow/afts?wt=json"), new JSONObject(), false);
+        assertEquals(0, transport.getHedgedRequestCount());
+    }
+
+    @Test
+    public void concurrencyIsLimitedPerShard() throws Exception
+    {
+        transport.setMaxConcurrentRequestsPerShard(1);
+        transport.setShardPermitWaitMs(100);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            Future<JSONObject> slow = executor.submit(() -> transport.post(httpClient, "/solr/slow/afts?wt=json", null, new JSONObject(), false));
+            String shard = "http://localhost:" + server.getAddress().getPort() + "/solr/slow";
+            long end = System.currentTimeMillis() + 10000;
+            while (!Integer.valueOf(1).equals(transport.getShardActiveRequestCounts().get(shard)) && System.currentTimeMillis() < end)
+            {
+                Thread.sleep(10);
+            }
+            try
+            {
+                transport.post(httpClient, "/solr/slow/afts?wt=json", null, new JSONObject(), false);
+                fail("Expected the shard to be busy");
+            }
+            catch (LuceneQueryParserException e)
+            {
+                // expected
+            }
+            assertEquals(1, transport.getRejectedRequestCount());
+
+            // Other shards are not affected
+            transport.post(httpClient, "/solr/fast/afts?wt=json", null, new JSONObject(), false);
+
+            releaseSlowRequests.countDown();
+            assertEquals(0, slow.get(10, TimeUnit.SECONDS).getJSONObject("response").getInt("numFound"));
+            assertEquals(Integer.valueOf(0), transport.getShardActiveRequestCounts().get(shard));
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shardOfUrl() throws Exception
+    {
+        String host = "http://localhost:" + server.getAddress().getPort();
+        assertEquals(host + "/solr/alfresco-2", SolrQueryTransport.getShard(httpClient, "/solr/alfresco-2/afts?wt=json&q=a/b"));
+        assertEquals("http://solr2:8983/solr/alfresco", SolrQueryTransport.getShard(httpClient, "http://solr2:8983/solr/alfresco/afts"));
+    }
+
+    @Test
+    public void histogramPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(-1, histogram.getPercentile(95));
+        for (int i = 1; i <= 100; i++)
+        {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(100, histogram.getMaxMs());
+        assertEquals(50, histogram.getMeanMs());
+        assertEquals(50, histogram.getPercentile(50));
+        assertEquals(100, histogram.getPercentile(95));
+        assertEquals(1, histogram.getPercentile(1));
+
+        histogram.record(120000);
+        assertEquals(120000, histogram.getPercentile(100));
+        assertEquals(Long.valueOf(1), histogram.getBuckets().get(">60000ms"));
+        assertEquals(Arrays.asList("<=1ms", "<=2ms"), Arrays.asList(histogram.getBuckets().keySet().toArray()).subList(0, 2));
+    }
+
+    /**
+     * Answers with an empty result set, optionally gzipped or after waiting for the test to release it
+     */
+    private class StubHandler implements HttpHandler
+    {
+        private final boolean slow;
+        private final boolean gzip;
+
+        StubHandler(boolean slow, boolean gzip)
+        {
+            this.slow = slow;
+            this.gzip = gzip;
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException
+        {
+            try
+            {
+                lastAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                lastContentEncoding = exchange.getRequestHeaders().getFirst("Content-Encoding");
+                InputStream in = exchange.getRequestBody();
+                if ("gzip".equals(lastContentEncoding))
+                {
+                    in = new GZIPInputStream(in);
+                }
+                ByteArrayOutputStream request = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                for (int read = in.read(buffer); read != -1; read = in.read(buffer))
+                {
+                    request.write(buffer, 0, read);
+                }
+                lastBody = request.toString("UTF-8");
+                if (slow)
+                {
+                    releaseSlowRequests.await(30, TimeUnit.SECONDS);
+                }
+                byte[] body = RESPONSE.getBytes("UTF-8");
+                if (gzip)
+                {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    try (GZIPOutputStream out = new GZIPOutputStream(bytes))
+                    {
+                        out.write(body);
+                    }
+                    body = bytes.toByteArray();
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody())
+                {
+                    out.write(body);
+                }
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+            finally
+            {
+                exchange.close();
+            }
+        }
+    }
+}
@@ -154,6 +154,84 @@ public class AuthorityBridgeTableAsynchronouslyRefreshedCacheTest extends TestCa
         AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
     }
 
+    public void testIncrementalRefresh() throws Exception
+    {
+        AuthenticationUtil.setFullyAuthenticatedUser(AuthenticationUtil.getAdminUserName());
+        final RetryingTransactionHelper txnHelper = transactionService.getRetryingTransactionHelper();
+        final String parentGroup = txnHelper.doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<String>()
+        {
+            @Override
+            public String execute() throws Throwable
+            {
+                return authorityService.createAuthority(AuthorityType.GROUP, "incrementalParent" + GUID.generate());
+            }
+        }, false, true);
+        final String childGroup = txnHelper.doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<String>()
+        {
+            @Override
+            public String execute() throws Throwable
+            {
+                return authorityService.createAuthority(AuthorityType.GROUP, "incrementalChild" + GUID.generate());
+            }
+        }, false, true);
+        // Make sure the table has been built
+        txnHelper.doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                authorityBridgeTableCache.get();
+                return null;
+            }
+        }, true, false);
+
+        // The changes are applied to the table on this node, without rebuilding it
+        final long appliedDeltas = authorityBridgeTableCache.getAppliedDeltaCount();
+        final long fullRebuilds = authorityBridgeTableCache.getFullRebuildCount();
+        txnHelper.doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                authorityService.addAuthority(parentGroup, childGroup);
+                return null;
+            }
+        }, false, true);
+        txnHelper.doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                assertTrue(authorityBridgeTableCache.getAncestors(childGroup).contains(parentGroup));
+                assertTrue(authorityService.getContainingAuthorities(AuthorityType.GROUP, childGroup, false).contains(parentGroup));
+                return null;
+            }
+        }, true, false);
+        assertTrue(authorityBridgeTableCache.getAppliedDeltaCount() > appliedDeltas);
+
+        txnHelper.doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                authorityService.removeAuthority(parentGroup, childGroup);
+                return null;
+            }
+        }, false, true);
+        txnHelper.doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
+        {
+            @Override
+            public Void execute() throws Throwable
+            {
+                assertFalse(authorityBridgeTableCache.getAncestors(childGroup).contains(parentGroup));
+                assertFalse(authorityService.getContainingAuthorities(AuthorityType.GROUP, childGroup, false).contains(parentGroup));
+                return null;
+            }
+        }, true, false);
+        assertEquals(0, authorityBridgeTableCache.getPendingDeltaCount());
+        assertEquals(fullRebuilds, authorityBridgeTableCache.getFullRebuildCount());
+    }
+
     private void createTenant(final String tenantDomain)
     {
         transactionService.getRetryingTransactionHelper().doInTransaction(new RetryingTransactionHelper.RetryingTransactionCallback<Void>()
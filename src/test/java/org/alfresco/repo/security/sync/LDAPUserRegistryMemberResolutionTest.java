@@ -0,0 +1,244 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.security.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.when;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.naming.Context;
+import javax.naming.directory.InitialDirContext;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.security.authentication.ldap.LDAPInitialDirContextFactory;
+import org.alfresco.repo.security.sync.ldap.LDAPUserRegistry;
+import org.alfresco.service.namespace.NamespaceService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.mockito.stubbing.Answer;
+import org.springframework.extensions.surf.util.I18NUtil;
+
+import com.unboundid.ldap.listener.InMemoryDirectoryServer;
+import com.unboundid.ldap.listener.InMemoryDirectoryServerConfig;
+import com.unboundid.ldap.listener.InMemoryListenerConfig;
+import com.unboundid.ldap.sdk.Entry;
+
+/**
+ * Synchronizes groups from an in-memory directory with overlapping user and group search bases, so that every member
+ * of a group has to be looked up in the directory by {@link LDAPUserRegistry}.
+ * 
+ * @since 7.6
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class LDAPUserRegistryMemberResolutionTest
+{
+    private static final String BASE = "dc=example,dc=com";
+    private static final String GROUP_SEARCH_BASE = "ou=groups," + BASE;
+    private static final String USER_SEARCH_BASE = "ou=people," + BASE;
+
+    /** Enough memberships to be resolved in more than one batch */
+    private static final int GROUPS = 25;
+    private static final int USERS = 250;
+
+    @Mock private LDAPInitialDirContextFactory contextFactory;
+    @Mock private NamespaceService namespaceService;
+
+    private InMemoryDirectoryServer server;
+    private ThreadPoolExecutor threadPool;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        InMemoryDirectoryServerConfig config = new InMemoryDirectoryServerConfig(BASE);
+        config.setListenerConfigs(InMemoryListenerConfig.createLDAPConfig("default", 0));
+        // Allow entries that are incomplete, such as a group without a name
+        config.setSchema(null);
+        server = new InMemoryDirectoryServer(config);
+        server.startListening();
+        server.add("dn: " + BASE, "objectClass: top", "objectClass: domain", "dc: example");
+        server.add("dn: " + USER_SEARCH_BASE, "objectClass: top", "objectClass: organizationalUnit", "ou: people");
+        server.add("dn: " + GROUP_SEARCH_BASE, "objectClass: top", "objectClass: organizationalUnit", "ou: groups");
+
+        final Hashtable<String, String> environment = new Hashtable<String, String>();
+        environment.put(Context.INITIAL_CONTEXT_FACTORY, "com.sun.jndi.ldap.LdapCtxFactory");
+        environment.put(Context.PROVIDER_URL, "ldap://localhost:" + server.getListenPort());
+        Answer<InitialDirContext> newContext = new Answer<InitialDirContext>()
+        {
+            @Override
+            public InitialDirContext answer(InvocationOnMock invocation) throws Throwable
+            {
+                return new InitialDirContext(environment);
+            }
+        };
+        when(contextFactory.getDefaultIntialDirContext()).thenAnswer(newContext);
+        when(contextFactory.getDefaultIntialDirContext(anyInt())).thenAnswer(newContext);
+
+        Set<String> prefixes = new HashSet<String>();
+        prefixes.add(NamespaceService.CONTENT_MODEL_PREFIX);
+        when(namespaceService.getPrefixes(NamespaceService.CONTENT_MODEL_1_0_URI)).thenReturn(prefixes);
+        when(namespaceService.getNamespaceURI(NamespaceService.CONTENT_MODEL_PREFIX))
+                .thenReturn(NamespaceService.CONTENT_MODEL_1_0_URI);
+
+        threadPool = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        threadPool.shutdownNow();
+        server.shutDown(true);
+    }
+
+    private LDAPUserRegistry createRegistry(ThreadPoolExecutor memberResolutionThreadPool) throws Exception
+    {
+        LDAPUserRegistry registry = new LDAPUserRegistry();
+        registry.setLDAPInitialDirContextFactory(contextFactory);
+        registry.setNamespaceService(namespaceService);
+        // The user search base contains the group search base, so no member can be recognized from its DN alone
+        registry.setUserSearchBase(BASE);
+        registry.setGroupSearchBase(GROUP_SEARCH_BASE);
+        registry.setGroupQuery("(&(objectclass=groupOfNames)(cn=*))");
+        registry.setPersonQuery("(objectclass=inetOrgPerson)");
+        registry.setGroupIdAttributeName("cn");
+        registry.setUserIdAttributeName("uid");
+        registry.setMemberAttribute("member");
+        registry.setModifyTimestampAttributeName("modifyTimestamp");
+        registry.setMemberResolutionThreads(4);
+        registry.setMemberResolutionThreadPool(memberResolutionThreadPool);
+        registry.afterPropertiesSet();
+        return registry;
+    }
+
+    private void addUsersAndGroups() throws Exception
+    {
+        String[] members = new String[USERS + 1];
+        for (int i = 0; i < USERS; i++)
+        {
+            String uid = "user" + i;
+            server.add("dn: uid=" + uid + "," + USER_SEARCH_BASE, "objectClass: top", "objectClass: inetOrgPerson",
+                    "uid: " + uid, "cn: " + uid, "sn: " + uid);
+            members[i] = "uid=" + uid + "," + USER_SEARCH_BASE;
+        }
+        for (int i = 0; i < GROUPS; i++)
+        {
+            // Each group also contains the next one
+            members[USERS] = "cn=group" + ((i + 1) % GROUPS) + "," + GROUP_SEARCH_BASE;
+            Entry group = new Entry("cn=group" + i + "," + GROUP_SEARCH_BASE);
+            group.addAttribute("objectClass", "top", "groupOfNames");
+            group.addAttribute("cn", "group" + i);
+            group.addAttribute("member", members);
+            server.add(group);
+        }
+    }
+
+    private void assertAllMembersResolved(Collection<NodeDescription> groups)
+    {
+        assertEquals(GROUPS, groups.size());
+        Map<String, Set<String>> membersByGroup = new HashMap<String, Set<String>>();
+        for (NodeDescription group : groups)
+        {
+            membersByGroup.put((String) group.getProperties().get(ContentModel.PROP_AUTHORITY_NAME),
+                    group.getChildAssociations());
+        }
+        for (int i = 0; i < GROUPS; i++)
+        {
+            Set<String> members = membersByGroup.get("GROUP_group" + i);
+            assertEquals("GROUP_group" + i, USERS + 1, members.size());
+            for (int j = 0; j < USERS; j++)
+            {
+                assertTrue("GROUP_group" + i + " should contain user" + j, members.contains("user" + j));
+            }
+            assertTrue(members.contains("GROUP_group" + ((i + 1) % GROUPS)));
+        }
+    }
+
+    @Test
+    public void testMembersResolvedOnThreadPool() throws Exception
+    {
+        addUsersAndGroups();
+        LDAPUserRegistry registry = createRegistry(threadPool);
+
+        assertAllMembersResolved(registry.getGroups(null));
+        assertTrue("Members should have been looked up on the thread pool", threadPool.getTaskCount() > 0);
+    }
+
+    @Test
+    public void testMembersResolvedWithoutThreadPool() throws Exception
+    {
+        addUsersAndGroups();
+        LDAPUserRegistry registry = createRegistry(null);
+
+        assertAllMembersResolved(registry.getGroups(null));
+    }
+
+    @Test
+    public void testMissingGroupIdOfMemberReportsContainingGroup() throws Exception
+    {
+        String nameless = "description=nameless," + GROUP_SEARCH_BASE;
+        server.add("dn: " + nameless, "objectClass: top", "objectClass: groupOfNames", "description: nameless");
+        String parent = "cn=parent," + GROUP_SEARCH_BASE;
+        server.add("dn: " + parent, "objectClass: top", "objectClass: groupOfNames", "cn: parent",
+                "member: " + nameless);
+        LDAPUserRegistry registry = createRegistry(threadPool);
+        registry.setErrorOnMissingGID(true);
+
+        I18NUtil.registerResourceBundle("alfresco.messages.authentication");
+        I18NUtil.setLocale(Locale.ENGLISH);
+        try
+        {
+            registry.getGroups(null);
+            fail("The missing group id should fail the sync");
+        }
+        catch (AlfrescoRuntimeException e)
+        {
+            assertEquals("synchronization.err.ldap.get.group.id.missing", e.getMsgId());
+            assertTrue("The containing group should be reported: " + e.getMessage(), e.getMessage().contains(parent));
+        }
+        finally
+        {
+            I18NUtil.setLocale(null);
+        }
+    }
+}
@@ -26,17 +26,38 @@
 package org.alfresco.repo.tenant;
 
 import static org.junit.Assert.*;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.alfresco.repo.content.AbstractContentStore;
 import org.alfresco.repo.content.ContentStore;
 import org.alfresco.repo.content.ContentStoreCaps;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.cmr.repository.ContentReader;
+import org.alfresco.service.transaction.TransactionService;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 public class MultiTAdminServiceImplTest
 {
     private MultiTAdminServiceImpl tenantAdmin;
+    private RetryingTransactionHelper txnHelper;
     
     @Before
     public void setUp() throws Exception
@@ -110,6 +131,182 @@ public class MultiTAdminServiceImplTest
         assertNull(router);
     }
     
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLazyTenantLoadedOnFirstAccess()
+    {
+        CountingTenantDeployer deployer = setUpLazyBootstrap();
+        assertEquals(0, tenantAdmin.getLoadedTenantCount());
+        
+        tenantAdmin.onTenantAccess("Tenant1");
+        assertEquals(1, deployer.enabled.get());
+        assertEquals(1, tenantAdmin.getLoadedTenantCount());
+        assertEquals(1, tenantAdmin.getTenantLoadCount());
+        
+        // already loaded, whatever the case of the domain
+        tenantAdmin.onTenantAccess("tenant1");
+        tenantAdmin.onTenantAccess("Tenant1");
+        assertEquals(1, deployer.enabled.get());
+        assertEquals(1, tenantAdmin.getTenantLoadCount());
+        
+        tenantAdmin.onTenantAccess("tenant2");
+        assertEquals(2, deployer.enabled.get());
+        assertEquals(2, tenantAdmin.getLoadedTenantCount());
+        
+        // each load runs in a new writable transaction
+        verify(txnHelper, times(2)).doInTransaction(any(RetryingTransactionCallback.class), eq(false), eq(true));
+    }
+    
+    @Test
+    public void testRecentlyAccessedTenantIsNotEvicted() throws Exception
+    {
+        CountingTenantDeployer deployer = setUpLazyBootstrap();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            tenantAdmin.setIdleTenantTimeoutMs(60000L);
+            tenantAdmin.onTenantAccess("tenant1");
+            assertEquals(1, deployer.enabled.get());
+            
+            assertEquals(Integer.valueOf(0), executor.submit(new EvictIdleTenants()).get());
+            assertEquals(0, deployer.disabled.get());
+            assertEquals(1, tenantAdmin.getLoadedTenantCount());
+            
+            tenantAdmin.setIdleTenantTimeoutMs(1L);
+            Thread.sleep(10);
+            assertEquals(Integer.valueOf(1), executor.submit(new EvictIdleTenants()).get());
+            assertEquals(1, deployer.disabled.get());
+            assertEquals(0, tenantAdmin.getLoadedTenantCount());
+            assertEquals(1, tenantAdmin.getEvictedTenantCount());
+            
+            // loaded again on next access
+            tenantAdmin.onTenantAccess("tenant1");
+            assertEquals(2, deployer.enabled.get());
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+    
+    @Test
+    public void testAccessDuringEvictionWaitsAndReloads() throws Exception
+    {
+        final CountingTenantDeployer deployer = setUpLazyBootstrap();
+        final CountDownLatch evicting = new CountDownLatch(1);
+        final CountDownLatch finishEviction = new CountDownLatch(1);
+        final AtomicInteger enabledDuringEviction = new AtomicInteger(-1);
+        tenantAdmin.register(new ConcreteTenantDeployer()
+        {
+            @Override
+            public void onDisableTenant()
+            {
+                evicting.countDown();
+                try
+                {
+                    finishEviction.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+                enabledDuringEviction.set(deployer.enabled.get());
+            }
+        });
+        
+        tenantAdmin.onTenantAccess("tenant1");
+        assertEquals(1, deployer.enabled.get());
+        Thread.sleep(10);
+        
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            Future<Integer> eviction = executor.submit(new EvictIdleTenants());
+            assertTrue(evicting.await(10, TimeUnit.SECONDS));
+            
+            Future<?> access = executor.submit(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    tenantAdmin.onTenantAccess("tenant1");
+                }
+            });
+            Thread.sleep(100);
+            assertFalse("Access must wait for the eviction to finish", access.isDone());
+            
+            finishEviction.countDown();
+            assertEquals(Integer.valueOf(1), eviction.get(10, TimeUnit.SECONDS));
+            access.get(10, TimeUnit.SECONDS);
+            
+            // not reloaded until the eviction had finished
+            assertEquals(1, enabledDuringEviction.get());
+            assertEquals(2, deployer.enabled.get());
+            assertEquals(1, tenantAdmin.getLoadedTenantCount());
+        }
+        finally
+        {
+            finishEviction.countDown();
+            executor.shutdownNow();
+        }
+    }
+    
+    /**
+     * Bootstrap tenants lazily, with transactions that simply run their callbacks.
+     */
+    @SuppressWarnings("unchecked")
+    private CountingTenantDeployer setUpLazyBootstrap()
+    {
+        Answer<Object> runCallback = new Answer<Object>()
+        {
+            @Override
+            public Object answer(InvocationOnMock invocation) throws Throwable
+            {
+                return ((RetryingTransactionCallback<Object>) invocation.getArguments()[0]).execute();
+            }
+        };
+        txnHelper = mock(RetryingTransactionHelper.class);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean())).thenAnswer(runCallback);
+        when(txnHelper.doInTransaction(any(RetryingTransactionCallback.class), anyBoolean(), anyBoolean())).thenAnswer(runCallback);
+        TransactionService transactionService = mock(TransactionService.class);
+        when(transactionService.getRetryingTransactionHelper()).thenReturn(txnHelper);
+        
+        tenantAdmin.setTransactionService(transactionService);
+        tenantAdmin.setLazyTenantBootstrap(true);
+        tenantAdmin.setIdleTenantTimeoutMs(1L);
+        
+        CountingTenantDeployer deployer = new CountingTenantDeployer();
+        tenantAdmin.register(deployer);
+        return deployer;
+    }
+    
+    private class EvictIdleTenants implements Callable<Integer>
+    {
+        @Override
+        public Integer call()
+        {
+            return tenantAdmin.evictIdleTenants();
+        }
+    }
+    
+    private static class CountingTenantDeployer extends ConcreteTenantDeployer
+    {
+        private final AtomicInteger enabled = new AtomicInteger();
+        private final AtomicInteger disabled = new AtomicInteger();
+        
+        @Override
+        public void onEnableTenant()
+        {
+            enabled.incrementAndGet();
+        }
+        
+        @Override
+        public void onDisableTenant()
+        {
+            disabled.incrementAndGet();
+        }
+    }
+    
 
     
     
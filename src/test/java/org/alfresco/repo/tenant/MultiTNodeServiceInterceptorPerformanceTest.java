@@ -0,0 +1,210 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.tenant;
+
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.tenant.TenantUtil.TenantRunAsWork;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.NodeService;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.testing.category.PerformanceTests;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.springframework.aop.framework.ProxyFactory;
+
+/**
+ * Measures the time taken and memory allocated per call by the {@link MultiTNodeServiceInterceptor} chain,
+ * for a non-tenant (default domain) user and for a tenant user.
+ * 
+ * @since 7.6
+ */
+@Category(PerformanceTests.class)
+public class MultiTNodeServiceInterceptorPerformanceTest
+{
+    private static final Log logger = LogFactory.getLog(MultiTNodeServiceInterceptorPerformanceTest.class);
+
+    private static final String TENANT_DOMAIN = "perf.example.com";
+    private static final int CHILD_COUNT = 20;
+    private static final int WARM_UP = 20000;
+    private static final int ITERATIONS = 200000;
+
+    private boolean mtEnabled;
+    private NodeService nodeService;
+    private NodeRef nodeRef;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        mtEnabled = AuthenticationUtil.isMtEnabled();
+        AuthenticationUtil.setMtEnabled(true);
+
+        StoreRef storeRef = StoreRef.STORE_REF_WORKSPACE_SPACESSTORE;
+        StoreRef tenantStoreRef = new StoreRef(storeRef.getProtocol(),
+                TenantService.SEPARATOR + TENANT_DOMAIN + TenantService.SEPARATOR + storeRef.getIdentifier());
+        nodeRef = new NodeRef(storeRef, "parent");
+
+        // the same (tenant-qualified) child assocs are returned in either context
+        final List<ChildAssociationRef> childAssocs = new ArrayList<ChildAssociationRef>(CHILD_COUNT);
+        NodeRef tenantParentRef = new NodeRef(tenantStoreRef, "parent");
+        for (int i = 0; i < CHILD_COUNT; i++)
+        {
+            childAssocs.add(new ChildAssociationRef(ContentModel.ASSOC_CONTAINS, tenantParentRef,
+                    QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "child" + i), new NodeRef(tenantStoreRef, "child" + i)));
+        }
+        final ChildAssociationRef primaryParent = childAssocs.get(0);
+
+        NodeService target = (NodeService) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {NodeService.class}, new InvocationHandler()
+        {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+            {
+                String name = method.getName();
+                if (name.equals("getChildAssocs"))
+                {
+                    return new ArrayList<ChildAssociationRef>(childAssocs);
+                }
+                else if (name.equals("getPrimaryParent"))
+                {
+                    return primaryParent;
+                }
+                else if (name.equals("exists"))
+                {
+                    return Boolean.TRUE;
+                }
+                throw new UnsupportedOperationException(name);
+            }
+        });
+
+        MultiTNodeServiceInterceptor interceptor = new MultiTNodeServiceInterceptor();
+        interceptor.setTenantService(new MultiTServiceImpl());
+        ProxyFactory proxyFactory = new ProxyFactory(target);
+        proxyFactory.addInterface(NodeService.class);
+        proxyFactory.addAdvice(interceptor);
+        nodeService = (NodeService) proxyFactory.getProxy();
+    }
+
+    @After
+    public void tearDown() throws Exception
+    {
+        AuthenticationUtil.setMtEnabled(mtEnabled);
+        AuthenticationUtil.clearCurrentSecurityContext();
+    }
+
+    @Test
+    public void measureInterceptorChain() throws Exception
+    {
+        final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+        long[] defaultResult = AuthenticationUtil.runAs(new AuthenticationUtil.RunAsWork<long[]>()
+        {
+            public long[] doWork() throws Exception
+            {
+                return measure(threadBean);
+            }
+        }, "perfuser");
+
+        long[] tenantResult = TenantUtil.runAsUserTenant(new TenantRunAsWork<long[]>()
+        {
+            public long[] doWork() throws Exception
+            {
+                return measure(threadBean);
+            }
+        }, "perfuser", TENANT_DOMAIN);
+
+        String msg = String.format(
+                "MultiTNodeServiceInterceptor calls (exists, getPrimaryParent, getChildAssocs of %d children): " +
+                "non-tenant %.0f ns, %d bytes; tenant %.0f ns, %d bytes per call",
+                CHILD_COUNT,
+                defaultResult[0] / (double) ITERATIONS, defaultResult[1] / ITERATIONS,
+                tenantResult[0] / (double) ITERATIONS, tenantResult[1] / ITERATIONS);
+        logger.info(msg);
+        if (defaultResult[1] >= 0L)
+        {
+            assertTrue("Non-tenant calls should not convert references: " + msg, defaultResult[1] < tenantResult[1]);
+        }
+    }
+
+    /**
+     * @return the time taken (ns) and bytes allocated (or -1) for the iterations
+     */
+    private long[] measure(ThreadMXBean threadBean)
+    {
+        for (int i = 0; i < WARM_UP; i++)
+        {
+            call();
+        }
+
+        long bytes = allocatedBytes(threadBean);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            call();
+        }
+        long nanos = System.nanoTime() - start;
+        if (bytes >= 0L)
+        {
+            bytes = allocatedBytes(threadBean) - bytes;
+        }
+        return new long[] {nanos, bytes};
+    }
+
+    private void call()
+    {
+        nodeService.exists(nodeRef);
+        nodeService.getPrimaryParent(nodeRef);
+        nodeService.getChildAssocs(nodeRef);
+    }
+
+    /**
+     * @return the bytes allocated by this thread so far or -1 if the JVM cannot tell
+     */
+    private static long allocatedBytes(ThreadMXBean threadBean)
+    {
+        if (threadBean instanceof com.sun.management.ThreadMXBean)
+        {
+            return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1L;
+    }
+}
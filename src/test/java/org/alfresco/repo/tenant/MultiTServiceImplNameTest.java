@@ -0,0 +1,160 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2016 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.tenant;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.alfresco.repo.domain.tenant.TenantAdminDAO;
+import org.alfresco.repo.domain.tenant.TenantEntity;
+import org.alfresco.service.cmr.repository.AssociationRef;
+import org.alfresco.service.cmr.repository.ChildAssociationRef;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.cmr.repository.StoreRef;
+import org.alfresco.service.namespace.NamespaceService;
+import org.alfresco.service.namespace.QName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests that {@link MultiTServiceImpl} returns names unchanged when they need no conversion, and re-uses the
+ * names that it has converted.
+ * 
+ * @since 7.6
+ */
+public class MultiTServiceImplNameTest
+{
+    private static final String DOMAIN = "acme";
+    private static final StoreRef STORE = StoreRef.STORE_REF_WORKSPACE_SPACESSTORE;
+    private static final StoreRef TENANT_STORE = new StoreRef(StoreRef.PROTOCOL_WORKSPACE, "@acme@SpacesStore");
+    private static final QName NAME = QName.createQName(NamespaceService.CONTENT_MODEL_1_0_URI, "name");
+
+    private MultiTServiceImpl tenantService;
+
+    @Before
+    public void setUp()
+    {
+        TenantEntity tenant = new TenantEntity(DOMAIN);
+        tenant.setEnabled(true);
+        TenantAdminDAO tenantAdminDAO = mock(TenantAdminDAO.class);
+        when(tenantAdminDAO.getTenant(DOMAIN)).thenReturn(tenant);
+
+        tenantService = new MultiTServiceImpl();
+        tenantService.setTenantAdminDAO(tenantAdminDAO);
+    }
+
+    @After
+    public void tearDown()
+    {
+        TenantContextHolder.setTenantDomain(TenantService.DEFAULT_DOMAIN);
+    }
+
+    @Test
+    public void testNamesUnchangedInDefaultDomain()
+    {
+        TenantContextHolder.setTenantDomain(TenantService.DEFAULT_DOMAIN);
+        NodeRef nodeRef = new NodeRef(STORE, "node");
+        ChildAssociationRef childAssocRef = new ChildAssociationRef(NAME, nodeRef, NAME, new NodeRef(STORE, "child"));
+        AssociationRef assocRef = new AssociationRef(nodeRef, NAME, new NodeRef(STORE, "target"));
+
+        assertSame(STORE, tenantService.getName(STORE));
+        assertSame(nodeRef, tenantService.getName(nodeRef));
+        assertSame(NAME, tenantService.getName(NAME));
+        assertSame(childAssocRef, tenantService.getName(childAssocRef));
+        assertSame(assocRef, tenantService.getName(assocRef));
+
+        assertSame(STORE, tenantService.getBaseName(STORE));
+        assertSame(nodeRef, tenantService.getBaseName(nodeRef));
+        assertSame(NAME, tenantService.getBaseName(NAME, false));
+        assertSame(childAssocRef, tenantService.getBaseName(childAssocRef));
+        assertSame(assocRef, tenantService.getBaseName(assocRef));
+    }
+
+    @Test
+    public void testTenantNamesUnchangedInTenantDomain()
+    {
+        TenantContextHolder.setTenantDomain(DOMAIN);
+        NodeRef nodeRef = new NodeRef(TENANT_STORE, "node");
+        ChildAssociationRef childAssocRef = new ChildAssociationRef(NAME, nodeRef, NAME, new NodeRef(TENANT_STORE, "child"));
+        AssociationRef assocRef = new AssociationRef(nodeRef, NAME, new NodeRef(TENANT_STORE, "target"));
+
+        // already tenant-qualified
+        assertSame(TENANT_STORE, tenantService.getName(TENANT_STORE));
+        assertSame(nodeRef, tenantService.getName(nodeRef));
+        assertSame(childAssocRef, tenantService.getName(childAssocRef));
+        assertSame(assocRef, tenantService.getName(assocRef));
+
+        // no tenant prefix to remove
+        NodeRef baseNodeRef = new NodeRef(STORE, "node");
+        assertSame(STORE, tenantService.getBaseName(STORE));
+        assertSame(baseNodeRef, tenantService.getBaseName(baseNodeRef));
+        assertSame(NAME, tenantService.getBaseName(NAME, false));
+    }
+
+    @Test
+    public void testConvertedNamesAreCached()
+    {
+        TenantContextHolder.setTenantDomain(DOMAIN);
+
+        StoreRef tenantStore = tenantService.getName(STORE);
+        assertEquals(TENANT_STORE, tenantStore);
+        assertSame(tenantStore, tenantService.getName(STORE));
+        NodeRef tenantNodeRef = tenantService.getName(new NodeRef(STORE, "node"));
+        assertEquals(new NodeRef(TENANT_STORE, "node"), tenantNodeRef);
+        assertSame(tenantStore, tenantNodeRef.getStoreRef());
+
+        QName tenantName = tenantService.getName(NAME);
+        assertEquals(QName.createQName("@acme@" + NamespaceService.CONTENT_MODEL_1_0_URI, "name"), tenantName);
+        assertSame(tenantName, tenantService.getName(NAME));
+
+        StoreRef baseStore = tenantService.getBaseName(TENANT_STORE);
+        assertEquals(STORE, baseStore);
+        assertSame(baseStore, tenantService.getBaseName(new StoreRef(StoreRef.PROTOCOL_WORKSPACE, "@acme@SpacesStore")));
+        QName baseName = tenantService.getBaseName(tenantName, false);
+        assertEquals(NAME, baseName);
+        assertSame(baseName, tenantService.getBaseName(tenantName, false));
+
+        // a deleted tenant leaves nothing cached
+        tenantService.clearNameCaches();
+        StoreRef newTenantStore = tenantService.getName(STORE);
+        assertEquals(tenantStore, newTenantStore);
+        assertNotSame(tenantStore, newTenantStore);
+        assertNotSame(tenantName, tenantService.getName(NAME));
+    }
+
+    @Test
+    public void testNamesCachedPerDomain()
+    {
+        TenantContextHolder.setTenantDomain(DOMAIN);
+        StoreRef acmeStore = tenantService.getName(STORE);
+        TenantContextHolder.setTenantDomain("other");
+        StoreRef otherStore = tenantService.getName(STORE);
+        assertEquals(new StoreRef(StoreRef.PROTOCOL_WORKSPACE, "@other@SpacesStore"), otherStore);
+        assertFalse(acmeStore.equals(otherStore));
+    }
+}
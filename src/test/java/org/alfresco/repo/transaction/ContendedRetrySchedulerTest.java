@@ -0,0 +1,85 @@
+/*
+ * #%L
+ * Alfresco Repository
+ * %%
+ * Copyright (C) 2005 - 2018 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software. 
+ * If the software was purchased under a paid Alfresco license, the terms of 
+ * the paid license agreement will prevail.  Otherwise, the software is 
+ * provided under the following open source license terms:
+ * 
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.repo.transaction;
+
+import static org.junit.Assert.*;
+
+import org.alfresco.repo.transaction.ContendedRetryScheduler.RetryCause;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DeadlockLoserDataAccessException;
+import org.springframework.jdbc.UncategorizedSQLException;
+
+/**
+ * Tests for the {@link ContendedRetryScheduler} class.
+ * 
+ * @since 7.6
+ */
+public class ContendedRetrySchedulerTest
+{
+    private ContendedRetryScheduler scheduler;
+
+    @Before
+    public void setUp()
+    {
+        scheduler = new ContendedRetryScheduler();
+        scheduler.setEnabled(true);
+    }
+
+    @Test
+    public void classify()
+    {
+        assertEquals(RetryCause.DEADLOCK, ContendedRetryScheduler.classify(new DeadlockLoserDataAccessException("Victim", null)));
+        assertEquals(RetryCause.UNIQUE_CONSTRAINT, ContendedRetryScheduler.classify(new DataIntegrityViolationException("Duplicate")));
+        assertEquals(RetryCause.OPTIMISTIC_LOCK, ContendedRetryScheduler.classify(new ConcurrencyFailureException("Failed to update node 123")));
+        assertEquals(RetryCause.DEADLOCK, ContendedRetryScheduler.classify(
+                new UncategorizedSQLException("Task", "SQL", new java.sql.SQLException("Deadlock found"))));
+        assertEquals(RetryCause.OTHER, ContendedRetryScheduler.classify(new RuntimeException("Something")));
+    }
+
+    @Test
+    public void retryWaitGrowsWithinBounds()
+    {
+        for (int count = 0; count < 40; count++)
+        {
+            int wait = scheduler.getRetryWait(RetryCause.OPTIMISTIC_LOCK, count, 100, 2000);
+            assertTrue("Wait too short: " + wait, wait >= 100);
+            assertTrue("Wait too long: " + wait, wait <= 2000);
+            if (count >= 5)
+            {
+                // The ceiling has been reached so the wait is in the upper half
+                assertTrue("Wait not backed off: " + wait, wait >= 1000);
+            }
+        }
+        assertEquals(40L, scheduler.getRetryCount(RetryCause.OPTIMISTIC_LOCK));
+        assertEquals(Long.valueOf(40L), scheduler.getRetryCounts().get(RetryCause.OPTIMISTIC_LOCK.name()));
+        assertEquals(Long.valueOf(0L), scheduler.getRetryCounts().get(RetryCause.DEADLOCK.name()));
+        scheduler.resetStatistics();
+        assertEquals(0L, scheduler.getRetryCount(RetryCause.OPTIMISTIC_LOCK));
+    }
+}
@@ -25,6 +25,10 @@
  */
 package org.alfresco.repo.version;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -73,6 +77,7 @@ import org.alfresco.service.cmr.security.AccessStatus;
 import org.alfresco.service.cmr.security.PermissionService;
 import org.alfresco.service.cmr.security.PersonService;
 import org.alfresco.service.cmr.version.Version;
+import org.alfresco.service.cmr.version.VersionDoesNotExistException;
 import org.alfresco.service.cmr.version.VersionHistory;
 import org.alfresco.service.cmr.version.VersionService;
 import org.alfresco.service.cmr.version.VersionServiceException;
@@ -540,6 +545,118 @@ public class VersionServiceImplTest extends BaseVersionStoreTest
         addToVersionHistory(versionableNode, version4);    
     }
     
+    /**
+     * Test that a version history that loads its versions on demand matches one built in full
+     */
+    @Test
+    public void testLazyVersionHistory() throws Exception
+    {
+        NodeRef versionableNode = createNewVersionableNode();
+        Version version1 = createVersion(versionableNode);
+        Version version2 = createVersion(versionableNode);
+        Version version3 = createVersion(versionableNode);
+        
+        VersionHistory vh = createVersion2Service(true).getVersionHistory(versionableNode);
+        assertTrue(vh instanceof LazyVersionHistoryImpl);
+        assertEquals(version3.getVersionLabel(), vh.getHeadVersion().getVersionLabel());
+        assertEquals(version1.getVersionLabel(), vh.getRootVersion().getVersionLabel());
+        assertNull(vh.getPredecessor(vh.getRootVersion()));
+        assertEquals(version1.getVersionLabel(), vh.getPredecessor(version2).getVersionLabel());
+        assertEquals(version3.getVersionLabel(), vh.getSuccessors(version2).iterator().next().getVersionLabel());
+        assertEquals(0, vh.getSuccessors(version3).size());
+        assertEquals(version2.getFrozenStateNodeRef(), vh.getVersion(version2.getVersionLabel()).getFrozenStateNodeRef());
+        try
+        {
+            vh.getVersion("99.99");
+            fail("Expected a missing version label to be rejected");
+        }
+        catch (VersionDoesNotExistException e)
+        {
+            // Expected
+        }
+        
+        // All versions are in the same order as a history built in full
+        List<String> expectedLabels = new ArrayList<String>();
+        VersionHistory builtHistory = createVersion2Service(false).getVersionHistory(versionableNode);
+        assertFalse(builtHistory instanceof LazyVersionHistoryImpl);
+        for (Version version : builtHistory.getAllVersions())
+        {
+            expectedLabels.add(version.getVersionLabel());
+        }
+        List<String> labels = new ArrayList<String>();
+        for (Version version : vh.getAllVersions())
+        {
+            labels.add(version.getVersionLabel());
+        }
+        assertEquals(expectedLabels, labels);
+        
+        // Serializes as a history built in full
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(vh);
+        out.close();
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        VersionHistory copy = (VersionHistory) in.readObject();
+        assertEquals(3, copy.getAllVersions().size());
+        assertEquals(version3.getVersionLabel(), copy.getHeadVersion().getVersionLabel());
+    }
+    
+    /**
+     * Test that a version history that loads its versions on demand leaves out versions deleted after it was listed
+     */
+    @Test
+    public void testLazyVersionHistoryAfterDeleteVersion() throws Exception
+    {
+        NodeRef versionableNode = createNewVersionableNode();
+        Version version1 = createVersion(versionableNode);
+        Version version2 = createVersion(versionableNode);
+        Version version3 = createVersion(versionableNode);
+        
+        VersionHistory vh = createVersion2Service(true).getVersionHistory(versionableNode);
+        assertTrue(vh instanceof LazyVersionHistoryImpl);
+        
+        // Delete the head and a middle version before they are loaded
+        versionService.deleteVersion(versionableNode, version3);
+        versionService.deleteVersion(versionableNode, version2);
+        
+        assertEquals(version1.getVersionLabel(), vh.getHeadVersion().getVersionLabel());
+        assertEquals(version1.getVersionLabel(), vh.getRootVersion().getVersionLabel());
+        assertEquals(0, vh.getSuccessors(version1).size());
+        assertEquals(1, vh.getAllVersions().size());
+        try
+        {
+            vh.getVersion(version2.getVersionLabel());
+            fail("Expected a deleted version label to be rejected");
+        }
+        catch (VersionDoesNotExistException e)
+        {
+            // Expected
+        }
+        
+        // Deleting the last version removes the version history node
+        vh = createVersion2Service(true).getVersionHistory(versionableNode);
+        versionService.deleteVersion(versionableNode, version1);
+        assertNull(vh.getHeadVersion());
+        assertNull(vh.getRootVersion());
+        assertEquals(0, vh.getAllVersions().size());
+    }
+    
+    private Version2ServiceImpl createVersion2Service(boolean lazyVersionHistory)
+    {
+        Version2ServiceImpl version2Service = new Version2ServiceImpl();
+        version2Service.setNodeService(nodeService);
+        version2Service.setDbNodeService(dbNodeService);
+        version2Service.setSearcher(versionSearchService);
+        version2Service.setDictionaryService(dictionaryService);
+        version2Service.setPolicyComponent(policyComponent);
+        version2Service.setPolicyBehaviourFilter(policyBehaviourFilter);
+        version2Service.setPermissionService(permissionService);
+        version2Service.setTransactionService(transactionService);
+        version2Service.setLazyVersionHistory(lazyVersionHistory);
+        version2Service.initialise();
+        return version2Service;
+    }
+    
     /**
      * Same as testGetVersionHistorySameWorkspace except that the order of
      * of db ids is mixed up and a comparator is need to fix it (MNT-226).
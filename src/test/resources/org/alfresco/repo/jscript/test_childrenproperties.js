@@ -0,0 +1,13 @@
+// reads a few properties of each child of a folder - as web scripts rendering a list of nodes do
+var count = 0;
+var children = folder.children;
+for (var i = 0; i < children.length; i++)
+{
+   var child = children[i];
+   var title = child.properties["cm:title"];
+   if (child.properties["cm:name"] == child.name && child.isContainer == false)
+   {
+      count++;
+   }
+}
+count;